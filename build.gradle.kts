@@ -4,6 +4,7 @@ plugins {
     id("org.javamodularity.moduleplugin") version "1.8.15"
     id("org.openjfx.javafxplugin") version "0.0.13"
     id("org.beryx.jlink") version "2.25.0"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.example"
@@ -53,6 +54,175 @@ tasks.withType<Test> {
     useJUnitPlatform()
 }
 
+// Benchmarks live in src/jmh/java: `gradle jmh` (-PjmhInclude=Regex to run a subset).
+// Results go to build/results/jmh/results.json. `gradle jmhBaseline` (without -PjmhInclude) runs all benchmarks and
+// copies the results to benchmarks/jmh-baseline.json: run it on the reference machine and commit that file as the
+// reference for later runs (the file does not exist until that has been done once).
+jmh {
+    jmhVersion = "1.37"
+    includes = listOf((project.findProperty("jmhInclude") ?: ".*").toString())
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+}
+
+tasks.register<Copy>("jmhBaseline") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks and stores the results as benchmarks/jmh-baseline.json (commit it)."
+    dependsOn("jmh")
+    from(layout.buildDirectory.file("results/jmh/results.json"))
+    into(layout.projectDirectory.dir("benchmarks"))
+    rename { "jmh-baseline.json" }
+}
+
+tasks.register<JavaExec>("batchSim") {
+    group = "application"
+    description = "Runs headless missions on all cores and prints statistics per mission type (-Pruns=N -Pseed=S -Pdt=0.2 -Pintegrator=RK4 -PmaxSubstep=0.05)."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainModule.set("com.example.flightlab")
+    mainClass.set("com.example.flightlab.BatchSimulator")
+    args(
+        (project.findProperty("runs") ?: "10000").toString(),
+        (project.findProperty("seed") ?: "42").toString(),
+        (project.findProperty("dt") ?: (1.0 / 60).toString()).toString(),
+        (project.findProperty("integrator") ?: "SEMI_IMPLICIT_EULER").toString(),
+        (project.findProperty("maxSubstep") ?: "Infinity").toString()
+    )
+}
+
+tasks.register<JavaExec>("compareIntegrators") {
+    group = "application"
+    description = "Prints trajectory error and landing agreement of the integrators at large time steps (-Pruns=N per mission)."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainModule.set("com.example.flightlab")
+    mainClass.set("com.example.flightlab.IntegratorComparison")
+    args((project.findProperty("runs") ?: "200").toString())
+}
+
+tasks.register<JavaExec>("parScores") {
+    group = "application"
+    description = "Searches a near-optimal autopilot per mission on all cores and writes par time, fuel and trajectory to par/ (-Pmission=id -Pseed=S -Pseconds=50)."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainModule.set("com.example.flightlab")
+    mainClass.set("com.example.flightlab.ParOptimizer")
+    args(
+        (project.findProperty("mission") ?: "all").toString(),
+        (project.findProperty("seed") ?: "42").toString(),
+        (project.findProperty("seconds") ?: "50").toString()
+    )
+}
+
+tasks.register<JavaExec>("multiplayerServer") {
+    group = "application"
+    description = "Starts the authoritative multiplayer server (-Pport=47800 -Ppilots=8 -Prate=30)."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainModule.set("com.example.flightlab")
+    mainClass.set("com.example.flightlab.MultiplayerServer")
+    args(
+        (project.findProperty("port") ?: "47800").toString(),
+        (project.findProperty("pilots") ?: "8").toString(),
+        (project.findProperty("rate") ?: "30").toString()
+    )
+}
+
+tasks.register<JavaExec>("multiplayerLoadTest") {
+    group = "application"
+    description = "Doubles the shared sessions on a local multiplayer server until it cannot hold its tick rate (-Ppilots=8 -Pseconds=5 -PmaxSessions=1024 -Prate=30)."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainModule.set("com.example.flightlab")
+    mainClass.set("com.example.flightlab.MultiplayerLoadTest")
+    args(
+        (project.findProperty("pilots") ?: "8").toString(),
+        (project.findProperty("seconds") ?: "5").toString(),
+        (project.findProperty("maxSessions") ?: "1024").toString(),
+        (project.findProperty("rate") ?: "30").toString()
+    )
+}
+
+tasks.register<JavaExec>("quizServer") {
+    group = "application"
+    description = "Starts the HTTP quiz service for classrooms and kiosks (-Pport=47801 -PmaxSessions=20000)."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainModule.set("com.example.flightlab")
+    mainClass.set("com.example.flightlab.QuizServer")
+    args(
+        (project.findProperty("port") ?: "47801").toString(),
+        (project.findProperty("maxSessions") ?: "20000").toString()
+    )
+}
+
+tasks.register<JavaExec>("quizLoadTest") {
+    group = "application"
+    description = "Plays many quiz sessions at once against a local quiz server and reports the p99 answer latency (-Psessions=10000 -Pquestions=10 -PinFlight=256 -Pplayers=100)."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainModule.set("com.example.flightlab")
+    mainClass.set("com.example.flightlab.QuizLoadTest")
+    args(
+        (project.findProperty("sessions") ?: "10000").toString(),
+        (project.findProperty("questions") ?: "10").toString(),
+        (project.findProperty("inFlight") ?: "256").toString(),
+        (project.findProperty("players") ?: "100").toString()
+    )
+}
+
+tasks.register<JavaExec>("questionBank") {
+    group = "application"
+    description = "Regenerates src/main/resources/questions.bin from QuestionDataBase (-Pquestions=N writes N test questions to build/questions.bin instead)."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainModule.set("com.example.flightlab")
+    mainClass.set("com.example.flightlab.QuestionBankWriter")
+    val synthetic = project.findProperty("questions")?.toString()
+    if (synthetic != null) {
+        args(layout.buildDirectory.file("questions.bin").get().asFile.absolutePath, synthetic)
+    } else {
+        args(file("src/main/resources/questions.bin").absolutePath)
+    }
+}
+
+tasks.register<JavaExec>("replay") {
+    group = "application"
+    description = "Replays a recorded flight headless and checks it matches the recording (-Preplay=file.flr, latest in replays/ by default)."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainModule.set("com.example.flightlab")
+    mainClass.set("com.example.flightlab.Replay")
+    workingDir = projectDir
+    project.findProperty("replay")?.let { args(it.toString()) }
+}
+
+tasks.register<JavaExec>("verifyReplays") {
+    group = "application"
+    description = "Re-simulates recorded flights on all cores and reports verified/rejected runs per second (-Pruns=N generated runs, or -Pdir=path)."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainModule.set("com.example.flightlab")
+    mainClass.set("com.example.flightlab.ReplayVerifier")
+    args((project.findProperty("dir") ?: project.findProperty("runs") ?: "2000").toString())
+}
+
+// `gradle run -Pjfr` records a flight recording with the FlightLab events to build/jfr/flightlab.jfr,
+// `gradle jfrReport` (-Pjfr=path) prints a summary of it.
+val jfrFile = layout.buildDirectory.file("jfr/flightlab.jfr")
+
+tasks.named<JavaExec>("run") {
+    if (project.hasProperty("jfr")) {
+        doFirst { jfrFile.get().asFile.parentFile.mkdirs() }
+        jvmArgs(
+            "-XX:StartFlightRecording:settings=default,settings=" +
+                file("src/main/resources/jfr/flightlab.jfc").absolutePath +
+                ",filename=" + jfrFile.get().asFile.absolutePath + ",dumponexit=true"
+        )
+    }
+}
+
+tasks.register<JavaExec>("jfrReport") {
+    group = "application"
+    description = "Summarizes a flight recording made with -Pjfr (-Pjfr=path to use another file)."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainModule.set("com.example.flightlab")
+    mainClass.set("com.example.flightlab.JfrAnalyzer")
+    val recording = project.findProperty("jfr")?.toString()?.takeIf { it.isNotEmpty() && it != "true" }
+    args(recording ?: jfrFile.get().asFile.absolutePath)
+}
+
 jlink {
     imageZip.set(layout.buildDirectory.file("/distributions/app-${javafx.platform.classifier}.zip"))
     options.set(listOf("--strip-debug", "--compress", "2", "--no-header-files", "--no-man-pages"))
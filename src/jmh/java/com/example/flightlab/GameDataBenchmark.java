@@ -0,0 +1,103 @@
+package com.example.flightlab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Saving, loading and login lookup for rosters from 10 to 1M players
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameDataBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int players;
+
+    private File file;
+    private GameData data;
+    private String lastName;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = File.createTempFile("flightlab_bench", ".dat");
+        file.delete();
+        data = new GameData(file);
+
+        List<Player> roster = new ArrayList<>(players);
+        for (int i = 0; i < players; i++) {
+            Player p = new Player(i + 1, "Pilot_" + i);
+            p.setQuizPoints(i % 50);
+            p.setMissionPoints(i % 300);
+            roster.add(p);
+        }
+        for (Player p : roster) data.getPersistence().playerCreated(p);
+        data.saveData();
+        data.flush();
+        data.loadData(); //rebuilds the name index and the leaderboard
+        lastName = "PILOT_" + (players - 1); //worst case for a linear scan, different case on purpose
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        data.getPersistence().close();
+        file.delete();
+        new File(file.getPath() + ".journal").delete();
+    }
+
+    @Benchmark
+    public void saveData() {
+        data.saveData();
+        data.flush();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int rankOfPlayer() {
+        Player p = data.getPlayers().get(next = (next + 7919) % players);
+        return data.getRank(p);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<Player> playersAround() {
+        Player p = data.getPlayers().get(next = (next + 7919) % players);
+        return data.getPlayersAround(p, 5);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int addQuizPoint() {
+        Player p = data.getPlayers().get(next = (next + 7919) % players);
+        data.addQuizPoint(p);
+        return p.getQuizPoints();
+    }
+
+    @Benchmark
+    public int loadData() {
+        data.loadData();
+        return data.getPlayers().size();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Player loginExistingWorstCase() {
+        data.login(lastName);
+        return data.getCurrentPlayer();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Player loginExistingSpread() {
+        next = (next + 7919) % players;
+        data.login("pilot_" + next);
+        return data.getCurrentPlayer();
+    }
+}
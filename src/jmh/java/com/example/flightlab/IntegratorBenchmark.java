@@ -0,0 +1,49 @@
+package com.example.flightlab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//Cost of one simulated second of a mission tick loop per integrator and step.
+//Accuracy for the same settings is printed by IntegratorComparison (gradle compareIntegrators).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntegratorBenchmark {
+
+    @Param({"EXPLICIT_EULER", "SEMI_IMPLICIT_EULER", "RK4"})
+    public Integrator integrator;
+
+    @Param({"0.016666666666666666", "0.05", "0.2"})
+    public double dt;
+
+    private MissionSimulation sim;
+    private int stepsPerSecond;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        stepsPerSecond = (int) Math.round(1 / dt);
+        reset();
+    }
+
+    private void reset() {
+        sim = new MissionSimulation(MissionType.NORMAL);
+        sim.setIntegration(integrator, Double.POSITIVE_INFINITY);
+        FlightLab_Main.Plane p = sim.getPlane();
+        p.x = 1000;
+        p.y = 400;
+        p.vx = 190;
+        p.throttle = 0.5;
+        p.onGround = false;
+    }
+
+    @Benchmark
+    public double simulatedSecond() {
+        if (sim.isFinished() || sim.getPlane().x > 30_000) reset();
+        for (int i = 0; i < stepsPerSecond; i++) sim.step(dt, Controls.NONE);
+        return sim.getPlane().x;
+    }
+}
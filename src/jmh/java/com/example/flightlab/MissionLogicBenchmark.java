@@ -0,0 +1,79 @@
+package com.example.flightlab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+//MissionLogic.evaluate for every built-in mission, with the plane in flight and stopped on the runway,
+//and along a route with extraZones more zones and rules: the cost per tick should not grow with them
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MissionLogicBenchmark {
+
+    private static final double ROUTE = 40000;
+
+    @Param({"NORMAL", "PRECISION", "EMERGENCY", "LOW_PASS"})
+    public MissionType mission;
+
+    @Param({"0", "1000"})
+    public int extraZones;
+
+    private MissionLogic logic;
+    private FlightLab_Main.Plane flying;
+    private FlightLab_Main.Plane landed;
+    private FlightLab_Main.Plane cruising;
+
+    @Setup
+    public void setup() throws IOException {
+        logic = new MissionLogic(extraZones == 0 ? MissionCatalog.getInstance().get(mission) : withZones(extraZones));
+
+        flying = new FlightLab_Main.Plane(5600, 600);
+        flying.vx = 120;
+
+        landed = new FlightLab_Main.Plane(5250, MissionSimulation.GROUND_Y);
+        landed.onGround = true;
+
+        cruising = new FlightLab_Main.Plane(0, 400);
+        cruising.vx = 150;
+    }
+
+    //The mission file plus checkpoint zones over the whole route, each with a rule
+    private MissionDefinition withZones(int zones) throws IOException {
+        StringBuilder text = new StringBuilder();
+        text.append("id bench\ntype ").append(mission).append("\nname bench\nobjective bench\n")
+                .append("spawn x=100 y=650 vx=0 fuel=100 throttle=0\n")
+                .append("engine thrust=200 maxThrottle=1 fuelBurn=0.05\n")
+                .append("runway 0 1500\nrunway 5000 1500 destination\n");
+        double width = ROUTE / zones;
+        for (int i = 0; i < zones; i++) {
+            text.append("zone z").append(i).append(' ').append(i * width).append(' ').append(i * width + width / 2).append('\n');
+            text.append("when in z").append(i).append(" and flying and height < 20 then lose \"nisko\"\n");
+        }
+        text.append("when stopped and in destination then win 50\n");
+        return MissionDefinition.parse(new StringReader(text.toString()), "bench");
+    }
+
+    @Benchmark
+    public int evaluateInFlight() {
+        return logic.evaluate(flying, true);
+    }
+
+    @Benchmark
+    public int evaluateLanded() {
+        return logic.evaluate(landed, true);
+    }
+
+    //One 60 Hz tick of movement per call, wrapping at the end of the route
+    @Benchmark
+    public int evaluateAlongRoute() {
+        double x = cruising.x + 2.5;
+        cruising.x = x < ROUTE ? x : 0;
+        return logic.evaluate(cruising, true);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.flightlab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//Cost of one physics step: the single Plane, a whole mission tick and the structure-of-arrays fleet
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhysicsBenchmark {
+
+    private static final double DT = BatchSimulator.DEFAULT_DT;
+
+    @Param({"NORMAL", "EMERGENCY"})
+    public MissionType mission;
+
+    private FlightLab_Main.Plane plane;
+    private MissionSimulation sim;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        plane = new FlightLab_Main.Plane(100, 400);
+        plane.vx = 150;
+        plane.throttle = 0.7;
+        plane.angle = -5;
+
+        sim = new MissionSimulation(mission);
+    }
+
+    @Benchmark
+    public double planeUpdatePhysics() {
+        plane.updatePhysics(DT, 10, 0, mission);
+        //Keep the plane in a realistic state instead of flying off to infinity
+        if (plane.x > 10_000) plane.x = 100;
+        if (plane.y > MissionSimulation.GROUND_Y) { plane.y = MissionSimulation.GROUND_Y; plane.vy = 0; }
+        return plane.x + plane.y;
+    }
+
+    @Benchmark
+    public long missionSimulationStep() {
+        if (sim.isFinished()) sim = new MissionSimulation(mission);
+        sim.step(DT, Controls.RIGHT);
+        return sim.getTicks();
+    }
+
+    @State(Scope.Thread)
+    public static class FleetState {
+        @Param({"1000", "10000", "100000"})
+        public int aircraft;
+
+        AircraftFleet fleet;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            fleet = new AircraftFleet(aircraft);
+            FlightLab_Main.Plane template = new FlightLab_Main.Plane(0, 300);
+            for (int i = 0; i < aircraft; i++) {
+                template.x = i;
+                template.vx = 100 + (i % 100);
+                template.throttle = (i % 10) / 10.0;
+                fleet.add(template, MissionType.NORMAL);
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void fleetStep(FleetState state) {
+        state.fleet.step(DT, 10, 0);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void fleetStepParallel(FleetState state) {
+        state.fleet.stepParallel(DT, 10, 0);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.flightlab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//Building the question list and drawing a quiz from it (as MainMenu.startQuiz does),
+//plus drawing from a large generated question bank
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuestionBenchmark {
+
+    @Param({"100000"})
+    public int bankSize;
+
+    private File bankFile;
+    private QuestionBank bank;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        bankFile = File.createTempFile("flightlab-bench", ".bin");
+        QuestionBankWriter writer = new QuestionBankWriter(QuestionDataBase.CATEGORIES, QuestionDataBase.DIFFICULTY_LEVELS);
+        List<Question> base = QuestionDataBase.getQuestions();
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < bankSize; i++) {
+            Question b = base.get(i % base.size());
+            writer.add(new Question(b.text + " " + i, b.a, b.b, b.c, b.d, b.correct, b.imageUrl, b.audioUrl,
+                    random.nextInt(QuestionDataBase.CATEGORIES.size()), 1 + random.nextInt(QuestionDataBase.DIFFICULTY_LEVELS)));
+        }
+        writer.write(bankFile);
+        bank = QuestionBank.open(bankFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bankFile.delete();
+    }
+
+    @Benchmark
+    public List<Question> getQuestions() {
+        return QuestionDataBase.getQuestions();
+    }
+
+    @Benchmark
+    public List<Question> drawQuiz() {
+        return QuestionDataBase.drawRandom(10);
+    }
+
+    @Benchmark
+    public QuestionBank openLargeBank() throws IOException {
+        return QuestionBank.open(bankFile);
+    }
+
+    @Benchmark
+    public List<Question> sampleLargeBank() {
+        return bank.sample(10, ThreadLocalRandom.current());
+    }
+
+    @Benchmark
+    public List<Question> sampleLargeBankByCategory() {
+        return bank.sample(10, QuestionDataBase.RULES, 3, ThreadLocalRandom.current());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.flightlab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+//Broad phase for AI traffic: the spatial grid should grow about linearly with the aircraft count
+//(us/op divided by aircraft stays flat), the pairwise check grows with the square.
+//Aircraft are spread at the same density as AirTraffic (per 1000 of them, one 35 km route).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrafficBenchmark {
+
+    private static final double DT = BatchSimulator.DEFAULT_DT;
+
+    @Param({"1000", "4000", "16000", "64000"})
+    public int aircraft;
+
+    private double[] x, y;
+    private SpatialGrid grid;
+    private AirTraffic traffic;
+    private FlightLab_Main.Plane player;
+    private WindField wind;
+    private double time;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom rnd = new SplittableRandom(3);
+        double width = 35_000.0 * aircraft / 1000;
+        x = new double[aircraft];
+        y = new double[aircraft];
+        for (int i = 0; i < aircraft; i++) {
+            x[i] = rnd.nextDouble(width);
+            y[i] = 60 + rnd.nextDouble(380);
+        }
+        grid = new SpatialGrid(AirTraffic.SEPARATION);
+        traffic = new AirTraffic(aircraft, 1);
+        player = new FlightLab_Main.Plane(10_000, 300);
+        wind = new WindField(1);
+    }
+
+    @Benchmark
+    public int gridRebuild() {
+        grid.rebuild(x, y, aircraft);
+        return grid.size();
+    }
+
+    //Every aircraft against its neighbours: rebuild + all separation pairs
+    @Benchmark
+    public int gridAllPairs() {
+        grid.rebuild(x, y, aircraft);
+        return grid.countPairs(AirTraffic.SEPARATION, x, y);
+    }
+
+    //A whole traffic tick: AI controls, fleet physics, grid and the player checks
+    @Benchmark
+    public double trafficStep() {
+        time += DT;
+        traffic.step(DT, wind, time, player);
+        return traffic.getNearestDistance();
+    }
+
+    //O(n^2) reference, only for the smaller fleets
+    @State(Scope.Thread)
+    public static class NaiveState {
+        @Param({"1000", "4000", "16000"})
+        public int aircraft;
+
+        double[] x, y;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            SplittableRandom rnd = new SplittableRandom(3);
+            double width = 35_000.0 * aircraft / 1000;
+            x = new double[aircraft];
+            y = new double[aircraft];
+            for (int i = 0; i < aircraft; i++) {
+                x[i] = rnd.nextDouble(width);
+                y[i] = 60 + rnd.nextDouble(380);
+            }
+        }
+    }
+
+    @Benchmark
+    public int naiveAllPairs(NaiveState state) {
+        return SpatialGrid.countPairsNaive(AirTraffic.SEPARATION, state.x, state.y, state.aircraft);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.flightlab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//Wind field sampling: one sample on a warm tile should take a few nanoseconds,
+//and a fleet in the field should cost little more than a fleet in uniform wind (PhysicsBenchmark.fleetStep)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WindBenchmark {
+
+    private static final double DT = BatchSimulator.DEFAULT_DT;
+
+    private WindField wind;
+    private final double[] out = new double[2];
+    private double x, time;
+    private long seed;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        wind = new WindField(1);
+        x = 0;
+        time = 0;
+    }
+
+    //A plane flying at mission speed through the field
+    @Benchmark
+    public double sample() {
+        x += 3;
+        time += DT;
+        if (x > 20_000) x = 0;
+        wind.sample(x, 400, time, out);
+        return out[0] + out[1];
+    }
+
+    //Cold start: a new field, the first sample builds the tiles
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double firstSample() {
+        WindField fresh = new WindField(++seed);
+        fresh.sample(x, 400, 0, out);
+        return out[0];
+    }
+
+    @State(Scope.Thread)
+    public static class FleetState {
+        @Param({"1000", "10000", "100000"})
+        public int aircraft;
+
+        AircraftFleet fleet;
+        WindField wind;
+        double time;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            fleet = new AircraftFleet(aircraft);
+            wind = new WindField(1);
+            FlightLab_Main.Plane template = new FlightLab_Main.Plane(0, 300);
+            for (int i = 0; i < aircraft; i++) {
+                template.x = i;
+                template.vx = 100 + (i % 100);
+                template.throttle = (i % 10) / 10.0;
+                fleet.add(template, MissionType.NORMAL);
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void fleetStepInField(FleetState state) {
+        state.time += DT;
+        state.fleet.stepParallel(DT, state.wind, state.time);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.flightlab;
+
+import java.util.SplittableRandom;
+
+//AI aircraft for the traffic mission. Each one flies a simple flight plan: cruise at a fixed
+//height from one airfield to another, then get a new plan from there. They fly in an AircraftFleet,
+//and every tick a SpatialGrid is rebuilt for separation and collision checks against the player.
+//Everything depends only on the seed and the ticks, so traffic missions replay exactly like the others.
+public class AirTraffic {
+
+    public static final double AIRFIELD_SPACING = 5000;
+    public static final int AIRFIELDS = 8;              //at x = 0, 5000, ... 35000
+    public static final double SEPARATION = 150;        //warning radius around the player
+    public static final double COLLISION = 30;          //centres closer than this = mid-air collision
+    private static final double CRUISE_MIN_Y = 60, CRUISE_MAX_Y = 440; //above the player's airfields
+    private static final int[] NO_OUTPUT = new int[0];
+    private static final double LEVEL_SPEED = 9.81 * 20; //lift = speed at zero pitch, so this speed holds height
+    private static final double SPEED_PER_THROTTLE = 2 * 200; //cruise speed = thrust / drag factor 0.5
+
+    private final AircraftFleet fleet;
+    private final SpatialGrid grid = new SpatialGrid(SEPARATION);
+    private final SplittableRandom random;
+
+    //Flight plan per aircraft
+    private final double[] targetX;
+    private final double[] cruiseY;
+    private final byte[] direction; //+1 flying right, -1 flying left
+
+    private int intruders = 0;
+    private double nearest = Double.POSITIVE_INFINITY;
+
+    public AirTraffic(int aircraft, long seed) {
+        this.fleet = new AircraftFleet(aircraft);
+        this.random = new SplittableRandom(seed);
+        this.targetX = new double[aircraft];
+        this.cruiseY = new double[aircraft];
+        this.direction = new byte[aircraft];
+
+        FlightLab_Main.Plane template = new FlightLab_Main.Plane(0, 0);
+        double worldEnd = (AIRFIELDS - 1) * AIRFIELD_SPACING;
+        for (int i = 0; i < aircraft; i++) {
+            //Spread over the whole route, already cruising
+            template.x = random.nextDouble(worldEnd);
+            template.y = CRUISE_MIN_Y + random.nextDouble(CRUISE_MAX_Y - CRUISE_MIN_Y);
+            int dir = random.nextBoolean() ? 1 : -1;
+            template.throttle = LEVEL_SPEED / SPEED_PER_THROTTLE;
+            template.vx = dir * LEVEL_SPEED;
+            template.vy = 0;
+            template.fuel = 100;
+            template.angle = dir > 0 ? 0 : 180;
+            int index = fleet.add(template, MissionType.NORMAL);
+            plan(index, dir);
+        }
+    }
+
+    //Flight to the next airfield or the one after it in direction dir, turning back at the ends of the route
+    private void plan(int i, int dir) {
+        double x = fleet.x[i];
+        int to;
+        if (dir > 0) {
+            to = (int) Math.floor(x / AIRFIELD_SPACING) + 1 + random.nextInt(2);
+            if (to >= AIRFIELDS) dir = -1;
+        } else {
+            to = (int) Math.ceil(x / AIRFIELD_SPACING) - 1 - random.nextInt(2);
+            if (to < 0) dir = 1;
+        }
+        if (dir > 0) to = Math.min(AIRFIELDS - 1, Math.max(to, (int) Math.floor(x / AIRFIELD_SPACING) + 1));
+        else to = Math.max(0, Math.min(to, (int) Math.ceil(x / AIRFIELD_SPACING) - 1));
+        targetX[i] = to * AIRFIELD_SPACING;
+        //Turning back is a quick 180 over the airfield, not a slow stop in the air
+        if (fleet.vx[i] * dir < 0) fleet.vx[i] = -fleet.vx[i];
+        direction[i] = (byte) dir;
+        cruiseY[i] = CRUISE_MIN_Y + random.nextDouble(CRUISE_MAX_Y - CRUISE_MIN_Y);
+        fleet.setAngle(i, dir > 0 ? 0 : 180);
+    }
+
+    //AI controls, fleet physics in the wind at every aircraft, then the grid and the checks around the player
+    public void step(double dt, WindField wind, double time, FlightLab_Main.Plane player) {
+        int n = fleet.size();
+        for (int i = 0; i < n; i++) {
+            int dir = direction[i];
+            if ((dir > 0 && fleet.x[i] >= targetX[i]) || (dir < 0 && fleet.x[i] <= targetX[i])) {
+                plan(i, random.nextBoolean() ? 1 : -1); //arrived, fly on to another airfield
+                continue;
+            }
+            //Hold the cruise height: faster (more lift) when too low, and the nose like ScriptedPilot
+            //(negative angle = nose up), mirrored when flying left
+            double error = fleet.y[i] - cruiseY[i];
+            double targetSpeed = LEVEL_SPEED + Math.max(-40, Math.min(40, error * 0.5));
+            fleet.setThrottle(i, targetSpeed / SPEED_PER_THROTTLE);
+            double pitchAngle = Math.max(-15, Math.min(10, -error * 0.1));
+            double target = dir > 0 ? pitchAngle : 180 - pitchAngle;
+            double diff = target - fleet.angle[i];
+            if (diff > 1) fleet.turn(i, Math.min(diff, 60 * dt));
+            else if (diff < -1) fleet.turn(i, Math.max(diff, -60 * dt));
+        }
+        fleet.stepParallel(dt, wind, time);
+
+        grid.rebuild(fleet.x, fleet.y, n);
+        nearest = grid.nearest(player.x, player.y, SEPARATION, fleet.x, fleet.y);
+        intruders = grid.query(player.x, player.y, SEPARATION, fleet.x, fleet.y, NO_OUTPUT);
+    }
+
+    public boolean isCollision() { return nearest <= COLLISION; }
+    public int getIntruders() { return intruders; }
+    public double getNearestDistance() { return nearest; }
+    public AircraftFleet getFleet() { return fleet; }
+    public SpatialGrid getGrid() { return grid; }
+    public int size() { return fleet.size(); }
+}
@@ -0,0 +1,341 @@
+package com.example.flightlab;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//Many aircraft stored column by column (structure of arrays) and stepped in one tight loop.
+//Same physics as FlightLab_Main.Plane.updatePhysics plus the ground/ceiling rules of MissionSimulation.
+//The ground is flat GROUND_Y, or the hills of a Terrain given with setTerrain.
+//A tick allocates nothing: all columns and parallel tasks are created up front.
+public class AircraftFleet {
+
+    private static final double GRAVITY = 9.81 * 20;
+    private static final int MIN_CHUNK = 1024;
+
+    private final int capacity;
+    private int count = 0;
+
+    final double[] x, y, vx, vy;
+    final double[] angle, pitch, throttle, fuel;
+    final double[] cosA, sinA;    //cached from angle, trigonometry stays out of the tick loop
+    final double[] maxThrust;     //engine of the aircraft's mission
+    final double[] fuelBurn;
+    final long[] onGroundBits, flapsBits;
+
+    private final ForkJoinPool pool;
+    private final Chunk[] chunks;
+    private final StepAll stepAll = new StepAll();
+    private double stepDt, stepWindX, stepWindY, stepTime;
+    private WindField stepWind;
+    private final double[] windSample = new double[2];
+    private Terrain terrain; //null: flat ground
+
+    public AircraftFleet(int capacity) {
+        this(capacity, ForkJoinPool.commonPool());
+    }
+
+    public AircraftFleet(int capacity, ForkJoinPool pool) {
+        this.capacity = capacity;
+        x = new double[capacity];
+        y = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        angle = new double[capacity];
+        pitch = new double[capacity];
+        throttle = new double[capacity];
+        fuel = new double[capacity];
+        cosA = new double[capacity];
+        sinA = new double[capacity];
+        maxThrust = new double[capacity];
+        fuelBurn = new double[capacity];
+        onGroundBits = new long[(capacity + 63) >>> 6];
+        flapsBits = new long[(capacity + 63) >>> 6];
+
+        this.pool = pool;
+        int chunkCount = Math.max(1, Math.min(pool.getParallelism() * 4, (capacity + MIN_CHUNK - 1) / MIN_CHUNK));
+        chunks = new Chunk[chunkCount];
+        for (int i = 0; i < chunkCount; i++) chunks[i] = new Chunk(i);
+    }
+
+    //Adds an aircraft with the state of the given plane, returns its index
+    public int add(FlightLab_Main.Plane plane, MissionType mission) {
+        return add(plane, MissionCatalog.getInstance().get(mission));
+    }
+
+    public int add(FlightLab_Main.Plane plane, MissionDefinition mission) {
+        if (count == capacity) throw new IllegalStateException("Fleet is full (" + capacity + ")");
+        int i = count++;
+        x[i] = plane.x;
+        y[i] = plane.y;
+        vx[i] = plane.vx;
+        vy[i] = plane.vy;
+        pitch[i] = plane.pitch;
+        throttle[i] = plane.throttle;
+        fuel[i] = plane.fuel;
+        maxThrust[i] = mission.getMaxThrust();
+        fuelBurn[i] = mission.getFuelBurn();
+        setAngle(i, plane.angle);
+        setBit(onGroundBits, i, plane.onGround);
+        setBit(flapsBits, i, plane.flapsExtended);
+        return i;
+    }
+
+    public void copyTo(int i, FlightLab_Main.Plane plane) {
+        plane.x = x[i];
+        plane.y = y[i];
+        plane.vx = vx[i];
+        plane.vy = vy[i];
+        plane.angle = angle[i];
+        plane.pitch = pitch[i];
+        plane.throttle = throttle[i];
+        plane.fuel = fuel[i];
+        plane.onGround = isOnGround(i);
+        plane.flapsExtended = isFlapsExtended(i);
+    }
+
+    //Terrain caches its chunks without locks, so a fleet over terrain always steps on the calling thread
+    public void setTerrain(Terrain terrain) {
+        this.terrain = terrain;
+    }
+
+    public void clear() {
+        count = 0;
+        java.util.Arrays.fill(onGroundBits, 0);
+        java.util.Arrays.fill(flapsBits, 0);
+    }
+
+    //Controls, same rules as Plane.turn / toggleFlaps
+    public void turn(int i, double dAngle) {
+        setAngle(i, (angle[i] + dAngle) % 360);
+    }
+
+    public void setAngle(int i, double value) {
+        angle[i] = value;
+        double rad = Math.toRadians(value);
+        //StrictMath like Plane.updatePhysics: AI traffic is part of replayed missions
+        cosA[i] = StrictMath.cos(rad);
+        sinA[i] = StrictMath.sin(rad);
+    }
+
+    public void setThrottle(int i, double value) {
+        throttle[i] = Math.max(0, Math.min(1, value));
+    }
+
+    public void toggleFlaps(int i) {
+        flapsBits[i >>> 6] ^= 1L << i;
+    }
+
+    //One physics step for every aircraft on the calling thread
+    public void step(double dt, double windX, double windY) {
+        stepRange(0, count, dt, windX, windY, null, 0, windSample);
+    }
+
+    //Same as step, split into chunks across the pool (only worth it for large fleets)
+    public void stepParallel(double dt, double windX, double windY) {
+        stepParallel(dt, windX, windY, null, 0);
+    }
+
+    //Every aircraft in the wind of the field at its own position and time
+    public void stepParallel(double dt, WindField wind, double time) {
+        stepParallel(dt, 0, 0, wind, time);
+    }
+
+    private void stepParallel(double dt, double windX, double windY, WindField wind, double time) {
+        if (count < MIN_CHUNK * 2 || chunks.length == 1 || terrain != null) {
+            stepRange(0, count, dt, windX, windY, wind, time, windSample);
+            return;
+        }
+        stepDt = dt;
+        stepWindX = windX;
+        stepWindY = windY;
+        stepWind = wind;
+        stepTime = time;
+        stepAll.reinitialize();
+        pool.invoke(stepAll);
+    }
+
+    //wind == null: the same windX/windY for everyone
+    private void stepRange(int from, int to, double dt, double windX, double windY, WindField wind, double time, double[] sample) {
+        final double[] x = this.x, y = this.y, vx = this.vx, vy = this.vy;
+        final double[] pitch = this.pitch, throttle = this.throttle, fuel = this.fuel;
+        final double[] cosA = this.cosA, sinA = this.sinA, maxThrust = this.maxThrust, fuelBurn = this.fuelBurn;
+        double windAx = windX * 0.2, windAy = windY * 0.2;
+        final Terrain terrain = this.terrain;
+        final double flatY = MissionSimulation.GROUND_Y, ceilingY = MissionSimulation.CEILING_Y;
+        final double pitchDecay = Integrator.perTick(0.96, dt), braking = Integrator.perTick(0.95, dt);
+
+        for (int i = from; i < to; i++) {
+            boolean flaps = ((flapsBits[i >>> 6] >>> i) & 1L) != 0;
+            if (wind != null) {
+                wind.sample(x[i], y[i], time, sample);
+                windAx = sample[0] * 0.2;
+                windAy = sample[1] * 0.2;
+            }
+
+            double thrust = maxThrust[i] * throttle[i];
+            double ax = cosA[i] * thrust;
+            double ay = sinA[i] * thrust;
+
+            double vxi = vx[i], vyi = vy[i];
+            double forwardSpeed = Math.sqrt(vxi * vxi + vyi * vyi);
+            double lift = 50 * (forwardSpeed / 50.0) * (1 + pitch[i] * 0.5);
+            if (flaps) lift *= 1.5;
+            double dragFactor = flaps ? 0.9 : 0.5;
+
+            vxi += (ax - vxi * dragFactor + windAx) * dt;
+            vyi += ((-lift) + ay - vyi * dragFactor + GRAVITY + windAy) * dt;
+
+            double xi = x[i] + vxi * dt;
+            double yi = y[i] + vyi * dt;
+            if (xi < 0) { xi = 0; vxi = 0; }
+            pitch[i] *= pitchDecay;
+
+            //Ground and ceiling
+            double groundY = terrain != null ? terrain.groundY(xi) : flatY;
+            boolean onGround = yi > groundY;
+            if (onGround) {
+                yi = groundY;
+                vyi = 0;
+                if (throttle[i] < 0.1) vxi *= braking;
+            }
+            if (yi < ceilingY) {
+                yi = ceilingY;
+                if (vyi < 0) vyi = 0;
+            }
+
+            x[i] = xi;
+            y[i] = yi;
+            vx[i] = vxi;
+            vy[i] = vyi;
+
+            double f = Math.max(0, fuel[i] - fuelBurn[i] * throttle[i] * dt);
+            fuel[i] = f;
+            if (f <= 0) throttle[i] = Math.max(0, throttle[i] - 0.5 * dt);
+
+            long bit = 1L << i;
+            int word = i >>> 6;
+            onGroundBits[word] = onGround ? (onGroundBits[word] | bit) : (onGroundBits[word] & ~bit);
+        }
+    }
+
+    //Parallel chunks always start on a 64-aircraft boundary, so no two threads write the same bitset word
+    private class Chunk extends RecursiveAction {
+        private final int index;
+        private final double[] windSample = new double[2];
+
+        Chunk(int index) {
+            this.index = index;
+        }
+
+        @Override
+        protected void compute() {
+            int per = ((count + chunks.length - 1) / chunks.length + 63) & ~63;
+            int from = Math.min(count, index * per);
+            int to = Math.min(count, from + per);
+            if (from < to) stepRange(from, to, stepDt, stepWindX, stepWindY, stepWind, stepTime, windSample);
+        }
+    }
+
+    private class StepAll extends RecursiveAction {
+        @Override
+        protected void compute() {
+            for (Chunk c : chunks) c.reinitialize();
+            invokeAll(chunks);
+        }
+    }
+
+    private static void setBit(long[] bits, int i, boolean value) {
+        if (value) bits[i >>> 6] |= 1L << i;
+        else bits[i >>> 6] &= ~(1L << i);
+    }
+
+    public boolean isOnGround(int i) { return (onGroundBits[i >>> 6] & (1L << i)) != 0; }
+    public boolean isFlapsExtended(int i) { return (flapsBits[i >>> 6] & (1L << i)) != 0; }
+    public double getX(int i) { return x[i]; }
+    public double getY(int i) { return y[i]; }
+    public double getVx(int i) { return vx[i]; }
+    public double getVy(int i) { return vy[i]; }
+    public double getAngle(int i) { return angle[i]; }
+    public double getThrottle(int i) { return throttle[i]; }
+    public double getFuel(int i) { return fuel[i]; }
+    public int size() { return count; }
+    public int capacity() { return capacity; }
+
+    //Steps the same random aircraft as single Planes of a MissionSimulation and as a fleet over the mission's terrain,
+    //for every mission, returns the largest position difference
+    public static double maxDeviationFromPlanes(int aircraft, int ticks, long seed) {
+        return maxDeviationFromPlanes(aircraft, ticks, seed, BatchSimulator.DEFAULT_DT);
+    }
+
+    public static double maxDeviationFromPlanes(int aircraft, int ticks, long seed, double dt) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        double maxDiff = 0;
+        for (MissionType type : MissionType.values()) {
+            MissionSimulation mission = new MissionSimulation(type);
+            FlightLab_Main.Plane[] planes = new FlightLab_Main.Plane[aircraft];
+            AircraftFleet fleet = new AircraftFleet(aircraft);
+            fleet.setTerrain(mission.getTerrain());
+
+            for (int i = 0; i < aircraft; i++) {
+                FlightLab_Main.Plane p = new FlightLab_Main.Plane(rnd.nextDouble(6000), 20 + rnd.nextDouble(630));
+                p.vx = rnd.nextDouble(250);
+                p.vy = rnd.nextDouble(-50, 50);
+                p.angle = rnd.nextDouble(-30, 30);
+                p.pitch = rnd.nextDouble(-1, 1);
+                p.throttle = rnd.nextDouble();
+                p.fuel = rnd.nextDouble(100);
+                p.flapsExtended = rnd.nextBoolean();
+                planes[i] = p;
+                fleet.add(p, mission.getDefinition());
+            }
+
+            for (int t = 0; t < ticks; t++) {
+                double windX = rnd.nextDouble(-40, 40);
+                for (int i = 0; i < aircraft; i++) {
+                    double dAngle = rnd.nextDouble(-1, 1);
+                    planes[i].turn(dAngle);
+                    fleet.turn(i, dAngle);
+                    //Reference: the code MissionSimulation itself runs for its plane
+                    mission.movePlane(planes[i], dt, windX, 0);
+                    mission.burnFuel(planes[i], dt);
+                }
+                fleet.stepParallel(dt, windX, 0);
+            }
+            for (int i = 0; i < aircraft; i++) {
+                maxDiff = Math.max(maxDiff, Math.abs(planes[i].x - fleet.x[i]));
+                maxDiff = Math.max(maxDiff, Math.abs(planes[i].y - fleet.y[i]));
+            }
+        }
+        return maxDiff;
+    }
+
+    //Usage: AircraftFleet [aircraft] [seconds]
+    public static void main(String[] args) {
+        int aircraft = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+
+        System.out.printf("Max deviation from single Plane after 600 ticks: %.3e m (dt 1/60), %.3e m (dt 1/20)%n",
+                maxDeviationFromPlanes(1000, 600, 7), maxDeviationFromPlanes(1000, 600, 7, 1.0 / 20));
+
+        AircraftFleet fleet = new AircraftFleet(aircraft);
+        SplittableRandom rnd = new SplittableRandom(1);
+        FlightLab_Main.Plane template = new FlightLab_Main.Plane(0, 0);
+        for (int i = 0; i < aircraft; i++) {
+            template.x = rnd.nextDouble(10_000);
+            template.y = 100 + rnd.nextDouble(400);
+            template.vx = 100 + rnd.nextDouble(100);
+            template.throttle = rnd.nextDouble();
+            fleet.add(template, MissionType.NORMAL);
+        }
+
+        int ticks = (int) (seconds * SimulationClock.DEFAULT_TICK_RATE);
+        for (int t = 0; t < 600; t++) fleet.stepParallel(BatchSimulator.DEFAULT_DT, 5, 0); //warm-up
+
+        long start = System.nanoTime();
+        for (int t = 0; t < ticks; t++) fleet.stepParallel(BatchSimulator.DEFAULT_DT, 5, 0);
+        double perTickMicros = (System.nanoTime() - start) / 1e3 / ticks;
+        System.out.printf("%d aircraft: %.1f us per tick (budget at 60 Hz: %.0f us)%n",
+                aircraft, perTickMicros, 1e6 / SimulationClock.DEFAULT_TICK_RATE);
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.flightlab;
+
+import javafx.scene.image.Image;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundImage;
+import javafx.scene.layout.BackgroundPosition;
+import javafx.scene.layout.BackgroundRepeat;
+import javafx.scene.layout.BackgroundSize;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Images shared by all screens, decoded once in the background (Image background loading)
+//and kept in an LRU bounded by their decoded size (width * height * 4 bytes).
+//A screen can ask for an image before it needs it (prefetch), so it is ready when shown.
+//Use only from the JavaFX thread.
+public class AssetCache {
+
+    private static final long DEFAULT_BUDGET_MB = 64;
+
+    private static AssetCache instance;
+
+    private final long budgetBytes;
+    private long usedBytes = 0;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(32, 0.75f, true); //access order
+    private final Map<String, Background> backgrounds = new HashMap<>();
+
+    //Metrics
+    private long hits = 0, misses = 0, evictions = 0;
+
+    private static final class Entry {
+        final Image image;
+        long bytes = 0; //known once decoding has finished
+
+        Entry(Image image) { this.image = image; }
+    }
+
+    public static AssetCache getInstance() {
+        if (instance == null) {
+            instance = new AssetCache(Long.getLong("flightlab.assetCacheMb", DEFAULT_BUDGET_MB) * 1024 * 1024);
+        }
+        return instance;
+    }
+
+    AssetCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    //Resource path relative to the resources root (e.g. "images/flaps.jpg"), full size
+    public Image image(String path) {
+        return image(path, 0, 0);
+    }
+
+    //Scaled to fit width x height (keeping the ratio), 0 = original size. Null if the resource does not exist.
+    public Image image(String path, double width, double height) {
+        String key = width > 0 || height > 0 ? path + "@" + width + "x" + height : path;
+        Entry e = entries.get(key);
+        if (e != null && !e.image.isError()) {
+            hits++;
+            return e.image;
+        }
+        if (e != null) remove(key);
+        misses++;
+
+        URL url = AssetCache.class.getResource("/" + path);
+        if (url == null) {
+            System.out.println("Info: Brak pliku " + path + ".");
+            return null;
+        }
+        Image image = new Image(url.toExternalForm(), width, height, true, true, true);
+        Entry entry = new Entry(image);
+        entries.put(key, entry);
+
+        //The decoded size is known only when loading ends, the budget is checked then
+        if (image.getProgress() >= 1) {
+            loaded(key, entry);
+        } else {
+            image.progressProperty().addListener((obs, old, progress) -> {
+                if (progress.doubleValue() >= 1) loaded(key, entry);
+            });
+        }
+        return image;
+    }
+
+    //Starts decoding in the background, nothing is returned
+    public void prefetch(String path) {
+        if (path != null) image(path);
+    }
+
+    public void prefetch(String path, double width, double height) {
+        if (path != null) image(path, width, height);
+    }
+
+    //The image stretched over the whole region (like -fx-background-size: cover), null if missing
+    public Background background(String path) {
+        Image image = image(path);
+        if (image == null) return null;
+        Background bg = backgrounds.get(path);
+        if (bg == null) {
+            BackgroundSize cover = new BackgroundSize(BackgroundSize.AUTO, BackgroundSize.AUTO, true, true, false, true);
+            bg = new Background(new BackgroundImage(image, BackgroundRepeat.NO_REPEAT, BackgroundRepeat.NO_REPEAT,
+                    BackgroundPosition.CENTER, cover));
+            backgrounds.put(path, bg);
+        }
+        return bg;
+    }
+
+    private void loaded(String key, Entry entry) {
+        if (entries.get(key) != entry) return; //evicted while loading
+        if (entry.image.isError()) {
+            System.out.println("Błąd obrazka: " + key);
+            remove(key);
+            return;
+        }
+        entry.bytes = (long) entry.image.getWidth() * (long) entry.image.getHeight() * 4;
+        usedBytes += entry.bytes;
+        evict(key);
+    }
+
+    //Drops least recently used images until the cache fits, the one just loaded stays
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (usedBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, Entry> e = it.next();
+            if (e.getKey().equals(keep)) continue;
+            usedBytes -= e.getValue().bytes;
+            if (e.getValue().image.getProgress() < 1) e.getValue().image.cancel();
+            backgrounds.remove(e.getKey());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private void remove(String key) {
+        Entry e = entries.remove(key);
+        if (e != null) usedBytes -= e.bytes;
+        backgrounds.remove(key);
+    }
+
+    public long getUsedBytes() { return usedBytes; }
+    public long getBudgetBytes() { return budgetBytes; }
+    public int size() { return entries.size(); }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getEvictions() { return evictions; }
+}
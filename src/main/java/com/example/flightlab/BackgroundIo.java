@@ -0,0 +1,60 @@
+package com.example.flightlab;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+//File work started from the JavaFX thread (saved replays, frame statistics, the replay folder), done on one
+//daemon thread in the order it was submitted, so a slow disk never costs a frame or a click.
+//The caller prepares the bytes first and applies results to the UI with Platform.runLater.
+public final class BackgroundIo {
+
+    public interface Task<T> {
+        T call() throws IOException;
+    }
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "flightlab-io");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private BackgroundIo() {}
+
+    //An IOException of the task completes the future with an UncheckedIOException
+    public static <T> CompletableFuture<T> submit(Task<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    //Waits up to timeoutMillis for the tasks submitted so far, called when the application exits
+    public static void awaitPending(long timeoutMillis) {
+        try {
+            CompletableFuture.runAsync(() -> {}, EXECUTOR).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("Nie wszystkie pliki zostały zapisane przed zamknięciem.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //Message of a failed task, without the wrapping exceptions
+    public static String message(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof UncheckedIOException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+}
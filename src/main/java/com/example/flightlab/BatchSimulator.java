@@ -0,0 +1,121 @@
+package com.example.flightlab;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+//Runs thousands of headless missions on all cores (ForkJoin) and collects statistics per MissionType.
+//Every run gets its own seed derived from the run index, so results do not depend on thread scheduling.
+public class BatchSimulator {
+
+    public static final double DEFAULT_DT = 1.0 / SimulationClock.DEFAULT_TICK_RATE;
+    public static final double DEFAULT_TIME_LIMIT = 300; //seconds of simulated flight
+
+    private static final int SPLIT_THRESHOLD = 64;
+
+    @FunctionalInterface
+    public interface PilotFactory {
+        ControlScript create(MissionType type, SplittableRandom rnd);
+    }
+
+    private final ForkJoinPool pool;
+    private final PilotFactory pilots;
+    private final double dt;
+    private final double timeLimit;
+    private final Integrator integrator;
+    private final double maxSubstep;
+
+    public BatchSimulator() {
+        this(ForkJoinPool.commonPool(), ScriptedPilot::random, DEFAULT_DT, DEFAULT_TIME_LIMIT);
+    }
+
+    public BatchSimulator(ForkJoinPool pool, PilotFactory pilots, double dt, double timeLimit) {
+        this(pool, pilots, dt, timeLimit, Integrator.SEMI_IMPLICIT_EULER, Double.POSITIVE_INFINITY);
+    }
+
+    //Coarse dt with RK4 and a substep limit runs fewer pilot decisions and mission checks per flight
+    public BatchSimulator(ForkJoinPool pool, PilotFactory pilots, double dt, double timeLimit,
+                          Integrator integrator, double maxSubstep) {
+        this.pool = pool;
+        this.pilots = pilots;
+        this.dt = dt;
+        this.timeLimit = timeLimit;
+        this.integrator = integrator;
+        this.maxSubstep = maxSubstep;
+    }
+
+    public Map<MissionType, BatchStats> runAll(int runsPerMission, long seed) {
+        Map<MissionType, BatchStats> result = new EnumMap<>(MissionType.class);
+        for (MissionType type : MissionType.values()) {
+            result.put(type, run(type, runsPerMission, seed));
+        }
+        return result;
+    }
+
+    public BatchStats run(MissionType type, int runs, long seed) {
+        return pool.invoke(new RunRange(type, seed, 0, runs));
+    }
+
+    //Single run, also usable on its own to reproduce one result of a batch
+    public MissionSimulation runOne(MissionType type, long seed, int index) {
+        SplittableRandom rnd = new SplittableRandom(seed + index * 0x9E3779B97F4A7C15L);
+        MissionSimulation sim = new MissionSimulation(type);
+        sim.setIntegration(integrator, maxSubstep);
+        sim.run(pilots.create(type, rnd), dt, timeLimit);
+        return sim;
+    }
+
+    private class RunRange extends RecursiveTask<BatchStats> {
+        private final MissionType type;
+        private final long seed;
+        private final int from, to;
+
+        RunRange(MissionType type, long seed, int from, int to) {
+            this.type = type;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BatchStats compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                BatchStats stats = new BatchStats(type);
+                for (int i = from; i < to; i++) {
+                    stats.record(runOne(type, seed, i));
+                }
+                return stats;
+            }
+            int mid = (from + to) >>> 1;
+            RunRange left = new RunRange(type, seed, from, mid);
+            left.fork();
+            BatchStats right = new RunRange(type, seed, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    //Usage: BatchSimulator [runsPerMission] [seed] [dt] [integrator] [maxSubstep]
+    public static void main(String[] args) {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+        double dt = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_DT;
+        Integrator integrator = args.length > 3 ? Integrator.valueOf(args[3]) : Integrator.SEMI_IMPLICIT_EULER;
+        double maxSubstep = args.length > 4 ? Double.parseDouble(args[4]) : Double.POSITIVE_INFINITY;
+
+        BatchSimulator batch = new BatchSimulator(ForkJoinPool.commonPool(), ScriptedPilot::random, dt,
+                DEFAULT_TIME_LIMIT, integrator, maxSubstep);
+        long start = System.nanoTime();
+        Map<MissionType, BatchStats> results = batch.runAll(runs, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long totalTicks = 0;
+        for (BatchStats stats : results.values()) {
+            System.out.print(stats);
+            totalTicks += stats.getTotalTicks();
+        }
+        System.out.printf("%d missions, %.0f s of flight simulated in %.2f s on %d threads%n",
+                runs * results.size(), totalTicks * batch.dt, seconds, batch.pool.getParallelism());
+    }
+}
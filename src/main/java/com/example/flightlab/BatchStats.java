@@ -0,0 +1,64 @@
+package com.example.flightlab;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+//Aggregated results of many headless runs of one mission type
+public class BatchStats {
+
+    private final MissionType type;
+    private long runs;
+    private long wins;
+    private long totalPoints;
+    private long totalTicks;
+    private final TreeMap<Integer, Long> scoreCounts = new TreeMap<>();
+    private final TreeMap<String, Long> failureCounts = new TreeMap<>();
+
+    public BatchStats(MissionType type) {
+        this.type = type;
+    }
+
+    public void record(MissionSimulation sim) {
+        runs++;
+        totalTicks += sim.getTicks();
+        if (sim.getOutcome() == MissionSimulation.Outcome.WON) {
+            wins++;
+            totalPoints += sim.getPoints();
+            scoreCounts.merge(sim.getPoints(), 1L, Long::sum);
+        } else {
+            scoreCounts.merge(0, 1L, Long::sum);
+            failureCounts.merge(sim.getEndMessage(), 1L, Long::sum);
+        }
+    }
+
+    public BatchStats merge(BatchStats other) {
+        runs += other.runs;
+        wins += other.wins;
+        totalPoints += other.totalPoints;
+        totalTicks += other.totalTicks;
+        other.scoreCounts.forEach((k, v) -> scoreCounts.merge(k, v, Long::sum));
+        other.failureCounts.forEach((k, v) -> failureCounts.merge(k, v, Long::sum));
+        return this;
+    }
+
+    public MissionType getType() { return type; }
+    public long getRuns() { return runs; }
+    public long getWins() { return wins; }
+    public long getTotalTicks() { return totalTicks; }
+    public double getSuccessRate() { return runs == 0 ? 0 : (double) wins / runs; }
+    public double getMeanPoints() { return runs == 0 ? 0 : (double) totalPoints / runs; }
+    public Map<Integer, Long> getScoreCounts() { return scoreCounts; }
+    public Map<String, Long> getFailureCounts() { return failureCounts; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-10s runs=%d  success=%.1f%%  mean points=%.1f%n",
+                type, runs, getSuccessRate() * 100, getMeanPoints()));
+        sb.append("  points:");
+        scoreCounts.forEach((k, v) -> sb.append(String.format(" %d=%.1f%%", k, 100.0 * v / runs)));
+        sb.append(System.lineSeparator());
+        failureCounts.forEach((k, v) -> sb.append(String.format("  %6d x %s%n", v, k)));
+        return sb.toString();
+    }
+}
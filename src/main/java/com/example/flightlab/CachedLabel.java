@@ -0,0 +1,55 @@
+package com.example.flightlab;
+
+//HUD text like "Speed    : 12.3 m/s" for a value rounded to a fixed number of decimals.
+//Each distinct text is built once and then reused, so a redraw does not allocate a new String.
+public class CachedLabel {
+
+    private final String prefix;
+    private final String suffix;
+    private final int decimals;
+    private final double scale;
+    private final int min;
+    private final String[] cache;
+
+    //Values (after rounding) from min to max are cached, others are built every time
+    public CachedLabel(String prefix, String suffix, int decimals, double min, double max) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.decimals = decimals;
+        this.scale = Math.pow(10, decimals);
+        this.min = (int) Math.floor(min * scale);
+        this.cache = new String[(int) Math.ceil(max * scale) - this.min + 1];
+    }
+
+    //The rounded value as an int (e.g. 12.34 with one decimal -> 123), cheap to compare for changes
+    public int quantize(double value) {
+        return (int) Math.round(value * scale);
+    }
+
+    public String text(int quantized) {
+        int i = quantized - min;
+        if (i < 0 || i >= cache.length) return build(quantized);
+        String s = cache[i];
+        if (s == null) {
+            s = build(quantized);
+            cache[i] = s;
+        }
+        return s;
+    }
+
+    private String build(int quantized) {
+        StringBuilder sb = new StringBuilder(prefix.length() + suffix.length() + 12).append(prefix);
+        if (decimals == 0) {
+            sb.append(quantized);
+        } else {
+            int unit = (int) scale;
+            if (quantized < 0) sb.append('-');
+            int abs = Math.abs(quantized);
+            sb.append(abs / unit).append('.');
+            String frac = Integer.toString(abs % unit);
+            for (int k = frac.length(); k < decimals; k++) sb.append('0');
+            sb.append(frac);
+        }
+        return sb.append(suffix).toString();
+    }
+}
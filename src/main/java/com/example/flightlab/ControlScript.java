@@ -0,0 +1,9 @@
+package com.example.flightlab;
+
+//Source of control inputs for a simulation without a keyboard
+@FunctionalInterface
+public interface ControlScript {
+
+    //Returns the Controls bits for the given physics tick
+    int controlsAt(long tick, MissionSimulation sim);
+}
@@ -0,0 +1,22 @@
+package com.example.flightlab;
+
+//Control state for one physics step packed into bits (W/S/A/D/SPACE/F/ENTER)
+public final class Controls {
+
+    public static final int NONE = 0;
+    public static final int UP = 1;          //W - nose up
+    public static final int DOWN = 1 << 1;   //S - nose down
+    public static final int LEFT = 1 << 2;   //A - less throttle
+    public static final int RIGHT = 1 << 3;  //D - more throttle
+    public static final int CLIMB = 1 << 4;  //SPACE - quick climb
+    public static final int FLAPS = 1 << 5;  //F - toggle flaps (edge, applied once)
+    public static final int MISSION = 1 << 6; //ENTER - start/stop the mission (edge, applied once)
+
+    public static final int ALL = UP | DOWN | LEFT | RIGHT | CLIMB | FLAPS | MISSION;
+
+    private Controls() {}
+
+    public static boolean has(int controls, int bit) {
+        return (controls & bit) != 0;
+    }
+}
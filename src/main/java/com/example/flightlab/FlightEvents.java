@@ -0,0 +1,106 @@
+package com.example.flightlab;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//Java Flight Recorder events of the game. They cost almost nothing while no recording is running.
+//Start a recording with the profile in resources/jfr/flightlab.jfc (see `gradle run -Pjfr`)
+//and summarize it with JfrAnalyzer.
+public final class FlightEvents {
+
+    private FlightEvents() {}
+
+    @Name("com.example.flightlab.MissionStart")
+    @Label("Mission Start")
+    @Category({"FlightLab", "Mission"})
+    @StackTrace(false)
+    public static class MissionStart extends Event {
+        @Label("Mission") public String mission;
+        @Label("Player") public String player;
+    }
+
+    //Duration = wall clock time from start to the end of the mission
+    @Name("com.example.flightlab.MissionEnd")
+    @Label("Mission End")
+    @Category({"FlightLab", "Mission"})
+    @StackTrace(false)
+    public static class MissionEnd extends Event {
+        @Label("Mission") public String mission;
+        @Label("Outcome") @Description("WON, LOST or ABORTED") public String outcome;
+        @Label("Points") public int points;
+        @Label("Simulated Seconds") public double simSeconds;
+        @Label("Ticks") public long ticks;
+        @Label("Message") public String message;
+        @Label("Player") public String player;
+    }
+
+    @Name("com.example.flightlab.PhysicsTick")
+    @Label("Physics Tick")
+    @Description("One sampled Plane.updatePhysics call (1 of " + FlightEvents.PHYSICS_SAMPLE + ")")
+    @Category({"FlightLab", "Simulation"})
+    @StackTrace(false)
+    public static class PhysicsTick extends Event {
+        @Label("Time Step") public double dt;
+        @Label("X") public double x;
+        @Label("Y") public double y;
+        @Label("Speed") public double speed;
+    }
+
+    @Name("com.example.flightlab.QuizAnswer")
+    @Label("Quiz Answer")
+    @Category({"FlightLab", "Quiz"})
+    @StackTrace(false)
+    public static class QuizAnswer extends Event {
+        @Label("Question Number") public int questionNumber;
+        @Label("Question") public String question;
+        @Label("Chosen") public int chosen;
+        @Label("Correct Answer") public int correctAnswer;
+        @Label("Correct") public boolean correct;
+        @Label("Response Time (ms)") public long responseMillis;
+        @Label("Player") public String player;
+    }
+
+    //Duration = time of the write on the persistence thread
+    @Name("com.example.flightlab.Save")
+    @Label("Save")
+    @Category({"FlightLab", "Persistence"})
+    @StackTrace(false)
+    public static class Save extends Event {
+        @Label("Kind") @Description("journal or snapshot") public String kind;
+        @Label("Records") public int records;
+        @Label("Bytes") @DataAmount public long bytes;
+        @Label("Fsync") public boolean fsync;
+        @Label("Success") public boolean success;
+    }
+
+    @Name("com.example.flightlab.Load")
+    @Label("Load")
+    @Category({"FlightLab", "Persistence"})
+    @StackTrace(false)
+    public static class Load extends Event {
+        @Label("Players") public int players;
+        @Label("Bytes") @DataAmount public long bytes;
+        @Label("Journal Records") public int journalRecords;
+        @Label("Success") public boolean success;
+    }
+
+    static final int PHYSICS_SAMPLE = 64; //power of two
+
+    private static final EventType PHYSICS_TICK_TYPE = EventType.getEventType(PhysicsTick.class);
+    private static int physicsTicks = 0; //racy across batch threads, it only picks samples
+
+    //A new event for every 64th physics tick while a recording wants them, otherwise null
+    static PhysicsTick samplePhysicsTick() {
+        if (!PHYSICS_TICK_TYPE.isEnabled()) return null;
+        if ((++physicsTicks & (PHYSICS_SAMPLE - 1)) != 0) return null;
+        PhysicsTick event = new PhysicsTick();
+        event.begin();
+        return event;
+    }
+}
@@ -16,178 +16,297 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
 public class FlightLab_Main extends Application {
 
     private static final int WIDTH = 1000;
     private static final int HEIGHT = 700;
 
+    static final File REPLAY_DIR = new File("replays");
+    static final int FAST_FORWARD = 16; //replay speed while TAB is held
+
+    static final String PLANE_IMAGE = "images/plane_model.png";
+    static final double PLANE_WIDTH = 80, PLANE_HEIGHT = 40;
+    private static final double TRAFFIC_SCALE = 0.6; //AI aircraft are drawn smaller than the player
+
+    //Everything drawn per frame is allocated once here
+    private static final Color SKY = Color.web("#4986c4");
+    private static final Color HUD_PANEL = Color.rgb(0, 0, 0, 0.6);
+    private static final Color INFO_TEXT = Color.rgb(255, 255, 255, 0.9);
+    private static final Color WON_SHADE = Color.rgb(0, 0, 0, 0.7);
+    private static final Color LOST_SHADE = Color.rgb(50, 0, 0, 0.8);
+    private static final Font HUD_FONT = Font.font(14);
+    private static final Font INFO_FONT = Font.font(16);
+    private static final Font HELP_FONT = Font.font(12);
+    private static final Font TITLE_FONT = Font.font("Arial", 48);
+    private static final Font TITLE_BOLD_FONT = Font.font("Arial", FontWeight.BOLD, 48);
+    private static final Font MESSAGE_FONT = Font.font("Arial", 28);
+    private static final Font SUBTITLE_FONT = Font.font("Arial", 24);
+    private static final Font HINT_FONT = Font.font("Arial", 20);
+
+    private static final CachedLabel DIST_LABEL = new CachedLabel("Goal Dist: ", " m", 0, 0, 10000);
+    private static final CachedLabel SPEED_LABEL = new CachedLabel("Speed    : ", " m/s", 1, 0, 500);
+    private static final CachedLabel HEADING_LABEL = new CachedLabel("Heading  : ", "°", 0, -360, 360);
+    private static final CachedLabel THROTTLE_LABEL = new CachedLabel("Throttle : ", "%", 0, 0, 100);
+    private static final CachedLabel TRAFFIC_LABEL = new CachedLabel("RUCH! Samolot w odległości ", " m", 0, 0, AirTraffic.SEPARATION);
+
+    private final MissionDefinition mission;
+    private MissionSimulation sim;
     private MissionLogic missionLogic;
     private Plane plane;
 
     private javafx.scene.image.Image planeImage;
     private boolean up, down, left, right, quickClimb;
-
-    private double windX = 0.0;
-    private double windY = 0.0;
-
-    private long startTime;
-    private boolean missionActive = false;
-    private boolean gameWon = false;
-    private boolean gameLost = false;
-    private String endMessage = ""; //Final message
-
-    private double cameraX = 0;
+    private boolean flapsPressed; //F is a toggle, applied on the next physics step
+    private boolean missionTogglePressed; //ENTER too, so it is part of the recorded controls
+
+    private final SimulationClock clock;
+    private double stepSeconds;
+    private AnimationTimer loop;
+
+    //Every flight is recorded to replays/; in replay mode the recorded controls replace the keyboard
+    private final Replay replay;
+    private ControlScript replayControls;
+    private final ReplayRecorder recorder = new ReplayRecorder();
+    private Replay recordedFlight; //set when the recording ends, until it is saved
+    private boolean fastForward = false;
+
+    private boolean victoryRecorded = false;
+
+    //F3 shows the timing overlay, the numbers are also saved to stats/ when the mission ends
+    private final FrameStats frameStats = new FrameStats();
+    private boolean statsExported = false;
+    private FlightEvents.MissionEnd missionEndEvent;
+
+    private GroundTiles groundTiles;
+    private GraphicsContext hud;
+    private String objectiveLine;
+
+    //Values currently shown on the HUD canvas, it is redrawn only when one of them changes
+    private boolean hudValid = false;
+    private int shownDist, shownSpeed, shownHeading, shownThrottle, shownFuel;
+    private int shownTraffic; //distance to the nearest AI aircraft, -1 = none within separation
+    private boolean shownFlaps, shownFinished;
+    private MissionSimulation.Outcome shownOutcome;
 
     public FlightLab_Main() {
-        this.missionLogic = new MissionLogic(MissionType.NORMAL);
+        this(MissionType.NORMAL);
     }
 
     public FlightLab_Main(MissionType missionType) {
-        this.missionLogic = new MissionLogic(missionType);
+        this(MissionCatalog.getInstance().get(missionType));
+    }
+
+    public FlightLab_Main(MissionDefinition mission) {
+        this.mission = mission;
+        this.replay = null;
+        this.clock = new SimulationClock();
+    }
+
+    //Plays a recorded flight on screen, TAB fast-forwards
+    public FlightLab_Main(Replay replay) {
+        this.mission = replay.getMission();
+        this.replay = replay;
+        this.clock = new SimulationClock(1.0 / replay.getDt(), SimulationClock.DEFAULT_MAX_STEPS_PER_FRAME * FAST_FORWARD);
     }
 
     @Override
     public void start(Stage primaryStage) {
         Canvas canvas = new Canvas(WIDTH, HEIGHT);
         GraphicsContext gc = canvas.getGraphicsContext2D();
+        //HUD and messages live on their own transparent layer above the world
+        Canvas hudCanvas = new Canvas(WIDTH, HEIGHT);
+        hud = hudCanvas.getGraphicsContext2D();
 
-        try {
-            planeImage = new javafx.scene.image.Image(getClass().getClassLoader().getResourceAsStream("images/plane_model.png"), 80, 40, true, true);
-        } catch (Exception e) {
-            System.out.println("Info: Brak pliku plane_model.png.");
-        }
-
-        plane = new Plane(0, 0);
-        missionLogic.setupPlane(plane);
+        //Shared with the menu, which already started decoding it
+        planeImage = AssetCache.getInstance().image(PLANE_IMAGE, PLANE_WIDTH, PLANE_HEIGHT);
 
-        if (missionLogic.getType() == MissionType.EMERGENCY) {
-            missionActive = true;
-            plane.throttle = 0.4;
+        if (replay != null) {
+            sim = replay.newSimulation();
+            replayControls = replay.player();
+            stepSeconds = replay.getDt(); //exactly the recorded step, not 1 / (1 / dt)
+        } else {
+            //New wind every flight, the seed goes into the replay
+            sim = new MissionSimulation(mission, ThreadLocalRandom.current().nextLong());
+            stepSeconds = clock.getStep();
+        }
+        missionLogic = sim.getMissionLogic();
+        plane = sim.getPlane();
+        victoryRecorded = false;
+        groundTiles = new GroundTiles(missionLogic, sim.getTerrain(), HEIGHT);
+        objectiveLine = (replay != null ? "Powtórka: " : "Misja: ") + missionLogic.getObjectiveText();
+        hudValid = false;
+        statsExported = false;
+        fastForward = false;
+        if (replay == null) {
+            Player current = GameData.getInstance().getCurrentPlayer();
+            recorder.begin(sim, stepSeconds, current != null ? current.getName() : null);
+            startMissionEvents();
         }
 
-        StackPane root = new StackPane(canvas);
+        StackPane root = new StackPane(canvas, hudCanvas);
         Scene scene = new Scene(root);
 
         scene.setOnKeyPressed(this::onKeyPressed);
         scene.setOnKeyReleased(this::onKeyReleased);
 
-        primaryStage.setTitle("Flight Lab - " + missionLogic.getObjectiveText());
+        primaryStage.setTitle("Flight Lab - " + (replay != null ? "Powtórka - " : "") + missionLogic.getObjectiveText());
         primaryStage.setScene(scene);
         primaryStage.show();
 
-        startTime = System.currentTimeMillis();
+        clock.reset();
 
-        AnimationTimer loop = new AnimationTimer() {
+        loop = new AnimationTimer() {
             private long last = 0;
             @Override
             public void handle(long now) {
                 if (last == 0) last = now;
-                double dt = (now - last) / 1_000_000_000.0;
+                double frameDt = (now - last) / 1_000_000_000.0;
+
+                frameStats.beginFrame(now - last);
                 last = now;
-                update(dt);
-                render(gc);
+
+                //Physics runs in fixed steps, independent of the frame rate
+                int steps = clock.advance(fastForward ? frameDt * FAST_FORWARD : frameDt);
+                for (int i = 0; i < steps; i++) {
+                    plane.storePreviousState();
+                    update(stepSeconds);
+                }
+                frameStats.endUpdate(steps);
+
+                render(gc, clock.getAlpha());
+                renderHud(hud);
+                frameStats.drawOverlay(gc, WIDTH);
+                frameStats.endFrame();
+
+                if (sim.isFinished() && !statsExported) {
+                    endMissionEvent(sim.getOutcome().name());
+                    exportFrameStats();
+                    saveReplay();
+                }
             }
         };
         loop.start();
     }
 
     private void update(double dt) {
-        if (gameWon || gameLost) return;
-
-        //Controls
-        if (up) plane.turn(-60 * dt);
-        if (down) plane.turn(60 * dt);
-        if (left) plane.throttle = clamp(plane.throttle - 0.5 * dt, 0, 1);
-
-        //For emergency mission throttle is blocked (limit 40%)
-        if (right)
-        {
-            double maxThrottle = (missionLogic.getType() == MissionType.EMERGENCY) ? 0.4 : 1.0;
-            plane.throttle = clamp(plane.throttle + 0.5 * dt, 0, maxThrottle);
+        if (replay != null) {
+            //An aborted flight stops where the recording ends
+            if (sim.getTicks() < replay.getTicks()) sim.step(dt, replayControls.controlsAt(sim.getTicks(), sim));
+            return;
         }
-        if (quickClimb) plane.pitch += 20 * dt;
 
-        //Physics
-        plane.updatePhysics(dt, windX, windY, missionLogic.getType());
+        int controls = currentControls();
+        if (!sim.isFinished()) recorder.record(controls);
+        sim.step(dt, controls);
 
-        //Collision with the ground
-        if (plane.y > HEIGHT - 50) {
-            plane.y = HEIGHT - 50;
-            plane.vy = 0;
-            plane.onGround = true;
-            if (plane.throttle < 0.1) plane.vx *= 0.95; //Braking
-        } else {
-            plane.onGround = false;
+        if (sim.getOutcome() == MissionSimulation.Outcome.WON) {
+            handleVictory(sim.getPoints());
         }
+    }
 
-        if (plane.y < 20) {
-            plane.y = 20;
-            if (plane.vy < 0) plane.vy = 0;
+    private Replay finishRecording() {
+        if (recordedFlight == null && recorder.isRecording()) recordedFlight = recorder.finish();
+        return recordedFlight;
+    }
+
+    private void saveReplay() {
+        Replay flight = finishRecording();
+        if (flight == null) return;
+        recordedFlight = null;
+        //Encoded here, the file is named and written on the I/O thread
+        byte[] data;
+        try {
+            data = flight.encode();
+        } catch (IOException e) {
+            System.err.println("Błąd zapisu powtórki: " + e.getMessage());
+            return;
         }
+        String name = flight.getFileName();
+        BackgroundIo.submit(() -> Replay.save(REPLAY_DIR, name, data)).whenComplete((file, error) -> {
+            if (error != null) System.err.println("Błąd zapisu powtórki: " + BackgroundIo.message(error));
+            else System.out.println("Powtórka zapisana: " + file.getPath() + " (" + data.length + " B)");
+        });
+    }
 
-        if (plane.onGround && plane.getSpeed() < 5.0) {
-            if (missionLogic.getType() == MissionType.PRECISION) {
-                if (plane.x < 5200 || plane.x > 5300) {
-                    handleGameOver("PUDŁO! Lądowanie poza strefą.");
-                    return;
-                }
-            }
+    private void startMissionEvents() {
+        Player current = GameData.getInstance().getCurrentPlayer();
+        String player = current != null ? current.getName() : null;
 
-            int points = missionLogic.checkVictory(plane);
-            if (points > 0) {
-                handleVictory(points);
-            }
-            else if (plane.x > missionLogic.getDestX() + missionLogic.getRunwayLen()) {
-                handleGameOver("KRAKSA! Wyjazd poza pas startowy.");
-            }
-        }
+        FlightEvents.MissionStart start = new FlightEvents.MissionStart();
+        start.mission = mission.getId();
+        start.player = player;
+        start.commit();
 
-        if (missionLogic.getType() == MissionType.LOW_PASS && plane.onGround && plane.x > missionLogic.getDestX()) {
-            handleGameOver("BŁĄD! Miałeś nie lądować!");
+        missionEndEvent = new FlightEvents.MissionEnd();
+        missionEndEvent.mission = mission.getId();
+        missionEndEvent.player = player;
+        missionEndEvent.begin();
+    }
+
+    private void endMissionEvent(String outcome) {
+        FlightEvents.MissionEnd event = missionEndEvent;
+        if (event == null) return;
+        missionEndEvent = null;
+        event.end();
+        if (event.shouldCommit()) {
+            event.outcome = outcome;
+            event.points = sim.getOutcome() == MissionSimulation.Outcome.WON ? sim.getPoints() : 0;
+            event.simSeconds = sim.getSimTime();
+            event.ticks = sim.getTicks();
+            event.message = sim.getEndMessage();
+            event.commit();
         }
+    }
 
-        cameraX = Math.max(0, plane.x - 200);
+    private void exportFrameStats() {
+        statsExported = true;
+        FrameStats.Export export = frameStats.export(mission.getId());
+        BackgroundIo.submit(() -> export.write(new File("stats"))).whenComplete((file, error) -> {
+            if (error != null) System.err.println("Błąd zapisu statystyk: " + BackgroundIo.message(error));
+            else System.out.println("Statystyki klatek zapisane: " + file.getPath());
+        });
+    }
 
-        long elapsed = (System.currentTimeMillis() - startTime) / 1000;
-        if (missionActive && elapsed % 10 == 0 && elapsed != 0) {
-            windX = (Math.sin(elapsed) * 40);
-        } else {
-            windX *= 0.95;
+    private int currentControls() {
+        int controls = Controls.NONE;
+        if (up) controls |= Controls.UP;
+        if (down) controls |= Controls.DOWN;
+        if (left) controls |= Controls.LEFT;
+        if (right) controls |= Controls.RIGHT;
+        if (quickClimb) controls |= Controls.CLIMB;
+        if (flapsPressed) {
+            controls |= Controls.FLAPS;
+            flapsPressed = false;
         }
-
-        if (missionLogic.getType() != MissionType.EMERGENCY) {
-            plane.fuel = Math.max(0, plane.fuel - 0.05 * plane.throttle * dt);
+        if (missionTogglePressed) {
+            controls |= Controls.MISSION;
+            missionTogglePressed = false;
         }
-
-        if (plane.fuel <= 0)
-            plane.throttle = Math.max(0, plane.throttle - 0.5 * dt);
+        return controls;
     }
 
     private void handleVictory(int points) {
-        if (!gameWon && !gameLost) {
-            gameWon = true;
-            missionActive = false;
-
-            if (plane.flapsExtended && missionLogic.getType() != MissionType.LOW_PASS) {
-                points += 20;
-            }
+        if (!victoryRecorded) {
+            victoryRecorded = true;
 
+            //The points count after the verifier has flown the same recording again
             Player current = GameData.getInstance().getCurrentPlayer();
-            if (current != null) {
-                current.addMissionPoints(points);
-                GameData.getInstance().saveData();
-                System.out.println("Zadanie wykonane! +" + points + " pkt");
+            Replay flight = finishRecording();
+            if (current != null && flight != null) {
+                System.out.println("Zadanie wykonane! " + points + " pkt czeka na weryfikację.");
+                GameData.getInstance().submitMission(current, flight, points).thenAccept(result -> {
+                    if (result.isVerified()) System.out.println("Wynik potwierdzony: +" + result.points() + " pkt");
+                });
             }
         }
     }
 
-    private void handleGameOver(String reason) {
-        if (!gameWon && !gameLost) {
-            gameLost = true;
-            missionActive = false;
-            endMessage = reason;
-        }
-    }
+    private boolean isGameWon() { return sim.getOutcome() == MissionSimulation.Outcome.WON; }
+    private boolean isGameLost() { return sim.getOutcome() == MissionSimulation.Outcome.LOST; }
 
     private void onKeyPressed(KeyEvent e) {
         KeyCode c = e.getCode();
@@ -197,24 +316,32 @@ public class FlightLab_Main extends Application {
             case A -> left = true;
             case D -> right = true;
             case SPACE -> quickClimb = true;
-            case F -> plane.toggleFlaps();
+            case F -> flapsPressed = true;
+            case F3 -> frameStats.toggleOverlay();
+            case TAB -> fastForward = replay != null;
             case ENTER -> {
-                if (gameWon || gameLost) {
-                    try { new MainMenu().start((Stage)((Scene)e.getSource()).getWindow()); }
-                    catch (Exception ex) { ex.printStackTrace(); }
+                if (sim.isFinished() || replay != null) {
+                    backToMenu(e);
                 } else {
-                    missionActive = !missionActive;
-                    if (missionActive) startTime = System.currentTimeMillis();
+                    missionTogglePressed = true;
                 }
             }
-            case ESCAPE -> {
-                try { new MainMenu().start((Stage)((Scene)e.getSource()).getWindow()); }
-                catch (Exception ex) { ex.printStackTrace(); }
-            }
+            case ESCAPE -> backToMenu(e);
             default -> {}
         }
     }
 
+    private void backToMenu(KeyEvent e) {
+        //The timer would keep ticking in the background after the scene is replaced
+        if (loop != null) loop.stop();
+        if (!sim.isFinished()) {
+            endMissionEvent("ABORTED");
+            saveReplay();
+        }
+        try { new MainMenu().start((Stage)((Scene)e.getSource()).getWindow()); }
+        catch (Exception ex) { ex.printStackTrace(); }
+    }
+
     private void onKeyReleased(KeyEvent e) {
         KeyCode c = e.getCode();
         switch (c) {
@@ -223,96 +350,92 @@ public class FlightLab_Main extends Application {
             case A -> left = false;
             case D -> right = false;
             case SPACE -> quickClimb = false;
+            case TAB -> fastForward = false;
             default -> {}
         }
     }
 
-    private void render(GraphicsContext g) {
-        g.setFill(Color.web("#4986c4"));
+    private void render(GraphicsContext g, double alpha) {
+        //Camera follows the interpolated position, so motion stays smooth between physics steps
+        double planeX = plane.interpolatedX(alpha);
+        double cameraX = Math.max(0, planeX - 200);
+
+        g.setFill(SKY);
         g.fillRect(0, 0, WIDTH, HEIGHT);
 
-        g.save();
-        g.translate(-cameraX, 0);
-
-        g.setFill(Color.web("#266308"));
-        g.fillRect(cameraX, HEIGHT - 80, WIDTH, 80);
-
-        //Grass
-        int startMarker = (int)(cameraX / 500) * 500;
-        for (int i = startMarker; i < startMarker + WIDTH + 500; i += 500) {
-            boolean onStart = (i >= 0 && i < missionLogic.getRunwayLen());
-            boolean onEnd = (i >= missionLogic.getDestX() && i < missionLogic.getDestX() + missionLogic.getRunwayLen());
-            if (!onStart && !onEnd) {
-                g.setFill(Color.LIGHTGREEN);
-                g.fillRect(i, HEIGHT - 80, 20, 80);
-            }
-        }
+        //Grass, runways, zone and flag come from the prerendered tiles
+        groundTiles.draw(g, cameraX, WIDTH);
 
-        drawRunway(g, 0);
-        drawRunway(g, missionLogic.getDestX());
+        AirTraffic traffic = sim.getTraffic();
+        if (traffic != null) drawTraffic(g, traffic.getFleet(), cameraX);
 
-        //Yellow zone for precision mission
-        if (missionLogic.getType() == MissionType.PRECISION) {
-            g.setFill(Color.YELLOW);
+        drawPlane(g, planeX - cameraX, plane.interpolatedY(alpha), plane.interpolatedAngle(alpha));
+    }
 
-            g.setGlobalAlpha(0.5);
-            g.fillRect(5200, HEIGHT - 80, 100, 80);
-            g.setGlobalAlpha(1.0);
+    private void renderHud(GraphicsContext g) {
+        int dist = DIST_LABEL.quantize(Math.max(0, missionLogic.getDestX() - plane.x));
+        int speed = SPEED_LABEL.quantize(plane.getSpeed());
+        int heading = HEADING_LABEL.quantize(plane.angle);
+        int throttle = THROTTLE_LABEL.quantize(plane.throttle * 100);
+        int fuel = (int) Math.round(plane.fuel * 10); //bar width in tenths of a pixel
+        AirTraffic traffic = sim.getTraffic();
+        int trafficDist = traffic != null && traffic.getIntruders() > 0 ? TRAFFIC_LABEL.quantize(traffic.getNearestDistance()) : -1;
+        boolean finished = sim.isFinished();
+        MissionSimulation.Outcome outcome = sim.getOutcome();
+
+        if (hudValid && dist == shownDist && speed == shownSpeed && heading == shownHeading
+                && throttle == shownThrottle && fuel == shownFuel && plane.flapsExtended == shownFlaps
+                && trafficDist == shownTraffic && finished == shownFinished && outcome == shownOutcome) {
+            return;
         }
-
-        g.setFill(Color.RED);
-        g.fillRect(missionLogic.getDestX(), HEIGHT - 150, 10, 70);
-        g.fillPolygon(new double[]{missionLogic.getDestX(), missionLogic.getDestX()+50, missionLogic.getDestX()},
-                new double[]{HEIGHT-150, HEIGHT-135, HEIGHT-120}, 3);
-
-        drawPlane(g);
-        g.restore();
-
+        hudValid = true;
+        shownDist = dist;
+        shownSpeed = speed;
+        shownHeading = heading;
+        shownThrottle = throttle;
+        shownFuel = fuel;
+        shownFlaps = plane.flapsExtended;
+        shownTraffic = trafficDist;
+        shownFinished = finished;
+        shownOutcome = outcome;
+
+        g.clearRect(0, 0, WIDTH, HEIGHT);
         drawHUD(g);
         drawMissionInfo(g);
 
-        if (gameWon) {
-            g.setFill(Color.rgb(0, 0, 0, 0.7));
+        if (isGameWon()) {
+            g.setFill(WON_SHADE);
             g.fillRect(0, 0, WIDTH, HEIGHT);
             g.setFill(Color.LIME);
-            g.setFont(Font.font("Arial", 48));
+            g.setFont(TITLE_FONT);
             g.fillText("MISSION COMPLETE!", 280, 300);
             g.setFill(Color.WHITE);
-            g.setFont(Font.font("Arial", 24));
-            g.fillText("Punkty zapisane. ENTER = Powrót", 320, 350);
+            g.setFont(SUBTITLE_FONT);
+            g.fillText(replay != null ? "Koniec powtórki. ENTER = Powrót" : "Wynik wysłany do weryfikacji. ENTER = Powrót", 320, 350);
         }
 
-        if (gameLost) {
-            g.setFill(Color.rgb(50, 0, 0, 0.8));
+        if (isGameLost()) {
+            g.setFill(LOST_SHADE);
             g.fillRect(0, 0, WIDTH, HEIGHT);
             g.setFill(Color.RED);
-            g.setFont(Font.font("Arial", FontWeight.BOLD, 48));
+            g.setFont(TITLE_BOLD_FONT);
             g.fillText("MISJA NIEUDANA!", WIDTH/2 - 200, 250);
 
             g.setFill(Color.WHITE);
-            g.setFont(Font.font("Arial", 28));
-            g.fillText(endMessage, WIDTH/2 - 200, 320);
+            g.setFont(MESSAGE_FONT);
+            g.fillText(sim.getEndMessage(), WIDTH/2 - 200, 320);
 
-            g.setFont(Font.font("Arial", 20));
+            g.setFont(HINT_FONT);
             g.fillText("Naciśnij ENTER, aby spróbować ponownie.", WIDTH/2 - 200, 400);
         }
     }
 
-    private void drawRunway(GraphicsContext g, double startX) {
-        g.setFill(Color.DARKGRAY);
-        g.fillRect(startX, HEIGHT - 80, missionLogic.getRunwayLen(), 80);
-        g.setFill(Color.WHITE);
-        for (double j = startX; j < startX + missionLogic.getRunwayLen(); j += 100) {
-            g.fillRect(j, HEIGHT - 45, 60, 10);
-        }
-    }
-
-    private void drawPlane(GraphicsContext g) {
+    private void drawPlane(GraphicsContext g, double x, double y, double angle) {
         g.save();
-        g.translate(plane.x, plane.y);
-        g.rotate(plane.angle);
+        g.translate(x, y);
+        g.rotate(angle);
 
-        if (planeImage != null) {
+        if (planeImage != null && planeImage.getProgress() >= 1 && !planeImage.isError()) {
             double imgWidth = planeImage.getWidth();
             double imgHeight = planeImage.getHeight();
             g.drawImage(planeImage, -imgWidth / 2.0, -imgHeight / 2.0, imgWidth, imgHeight);
@@ -324,19 +447,17 @@ public class FlightLab_Main extends Application {
     }
 
     private void drawHUD(GraphicsContext g) {
-        g.setFill(Color.rgb(0, 0, 0, 0.6));
+        g.setFill(HUD_PANEL);
         g.fillRoundRect(10, 10, 260, 140, 8, 8);
         g.setFill(Color.WHITE);
-        g.setFont(Font.font(14));
+        g.setFont(HUD_FONT);
 
-        double dist = Math.max(0, missionLogic.getDestX() - plane.x);
+        g.fillText(DIST_LABEL.text(shownDist), 20, 34);
+        g.fillText(SPEED_LABEL.text(shownSpeed), 20, 56);
+        g.fillText(HEADING_LABEL.text(shownHeading), 20, 78);
+        g.fillText(THROTTLE_LABEL.text(shownThrottle), 20, 100);
 
-        g.fillText(String.format("Goal Dist: %.0f m", dist), 20, 34);
-        g.fillText(String.format("Speed    : %.1f m/s", plane.getSpeed()), 20, 56);
-        g.fillText(String.format("Heading  : %.0f°", plane.angle), 20, 78);
-        g.fillText(String.format("Throttle : %.0f%%", plane.throttle * 100), 20, 100);
-
-        if (plane.flapsExtended) {
+        if (shownFlaps) {
             g.setFill(Color.ORANGE);
             g.fillText("FLAPS: EXTENDED", 20, 122);
         } else {
@@ -352,27 +473,55 @@ public class FlightLab_Main extends Application {
         if (plane.fuel < 20) g.setFill(Color.RED);
         else g.setFill(Color.LIMEGREEN);
 
-        g.fillRect(150, 62, plane.fuel, 14);
+        g.fillRect(150, 62, shownFuel / 10.0, 14);
     }
 
     private void drawMissionInfo(GraphicsContext g) {
-        if (gameWon || gameLost) return;
+        if (shownFinished) return;
 
-        g.setFill(Color.rgb(255,255,255,0.9));
-        g.setFont(Font.font(16));
-        g.fillText("Misja: " + missionLogic.getObjectiveText(), 300, 30);
+        g.setFill(INFO_TEXT);
+        g.setFont(INFO_FONT);
+        g.fillText(objectiveLine, 300, 30);
 
-        g.setFont(Font.font(12));
-        g.fillText("Sterowanie: W/S (kąt), A/D (gaz), F (klapy)", 300, 50);
+        g.setFont(HELP_FONT);
+        if (replay != null) {
+            g.fillText("Pilot: " + (replay.getPlayer() != null ? replay.getPlayer() : "-") + ", TAB (przewijanie), ENTER (menu)", 300, 50);
+        } else {
+            g.fillText("Sterowanie: W/S (kąt), A/D (gaz), F (klapy)", 300, 50);
+        }
 
         if (plane.fuel < 20) {
             g.setFill(Color.RED);
             g.fillText("WARNING!: Low fuel!", 300, 70);
         }
+
+        if (shownTraffic >= 0) {
+            g.setFill(Color.RED);
+            g.setFont(INFO_FONT);
+            g.fillText(TRAFFIC_LABEL.text(shownTraffic), 300, 92);
+        }
     }
 
-    private static double clamp(double v, double a, double b) {
-        return Math.max(a, Math.min(b, v));
+    //Only the AI aircraft inside the camera view are drawn
+    private void drawTraffic(GraphicsContext g, AircraftFleet fleet, double cameraX) {
+        double margin = PLANE_WIDTH;
+        for (int i = 0, n = fleet.size(); i < n; i++) {
+            double x = fleet.getX(i) - cameraX;
+            if (x < -margin || x > WIDTH + margin) continue;
+            g.save();
+            g.translate(x, fleet.getY(i));
+            g.rotate(fleet.getAngle(i));
+            if (planeImage != null && planeImage.getProgress() >= 1 && !planeImage.isError()) {
+                double w = planeImage.getWidth() * TRAFFIC_SCALE, h = planeImage.getHeight() * TRAFFIC_SCALE;
+                //Flying left (angle ~180) would show the image upside down, mirror it vertically instead
+                if (fleet.getVx(i) < 0) g.scale(1, -1);
+                g.drawImage(planeImage, -w / 2.0, -h / 2.0, w, h);
+            } else {
+                g.setFill(Color.DARKGRAY);
+                g.fillRect(-18, -6, 36, 12);
+            }
+            g.restore();
+        }
     }
 
     public static class Plane {
@@ -385,9 +534,30 @@ public class FlightLab_Main extends Application {
         boolean onGround = false;
         boolean flapsExtended = false;
 
+        //State from the previous physics step, used for render interpolation
+        double prevX, prevY, prevAngle;
+
         Plane(double x, double y) {
             this.x = x;
             this.y = y;
+            storePreviousState();
+        }
+
+        void storePreviousState() {
+            prevX = x;
+            prevY = y;
+            prevAngle = angle;
+        }
+
+        double interpolatedX(double alpha) { return prevX + (x - prevX) * alpha; }
+        double interpolatedY(double alpha) { return prevY + (y - prevY) * alpha; }
+
+        double interpolatedAngle(double alpha) {
+            //turn() wraps at 360, so take the shorter way around
+            double diff = angle - prevAngle;
+            if (diff > 180) diff -= 360;
+            else if (diff < -180) diff += 360;
+            return prevAngle + diff * alpha;
         }
 
         void turn(double dAngle) {
@@ -400,32 +570,91 @@ public class FlightLab_Main extends Application {
 
         double getSpeed() { return Math.hypot(vx, vy); }
 
+        private static double accelX(double vx, double forceX, double dragFactor) {
+            return forceX - vx * dragFactor;
+        }
+
+        //Lift is 50 * (speed / 50) * (1 + pitch / 2), upwards (negative y)
+        private static double accelY(double vx, double vy, double forceY, double liftPerSpeed, double dragFactor) {
+            return forceY - liftPerSpeed * Math.sqrt(vx * vx + vy * vy) - vy * dragFactor;
+        }
+
         void updatePhysics(double dt, double windX, double windY, MissionType mission) {
+            updatePhysics(dt, windX, windY, mission, Integrator.SEMI_IMPLICIT_EULER);
+        }
+
+        void updatePhysics(double dt, double windX, double windY, MissionType mission, Integrator integrator) {
+            updatePhysics(dt, windX, windY, (mission == MissionType.EMERGENCY) ? 120 : 200, integrator);
+        }
+
+        //maxThrust: engine of the mission (MissionDefinition), thrust at full throttle
+        void updatePhysics(double dt, double windX, double windY, double maxThrust, Integrator integrator) {
+            FlightEvents.PhysicsTick event = FlightEvents.samplePhysicsTick();
+
             double rad = Math.toRadians(angle);
-            double maxThrust = (mission == MissionType.EMERGENCY) ? 120 : 200;
 
             double thrust = maxThrust * throttle;
-            double ax = Math.cos(rad) * thrust;
-            double ay = Math.sin(rad) * thrust;
-
-            double forwardSpeed = getSpeed();
-            double lift = 50 * (forwardSpeed / 50.0) * (1 + pitch * 0.5);
-            if (flapsExtended) lift *= 1.5;
+            //StrictMath gives the same bits on every JVM and CPU, so recorded flights replay exactly
+            double ax = StrictMath.cos(rad) * thrust;
+            double ay = StrictMath.sin(rad) * thrust;
 
             double gravity = 9.81 * 20;
             double dragFactor = flapsExtended ? 0.9 : 0.5;
 
-            double dragX = -vx * dragFactor;
-            double dragY = -vy * dragFactor;
-
-            vx += (ax + dragX + windX * 0.2) * dt;
-            vy += ((-lift) + ay + dragY + gravity + windY * 0.2) * dt;
-
-            x += vx * dt;
-            y += vy * dt;
+            if (integrator == Integrator.SEMI_IMPLICIT_EULER) {
+                double forwardSpeed = getSpeed();
+                double lift = 50 * (forwardSpeed / 50.0) * (1 + pitch * 0.5);
+                if (flapsExtended) lift *= 1.5;
+
+                double dragX = -vx * dragFactor;
+                double dragY = -vy * dragFactor;
+
+                vx += (ax + dragX + windX * 0.2) * dt;
+                vy += ((-lift) + ay + dragY + gravity + windY * 0.2) * dt;
+
+                x += vx * dt;
+                y += vy * dt;
+            } else {
+                //Constant over the step: thrust, wind, gravity. Lift and drag depend on the velocity.
+                double forceX = ax + windX * 0.2;
+                double forceY = ay + gravity + windY * 0.2;
+                double liftPerSpeed = (1 + pitch * 0.5) * (flapsExtended ? 1.5 : 1);
+
+                if (integrator == Integrator.EXPLICIT_EULER) {
+                    double dvx = accelX(vx, forceX, dragFactor);
+                    double dvy = accelY(vx, vy, forceY, liftPerSpeed, dragFactor);
+                    x += vx * dt;
+                    y += vy * dt;
+                    vx += dvx * dt;
+                    vy += dvy * dt;
+                } else {
+                    double h = dt / 2;
+                    double k1x = vx, k1y = vy;
+                    double a1x = accelX(k1x, forceX, dragFactor), a1y = accelY(k1x, k1y, forceY, liftPerSpeed, dragFactor);
+                    double k2x = vx + a1x * h, k2y = vy + a1y * h;
+                    double a2x = accelX(k2x, forceX, dragFactor), a2y = accelY(k2x, k2y, forceY, liftPerSpeed, dragFactor);
+                    double k3x = vx + a2x * h, k3y = vy + a2y * h;
+                    double a3x = accelX(k3x, forceX, dragFactor), a3y = accelY(k3x, k3y, forceY, liftPerSpeed, dragFactor);
+                    double k4x = vx + a3x * dt, k4y = vy + a3y * dt;
+                    double a4x = accelX(k4x, forceX, dragFactor), a4y = accelY(k4x, k4y, forceY, liftPerSpeed, dragFactor);
+
+                    x += (k1x + 2 * k2x + 2 * k3x + k4x) * dt / 6;
+                    y += (k1y + 2 * k2y + 2 * k3y + k4y) * dt / 6;
+                    vx += (a1x + 2 * a2x + 2 * a3x + a4x) * dt / 6;
+                    vy += (a1y + 2 * a2y + 2 * a3y + a4y) * dt / 6;
+                }
+            }
 
             if (x < 0) { x = 0; vx = 0; }
-            pitch *= 0.96;
+            pitch *= Integrator.perTick(0.96, dt);
+
+            if (event != null) {
+                event.dt = dt;
+                event.x = x;
+                event.y = y;
+                event.speed = getSpeed();
+                event.commit();
+            }
         }
     }
 
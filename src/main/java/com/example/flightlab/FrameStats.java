@@ -0,0 +1,220 @@
+package com.example.flightlab;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+//Frame timing of the flight screen: frame interval, physics (update) time, render time and
+//bytes allocated on the JavaFX thread per frame. Everything is recorded into preallocated
+//histograms and a ring buffer of recent frames, so measuring does not allocate itself.
+public class FrameStats {
+
+    private static final int HISTORY = 60 * 60 * 5; //last 5 minutes at 60 FPS
+    private static final int OVERLAY_REFRESH_FRAMES = 15;
+
+    private static final Color OVERLAY_PANEL = Color.rgb(0, 0, 0, 0.65);
+    private static final Font OVERLAY_FONT = Font.font("Monospaced", 12);
+    private static final CachedLabel MILLIS = new CachedLabel("", "", 2, 0, 100);
+    private static final CachedLabel KILOBYTES = new CachedLabel("", "", 1, 0, 10000);
+    private static final String[] ROWS = {"frame ms", "update ms", "render ms", "alloc KB"};
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final boolean allocationSupported;
+
+    private final FrameHistogram interval = new FrameHistogram();
+    private final FrameHistogram update = new FrameHistogram();
+    private final FrameHistogram render = new FrameHistogram();
+    private final FrameHistogram allocated = new FrameHistogram();
+    private final FrameHistogram[] histograms = {interval, update, render, allocated};
+
+    //Ring buffer of the last frames for the CSV export
+    private final long[] historyInterval = new long[HISTORY];
+    private final long[] historyUpdate = new long[HISTORY];
+    private final long[] historyRender = new long[HISTORY];
+    private final long[] historyAllocated = new long[HISTORY];
+    private final int[] historySteps = new int[HISTORY];
+    private long frames = 0;
+
+    //Per frame state
+    private long frameStart, updateEnd, allocStart;
+    private int steps;
+
+    //Overlay values (quantized), recomputed a few times per second
+    private boolean overlayVisible = false;
+    private final int[][] overlay = new int[4][3]; //row -> p50, p99, max
+
+    public FrameStats() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()) {
+            threads = sunBean;
+            if (!threads.isThreadAllocatedMemoryEnabled()) threads.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threads = null;
+        }
+        allocationSupported = threads != null;
+    }
+
+    public void beginFrame(long intervalNanos) {
+        if (frames > 0) interval.record(intervalNanos);
+        historyInterval[(int) (frames % HISTORY)] = intervalNanos;
+        allocStart = allocatedBytes();
+        frameStart = System.nanoTime();
+    }
+
+    public void endUpdate(int stepCount) {
+        updateEnd = System.nanoTime();
+        steps = stepCount;
+    }
+
+    public void endFrame() {
+        long end = System.nanoTime();
+        long updateNanos = updateEnd - frameStart;
+        long renderNanos = end - updateEnd;
+        long bytes = allocationSupported ? allocatedBytes() - allocStart : 0;
+
+        update.record(updateNanos);
+        render.record(renderNanos);
+        if (allocationSupported) allocated.record(bytes);
+
+        int slot = (int) (frames % HISTORY);
+        historyUpdate[slot] = updateNanos;
+        historyRender[slot] = renderNanos;
+        historyAllocated[slot] = bytes;
+        historySteps[slot] = steps;
+        frames++;
+
+        if (overlayVisible && frames % OVERLAY_REFRESH_FRAMES == 0) refreshOverlay();
+    }
+
+    private long allocatedBytes() {
+        return allocationSupported ? threads.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    public void toggleOverlay() {
+        overlayVisible = !overlayVisible;
+        if (overlayVisible) refreshOverlay();
+    }
+
+    public boolean isOverlayVisible() { return overlayVisible; }
+
+    private void refreshOverlay() {
+        for (int row = 0; row < 4; row++) {
+            CachedLabel unit = row == 3 ? KILOBYTES : MILLIS;
+            double scale = row == 3 ? 1024.0 : 1_000_000.0;
+            overlay[row][0] = unit.quantize(histograms[row].percentile(50) / scale);
+            overlay[row][1] = unit.quantize(histograms[row].percentile(99) / scale);
+            overlay[row][2] = unit.quantize(histograms[row].getMax() / scale);
+        }
+    }
+
+    //Drawn in screen coordinates in the top right corner
+    public void drawOverlay(GraphicsContext g, double screenWidth) {
+        if (!overlayVisible) return;
+        double left = screenWidth - 290;
+        g.setFill(OVERLAY_PANEL);
+        g.fillRoundRect(left, 10, 280, 100, 8, 8);
+        g.setFont(OVERLAY_FONT);
+        g.setFill(Color.LIGHTGRAY);
+        g.fillText("p50", left + 110, 28);
+        g.fillText("p99", left + 165, 28);
+        g.fillText("max", left + 220, 28);
+        int rows = allocationSupported ? 4 : 3;
+        for (int row = 0; row < rows; row++) {
+            double y = 48 + row * 18;
+            g.setFill(Color.LIGHTGRAY);
+            g.fillText(ROWS[row], left + 10, y);
+            g.setFill(Color.WHITE);
+            CachedLabel unit = row == 3 ? KILOBYTES : MILLIS;
+            g.fillText(unit.text(overlay[row][0]), left + 110, y);
+            g.fillText(unit.text(overlay[row][1]), left + 165, y);
+            g.fillText(unit.text(overlay[row][2]), left + 220, y);
+        }
+    }
+
+    //Writes the recent frames and a percentile summary to two CSV files, returns the frames file
+    public File exportCsv(File dir, String mission) throws IOException {
+        return export(mission).write(dir);
+    }
+
+    //Copy of what the CSV files need, taken on the JavaFX thread (a few array copies), so the files
+    //can be written on another thread while the stats keep recording
+    public Export export(String mission) {
+        long first = Math.max(0, frames - HISTORY);
+        int count = (int) (frames - first);
+        Export e = new Export(mission, first, count);
+        for (int i = 0; i < count; i++) {
+            int slot = (int) ((first + i) % HISTORY);
+            e.interval[i] = historyInterval[slot];
+            e.update[i] = historyUpdate[slot];
+            e.render[i] = historyRender[slot];
+            e.allocated[i] = allocationSupported ? historyAllocated[slot] : -1;
+            e.steps[i] = historySteps[slot];
+        }
+        StringBuilder summary = new StringBuilder(512);
+        summary.append("metric,unit,count,mean,p50,p90,p99,p999,max").append(System.lineSeparator());
+        summaryRow(summary, "frame_interval", "us", interval, 1000);
+        summaryRow(summary, "update", "us", update, 1000);
+        summaryRow(summary, "render", "us", render, 1000);
+        if (allocationSupported) summaryRow(summary, "alloc", "bytes", allocated, 1);
+        e.summary = summary.toString();
+        return e;
+    }
+
+    public static final class Export {
+        private final String mission;
+        private final String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        private final long firstFrame;
+        private final long[] interval, update, render, allocated;
+        private final int[] steps;
+        private String summary;
+
+        private Export(String mission, long firstFrame, int count) {
+            this.mission = mission;
+            this.firstFrame = firstFrame;
+            interval = new long[count];
+            update = new long[count];
+            render = new long[count];
+            allocated = new long[count];
+            steps = new int[count];
+        }
+
+        public File write(File dir) throws IOException {
+            if (!dir.exists() && !dir.mkdirs()) throw new IOException("Nie można utworzyć katalogu " + dir);
+            File framesFile = new File(dir, "frames_" + mission + "_" + stamp + ".csv");
+            File summaryFile = new File(dir, "frames_" + mission + "_" + stamp + "_summary.csv");
+
+            try (PrintWriter out = new PrintWriter(framesFile, "UTF-8")) {
+                out.println("frame,interval_us,update_us,render_us,steps,alloc_bytes");
+                for (int i = 0; i < interval.length; i++) {
+                    out.println((firstFrame + i) + "," + interval[i] / 1000 + "," + update[i] / 1000 + ","
+                            + render[i] / 1000 + "," + steps[i] + "," + allocated[i]);
+                }
+            }
+
+            try (PrintWriter out = new PrintWriter(summaryFile, "UTF-8")) {
+                out.print(summary);
+            }
+            return framesFile;
+        }
+    }
+
+    private static void summaryRow(StringBuilder out, String name, String unit, FrameHistogram h, long divisor) {
+        out.append(name + "," + unit + "," + h.getCount() + "," + Math.round(h.getMean() / divisor) + ","
+                + h.percentile(50) / divisor + "," + h.percentile(90) / divisor + ","
+                + h.percentile(99) / divisor + "," + h.percentile(99.9) / divisor + "," + h.getMax() / divisor)
+                .append(System.lineSeparator());
+    }
+
+    public long getFrames() { return frames; }
+    public FrameHistogram getIntervalHistogram() { return interval; }
+    public FrameHistogram getUpdateHistogram() { return update; }
+    public FrameHistogram getRenderHistogram() { return render; }
+    public FrameHistogram getAllocatedHistogram() { return allocated; }
+}
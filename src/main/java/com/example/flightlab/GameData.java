@@ -1,20 +1,43 @@
 package com.example.flightlab;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class GameData {
 
     private static final String FILE_NAME = "flightlab_save.dat";
+    private static final int COMPACT_AFTER_RECORDS = 4096;
     private static GameData instance;
 
+    private final ScoreJournal journal;
+    private final MasteryStore masteryStore;
+    private final Map<Integer, QuizMastery> mastery = new HashMap<>(); //loaded on the first quiz of a player
+    private PersistenceService persistence;
+    private PersistenceService.FsyncPolicy fsyncPolicy = PersistenceService.FsyncPolicy.SNAPSHOT;
     private ObservableList<Player> players;
     private Player currentPlayer;
 
+    private final Map<String, Player> playersByName = new HashMap<>();
+    private final Leaderboard leaderboard = new Leaderboard();
+    private ReplayVerifier verifier; //started with the first submitted mission
+
+    //-Dflightlab.save=path: another save file, e.g. for a QuizServer next to the game on one kiosk
     private GameData() {
+        this(new File(System.getProperty("flightlab.save", FILE_NAME)));
+    }
+
+    //Separate save file, for benchmarks and tools
+    GameData(File file) {
+        this.journal = new ScoreJournal(file);
+        this.masteryStore = new MasteryStore(new File(file.getPath() + ".mastery"));
         players = FXCollections.observableArrayList();
         loadData();
     }
@@ -36,41 +59,160 @@ public class GameData {
 
     //Creating or login of a player
     public void login(String name) {
-        for (Player p : players) {
-            if (p.getName().equalsIgnoreCase(name)) {
-                currentPlayer = p; //Loading an existing player
-                return;
-            }
+        Player existing = findPlayer(name);
+        if (existing != null) {
+            currentPlayer = existing; //Loading an existing player
+            return;
         }
         //If player not found - create a new one
-        Player newPlayer = new Player(name);
+        Player newPlayer = new Player(players.size() + 1, name);
         players.add(newPlayer);
+        index(newPlayer);
         currentPlayer = newPlayer;
-        saveData();
+        persistence.playerCreated(newPlayer);
     }
 
-    public void saveData() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE_NAME))) {
+    //Case-insensitive lookup by name, null if there is no such player
+    public Player findPlayer(String name) {
+        return playersByName.get(nameKey(name));
+    }
 
-        //Saving the list of players as a regular ArrayList
-            oos.writeObject(new ArrayList<>(players));
-            System.out.println("Zapisano dane.");
-        } catch (IOException e) {
-            e.printStackTrace();
+    //1-based position on the leaderboard
+    public int getRank(Player p) {
+        return leaderboard.rank(p);
+    }
+
+    public List<Player> getTopPlayers(int count) {
+        return leaderboard.top(count);
+    }
+
+    //The player and up to radius players above and below
+    public List<Player> getPlayersAround(Player p, int radius) {
+        return leaderboard.around(p, radius);
+    }
+
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    private void index(Player p) {
+        playersByName.putIfAbsent(nameKey(p.getName()), p);
+        leaderboard.add(p);
+    }
+
+    //Same matching as equalsIgnoreCase (upper then lower case), but usable as a hash key
+    private static String nameKey(String name) {
+        return name.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    //Scores go through GameData, so every point is one journal record instead of a full save.
+    //Writing happens on the persistence thread, never on the JavaFX thread.
+    public void addQuizPoint(Player p) {
+        p.addQuizPoint();
+        persistence.scoreChanged(p.getId(), ScoreJournal.FIELD_QUIZ, 1);
+    }
+
+    public void addMissionPoints(Player p, int points) {
+        p.addMissionPoints(points);
+        persistence.scoreChanged(p.getId(), ScoreJournal.FIELD_MISSION, points);
+    }
+
+    //Quiz progress of a player, read from its own file in the background the first time and cached on the JavaFX thread
+    public CompletableFuture<QuizMastery> loadMastery(Player p) {
+        QuizMastery cached = mastery.get(p.getId());
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        return masteryStore.loadAsync(p.getId(), QuestionBank::getInstance)
+                .thenApplyAsync(loaded -> mastery.computeIfAbsent(p.getId(), id -> loaded), Platform::runLater);
+    }
+
+    //Cached progress, null until loadMastery() has completed for the player
+    public QuizMastery getMastery(Player p) {
+        return mastery.get(p.getId());
+    }
+
+    public void saveMastery(Player p) {
+        QuizMastery m = mastery.get(p.getId());
+        if (m != null) masteryStore.save(p.getId(), m);
+    }
+
+    //Mission points count only after the recorded flight has been re-simulated.
+    //The result is applied on the JavaFX thread: first the verification counter, then the points.
+    public CompletableFuture<ReplayVerifier.Result> submitMission(Player p, Replay flight, int claimedPoints) {
+        if (verifier == null) verifier = new ReplayVerifier();
+        return verifier.submit(flight, claimedPoints)
+                .thenApplyAsync(result -> {
+                    recordVerification(p, result);
+                    return result;
+                }, Platform::runLater);
+    }
+
+    public void recordVerification(Player p, ReplayVerifier.Result result) {
+        if (result.isBusy()) {
+            //Not checked at all: neither confirmed nor rejected
+            System.err.println("Nie sprawdzono wyniku misji gracza " + p.getName() + ": " + result.reason());
+        } else if (result.isVerified()) {
+            p.setVerifiedMissions(p.getVerifiedMissions() + 1);
+            persistence.scoreChanged(p.getId(), ScoreJournal.FIELD_VERIFIED, 1);
+            addMissionPoints(p, result.points());
+        } else {
+            p.setRejectedMissions(p.getRejectedMissions() + 1);
+            persistence.scoreChanged(p.getId(), ScoreJournal.FIELD_REJECTED, 1);
+            System.err.println("Odrzucono wynik misji gracza " + p.getName() + ": " + result.reason());
         }
     }
 
-    @SuppressWarnings("unchecked")
+    //Full snapshot of all players (in the background), the journal starts again from zero
+    public void saveData() {
+        persistence.requestSnapshot();
+    }
+
+    //Waits until all changes so far are written, false if they could not be (they stay queued for a retry)
+    public boolean flush() {
+        if (persistence.flush()) return true;
+        System.err.println("Nie udało się zapisać danych, ostatni błąd: " + persistence.getLastError());
+        return false;
+    }
+
     public void loadData() {
-        File file = new File(FILE_NAME);
-        if (file.exists()) {
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-                List<Player> loadedList = (List<Player>) ois.readObject();
-                players.setAll(loadedList);
-                System.out.println("Wczytano graczy: " + players.size());
-            } catch (IOException | ClassNotFoundException e) {
-                System.err.println("Błąd odczytu danych: " + e.getMessage());
-            }
+        if (persistence != null) persistence.close();
+        List<Player> loadedList = new ArrayList<>();
+        FlightEvents.Load event = new FlightEvents.Load();
+        event.begin();
+        try {
+            loadedList = journal.load();
+            event.success = true;
+            System.out.println("Wczytano graczy: " + loadedList.size());
+        } catch (IOException e) {
+            System.err.println("Błąd odczytu danych: " + e.getMessage());
         }
+        event.end();
+        if (event.shouldCommit()) {
+            event.players = loadedList.size();
+            event.bytes = journal.getBytesOnDisk();
+            event.journalRecords = journal.getRecordsSinceSnapshot();
+            event.commit();
+        }
+        players.setAll(loadedList);
+        playersByName.clear();
+        leaderboard.clear();
+        for (Player p : loadedList) index(p);
+        persistence = new PersistenceService(journal, loadedList, fsyncPolicy, COMPACT_AFTER_RECORDS);
+    }
+
+    //Final snapshot and stop of the writer thread, called when the application exits
+    public void shutdown() {
+        if (verifier != null) verifier.close();
+        mastery.forEach(masteryStore::save);
+        masteryStore.close();
+        persistence.requestSnapshot();
+        persistence.close();
+    }
+
+    public void setFsyncPolicy(PersistenceService.FsyncPolicy policy) {
+        this.fsyncPolicy = policy;
+    }
+
+    public PersistenceService getPersistence() {
+        return persistence;
     }
 }
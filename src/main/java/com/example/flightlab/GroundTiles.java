@@ -0,0 +1,151 @@
+package com.example.flightlab;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//The static part of the world (terrain, runways, highlighted zones, flag) rendered into image tiles.
+//A frame then only copies the one or two tiles under the camera instead of redrawing every shape.
+//Tiles are rendered when the camera gets near them (at most one new tile per frame)
+//and the least recently drawn ones are dropped, so a long flight keeps a fixed number of images.
+public class GroundTiles {
+
+    static final int TILE_WIDTH = 1000;
+    static final int TILE_HEIGHT = 150 + (int) Terrain.MAX_ELEVATION; //ground strip, hills and the flag above
+    static final int MAX_TILES = 6;
+    private static final int GROUND = 80;
+    private static final int MARKER_SPACING = 500;
+    private static final int MARKER_WIDTH = 20;
+
+    private static final Color GRASS = Color.web("#266308");
+    private static final Color ZONE = Color.rgb(255, 255, 0, 0.5);
+
+    private final MissionDefinition mission;
+    private final Terrain terrain;
+    private final int screenHeight;
+    private final double surfaceOffset; //drawn grass edge above the plane's ground y
+
+    private final Canvas canvas = new Canvas(TILE_WIDTH, TILE_HEIGHT);
+    private final SnapshotParameters params = new SnapshotParameters();
+    private final LinkedHashMap<Integer, WritableImage> tiles = new LinkedHashMap<>(16, 0.75f, true); //access order
+    private final int airfieldTiles; //tiles up to the end of the last runway or zone
+
+    //Must be created and used on the JavaFX thread (uses Canvas.snapshot)
+    public GroundTiles(MissionLogic missionLogic, Terrain terrain, int screenHeight) {
+        this.mission = missionLogic.getDefinition();
+        this.terrain = terrain;
+        this.screenHeight = screenHeight;
+        this.surfaceOffset = MissionSimulation.GROUND_Y - (screenHeight - GROUND);
+        params.setFill(Color.TRANSPARENT);
+
+        double worldEnd = 0;
+        for (MissionDefinition.Zone runway : mission.getRunways()) worldEnd = Math.max(worldEnd, runway.to());
+        for (MissionDefinition.Zone zone : mission.getZones()) {
+            if (zone.highlight()) worldEnd = Math.max(worldEnd, zone.to());
+        }
+        airfieldTiles = (int) Math.ceil(worldEnd / TILE_WIDTH);
+    }
+
+    //Draws the ground for the screen starting at world x = cameraX (screen coordinates, no transform needed)
+    public void draw(GraphicsContext g, double cameraX, double screenWidth) {
+        int first = (int) Math.floor(cameraX / TILE_WIDTH);
+        double top = screenHeight - TILE_HEIGHT;
+        int i = first;
+        for (; i * (double) TILE_WIDTH < cameraX + screenWidth; i++) {
+            g.drawImage(tile(i), i * (double) TILE_WIDTH - cameraX, top);
+        }
+        //The next tile is prepared ahead, so crossing into it does not render two at once
+        if (!tiles.containsKey(i)) tile(i);
+    }
+
+    private WritableImage tile(int index) {
+        WritableImage tile = tiles.get(index);
+        if (tile == null) {
+            tile = renderTile(index * (double) TILE_WIDTH, index >= 0 && index < airfieldTiles);
+            tiles.put(index, tile);
+            Iterator<Map.Entry<Integer, WritableImage>> it = tiles.entrySet().iterator();
+            while (tiles.size() > MAX_TILES && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        return tile;
+    }
+
+    private double surface(double x) {
+        return terrain.groundY(x) - surfaceOffset;
+    }
+
+    private WritableImage renderTile(double originX, boolean withAirfields) {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.clearRect(0, 0, TILE_WIDTH, TILE_HEIGHT);
+        g.save();
+        g.translate(-originX, -(screenHeight - TILE_HEIGHT));
+
+        double h = screenHeight;
+        int points = TILE_WIDTH / Terrain.SAMPLE_SPACING + 1;
+        double[] xs = new double[points + 2];
+        double[] ys = new double[points + 2];
+        for (int i = 0; i < points; i++) {
+            xs[i] = originX + i * Terrain.SAMPLE_SPACING;
+            ys[i] = surface(xs[i]);
+        }
+        xs[points] = originX + TILE_WIDTH;
+        ys[points] = h;
+        xs[points + 1] = originX;
+        ys[points + 1] = h;
+        g.setFill(GRASS);
+        g.fillPolygon(xs, ys, points + 2);
+
+        //Grass markers follow the slope
+        g.setFill(Color.LIGHTGREEN);
+        for (double x = originX; x < originX + TILE_WIDTH; x += MARKER_SPACING) {
+            if (!withAirfields || !onRunway(x)) {
+                double x2 = x + MARKER_WIDTH;
+                g.fillPolygon(new double[]{x, x2, x2, x}, new double[]{surface(x), surface(x2), h, h}, 4);
+            }
+        }
+
+        if (withAirfields) {
+            for (MissionDefinition.Zone runway : mission.getRunways()) drawRunway(g, runway);
+
+            //Yellow zones from the mission file (precision landing)
+            g.setFill(ZONE);
+            for (MissionDefinition.Zone zone : mission.getZones()) {
+                if (zone.highlight()) g.fillRect(zone.from(), h - GROUND, zone.to() - zone.from(), GROUND);
+            }
+
+            double destX = mission.getDestX();
+            g.setFill(Color.RED);
+            g.fillRect(destX, h - 150, 10, 70);
+            g.fillPolygon(new double[]{destX, destX + 50, destX}, new double[]{h - 150, h - 135, h - 120}, 3);
+        }
+        g.restore();
+
+        WritableImage tile = new WritableImage(TILE_WIDTH, TILE_HEIGHT);
+        canvas.snapshot(params, tile);
+        return tile;
+    }
+
+    private boolean onRunway(double x) {
+        for (MissionDefinition.Zone runway : mission.getRunways()) {
+            if (x >= runway.from() && x < runway.to()) return true;
+        }
+        return false;
+    }
+
+    private void drawRunway(GraphicsContext g, MissionDefinition.Zone runway) {
+        g.setFill(Color.DARKGRAY);
+        g.fillRect(runway.from(), screenHeight - GROUND, runway.to() - runway.from(), GROUND);
+        g.setFill(Color.WHITE);
+        for (double j = runway.from(); j < runway.to(); j += 100) {
+            g.fillRect(j, screenHeight - 45, 60, 10);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.flightlab;
+
+//How Plane.updatePhysics advances position and velocity over one step.
+//SEMI_IMPLICIT_EULER is what the game always used (new velocity first, then position with it) and stays
+//the default, so recorded flights replay bit for bit. RK4 is the accurate one for large steps.
+public enum Integrator {
+    EXPLICIT_EULER,       //position with the old velocity: cheapest, drifts the most
+    SEMI_IMPLICIT_EULER,  //one force evaluation, stable with drag, first order
+    RK4;                  //four force evaluations, fourth order
+
+    //Per-tick factors (pitch *= 0.96, braking *= 0.95, ...) were tuned for 60 Hz ticks.
+    //This gives the same decay per second for any dt, and exactly factor at 60 Hz.
+    static double perTick(double factor, double dt) {
+        if (dt == BatchSimulator.DEFAULT_DT) return factor;
+        return StrictMath.pow(factor, dt * SimulationClock.DEFAULT_TICK_RATE);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.flightlab;
+
+import java.util.SplittableRandom;
+
+//Accuracy and cost of the integrators at large steps, headless.
+//Trajectory: one fixed 30 s flight in free air (climb, then sink and settle) against a very fine RK4 reference. Throttle and
+//angle are set directly at times that every step hits exactly, so only the integration differs.
+//Landings: ScriptedPilot missions, how many end with the same outcome and points as the game (60 Hz,
+//semi-implicit Euler, no substeps), and how long a simulated second takes.
+public class IntegratorComparison {
+
+    private static final double REFERENCE_SUBSTEP = 1.0 / 3840;
+    private static final double TRAJECTORY_SECONDS = 30;
+    private static final double[] STEPS = {1.0 / 60, 1.0 / 30, 1.0 / 15, 1.0 / 10, 1.0 / 5};
+    private static final MissionType[] LANDING_MISSIONS = {MissionType.NORMAL, MissionType.PRECISION,
+            MissionType.EMERGENCY, MissionType.LOW_PASS};
+
+    //Integrator + substep limit, one row of the report
+    private record Setup(Integrator integrator, double maxSubstep) {
+        String label() {
+            return integrator + (Double.isInfinite(maxSubstep) ? "" : String.format(" (max %.0f ms)", maxSubstep * 1000));
+        }
+    }
+
+    private static final Setup[] SETUPS = {
+            new Setup(Integrator.EXPLICIT_EULER, Double.POSITIVE_INFINITY),
+            new Setup(Integrator.SEMI_IMPLICIT_EULER, Double.POSITIVE_INFINITY),
+            new Setup(Integrator.RK4, Double.POSITIVE_INFINITY),
+            new Setup(Integrator.SEMI_IMPLICIT_EULER, 1.0 / 60),
+            new Setup(Integrator.RK4, 1.0 / 20),
+    };
+
+    static MissionSimulation flyTrajectory(double dt, Integrator integrator, double maxSubstep) {
+        MissionSimulation sim = new MissionSimulation(MissionType.NORMAL);
+        sim.setIntegration(integrator, maxSubstep);
+        FlightLab_Main.Plane p = sim.getPlane();
+        p.x = 1000;
+        p.y = 400;
+        p.vx = 150;
+        p.onGround = false;
+
+        long ticks = Math.round(TRAJECTORY_SECONDS / dt);
+        long secondPhase = ticks / 2;
+        for (long t = 0; t < ticks && !sim.isFinished(); t++) {
+            if (t == 0) {
+                p.throttle = 0.52;
+                p.angle = -1;
+            } else if (t == secondPhase) {
+                p.throttle = 0.46;
+                p.angle = 0;
+            }
+            sim.step(dt, Controls.NONE);
+        }
+        return sim;
+    }
+
+    private static double distance(MissionSimulation a, MissionSimulation b) {
+        return Math.hypot(a.getPlane().x - b.getPlane().x, a.getPlane().y - b.getPlane().y);
+    }
+
+    //Usage: IntegratorComparison [runsPerMission] [seed]
+    public static void main(String[] args) {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+
+        MissionSimulation reference = flyTrajectory(REFERENCE_SUBSTEP, Integrator.RK4, REFERENCE_SUBSTEP);
+        System.out.printf("Trajektoria %.0f s, błąd położenia względem RK4 co %.2f ms:%n", TRAJECTORY_SECONDS,
+                REFERENCE_SUBSTEP * 1000);
+        System.out.printf("%-34s", "");
+        for (double dt : STEPS) System.out.printf("%12s", String.format("dt=%.0fms", dt * 1000));
+        System.out.println();
+        for (Setup s : SETUPS) {
+            System.out.printf("%-34s", s.label());
+            for (double dt : STEPS) {
+                System.out.printf("%12.3f", distance(flyTrajectory(dt, s.integrator(), s.maxSubstep()), reference));
+            }
+            System.out.println();
+        }
+
+        //Landings: reference outcomes once, then every setup against them
+        int[][] referencePoints = new int[LANDING_MISSIONS.length][runs];
+        MissionSimulation.Outcome[][] referenceOutcomes = new MissionSimulation.Outcome[LANDING_MISSIONS.length][runs];
+        for (int m = 0; m < LANDING_MISSIONS.length; m++) {
+            for (int i = 0; i < runs; i++) {
+                MissionSimulation sim = newMission(LANDING_MISSIONS[m], Integrator.SEMI_IMPLICIT_EULER, Double.POSITIVE_INFINITY);
+                sim.run(pilot(LANDING_MISSIONS[m], seed, i), BatchSimulator.DEFAULT_DT, BatchSimulator.DEFAULT_TIME_LIMIT);
+                referenceOutcomes[m][i] = sim.getOutcome();
+                referencePoints[m][i] = sim.getPoints();
+            }
+        }
+
+        //Untimed pass first, so the first rows are not measured before the JIT has compiled the physics
+        for (Setup s : SETUPS) {
+            for (double dt : STEPS) {
+                for (int i = 0; i < Math.min(runs, 20); i++) {
+                    newMission(MissionType.NORMAL, s.integrator(), s.maxSubstep())
+                            .run(pilot(MissionType.NORMAL, seed, i), dt, BatchSimulator.DEFAULT_TIME_LIMIT);
+                }
+            }
+        }
+
+        System.out.printf("%nLądowania (%d lotów na misję): zgodność z grą 60 Hz / koszt sekundy lotu%n", runs);
+        System.out.printf("%-34s", "");
+        for (double dt : STEPS) System.out.printf("%18s", String.format("dt=%.0fms", dt * 1000));
+        System.out.println();
+        for (Setup s : SETUPS) {
+            System.out.printf("%-34s", s.label());
+            for (double dt : STEPS) {
+                int same = 0, total = 0;
+                long nanos = 0;
+                double simSeconds = 0;
+                for (int m = 0; m < LANDING_MISSIONS.length; m++) {
+                    for (int i = 0; i < runs; i++) {
+                        MissionSimulation sim = newMission(LANDING_MISSIONS[m], s.integrator(), s.maxSubstep());
+                        ControlScript pilot = pilot(LANDING_MISSIONS[m], seed, i);
+                        long start = System.nanoTime();
+                        sim.run(pilot, dt, BatchSimulator.DEFAULT_TIME_LIMIT);
+                        nanos += System.nanoTime() - start;
+                        simSeconds += sim.getSimTime();
+                        if (sim.getOutcome() == referenceOutcomes[m][i] && sim.getPoints() == referencePoints[m][i]) same++;
+                        total++;
+                    }
+                }
+                System.out.printf("%18s", String.format("%5.1f%% %6.1f us", 100.0 * same / total, nanos / 1e3 / simSeconds));
+            }
+            System.out.println();
+        }
+    }
+
+    private static MissionSimulation newMission(MissionType type, Integrator integrator, double maxSubstep) {
+        MissionSimulation sim = new MissionSimulation(type);
+        sim.setIntegration(integrator, maxSubstep);
+        return sim;
+    }
+
+    //Same pilot and seed as BatchSimulator.runOne
+    private static ControlScript pilot(MissionType type, long seed, int index) {
+        return ScriptedPilot.random(type, new SplittableRandom(seed + index * 0x9E3779B97F4A7C15L));
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.flightlab;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//Offline summary of a flight recording made with the flightlab.jfc profile:
+//missions, physics tick times, quiz answers, saves/loads, and which of the slow
+//game events overlapped a GC pause or slow file I/O.
+//Usage: JfrAnalyzer <recording.jfr> [slowMillis]
+public class JfrAnalyzer {
+
+    private static final String PREFIX = "com.example.flightlab.";
+    private static final int TOP = 10;
+
+    private record Span(String what, Instant start, Instant end) {
+        long nanos() { return Duration.between(start, end).toNanos(); }
+        boolean overlaps(Span o) { return start.isBefore(o.end) && o.start.isBefore(end); }
+    }
+
+    private final Map<String, int[]> missions = new TreeMap<>();      //"TYPE OUTCOME" -> {count, points}
+    private final FrameHistogram physicsTicks = new FrameHistogram();
+    private final FrameHistogram quizResponse = new FrameHistogram();
+    private int quizAnswers = 0, quizCorrect = 0;
+    private final Map<String, FrameHistogram> saves = new TreeMap<>();
+    private final Map<String, long[]> saveTotals = new TreeMap<>();   //kind -> {bytes, failures}
+    private final FrameHistogram loads = new FrameHistogram();
+    private final FrameHistogram gcPauses = new FrameHistogram();
+    private final FrameHistogram fileIo = new FrameHistogram();
+
+    private final List<Span> gameSpans = new ArrayList<>();  //saves, loads, physics ticks
+    private final List<Span> stallSpans = new ArrayList<>(); //GC pauses, slow file I/O
+    private Instant first, last;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Użycie: JfrAnalyzer <nagranie.jfr> [próg_ms]");
+            return;
+        }
+        long slowNanos = (long) ((args.length > 1 ? Double.parseDouble(args[1]) : 2.0) * 1_000_000);
+        JfrAnalyzer analyzer = new JfrAnalyzer();
+        analyzer.read(Path.of(args[0]));
+        System.out.print(analyzer.report(slowNanos));
+    }
+
+    public void read(Path recording) throws IOException {
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) accept(file.readEvent());
+        }
+    }
+
+    private void accept(RecordedEvent e) {
+        String name = e.getEventType().getName();
+        if (first == null || e.getStartTime().isBefore(first)) first = e.getStartTime();
+        if (last == null || e.getEndTime().isAfter(last)) last = e.getEndTime();
+        long nanos = e.getDuration().toNanos();
+
+        switch (name) {
+            case PREFIX + "MissionEnd" -> {
+                int[] m = missions.computeIfAbsent(e.getString("mission") + " " + e.getString("outcome"), k -> new int[2]);
+                m[0]++;
+                m[1] += e.getInt("points");
+            }
+            case PREFIX + "PhysicsTick" -> {
+                physicsTicks.record(nanos);
+                gameSpans.add(new Span("tick", e.getStartTime(), e.getEndTime()));
+            }
+            case PREFIX + "QuizAnswer" -> {
+                quizAnswers++;
+                if (e.getBoolean("correct")) quizCorrect++;
+                quizResponse.record(e.getLong("responseMillis"));
+            }
+            case PREFIX + "Save" -> {
+                String kind = e.getString("kind");
+                saves.computeIfAbsent(kind, k -> new FrameHistogram()).record(nanos);
+                long[] t = saveTotals.computeIfAbsent(kind, k -> new long[2]);
+                t[0] += e.getLong("bytes");
+                if (!e.getBoolean("success")) t[1]++;
+                gameSpans.add(new Span("save " + kind + " " + e.getLong("bytes") + " B", e.getStartTime(), e.getEndTime()));
+            }
+            case PREFIX + "Load" -> {
+                loads.record(nanos);
+                gameSpans.add(new Span("load " + e.getInt("players") + " graczy", e.getStartTime(), e.getEndTime()));
+            }
+            case "jdk.GCPhasePause" -> {
+                gcPauses.record(nanos);
+                stallSpans.add(new Span("GC " + e.getString("name"), e.getStartTime(), e.getEndTime()));
+            }
+            case "jdk.FileWrite", "jdk.FileRead", "jdk.FileForce" -> {
+                fileIo.record(nanos);
+                stallSpans.add(new Span(name.substring(4) + " " + e.getString("path"), e.getStartTime(), e.getEndTime()));
+            }
+            default -> {}
+        }
+    }
+
+    public String report(long slowNanos) {
+        StringBuilder sb = new StringBuilder();
+        if (first != null) {
+            sb.append(String.format("Nagranie: %.1f s%n", Duration.between(first, last).toMillis() / 1000.0));
+        }
+
+        sb.append(String.format("%nMisje:%n"));
+        if (missions.isEmpty()) sb.append("  brak\n");
+        missions.forEach((k, m) -> sb.append(String.format("  %-22s %5d  pkt: %d%n", k, m[0], m[1])));
+
+        sb.append(String.format("%nCzasy (us)          %8s %8s %8s %8s %8s%n", "liczba", "p50", "p99", "max", "średnio"));
+        row(sb, "tick fizyki", physicsTicks, 1000);
+        saves.forEach((kind, h) -> row(sb, "zapis " + kind, h, 1000));
+        row(sb, "odczyt", loads, 1000);
+        row(sb, "pauzy GC", gcPauses, 1000);
+        row(sb, "I/O plików", fileIo, 1000);
+        saveTotals.forEach((kind, t) -> sb.append(String.format("  zapis %s: %d B, błędy: %d%n", kind, t[0], t[1])));
+
+        sb.append(String.format("%nQuiz: %d odpowiedzi, poprawnych %d", quizAnswers, quizCorrect));
+        if (quizAnswers > 0) {
+            sb.append(String.format(" (%.0f%%), czas odpowiedzi p50 %d ms, p99 %d ms",
+                    100.0 * quizCorrect / quizAnswers, quizResponse.percentile(50), quizResponse.percentile(99)));
+        }
+        sb.append('\n');
+
+        //Slow game events and what else was going on at that moment
+        List<Span> slow = new ArrayList<>();
+        for (Span s : gameSpans) if (s.nanos() >= slowNanos) slow.add(s);
+        slow.sort(Comparator.comparingLong(Span::nanos).reversed());
+        sb.append(String.format("%nNajwolniejsze zdarzenia (>= %.1f ms):%n", slowNanos / 1e6));
+        if (slow.isEmpty()) sb.append("  brak\n");
+        stallSpans.sort(Comparator.comparing(Span::start));
+        for (Span s : slow.subList(0, Math.min(TOP, slow.size()))) {
+            sb.append(String.format("  %+9.3f s  %7.2f ms  %s%n", offset(s.start), s.nanos() / 1e6, s.what));
+            for (Span stall : stallSpans) {
+                if (!stall.start.isBefore(s.end)) break;
+                if (stall.overlaps(s)) sb.append(String.format("      w tym czasie: %s (%.2f ms)%n", stall.what, stall.nanos() / 1e6));
+            }
+        }
+        return sb.toString();
+    }
+
+    private double offset(Instant t) {
+        return first == null ? 0 : Duration.between(first, t).toNanos() / 1e9;
+    }
+
+    private static void row(StringBuilder sb, String label, FrameHistogram h, long divisor) {
+        if (h.getCount() == 0) return;
+        sb.append(String.format("  %-18s %8d %8d %8d %8d %8.0f%n", label, h.getCount(), h.percentile(50) / divisor,
+                h.percentile(99) / divisor, h.getMax() / divisor, h.getMean() / divisor));
+    }
+}
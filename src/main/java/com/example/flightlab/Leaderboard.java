@@ -0,0 +1,228 @@
+package com.example.flightlab;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Players ordered by total score (highest first, older account first on a tie).
+//Order-statistic treap: every node knows the size of its subtree, so rank and
+//"player at rank k" are O(log n), a window of m players is O(log n + m).
+//Kept up to date through Player.ScoreListener, a score change moves only that one player.
+public class Leaderboard implements Player.ScoreListener {
+
+    //Called after a player moved, with the old and the new 1-based rank (0 = added / removed)
+    public interface RankListener {
+        void rankChanged(Player player, int oldRank, int newRank);
+    }
+
+    private static final class Node {
+        final Player player;
+        final int id;
+        final int priority;
+        int score;
+        int size = 1;
+        Node left, right;
+
+        Node(Player player) {
+            this.player = player;
+            this.id = player.getId();
+            this.score = player.getTotalScore();
+            this.priority = mix(id);
+        }
+    }
+
+    private Node root;
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    private final List<RankListener> rankListeners = new ArrayList<>();
+
+    public void add(Player p) {
+        if (nodes.containsKey(p.getId())) return;
+        Node n = new Node(p);
+        nodes.put(n.id, n);
+        root = insert(root, n);
+        p.setScoreListener(this);
+        if (!rankListeners.isEmpty()) fireRankChanged(p, 0, rankOf(n.score, n.id));
+    }
+
+    public void remove(Player p) {
+        Node n = nodes.get(p.getId());
+        if (n == null) return;
+        int oldRank = rankListeners.isEmpty() ? 0 : rankOf(n.score, n.id);
+        nodes.remove(p.getId());
+        root = erase(root, n.score, n.id);
+        p.setScoreListener(null);
+        if (!rankListeners.isEmpty()) fireRankChanged(p, oldRank, 0);
+    }
+
+    public void clear() {
+        for (Node n : nodes.values()) n.player.setScoreListener(null);
+        nodes.clear();
+        root = null;
+    }
+
+    @Override
+    public void scoreChanged(Player p) {
+        Node n = nodes.get(p.getId());
+        if (n == null || n.score == p.getTotalScore()) return;
+
+        int oldRank = rankListeners.isEmpty() ? 0 : rankOf(n.score, n.id);
+        root = erase(root, n.score, n.id);
+        n.score = p.getTotalScore();
+        n.left = n.right = null;
+        n.size = 1;
+        root = insert(root, n);
+        if (!rankListeners.isEmpty()) fireRankChanged(p, oldRank, rankOf(n.score, n.id));
+    }
+
+    public void addRankListener(RankListener l) { rankListeners.add(l); }
+    public void removeRankListener(RankListener l) { rankListeners.remove(l); }
+
+    private void fireRankChanged(Player p, int oldRank, int newRank) {
+        for (int i = 0; i < rankListeners.size(); i++) rankListeners.get(i).rankChanged(p, oldRank, newRank);
+    }
+
+    public int size() { return size(root); }
+
+    //1-based rank, 0 if the player is not on the board
+    public int rank(Player p) {
+        Node n = nodes.get(p.getId());
+        return n == null ? 0 : rankOf(n.score, n.id);
+    }
+
+    //Player at the given 1-based rank
+    public Player get(int rank) {
+        if (rank < 1 || rank > size()) throw new IndexOutOfBoundsException("rank " + rank);
+        Node n = root;
+        int k = rank - 1;
+        while (true) {
+            int leftSize = size(n.left);
+            if (k < leftSize) {
+                n = n.left;
+            } else if (k == leftSize) {
+                return n.player;
+            } else {
+                k -= leftSize + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    public List<Player> top(int k) {
+        return range(1, k);
+    }
+
+    //count players starting at the 1-based rank from
+    public List<Player> range(int from, int count) {
+        List<Player> out = new ArrayList<>(Math.max(0, Math.min(count, size() - from + 1)));
+        if (count > 0 && from >= 1) collect(root, from - 1, from - 1 + count, 0, out);
+        return out;
+    }
+
+    //The player with up to radius players above and below
+    public List<Player> around(Player p, int radius) {
+        int r = rank(p);
+        if (r == 0) return new ArrayList<>();
+        int from = Math.max(1, r - radius);
+        return range(from, r - from + 1 + radius);
+    }
+
+    private void collect(Node n, int lo, int hi, int offset, List<Player> out) {
+        if (n == null) return;
+        int index = offset + size(n.left);
+        if (lo < index) collect(n.left, lo, hi, offset, out);
+        if (index >= lo && index < hi) out.add(n.player);
+        if (hi > index + 1) collect(n.right, lo, hi, index + 1, out);
+    }
+
+    private int rankOf(int score, int id) {
+        int rank = 1;
+        Node n = root;
+        while (n != null) {
+            if (before(n.score, n.id, score, id)) {
+                rank += size(n.left) + 1;
+                n = n.right;
+            } else if (n.id == id) {
+                return rank + size(n.left);
+            } else {
+                n = n.left;
+            }
+        }
+        return 0;
+    }
+
+    private static Node insert(Node t, Node n) {
+        if (t == null) return n;
+        if (n.priority > t.priority) {
+            Node[] parts = split(t, n.score, n.id);
+            n.left = parts[0];
+            n.right = parts[1];
+            update(n);
+            return n;
+        }
+        if (before(n.score, n.id, t.score, t.id)) t.left = insert(t.left, n);
+        else t.right = insert(t.right, n);
+        update(t);
+        return t;
+    }
+
+    private static Node erase(Node t, int score, int id) {
+        if (t == null) return null;
+        if (t.id == id) return merge(t.left, t.right);
+        if (before(score, id, t.score, t.id)) t.left = erase(t.left, score, id);
+        else t.right = erase(t.right, score, id);
+        update(t);
+        return t;
+    }
+
+    //[0] = nodes ordered before (score, id), [1] = the rest
+    private static Node[] split(Node t, int score, int id) {
+        if (t == null) return new Node[2];
+        if (before(t.score, t.id, score, id)) {
+            Node[] parts = split(t.right, score, id);
+            t.right = parts[0];
+            update(t);
+            parts[0] = t;
+            return parts;
+        }
+        Node[] parts = split(t.left, score, id);
+        t.left = parts[1];
+        update(t);
+        parts[1] = t;
+        return parts;
+    }
+
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private static boolean before(int scoreA, int idA, int scoreB, int idB) {
+        return scoreA > scoreB || (scoreA == scoreB && idA < idB);
+    }
+
+    private static void update(Node n) {
+        n.size = 1 + size(n.left) + size(n.right);
+    }
+
+    private static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    //Deterministic pseudo-random priority, dense ids would otherwise build a degenerate tree
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+}
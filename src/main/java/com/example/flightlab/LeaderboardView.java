@@ -0,0 +1,195 @@
+package com.example.flightlab;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.control.Pagination;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.VBox;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+//Ranking table that only ever holds one page of players.
+//Rows come from the presorted Leaderboard, a score change updates just the rows it touches.
+//Listens to the leaderboard only while attached (shown), so hidden views cost nothing.
+public class LeaderboardView implements Leaderboard.RankListener {
+
+    private final Leaderboard leaderboard;
+    private final int pageSize;
+
+    private final TableView<Player> table = new TableView<>();
+    private final ObservableList<Player> window = FXCollections.observableArrayList();
+    private final Pagination pagination = new Pagination(1);
+    private final VBox root = new VBox(10);
+
+    private int from = 1; //rank of the first row
+    private boolean attached = false;
+    private boolean refreshScheduled = false;
+    private final Set<Player> changedInWindow = new HashSet<>();
+
+    public LeaderboardView(Leaderboard leaderboard, int pageSize) {
+        this.leaderboard = leaderboard;
+        this.pageSize = pageSize;
+
+        table.setItems(window);
+        table.setMaxWidth(700);
+        table.setFixedCellSize(28);
+        table.setPrefHeight(28 * (pageSize + 1) + 4);
+        table.setStyle(
+                "-fx-background-color: rgba(43, 43, 43, 0.8);" +
+                        "-fx-control-inner-background: rgba(43, 43, 43, 0.8);" +
+                        "-fx-control-inner-background-alt: rgba(53, 53, 53, 0.8);" +
+                        "-fx-text-fill: white;" +
+                        "-fx-table-cell-border-color: transparent;" +
+                        "-fx-font-size: 14px;"
+        );
+        table.setPlaceholder(new Label("Brak pilotów"));
+
+        //Cell values are read directly, no reflection; sorting is done by the leaderboard
+        TableColumn<Player, Integer> rankCol = new TableColumn<>("#");
+        rankCol.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(leaderboard.rank(c.getValue())));
+        rankCol.setMinWidth(60);
+        rankCol.setStyle("-fx-alignment: CENTER; -fx-text-fill: lightgray;");
+
+        TableColumn<Player, String> nameCol = new TableColumn<>("PILOT");
+        nameCol.setCellValueFactory(c -> new ReadOnlyStringWrapper(c.getValue().getName()));
+        nameCol.setMinWidth(220);
+        nameCol.setStyle("-fx-alignment: CENTER-LEFT; -fx-text-fill: #4db8ff;");
+
+        TableColumn<Player, Integer> quizCol = new TableColumn<>("QUIZ");
+        quizCol.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(c.getValue().getQuizPoints()));
+        quizCol.setMinWidth(110);
+        quizCol.setStyle("-fx-alignment: CENTER; -fx-text-fill: white;");
+
+        TableColumn<Player, Integer> missionCol = new TableColumn<>("MISJE");
+        missionCol.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(c.getValue().getMissionPoints()));
+        missionCol.setMinWidth(110);
+        missionCol.setStyle("-fx-alignment: CENTER; -fx-text-fill: white;");
+
+        TableColumn<Player, Integer> totalCol = new TableColumn<>("TOTAL");
+        totalCol.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(c.getValue().getTotalScore()));
+        totalCol.setMinWidth(110);
+        totalCol.setStyle("-fx-alignment: CENTER; -fx-text-fill: gold; -fx-font-weight: bold;");
+
+        for (TableColumn<Player, ?> col : List.of(rankCol, nameCol, quizCol, missionCol, totalCol)) {
+            col.setSortable(false);
+            table.getColumns().add(col);
+        }
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        pagination.setMaxPageIndicatorCount(10);
+        pagination.setPageFactory(page -> {
+            from = page * pageSize + 1;
+            if (attached) reloadWindow();
+            return table;
+        });
+
+        root.setAlignment(Pos.CENTER);
+        root.setMaxWidth(700);
+        root.getChildren().add(pagination);
+    }
+
+    public Node getNode() {
+        return root;
+    }
+
+    //Start following the leaderboard (call when the view is shown)
+    public void attach() {
+        if (attached) return;
+        attached = true;
+        leaderboard.addRankListener(this);
+        updatePageCount();
+        reloadWindow();
+    }
+
+    //Stop following the leaderboard (call when the view is hidden)
+    public void detach() {
+        if (!attached) return;
+        attached = false;
+        leaderboard.removeRankListener(this);
+        window.clear();
+        changedInWindow.clear();
+    }
+
+    //Opens the page that contains the player
+    public void showPlayer(Player p) {
+        int rank = leaderboard.rank(p);
+        if (rank > 0) pagination.setCurrentPageIndex((rank - 1) / pageSize);
+    }
+
+    @Override
+    public void rankChanged(Player player, int oldRank, int newRank) {
+        if (oldRank == 0 || newRank == 0) updatePageCountLater();
+
+        //Only changes that touch ranks from..to (or shift them) matter for the visible page
+        int lo = Math.min(nonZero(oldRank), nonZero(newRank));
+        int hi = (oldRank == 0 || newRank == 0) ? Integer.MAX_VALUE : Math.max(oldRank, newRank);
+        int to = from + pageSize - 1;
+        if (lo > to || hi < from) return;
+
+        changedInWindow.add(player);
+        if (!refreshScheduled) {
+            //Many score changes in one pulse end up as a single window update
+            refreshScheduled = true;
+            Platform.runLater(this::applyChanges);
+        }
+    }
+
+    private void applyChanges() {
+        refreshScheduled = false;
+        if (!attached) return;
+
+        List<Player> fresh = leaderboard.range(from, pageSize);
+        int oldSize = window.size();
+        int newSize = fresh.size();
+
+        //Keep the common head and tail, replace only the rows in between
+        int head = 0;
+        while (head < oldSize && head < newSize && window.get(head) == fresh.get(head)) head++;
+        int tail = 0;
+        while (tail < oldSize - head && tail < newSize - head
+                && window.get(oldSize - 1 - tail) == fresh.get(newSize - 1 - tail)) tail++;
+
+        if (head < oldSize - tail || head < newSize - tail) {
+            if (oldSize - tail - head == 1 && newSize - tail - head == 1) {
+                window.set(head, fresh.get(head));
+            } else {
+                window.remove(head, oldSize - tail);
+                window.addAll(head, fresh.subList(head, newSize - tail));
+            }
+        }
+
+        //Players whose score changed but who kept their row: refresh just that row
+        for (Player p : changedInWindow) {
+            int i = window.indexOf(p);
+            if (i >= 0 && (i < head || i >= newSize - tail)) window.set(i, p);
+        }
+        changedInWindow.clear();
+    }
+
+    private void reloadWindow() {
+        window.setAll(leaderboard.range(from, pageSize));
+        changedInWindow.clear();
+    }
+
+    private void updatePageCountLater() {
+        Platform.runLater(this::updatePageCount);
+    }
+
+    private void updatePageCount() {
+        int pages = Math.max(1, (leaderboard.size() + pageSize - 1) / pageSize);
+        if (pagination.getPageCount() != pages) pagination.setPageCount(pages);
+    }
+
+    private static int nonZero(int rank) {
+        return rank == 0 ? Integer.MAX_VALUE : rank;
+    }
+}
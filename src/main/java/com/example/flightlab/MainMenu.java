@@ -4,38 +4,48 @@ import com.example.flightlab.GameData;
 import com.example.flightlab.Player;
 import com.example.flightlab.Question;
 import com.example.flightlab.QuestionDataBase;
-import com.example.flightlab.MissionType;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 public class MainMenu extends Application {
 
     private Stage window;
-    private Scene loginScene, menuScene, quizScene, scoresScene, missionSelectScene;
+    private Scene loginScene, menuScene, scoresScene, missionSelectScene;
+    private QuizView quizView; //created with the first quiz, reused for every question after that
+    private LeaderboardView scoresView;
 
-    private int quizIndex = 0;
-    private int sessionScore = 0;
-    private List<Question> activeQuestions = new ArrayList<>();
+    private QuizSession quizSession;
+
+    @Override
+    public void init() {
+        //Runs on the launcher thread: the save file is read before the first window appears
+        GameData.getInstance();
+    }
+
+    @Override
+    public void stop() {
+        BackgroundIo.awaitPending(5000); //replays and stats of the last flight
+        GameData.getInstance().shutdown();
+    }
 
     @Override
     public void start(Stage primaryStage) {
         window = primaryStage;
         window.setTitle("FlightLab - System");
 
+        //Decoded in the background while the user is still in the menus
+        AssetCache.getInstance().prefetch(FlightLab_Main.PLANE_IMAGE, FlightLab_Main.PLANE_WIDTH, FlightLab_Main.PLANE_HEIGHT);
+
         createLoginScene();
         createMissionSelectScene();
         createMenuScene();
@@ -124,7 +134,10 @@ public class MainMenu extends Application {
 
         simButton.setOnAction(e -> window.setScene(missionSelectScene));
         quizButton.setOnAction(e -> startQuiz());
-        scoresButton.setOnAction(e -> window.setScene(scoresScene));
+        scoresButton.setOnAction(e -> {
+            scoresView.attach();
+            window.setScene(scoresScene);
+        });
         changeUserButton.setOnAction(e -> window.setScene(loginScene));
         exitButton.setOnAction(e -> window.close());
 
@@ -141,29 +154,41 @@ public class MainMenu extends Application {
         label.setTextFill(Color.LIGHTBLUE);
         label.setFont(Font.font(30));
 
-        Button btn1 = new Button("1. Lot Swobodny / Trening");
-        Button btn2 = new Button("2. Precyzja (Żółta strefa 100m)");
-        Button btn3 = new Button("3. Awaria Silnika (Start w powietrzu)");
-        Button btn4 = new Button("4. Low Pass (Przelot niski)");
-        Button backBtn = new Button("Powrót do Menu");
+        layout.getChildren().add(label);
 
-        btn1.setPrefWidth(400); btn2.setPrefWidth(400);
-        btn3.setPrefWidth(400); btn4.setPrefWidth(400); backBtn.setPrefWidth(200);
+        //One button per mission file (missions/index.txt)
+        for (MissionDefinition mission : MissionCatalog.getInstance().all()) {
+            Button btn = new Button(mission.getName());
+            btn.setPrefWidth(400);
+            styleButton(btn);
+            btn.setOnAction(e -> new FlightLab_Main(mission).start(window));
+            layout.getChildren().add(btn);
+        }
 
-        styleButton(btn1);
-        styleButton(btn2);
-        styleButton(btn3);
-        styleButton(btn4);
+        Button replayBtn = new Button("Odtwórz ostatni lot");
+        Button backBtn = new Button("Powrót do Menu");
+        replayBtn.setPrefWidth(200); backBtn.setPrefWidth(200);
+        styleButton(replayBtn);
         styleButton(backBtn);
 
-        btn1.setOnAction(e -> new FlightLab_Main(MissionType.NORMAL).start(window));
-        btn2.setOnAction(e -> new FlightLab_Main(MissionType.PRECISION).start(window));
-        btn3.setOnAction(e -> new FlightLab_Main(MissionType.EMERGENCY).start(window));
-        btn4.setOnAction(e -> new FlightLab_Main(MissionType.LOW_PASS).start(window));
+        //The replay folder is listed and the file read on the I/O thread, the button waits for the listing
+        replayBtn.setDisable(true);
+        BackgroundIo.submit(() -> Replay.latest(FlightLab_Main.REPLAY_DIR)).thenAcceptAsync(lastReplay -> {
+            if (lastReplay == null) return;
+            replayBtn.setDisable(false);
+            replayBtn.setOnAction(e -> {
+                replayBtn.setDisable(true);
+                BackgroundIo.submit(() -> Replay.read(lastReplay)).whenCompleteAsync((replay, error) -> {
+                    replayBtn.setDisable(false);
+                    if (error != null) System.err.println("Nie można odtworzyć lotu: " + BackgroundIo.message(error));
+                    else new FlightLab_Main(replay).start(window);
+                }, Platform::runLater);
+            });
+        }, Platform::runLater);
 
         backBtn.setOnAction(e -> window.setScene(menuScene));
 
-        layout.getChildren().addAll(label, btn1, btn2, btn3, btn4, backBtn);
+        layout.getChildren().addAll(replayBtn, backBtn);
         missionSelectScene = new Scene(layout, 1000, 700);
     }
 
@@ -182,211 +207,120 @@ public class MainMenu extends Application {
         label.setFont(Font.font("Arial", 28));
         label.setStyle("-fx-background-color: rgba(0,0,0,0.5); -fx-padding: 10; -fx-background-radius: 10;");
 
-        TableView<Player> table = new TableView<>();
-        table.setItems(GameData.getInstance().getPlayers());
-        table.setMaxWidth(700);
-
-        table.setStyle(
-                "-fx-background-color: rgba(43, 43, 43, 0.8);" +
-                        "-fx-control-inner-background: rgba(43, 43, 43, 0.8);" +
-                        "-fx-control-inner-background-alt: rgba(53, 53, 53, 0.8);" +
-                        "-fx-text-fill: white;" +
-                        "-fx-table-cell-border-color: transparent;" +
-                        "-fx-font-size: 14px;"
-        );
-
-        TableColumn<Player, String> nameCol = new TableColumn<>("PILOT");
-        nameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        nameCol.setMinWidth(250);
-        nameCol.setStyle("-fx-alignment: CENTER-LEFT; -fx-text-fill: #4db8ff;");
-
-        TableColumn<Player, Integer> quizCol = new TableColumn<>("QUIZ");
-        quizCol.setCellValueFactory(new PropertyValueFactory<>("quizPoints"));
-        quizCol.setMinWidth(130);
-        quizCol.setStyle("-fx-alignment: CENTER; -fx-text-fill: white;");
-
-        TableColumn<Player, Integer> missionCol = new TableColumn<>("MISJE");
-        missionCol.setCellValueFactory(new PropertyValueFactory<>("missionPoints"));
-        missionCol.setMinWidth(130);
-        missionCol.setStyle("-fx-alignment: CENTER; -fx-text-fill: white;");
-
-        TableColumn<Player, Integer> totalCol = new TableColumn<>("TOTAL");
-        totalCol.setCellValueFactory(new PropertyValueFactory<>("totalScore"));
-        totalCol.setMinWidth(120);
-        totalCol.setStyle("-fx-alignment: CENTER; -fx-text-fill: gold; -fx-font-weight: bold;");
-
-        table.getColumns().addAll(nameCol, quizCol, missionCol, totalCol);
-        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        //Only one page of the ranking exists as table rows, updated when scores change
+        LeaderboardView leaderboardView = new LeaderboardView(GameData.getInstance().getLeaderboard(), 15);
+        scoresView = leaderboardView;
+
+        Button myRankButton = new Button("Moja pozycja");
+        myRankButton.setPrefWidth(200);
+        styleButton(myRankButton);
+        myRankButton.setOnAction(e -> {
+            Player current = GameData.getInstance().getCurrentPlayer();
+            if (current != null) leaderboardView.showPlayer(current);
+        });
 
         Button backButton = new Button("Powrót do Menu");
         backButton.setPrefWidth(200);
         styleButton(backButton);
 
-        backButton.setOnAction(e -> window.setScene(menuScene));
+        backButton.setOnAction(e -> {
+            leaderboardView.detach();
+            window.setScene(menuScene);
+        });
 
-        layout.getChildren().addAll(label, table, backButton);
+        layout.getChildren().addAll(label, leaderboardView.getNode(), myRankButton, backButton);
         scoresScene = new Scene(layout, 1000, 700);
     }
 
     private void startQuiz() {
-        quizIndex = 0;
-        sessionScore = 0;
-        activeQuestions.clear();
+        Player player = GameData.getInstance().getCurrentPlayer();
+        if (player == null) {
+            beginQuiz(QuestionDataBase.drawRandom(10));
+            return;
+        }
+        //The player's progress is read in the background the first time, the quiz starts once it is there
+        GameData.getInstance().loadMastery(player).thenAccept(mastery -> beginQuiz(QuestionDataBase.drawFor(mastery, 10)));
+    }
 
-        List<Question> allQuestions = QuestionDataBase.getQuestions();
-        Collections.shuffle(allQuestions);
+    private void beginQuiz(List<Question> questions) {
+        quizSession = new QuizSession(questions);
 
-        int numberOfQuestions = Math.min(allQuestions.size(), 10);
-        for (int i = 0; i < numberOfQuestions; i++) {
-            activeQuestions.add(allQuestions.get(i));
-        }
+        QuizView.prefetchBackgrounds();
+        if (quizSession.getQuestion() != null) QuizView.prefetch(quizSession.getQuestion());
 
+        if (quizView == null) {
+            quizView = new QuizView(1000.0, 700.0);
+            quizView.setOnAnswer(this::checkAnswer);
+            quizView.setOnNext(() -> {
+                quizSession.next();
+                showQuizQuestion();
+            });
+            quizView.setOnBack(() -> window.setScene(menuScene));
+        }
         showQuizQuestion();
     }
 
     private void showQuizQuestion() {
-        if (this.quizIndex >= this.activeQuestions.size()) {
+        if (quizSession.getState() == QuizSession.State.FINISHED) {
             this.showQuizSummary();
         } else {
-            Question q = this.activeQuestions.get(this.quizIndex);
-
-            VBox box = new VBox(20.0);
-            box.setAlignment(Pos.CENTER);
-
-            try {
-                box.setStyle("-fx-background-image: url('/images/quiz_bg.png'); -fx-background-size: cover;");
-            } catch (Exception e) {
-                box.setStyle("-fx-background-color:#73808c;");
-            }
+            quizView.showQuestion(quizSession.getQuestion(), quizSession.getNumber(), quizSession.size());
+            Question upcoming = quizSession.peekNext();
+            if (upcoming != null) QuizView.prefetch(upcoming);
 
-            Label counter = new Label("Pytanie " + (quizIndex + 1) + " z " + activeQuestions.size());
-            counter.setTextFill(Color.LIGHTGRAY);
-            counter.setFont(Font.font(16));
-
-            counter.setStyle("-fx-background-color: rgba(0,0,0,0.5); -fx-padding: 5;");
-
-            Label qText = new Label(q.text);
-            qText.setFont(Font.font(22.0));
-            qText.setTextFill(Color.WHITE);
-            qText.setWrapText(true);
-            qText.setStyle("-fx-background-color: rgba(0,0,0,0.5); -fx-padding: 10; -fx-background-radius: 5;");
-
-            box.getChildren().addAll(counter, qText);
-
-            if (q.imageUrl != null) {
-                try {
-                    Image img = new Image(this.getClass().getResourceAsStream("/" + q.imageUrl));
-                    ImageView iv = new ImageView(img);
-                    iv.setFitWidth(300.0);
-                    iv.setPreserveRatio(true);
-                    box.getChildren().add(iv);
-                } catch (Exception e) {
-                    System.out.println("Błąd obrazka: " + q.imageUrl);
-                }
-            }
-
-            Button a = new Button("A: " + q.a);
-            Button b = new Button("B: " + q.b);
-            Button c = new Button("C: " + q.c);
-            Button d = new Button("D: " + q.d);
-
-            a.setPrefWidth(400); b.setPrefWidth(400); c.setPrefWidth(400); d.setPrefWidth(400);
-            styleButton(a); styleButton(b); styleButton(c); styleButton(d);
-
-            a.setOnAction(e -> checkAnswer(1));
-            b.setOnAction(e -> checkAnswer(2));
-            c.setOnAction(e -> checkAnswer(3));
-            d.setOnAction(e -> checkAnswer(4));
-
-            VBox answers = new VBox(10.0, a, b, c, d);
-            answers.setAlignment(Pos.CENTER);
-
-            Button back = new Button("Przerwij i wróć do menu");
-            back.setOnAction(e -> window.setScene(menuScene));
-            back.setPrefWidth(200.0);
-            styleButton(back);
-
-            box.getChildren().addAll(answers, back);
-            quizScene = new Scene(box, 1000.0, 700.0);
-            window.setScene(quizScene);
+            if (window.getScene() != quizView.getScene()) window.setScene(quizView.getScene());
         }
     }
 
     private void checkAnswer(int chosen) {
-        Question currentQ = this.activeQuestions.get(this.quizIndex);
-        boolean isCorrect = (chosen == currentQ.correct);
-
-        if (isCorrect) {
-            sessionScore++;
-            Player current = GameData.getInstance().getCurrentPlayer();
-            if (current != null) {
-                current.addQuizPoint();
-                GameData.getInstance().saveData();
-            }
-        }
-        showFeedback(isCorrect, currentQ);
-    }
-
-    private void showFeedback(boolean correct, Question q) {
-        VBox feedbackBox = new VBox(20.0);
-        feedbackBox.setAlignment(Pos.CENTER);
-
-        try {
-            String bgImage = correct ? "/images/correct.png" : "/images/wrong.png";
-            feedbackBox.setStyle("-fx-background-image: url('" + bgImage + "'); -fx-background-size: cover;");
-        } catch (Exception e) {
-            feedbackBox.setStyle(correct ? "-fx-background-color: #27A65B;" : "-fx-background-color: #C0392B;");
+        Question currentQ = quizSession.getQuestion();
+        boolean isCorrect = quizSession.answer(chosen);
+        recordAnswer(currentQ, chosen, isCorrect);
+
+        Player current = GameData.getInstance().getCurrentPlayer();
+        if (current != null) {
+            if (isCorrect) GameData.getInstance().addQuizPoint(current);
+            QuizMastery mastery = GameData.getInstance().getMastery(current);
+            if (mastery != null && currentQ.ordinal >= 0) mastery.record(currentQ.ordinal, isCorrect, QuizMastery.now());
         }
-
-        Label status = new Label(correct ? "DOBRZE!" : "ŹLE!");
-        status.setFont(Font.font(48.0));
-        status.setTextFill(correct ? Color.LIME : Color.RED);
-        status.setStyle("-fx-effect: dropshadow(three-pass-box, black, 10, 0, 0, 0);");
-
-        if (!correct) {
-            Label explanation = new Label("Poprawna odpowiedź: " + getAnswerText(q.correct) + ".");
-            explanation.setFont(Font.font(20.0));
-            explanation.setTextFill(Color.WHITE);
-            explanation.setStyle("-fx-effect: dropshadow(three-pass-box, black, 5, 0, 0, 0);");
-            feedbackBox.getChildren().add(explanation);
-        }
-
-        Button nextButton = new Button("Następne Pytanie");
-        nextButton.setOnAction(e -> {
-            quizIndex++;
-            showQuizQuestion();
-        });
-        styleButton(nextButton);
-
-        feedbackBox.getChildren().addAll(status, nextButton);
-        window.setScene(new Scene(feedbackBox, 1000.0, 700.0));
+        quizView.showFeedback(isCorrect, isCorrect ? null : QuizSession.answerText(currentQ, currentQ.correct));
     }
 
-    private String getAnswerText(int index) {
-        Question q = this.activeQuestions.get(this.quizIndex);
-        return switch (index) {
-            case 1 -> "A: " + q.a;
-            case 2 -> "B: " + q.b;
-            case 3 -> "C: " + q.c;
-            case 4 -> "D: " + q.d;
-            default -> "Nieznana";
-        };
+    private void recordAnswer(Question q, int chosen, boolean correct) {
+        FlightEvents.QuizAnswer event = new FlightEvents.QuizAnswer();
+        if (!event.shouldCommit()) return;
+        Player current = GameData.getInstance().getCurrentPlayer();
+        event.questionNumber = quizSession.getNumber();
+        event.question = q.text;
+        event.chosen = chosen;
+        event.correctAnswer = q.correct;
+        event.correct = correct;
+        event.responseMillis = quizSession.getResponseNanos() / 1_000_000;
+        event.player = current != null ? current.getName() : null;
+        event.commit();
     }
 
     private void showQuizSummary() {
+        System.out.println(quizView.transitionSummary());
+
         VBox box = new VBox(25);
         box.setAlignment(Pos.CENTER);
         box.setStyle("-fx-background-color: #1B1B1B;");
 
-        Label result = new Label("Koniec Quizu!\nTwój wynik w tej sesji: " + sessionScore + " / " + activeQuestions.size());
+        Label result = new Label("Koniec Quizu!\nTwój wynik w tej sesji: " + quizSession.getScore() + " / " + quizSession.size());
         result.setFont(Font.font(26));
         result.setTextFill(Color.WHITE);
         result.setTextAlignment(javafx.scene.text.TextAlignment.CENTER);
 
         Player p = GameData.getInstance().getCurrentPlayer();
-        Label totalInfo = new Label("Łączne punkty quizowe gracza " + p.getName() + ": " + p.getQuizPoints());
+        QuizMastery mastery = GameData.getInstance().getMastery(p);
+        GameData.getInstance().saveMastery(p);
+        Label totalInfo = new Label("Łączne punkty quizowe gracza " + p.getName() + ": " + p.getQuizPoints()
+                + (mastery != null ? "\nOpanowane pytania: " + mastery.getMasteredCount() + " z " + mastery.getSeenCount()
+                + " poznanych" : ""));
         totalInfo.setTextFill(Color.LIGHTGRAY);
         totalInfo.setFont(Font.font(18));
+        totalInfo.setTextAlignment(javafx.scene.text.TextAlignment.CENTER);
 
         Button back = new Button("Powrót do menu");
         back.setOnAction(e -> window.setScene(menuScene));
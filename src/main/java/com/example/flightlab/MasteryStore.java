@@ -0,0 +1,145 @@
+package com.example.flightlab;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+//Quiz progress (QuizMastery) on disk, one small file per player in a directory next to the save file,
+//so the scores in flightlab_save.dat stay as small as they are and a quiz rewrites only its own player.
+//
+//File: magic, version, bank fingerprint, ability, count, then per seen question (in ordinal order)
+//varints of the ordinal gap, attempts, right answers and last seen minute, and the box byte; CRC32 at the end.
+//Only seen questions are stored, about 10 bytes each. Progress for another question bank is not loaded.
+//The file is encoded on the caller's thread, read and written on a background thread (temporary file, then rename).
+public class MasteryStore implements Closeable {
+
+    private static final int MAGIC = 0x464C514D; //"FLQM"
+    private static final short VERSION = 1;
+    private static final int HEADER = 4 + 2 + 8 + 8 + 4;
+    private static final int MAX_ENTRY = 5 + 3 + 3 + 5 + 1;
+
+    private final File dir;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "flightlab-mastery");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public MasteryStore(File dir) {
+        this.dir = dir;
+    }
+
+    //Progress of a player, empty if there is none yet (or it belongs to another question bank)
+    public QuizMastery load(int playerId, QuestionBank bank) {
+        QuizMastery mastery = new QuizMastery(bank);
+        File file = fileOf(playerId);
+        if (!file.isFile()) return mastery;
+        try {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (!decode(data, mastery)) {
+                System.out.println("Postępy quizu gracza " + playerId + " dotyczą innego zestawu pytań, zaczynamy od nowa.");
+                return new QuizMastery(bank);
+            }
+        } catch (IOException | BufferUnderflowException e) {
+            System.err.println("Błąd odczytu postępów quizu: " + e.getMessage());
+            return new QuizMastery(bank);
+        }
+        return mastery;
+    }
+
+    //Reads on the writer thread, so it also sees a save still pending for the player (and the bank is opened there)
+    public CompletableFuture<QuizMastery> loadAsync(int playerId, Supplier<QuestionBank> bank) {
+        return CompletableFuture.supplyAsync(() -> load(playerId, bank.get()), writer);
+    }
+
+    //Encodes now, writes in the background
+    public CompletableFuture<Void> save(int playerId, QuizMastery mastery) {
+        ByteBuffer data = encode(mastery);
+        return CompletableFuture.runAsync(() -> {
+            try {
+                write(fileOf(playerId), data);
+            } catch (IOException e) {
+                System.err.println("Błąd zapisu postępów quizu: " + e.getMessage());
+            }
+        }, writer);
+    }
+
+    //Waits for the pending writes
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public File fileOf(int playerId) {
+        return new File(dir, playerId + ".bin");
+    }
+
+    static ByteBuffer encode(QuizMastery m) {
+        ByteBuffer out = ByteBuffer.allocate(HEADER + MAX_ENTRY * m.getSeenCount() + 4);
+        out.putInt(MAGIC).putShort(VERSION).putLong(m.getBankFingerprint()).putDouble(m.getAbility());
+        out.putInt(m.getSeenCount());
+        int previous = -1;
+        for (int o = 0; o < m.size(); o++) {
+            if (!m.isSeen(o)) continue;
+            SnapshotCodec.putVarint(out, o - previous - 1);
+            SnapshotCodec.putVarint(out, m.getAttempts(o));
+            SnapshotCodec.putVarint(out, m.getCorrect(o));
+            SnapshotCodec.putVarint(out, m.getLastSeen(o) & 0xFFFFFFFFL);
+            out.put((byte) m.getBox(o));
+            previous = o;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), 0, out.position());
+        out.putInt((int) crc.getValue());
+        return out.flip();
+    }
+
+    //False if the file is for another question bank
+    static boolean decode(ByteBuffer in, QuizMastery m) throws IOException {
+        if (in.remaining() < HEADER + 4 || in.getInt(0) != MAGIC) throw new IOException("Nieznany format postępów quizu.");
+        CRC32 crc = new CRC32();
+        crc.update(in.array(), 0, in.limit() - 4);
+        if (in.getInt(in.limit() - 4) != (int) crc.getValue()) throw new IOException("Uszkodzony plik postępów quizu.");
+        in.getInt();
+        if (in.getShort() != VERSION) throw new IOException("Nieobsługiwana wersja postępów quizu.");
+        if (in.getLong() != m.getBankFingerprint()) return false;
+        double ability = in.getDouble();
+        int count = in.getInt();
+        int ordinal = -1;
+        for (int i = 0; i < count; i++) {
+            ordinal += (int) SnapshotCodec.getVarint(in) + 1;
+            int attempts = (int) SnapshotCodec.getVarint(in);
+            int correct = (int) SnapshotCodec.getVarint(in);
+            int lastSeen = (int) SnapshotCodec.getVarint(in);
+            m.restore(ordinal, attempts, correct, lastSeen, in.get());
+        }
+        m.finishRestore(ability);
+        return true;
+    }
+
+    private void write(File file, ByteBuffer data) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Nie można utworzyć katalogu " + dir);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (data.hasRemaining()) channel.write(data);
+        }
+        ScoreJournal.moveAtomically(tmp, file);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.flightlab;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//All missions of the game, read once from missions/index.txt and the .mission files it lists.
+//They come from the jar, or from a directory given with -Dflightlab.missions=dir (new missions without a rebuild).
+public class MissionCatalog {
+
+    private static final String RESOURCE_DIR = "/missions/";
+    private static final String INDEX = "index.txt";
+    private static final String DIR_PROPERTY = "flightlab.missions";
+
+    private final Map<String, MissionDefinition> missions; //in menu order
+
+    private static final class Holder {
+        static final MissionCatalog INSTANCE = loadDefault();
+    }
+
+    public static MissionCatalog getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static MissionCatalog loadDefault() {
+        try {
+            String dir = System.getProperty(DIR_PROPERTY);
+            return dir != null ? load(new File(dir)) : load((File) null);
+        } catch (IOException e) {
+            throw new IllegalStateException("Nie można wczytać misji: " + e.getMessage(), e);
+        }
+    }
+
+    //Missions from a directory, or from the jar resources when dir is null
+    public static MissionCatalog load(File dir) throws IOException {
+        List<MissionDefinition> list = new ArrayList<>();
+        try (Reader index = open(dir, INDEX)) {
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[1024];
+            int n;
+            while ((n = index.read(buffer)) > 0) text.append(buffer, 0, n);
+            for (String line : text.toString().split("\n")) {
+                String file = line.trim();
+                if (file.isEmpty() || file.startsWith("#")) continue;
+                try (Reader reader = open(dir, file)) {
+                    list.add(MissionDefinition.parse(reader, file));
+                }
+            }
+        }
+        return new MissionCatalog(list);
+    }
+
+    MissionCatalog(List<MissionDefinition> list) throws IOException {
+        Map<String, MissionDefinition> byId = new LinkedHashMap<>();
+        for (MissionDefinition m : list) {
+            if (byId.put(m.getId(), m) != null) throw new IOException("Powtórzone id misji: " + m.getId());
+        }
+        if (byId.isEmpty()) throw new IOException("Brak misji w " + INDEX);
+        this.missions = Collections.unmodifiableMap(byId);
+    }
+
+    private static Reader open(File dir, String name) throws IOException {
+        InputStream in;
+        if (dir != null) {
+            in = new FileInputStream(new File(dir, name));
+        } else {
+            in = MissionCatalog.class.getResourceAsStream(RESOURCE_DIR + name);
+            if (in == null) throw new IOException("Brak zasobu " + RESOURCE_DIR + name);
+        }
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    public List<MissionDefinition> all() {
+        return List.copyOf(missions.values());
+    }
+
+    //null when there is no such mission (e.g. a replay of a mission removed from the files)
+    public MissionDefinition get(String id) {
+        return missions.get(id);
+    }
+
+    //The mission file of a built-in type has the lower-case name as id
+    public MissionDefinition get(MissionType type) {
+        MissionDefinition m = missions.get(type.name().toLowerCase());
+        if (m == null) throw new IllegalStateException("Brak misji " + type.name().toLowerCase());
+        return m;
+    }
+}
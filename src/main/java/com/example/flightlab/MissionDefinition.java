@@ -0,0 +1,419 @@
+package com.example.flightlab;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//One mission read from a .mission file (see resources/missions): spawn, aircraft limits, runways and zones,
+//and the objective/failure rules, which are compiled into a MissionRules graph when the file is read.
+//
+//File format, one statement per line, # starts a comment:
+//  id low_pass                       name used in replays and stats
+//  type LOW_PASS                     built-in MissionType: pilot profile and aircraft for the tools
+//  name / objective <text>           menu button and HUD line
+//  spawn x=.. y=.. vx=.. fuel=.. throttle=.. [active=true]
+//  engine thrust=.. maxThrottle=.. fuelBurn=..
+//  runway <from> <length> [destination]   flat ground, the destination one is also the zone "destination"
+//  zone <name> <from> <to> [highlight]    an x range for rules, highlight draws it on the ground
+//  traffic <aircraft>                AI air traffic
+//  bonus flaps <points>              added to a win when the flaps are extended
+//  when <condition> and ... then win <points> | lose "<message>" | set <flag> | clear <flag>
+//
+//Conditions: stopped, onGround, flying, flaps, in/outside/before/past <zone>, x/height/speed < or > <value>,
+//a flag name, each optionally prefixed by "not". Rules are checked in file order, the first win or lose ends the mission.
+public class MissionDefinition {
+
+    public record Zone(String name, double from, double to, boolean highlight) {}
+
+    private final String id;
+    private final MissionType type;
+    private final String name;
+    private final String objective;
+
+    private final double spawnX, spawnY, spawnVx, spawnFuel, spawnThrottle;
+    private final boolean spawnActive;
+    private final double maxThrust, maxThrottle, fuelBurn;
+    private final int trafficAircraft;
+    private final int flapsBonus;
+
+    private final List<Zone> runways;
+    private final List<Zone> zones;
+    private final Zone destination;
+    private final MissionRules rules;
+
+    private MissionDefinition(Parser p) {
+        this.id = p.id;
+        this.type = p.type;
+        this.name = p.name;
+        this.objective = p.objective;
+        this.spawnX = p.spawn.get("x");
+        this.spawnY = p.spawn.get("y");
+        this.spawnVx = p.spawn.get("vx");
+        this.spawnFuel = p.spawn.get("fuel");
+        this.spawnThrottle = p.spawn.get("throttle");
+        this.spawnActive = p.spawn.get("active") != 0;
+        this.maxThrust = p.engine.get("thrust");
+        this.maxThrottle = p.engine.get("maxThrottle");
+        this.fuelBurn = p.engine.get("fuelBurn");
+        this.trafficAircraft = p.trafficAircraft;
+        this.flapsBonus = p.flapsBonus;
+        this.runways = Collections.unmodifiableList(p.runways);
+        this.zones = Collections.unmodifiableList(new ArrayList<>(p.zones.values()));
+        this.destination = p.destination;
+        this.rules = new MissionRules(p.rules);
+    }
+
+    public static MissionDefinition parse(Reader reader, String source) throws IOException {
+        return new Parser(source).parse(new BufferedReader(reader));
+    }
+
+    public String getId() { return id; }
+    public MissionType getType() { return type; }
+    public String getName() { return name; }
+    public String getObjective() { return objective; }
+    public double getSpawnX() { return spawnX; }
+    public double getSpawnY() { return spawnY; }
+    public double getSpawnVx() { return spawnVx; }
+    public double getSpawnFuel() { return spawnFuel; }
+    public double getSpawnThrottle() { return spawnThrottle; }
+    public boolean isSpawnActive() { return spawnActive; }
+    public double getMaxThrust() { return maxThrust; }
+    public double getMaxThrottle() { return maxThrottle; }
+    public double getFuelBurn() { return fuelBurn; }
+    public int getTrafficAircraft() { return trafficAircraft; }
+    public int getFlapsBonus() { return flapsBonus; }
+    public List<Zone> getRunways() { return runways; }
+    public List<Zone> getZones() { return zones; }
+    public Zone getDestination() { return destination; }
+    public double getDestX() { return destination.from(); }
+    public double getRunwayLen() { return destination.to() - destination.from(); }
+    public MissionRules getRules() { return rules; }
+
+    private static final class Parser {
+        private static final double[] EVERYWHERE = {Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+
+        final String source;
+        int lineNo;
+
+        String id, name, objective;
+        MissionType type;
+        final Map<String, Double> spawn = new HashMap<>(Map.of("active", 0.0));
+        final Map<String, Double> engine = new HashMap<>();
+        int trafficAircraft = 0;
+        int flapsBonus = 0;
+        final List<Zone> runways = new ArrayList<>();
+        final Map<String, Zone> zones = new LinkedHashMap<>();
+        Zone destination;
+
+        final List<String[]> ruleLines = new ArrayList<>();
+        final List<Integer> ruleLineNumbers = new ArrayList<>();
+        final List<MissionRules.Rule> rules = new ArrayList<>();
+        final Map<String, Integer> flags = new HashMap<>();
+        final Map<String, Integer> flagUse = new HashMap<>(); //flag -> line that reads it
+        final List<String> flagsWritten = new ArrayList<>();
+
+        Parser(String source) {
+            this.source = source;
+        }
+
+        MissionDefinition parse(BufferedReader in) throws IOException {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                String[] t = tokenize(line);
+                if (t.length == 0) continue;
+                switch (t[0]) {
+                    case "id" -> id = rest(line, t);
+                    case "name" -> name = rest(line, t);
+                    case "objective" -> objective = rest(line, t);
+                    case "type" -> {
+                        try {
+                            type = MissionType.valueOf(arg(t, 1));
+                        } catch (IllegalArgumentException e) {
+                            throw error("nieznany typ misji " + t[1]);
+                        }
+                    }
+                    case "spawn" -> keyValues(t, spawn);
+                    case "engine" -> keyValues(t, engine);
+                    case "runway" -> {
+                        double from = number(arg(t, 1)), length = number(arg(t, 2));
+                        boolean isDestination = t.length > 3 && t[3].equals("destination");
+                        if (t.length > (isDestination ? 4 : 3)) throw error("nieznany parametr pasa " + t[t.length - 1]);
+                        Zone runway = new Zone(isDestination ? "destination" : "runway" + runways.size(), from, from + length, false);
+                        if (isDestination) {
+                            if (destination != null) throw error("drugi pas docelowy");
+                            destination = runway;
+                            zones.put(runway.name(), runway);
+                        }
+                        runways.add(runway);
+                    }
+                    case "zone" -> {
+                        String zoneName = arg(t, 1);
+                        if (zones.containsKey(zoneName)) throw error("strefa " + zoneName + " już istnieje");
+                        zones.put(zoneName, new Zone(zoneName, number(arg(t, 2)), number(arg(t, 3)),
+                                t.length > 4 && t[4].equals("highlight")));
+                    }
+                    case "traffic" -> trafficAircraft = (int) number(arg(t, 1));
+                    case "bonus" -> {
+                        if (!arg(t, 1).equals("flaps")) throw error("nieznana premia " + t[1]);
+                        flapsBonus = (int) number(arg(t, 2));
+                    }
+                    //Rules are compiled at the end, they can use zones defined further down
+                    case "when" -> {
+                        ruleLines.add(t);
+                        ruleLineNumbers.add(lineNo);
+                    }
+                    default -> throw error("nieznane polecenie " + t[0]);
+                }
+            }
+
+            if (id == null || type == null || name == null || objective == null) {
+                lineNo = 0;
+                throw error("brak id, type, name lub objective");
+            }
+            if (destination == null) {
+                lineNo = 0;
+                throw error("brak pasa docelowego (runway ... destination)");
+            }
+            for (String key : new String[]{"x", "y", "vx", "fuel", "throttle"}) {
+                if (!spawn.containsKey(key)) throw missing("spawn " + key);
+            }
+            for (String key : new String[]{"thrust", "maxThrottle", "fuelBurn"}) {
+                if (!engine.containsKey(key)) throw missing("engine " + key);
+            }
+
+            for (int i = 0; i < ruleLines.size(); i++) {
+                lineNo = ruleLineNumbers.get(i);
+                rules.add(rule(ruleLines.get(i)));
+            }
+            for (Map.Entry<String, Integer> use : flagUse.entrySet()) {
+                if (!flagsWritten.contains(use.getKey())) {
+                    lineNo = use.getValue();
+                    throw error("nieznany warunek lub flaga, której nic nie ustawia: " + use.getKey());
+                }
+            }
+            return new MissionDefinition(this);
+        }
+
+        MissionRules.Rule rule(String[] t) throws IOException {
+            int then = Arrays.asList(t).indexOf("then");
+            if (then < 2 || then == t.length - 1) throw error("reguła musi mieć postać: when ... then ...");
+
+            double[] x = EVERYWHERE;
+            long required = 0, forbidden = 0;
+            double minHeight = Double.NEGATIVE_INFINITY, maxHeight = Double.POSITIVE_INFINITY;
+            double minSpeed = Double.NEGATIVE_INFINITY, maxSpeed = Double.POSITIVE_INFINITY;
+
+            int i = 1;
+            while (i < then) {
+                boolean not = t[i].equals("not");
+                if (not) i++;
+                String word = t[i++];
+                switch (word) {
+                    case "stopped", "onGround", "flying", "flaps" -> {
+                        long bit = switch (word) {
+                            case "stopped" -> MissionRules.STOPPED;
+                            case "flaps" -> MissionRules.FLAPS;
+                            default -> MissionRules.ON_GROUND;
+                        };
+                        if (not ^ word.equals("flying")) forbidden |= bit;
+                        else required |= bit;
+                    }
+                    case "in", "outside", "before", "past" -> {
+                        Zone zone = zones.get(argBefore(t, i++, then));
+                        if (zone == null) throw error("nieznana strefa " + t[i - 1]);
+                        double[] set = switch (word) {
+                            case "before" -> new double[]{Double.NEGATIVE_INFINITY, zone.from()};
+                            case "past" -> new double[]{zone.to(), Double.POSITIVE_INFINITY};
+                            default -> new double[]{zone.from(), zone.to()};
+                        };
+                        if (not ^ word.equals("outside")) set = complement(set);
+                        x = intersect(x, set);
+                    }
+                    case "x", "height", "speed" -> {
+                        String op = argBefore(t, i++, then);
+                        double v = number(argBefore(t, i++, then));
+                        if (!op.equals("<") && !op.equals(">")) throw error("oczekiwano < lub >, jest " + op);
+                        boolean below = op.equals("<") ^ not;
+                        switch (word) {
+                            case "x" -> x = intersect(x, below ? new double[]{Double.NEGATIVE_INFINITY, v} : new double[]{v, Double.POSITIVE_INFINITY});
+                            case "height" -> {
+                                if (below) maxHeight = Math.min(maxHeight, v);
+                                else minHeight = Math.max(minHeight, v);
+                            }
+                            default -> {
+                                if (below) maxSpeed = Math.min(maxSpeed, v);
+                                else minSpeed = Math.max(minSpeed, v);
+                            }
+                        }
+                    }
+                    default -> {
+                        if (!isName(word)) throw error("nieznany warunek " + word);
+                        flagUse.putIfAbsent(word, lineNo);
+                        if (not) forbidden |= flagBit(word);
+                        else required |= flagBit(word);
+                    }
+                }
+                if (i < then) {
+                    if (!t[i].equals("and")) throw error("oczekiwano and, jest " + t[i]);
+                    i++;
+                    if (i == then) throw error("brak warunku po and");
+                }
+            }
+
+            String verb = t[then + 1];
+            String param = then + 2 < t.length ? t[then + 2] : null;
+            if (param == null || then + 3 < t.length) throw error("akcja musi mieć postać: win <punkty>, lose \"<komunikat>\", set <flaga> lub clear <flaga>");
+            byte action;
+            int value = 0;
+            String message = null;
+            switch (verb) {
+                case "win" -> {
+                    action = MissionRules.WIN;
+                    value = (int) number(param);
+                }
+                case "lose" -> {
+                    action = MissionRules.LOSE;
+                    message = param;
+                }
+                case "set", "clear" -> {
+                    if (!isName(param)) throw error("niepoprawna nazwa flagi " + param);
+                    action = verb.equals("set") ? MissionRules.SET : MissionRules.CLEAR;
+                    value = Long.numberOfTrailingZeros(flagBit(param));
+                    flagsWritten.add(param);
+                }
+                default -> throw error("nieznana akcja " + verb);
+            }
+            return new MissionRules.Rule(x, required, forbidden, minHeight, maxHeight, minSpeed, maxSpeed, action, value, message);
+        }
+
+        long flagBit(String flag) throws IOException {
+            Integer index = flags.get(flag);
+            if (index == null) {
+                if (flags.size() == MissionRules.MAX_FLAGS) throw error("za dużo flag (max " + MissionRules.MAX_FLAGS + ")");
+                index = MissionRules.FIRST_FLAG + flags.size();
+                flags.put(flag, index);
+            }
+            return 1L << index;
+        }
+
+        //Sorted [from, to) interval lists
+        static double[] complement(double[] set) {
+            double[] all = new double[set.length + 2];
+            all[0] = Double.NEGATIVE_INFINITY;
+            System.arraycopy(set, 0, all, 1, set.length);
+            all[all.length - 1] = Double.POSITIVE_INFINITY;
+            return normalize(all);
+        }
+
+        static double[] intersect(double[] a, double[] b) {
+            double[] out = new double[a.length + b.length];
+            int n = 0;
+            for (int i = 0; i < a.length; i += 2) {
+                for (int j = 0; j < b.length; j += 2) {
+                    double from = Math.max(a[i], b[j]), to = Math.min(a[i + 1], b[j + 1]);
+                    if (from < to) {
+                        out[n++] = from;
+                        out[n++] = to;
+                    }
+                }
+            }
+            return normalize(Arrays.copyOf(out, n));
+        }
+
+        //Drops empty intervals
+        static double[] normalize(double[] set) {
+            double[] out = new double[set.length];
+            int n = 0;
+            for (int i = 0; i < set.length; i += 2) {
+                if (set[i] < set[i + 1]) {
+                    out[n++] = set[i];
+                    out[n++] = set[i + 1];
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+
+        static boolean isName(String s) {
+            if (s.isEmpty() || !Character.isLetter(s.charAt(0))) return false;
+            for (int i = 1; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (!Character.isLetterOrDigit(c) && c != '_') return false;
+            }
+            return !s.equals("and") && !s.equals("not") && !s.equals("then");
+        }
+
+        void keyValues(String[] t, Map<String, Double> into) throws IOException {
+            for (int i = 1; i < t.length; i++) {
+                int eq = t[i].indexOf('=');
+                if (eq <= 0) throw error("oczekiwano klucz=wartość, jest " + t[i]);
+                String key = t[i].substring(0, eq), value = t[i].substring(eq + 1);
+                into.put(key, value.equals("true") ? 1.0 : value.equals("false") ? 0.0 : number(value));
+            }
+        }
+
+        //Words, and "quoted text" as one token without the quotes
+        String[] tokenize(String line) throws IOException {
+            List<String> tokens = new ArrayList<>();
+            int i = 0, n = line.length();
+            while (i < n) {
+                char c = line.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '#') {
+                    break;
+                } else if (c == '"') {
+                    int end = line.indexOf('"', i + 1);
+                    if (end < 0) throw error("niezamknięty cudzysłów");
+                    tokens.add(line.substring(i + 1, end));
+                    i = end + 1;
+                } else {
+                    int start = i;
+                    while (i < n && !Character.isWhitespace(line.charAt(i))) i++;
+                    tokens.add(line.substring(start, i));
+                }
+            }
+            return tokens.toArray(new String[0]);
+        }
+
+        //Free text after the keyword (name, objective)
+        String rest(String line, String[] t) throws IOException {
+            arg(t, 1);
+            return line.trim().substring(t[0].length()).trim();
+        }
+
+        String arg(String[] t, int i) throws IOException {
+            if (i >= t.length) throw error("za mało parametrów dla " + t[0]);
+            return t[i];
+        }
+
+        String argBefore(String[] t, int i, int end) throws IOException {
+            if (i >= end) throw error("niepełny warunek " + t[i - 1]);
+            return t[i];
+        }
+
+        double number(String s) throws IOException {
+            try {
+                return Double.parseDouble(s);
+            } catch (NumberFormatException e) {
+                throw error("niepoprawna liczba " + s);
+            }
+        }
+
+        IOException missing(String what) {
+            lineNo = 0;
+            return error("brak " + what);
+        }
+
+        IOException error(String message) {
+            return new IOException(source + (lineNo > 0 ? ":" + lineNo : "") + ": " + message);
+        }
+    }
+}
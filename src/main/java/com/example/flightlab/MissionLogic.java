@@ -1,85 +1,57 @@
 package com.example.flightlab;
 
+//The running state of one mission: where the plane is on the rule graph of its MissionDefinition
+//and the flags its rules have set. Evaluated once per physics step by MissionSimulation.
 public class MissionLogic {
 
-    private static final double DESTINATION_X = 5000.0;
-    private static final double RUNWAY_LENGTH = 1500.0;
-    private static final double HEIGHT = 700.0; //for checking the height
+    private final MissionDefinition definition;
+    private final MissionRules rules;
 
-    private MissionType type;
-    private boolean lowPassConditionMet = false;
+    private int segment = 0;                   //rule segment of the plane last step
+    private final long[] flags = new long[1];  //mission flags (set/clear), updated by MissionRules.evaluate
 
     public MissionLogic(MissionType type) {
-        this.type = type;
+        this(MissionCatalog.getInstance().get(type));
+    }
+
+    public MissionLogic(MissionDefinition definition) {
+        this.definition = definition;
+        this.rules = definition.getRules();
+    }
+
+    public MissionDefinition getDefinition() {
+        return definition;
     }
 
     public MissionType getType() {
-        return type;
+        return definition.getType();
     }
 
     //Setting the plane for take-off depending on the mission
     public void setupPlane(FlightLab_Main.Plane plane) {
-        if (type == MissionType.EMERGENCY) {
-            //Airborne takeoff, low fuel
-            plane.x = 1000;
-            plane.y = 100;
-            plane.fuel = 30;
-            plane.vx = 80;
-            plane.throttle = 0.0;
-        } else {
-            //Normal start
-            plane.x = 100;
-            plane.y = HEIGHT - 50;
-            plane.vx = 0;
-            plane.fuel = 100;
-            plane.throttle = 0.0;
-        }
+        plane.x = definition.getSpawnX();
+        plane.y = definition.getSpawnY();
+        plane.vx = definition.getSpawnVx();
+        plane.fuel = definition.getSpawnFuel();
+        plane.throttle = definition.getSpawnThrottle();
     }
 
-    //Returning the number of points for victory (or 0 if the mission is ongoing)
-    public int checkVictory(FlightLab_Main.Plane plane) {
-        // 1. Low pass mission
-        if (type == MissionType.LOW_PASS) {
-            //Zone above the runway:
-            if (plane.x > DESTINATION_X && plane.x < DESTINATION_X + RUNWAY_LENGTH) {
-                if (plane.y > HEIGHT - 150 && !plane.onGround) {
-                    lowPassConditionMet = true;
-                }
-                if (plane.onGround) lowPassConditionMet = false;
-            }
-            if (plane.x > DESTINATION_X + RUNWAY_LENGTH + 100 && lowPassConditionMet) {
-                return 80;
-            }
+    //Returning the rule that ended the mission (win or lose, see getRules), or -1 if it is still going on.
+    //flew: the plane has been in the air, only then does standing still on the ground count as stopped.
+    public int evaluate(FlightLab_Main.Plane plane, boolean flew) {
+        long state = flags[0];
+        if (plane.onGround) {
+            state |= MissionRules.ON_GROUND;
+            if (flew && plane.getSpeed() < MissionRules.STOPPED_SPEED) state |= MissionRules.STOPPED;
         }
+        if (plane.flapsExtended) state |= MissionRules.FLAPS;
 
-        //Remaining mission (landing on the runway)
-        else {
-            if (plane.onGround && plane.getSpeed() < 5.0) {
-
-                if (type == MissionType.PRECISION) {
-                    if (plane.x >= 5200 && plane.x <= 5300) {
-                        return 100;
-                    }
-                }
-
-                else if (plane.x > DESTINATION_X && plane.x < DESTINATION_X + RUNWAY_LENGTH) {
-                    if (type == MissionType.EMERGENCY) return 150;
-                    return 50;
-                }
-            }
-        }
-        return 0;
-    }
-
-    public String getObjectiveText() {
-        return switch (type) {
-            case PRECISION -> "Ląduj w ŻÓŁTEJ strefie (5200-5300m)";
-            case EMERGENCY -> "AWARIA! Szybuj do lotniska (5000m)";
-            case LOW_PASS -> "Przeleć nisko nad pasem, NIE ląduj!";
-            default -> "Ląduj na pasie (5000m)";
-        };
+        segment = rules.segment(plane.x, segment);
+        return rules.evaluate(segment, state, MissionSimulation.GROUND_Y - plane.y, plane, flags);
     }
 
-    public double getDestX() { return DESTINATION_X; }
-    public double getRunwayLen() { return RUNWAY_LENGTH; }
-}
\ No newline at end of file
+    public MissionRules getRules() { return rules; }
+    public String getObjectiveText() { return definition.getObjective(); }
+    public double getDestX() { return definition.getDestX(); }
+    public double getRunwayLen() { return definition.getRunwayLen(); }
+}
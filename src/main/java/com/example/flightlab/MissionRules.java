@@ -0,0 +1,167 @@
+package com.example.flightlab;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+//The objective and failure rules of one mission, compiled into flat arrays when the mission is loaded.
+//
+//Every rule is a conjunction of conditions plus one action. A condition is either a bit of the tick state
+//(on ground, stopped, flaps, mission flags), a range of height or speed, or a set of x intervals.
+//The x intervals of all rules split the world into segments; for every segment the rules that can fire
+//there are stored in priority order. A tick only moves the segment cursor to the plane (usually zero or
+//one step) and checks the rules of that one segment, so the cost does not grow with the number of zones
+//and objectives elsewhere on the route. Nothing is allocated while evaluating.
+public class MissionRules {
+
+    //Tick state bits, mission flags start at FIRST_FLAG
+    static final long ON_GROUND = 1, STOPPED = 1 << 1, FLAPS = 1 << 2;
+    static final int FIRST_FLAG = 8;
+    static final int MAX_FLAGS = 64 - FIRST_FLAG;
+
+    public static final byte WIN = 0, LOSE = 1, SET = 2, CLEAR = 3;
+
+    static final double STOPPED_SPEED = 5.0;
+
+    //One rule before compiling; x is a sorted list of [from, to) intervals
+    record Rule(double[] x, long required, long forbidden, double minHeight, double maxHeight,
+                double minSpeed, double maxSpeed, byte action, int value, String message) {}
+
+    private final long[] required, forbidden;
+    private final double[] minHeight, maxHeight, minSpeed, maxSpeed;
+    private final boolean[] needsSpeed;
+    private final byte[] action;
+    private final int[] value;
+    private final String[] message;
+
+    //Segment s covers [breakpoints[s - 1], breakpoints[s]), the first and last are open-ended
+    private final double[] breakpoints;
+    private final int[] segmentStart;  //rules of segment s: segmentRules[segmentStart[s] .. segmentStart[s + 1])
+    private final int[] segmentRules;
+    private final long[] segmentCommon; //bits required by every rule of the segment: one test skips all of them
+
+    public MissionRules(List<Rule> rules) {
+        int n = rules.size();
+        required = new long[n];
+        forbidden = new long[n];
+        minHeight = new double[n];
+        maxHeight = new double[n];
+        minSpeed = new double[n];
+        maxSpeed = new double[n];
+        needsSpeed = new boolean[n];
+        action = new byte[n];
+        value = new int[n];
+        message = new String[n];
+
+        TreeSet<Double> points = new TreeSet<>();
+        for (int r = 0; r < n; r++) {
+            Rule rule = rules.get(r);
+            required[r] = rule.required();
+            forbidden[r] = rule.forbidden();
+            minHeight[r] = rule.minHeight();
+            maxHeight[r] = rule.maxHeight();
+            minSpeed[r] = rule.minSpeed();
+            maxSpeed[r] = rule.maxSpeed();
+            needsSpeed[r] = rule.minSpeed() > Double.NEGATIVE_INFINITY || rule.maxSpeed() < Double.POSITIVE_INFINITY;
+            action[r] = rule.action();
+            value[r] = rule.value();
+            message[r] = rule.message();
+            for (double p : rule.x()) {
+                if (!Double.isInfinite(p)) points.add(p);
+            }
+        }
+
+        breakpoints = new double[points.size()];
+        int b = 0;
+        for (double p : points) breakpoints[b++] = p;
+
+        int segments = breakpoints.length + 1;
+        segmentStart = new int[segments + 1];
+        segmentCommon = new long[segments];
+        int[] list = new int[n * segments];
+        int size = 0;
+        for (int s = 0; s < segments; s++) {
+            segmentStart[s] = size;
+            double probe = probe(s);
+            long common = -1L;
+            for (int r = 0; r < n; r++) {
+                if (contains(rules.get(r).x(), probe)) {
+                    list[size++] = r;
+                    common &= required[r];
+                }
+            }
+            segmentCommon[s] = size > segmentStart[s] ? common : 0;
+        }
+        segmentStart[segments] = size;
+        segmentRules = Arrays.copyOf(list, size);
+    }
+
+    //A point inside segment s (the segments never split an interval of any rule)
+    private double probe(int s) {
+        if (breakpoints.length == 0) return 0;
+        if (s == 0) return breakpoints[0] - 1;
+        if (s == breakpoints.length) return breakpoints[s - 1] + 1;
+        return (breakpoints[s - 1] + breakpoints[s]) / 2;
+    }
+
+    private static boolean contains(double[] intervals, double x) {
+        for (int i = 0; i < intervals.length; i += 2) {
+            if (x >= intervals[i] && x < intervals[i + 1]) return true;
+        }
+        return false;
+    }
+
+    //Segment for x, starting the search at the previous one (the plane moves a little per tick)
+    int segment(double x, int from) {
+        int s = from;
+        while (s < breakpoints.length && x >= breakpoints[s]) s++;
+        while (s > 0 && x < breakpoints[s - 1]) s--;
+        return s;
+    }
+
+    //Runs the rules of the segment in order. Flags set or cleared by SET/CLEAR are written to flags[0].
+    //Returns the WIN or LOSE rule that ends the mission, or -1.
+    int evaluate(int segment, long state, double height, FlightLab_Main.Plane plane, long[] flags) {
+        long common = segmentCommon[segment];
+        if ((state & common) != common) return -1;
+
+        double speed = Double.NaN;
+        for (int k = segmentStart[segment], end = segmentStart[segment + 1]; k < end; k++) {
+            int r = segmentRules[k];
+            long req = required[r];
+            if ((state & req) != req || (state & forbidden[r]) != 0) continue;
+            if (height < minHeight[r] || height >= maxHeight[r]) continue;
+            if (needsSpeed[r]) {
+                if (speed != speed) speed = plane.getSpeed();
+                if (speed < minSpeed[r] || speed >= maxSpeed[r]) continue;
+            }
+            switch (action[r]) {
+                case SET -> {
+                    flags[0] |= 1L << value[r];
+                    state |= 1L << value[r];
+                }
+                case CLEAR -> {
+                    flags[0] &= ~(1L << value[r]);
+                    state &= ~(1L << value[r]);
+                }
+                default -> {
+                    return r;
+                }
+            }
+        }
+        return -1;
+    }
+
+    public int size() { return action.length; }
+    public int getSegmentCount() { return segmentStart.length - 1; }
+    public byte getAction(int rule) { return action[rule]; }
+    public int getValue(int rule) { return value[rule]; }
+    public String getMessage(int rule) { return message[rule]; }
+
+    //Most rules any segment has to check, the worst case per tick
+    public int getMaxRulesPerSegment() {
+        int max = 0;
+        for (int s = 0; s + 1 < segmentStart.length; s++) max = Math.max(max, segmentStart[s + 1] - segmentStart[s]);
+        return max;
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.flightlab;
+
+//One mission without any window: plane, wind, ground and the mission result.
+//Used by FlightLab_Main for the game and directly by headless tools.
+public class MissionSimulation {
+
+    public enum Outcome { RUNNING, WON, LOST }
+
+    public static final double GROUND_Y = 700 - 50;
+    public static final double CEILING_Y = 20;
+    private static final long TRAFFIC_SEED = 0x7AFF1CL;
+
+    private final MissionDefinition definition;
+    private final MissionLogic missionLogic;
+    private final FlightLab_Main.Plane plane;
+    private final Terrain terrain;
+    private final AirTraffic traffic; //only in missions with traffic
+    private final WindField wind;
+
+    private double windX = 0.0;
+    private double windY = 0.0;
+    private final double[] windSample = new double[2];
+
+    //Default: one semi-implicit Euler step per tick, the same as the game always did
+    private Integrator integrator = Integrator.SEMI_IMPLICIT_EULER;
+    private double maxSubstep = Double.POSITIVE_INFINITY;
+
+    private long ticks = 0;
+    private double simTime = 0;
+    private boolean missionActive = false;
+    private boolean airborne = false; //landing is judged only after the plane has flown
+
+    private Outcome outcome = Outcome.RUNNING;
+    private int points = 0;
+    private String endMessage = "";
+
+    public MissionSimulation(MissionType type) {
+        this(type, 0L);
+    }
+
+    public MissionSimulation(MissionType type, long windSeed) {
+        this(MissionCatalog.getInstance().get(type), windSeed);
+    }
+
+    public MissionSimulation(MissionDefinition definition, long windSeed) {
+        this.definition = definition;
+        this.wind = new WindField(windSeed);
+        this.missionLogic = new MissionLogic(definition);
+        this.terrain = Terrain.forMission(missionLogic);
+        int aircraft = definition.getTrafficAircraft();
+        this.traffic = aircraft > 0 ? new AirTraffic(aircraft, windSeed ^ TRAFFIC_SEED) : null;
+        this.plane = new FlightLab_Main.Plane(0, 0);
+        missionLogic.setupPlane(plane);
+
+        //Missions that start in the air are already running
+        missionActive = definition.isSpawnActive();
+        plane.storePreviousState();
+    }
+
+    //Integrator for the plane, and the longest step it may take: a longer tick is split into equal substeps,
+    //each with its own ground contact and mission checks, so a long tick cannot go through the ground.
+    public void setIntegration(Integrator integrator, double maxSubstep) {
+        if (!(maxSubstep > 0)) throw new IllegalArgumentException("maxSubstep must be > 0");
+        this.integrator = integrator;
+        this.maxSubstep = maxSubstep;
+    }
+
+    //Advances the mission by one tick of dt seconds
+    public void step(double dt, int controls) {
+        if (outcome != Outcome.RUNNING) return;
+        ticks++; //a tick that ends the flight counts too, whichever substep ends it
+        if (dt <= maxSubstep) {
+            advance(dt, controls);
+            return;
+        }
+        int substeps = (int) Math.ceil(dt / maxSubstep);
+        double h = dt / substeps;
+        for (int i = 0; i < substeps && outcome == Outcome.RUNNING; i++) {
+            //Toggles (flaps, mission) happen once per tick, held keys act in every substep
+            int held = i == 0 ? controls : controls & ~(Controls.FLAPS | Controls.MISSION);
+            advance(h, held);
+        }
+    }
+
+    private void advance(double dt, int controls) {
+        //Controls
+        if (Controls.has(controls, Controls.MISSION)) toggleMissionActive();
+        if (Controls.has(controls, Controls.UP)) plane.turn(-60 * dt);
+        if (Controls.has(controls, Controls.DOWN)) plane.turn(60 * dt);
+        if (Controls.has(controls, Controls.LEFT)) plane.throttle = clamp(plane.throttle - 0.5 * dt, 0, 1);
+
+        //The mission can limit the throttle (emergency: 40%)
+        if (Controls.has(controls, Controls.RIGHT)) {
+            plane.throttle = clamp(plane.throttle + 0.5 * dt, 0, definition.getMaxThrottle());
+        }
+        if (Controls.has(controls, Controls.CLIMB)) plane.pitch += 20 * dt;
+        if (Controls.has(controls, Controls.FLAPS)) plane.toggleFlaps();
+
+        movePlane(plane, dt, windX, windY);
+
+        if (!plane.onGround) airborne = true;
+
+        if (traffic != null) {
+            traffic.step(dt, wind, simTime, plane);
+            if (traffic.isCollision()) {
+                lose("ZDERZENIE! Kolizja w powietrzu.");
+                return;
+            }
+        }
+
+        simTime += dt;
+
+        //Objectives and failures of the mission file
+        int rule = missionLogic.evaluate(plane, airborne);
+        if (rule >= 0) {
+            MissionRules rules = missionLogic.getRules();
+            if (rules.getAction(rule) == MissionRules.WIN) win(rules.getValue(rule));
+            else lose(rules.getMessage(rule));
+            return;
+        }
+
+        //Wind at the plane, in simulated (not wall-clock) time so it does not depend on the machine speed
+        if (missionActive) {
+            wind.sample(plane.x, plane.y, simTime, windSample);
+            windX = windSample[0];
+            windY = windSample[1];
+        } else {
+            double decay = Integrator.perTick(0.95, dt);
+            windX *= decay;
+            windY *= decay;
+        }
+
+        burnFuel(plane, dt);
+    }
+
+    //Physics of an aircraft in this mission: its engine, its ground and the ceiling.
+    //AircraftFleet is tested against this and burnFuel.
+    void movePlane(FlightLab_Main.Plane p, double dt, double windX, double windY) {
+        p.updatePhysics(dt, windX, windY, definition.getMaxThrust(), integrator);
+
+        //Collision with the ground (flat GROUND_Y on the airfields, hills in between)
+        double groundY = terrain.groundY(p.x);
+        if (p.y > groundY) {
+            p.y = groundY;
+            p.vy = 0;
+            p.onGround = true;
+            if (p.throttle < 0.1) p.vx *= Integrator.perTick(0.95, dt); //Braking
+        } else {
+            p.onGround = false;
+        }
+
+        if (p.y < CEILING_Y) {
+            p.y = CEILING_Y;
+            if (p.vy < 0) p.vy = 0;
+        }
+    }
+
+    void burnFuel(FlightLab_Main.Plane p, double dt) {
+        if (definition.getFuelBurn() > 0) {
+            p.fuel = Math.max(0, p.fuel - definition.getFuelBurn() * p.throttle * dt);
+        }
+
+        if (p.fuel <= 0)
+            p.throttle = Math.max(0, p.throttle - 0.5 * dt);
+    }
+
+    //Runs the whole mission with scripted controls, as fast as the CPU allows
+    public Outcome run(ControlScript script, double dt, double maxSeconds) {
+        long maxTicks = (long) Math.ceil(maxSeconds / dt);
+        while (outcome == Outcome.RUNNING && ticks < maxTicks) {
+            step(dt, script.controlsAt(ticks, this));
+        }
+        if (outcome == Outcome.RUNNING) lose("Przekroczono limit czasu.");
+        return outcome;
+    }
+
+    public void toggleMissionActive() {
+        missionActive = !missionActive;
+    }
+
+    //Used by Replay to start from the recorded state instead of the current setupPlane values
+    void setMissionActive(boolean missionActive) {
+        this.missionActive = missionActive;
+    }
+
+    private void win(int victoryPoints) {
+        if (plane.flapsExtended) {
+            victoryPoints += definition.getFlapsBonus();
+        }
+        points = victoryPoints;
+        outcome = Outcome.WON;
+        missionActive = false;
+    }
+
+    private void lose(String reason) {
+        outcome = Outcome.LOST;
+        missionActive = false;
+        endMessage = reason;
+    }
+
+    private static double clamp(double v, double a, double b) {
+        return Math.max(a, Math.min(b, v));
+    }
+
+    public MissionDefinition getDefinition() { return definition; }
+    public MissionLogic getMissionLogic() { return missionLogic; }
+    public MissionType getType() { return missionLogic.getType(); }
+    public FlightLab_Main.Plane getPlane() { return plane; }
+    public Terrain getTerrain() { return terrain; }
+    public AirTraffic getTraffic() { return traffic; }
+    public WindField getWind() { return wind; }
+    public long getWindSeed() { return wind.getSeed(); }
+    public double getWindX() { return windX; }
+    public double getWindY() { return windY; }
+    public Integrator getIntegrator() { return integrator; }
+    public double getMaxSubstep() { return maxSubstep; }
+    public long getTicks() { return ticks; }
+    public double getSimTime() { return simTime; }
+    public boolean isMissionActive() { return missionActive; }
+    public Outcome getOutcome() { return outcome; }
+    public boolean isFinished() { return outcome != Outcome.RUNNING; }
+    public int getPoints() { return points; }
+    public String getEndMessage() { return endMessage; }
+}
@@ -4,5 +4,6 @@ public enum MissionType {
     NORMAL, // Normal flight
     PRECISION, // Precision landing
     EMERGENCY, // Emergency
-    LOW_PASS // Low pass
+    LOW_PASS, // Low pass
+    TRAFFIC // Landing between AI air traffic
 }
@@ -0,0 +1,268 @@
+package com.example.flightlab;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+//How many shared sessions one MultiplayerServer holds at its tick rate, over localhost.
+//Starts a server in this JVM and doubles the number of full sessions until the server falls behind:
+//tick p99 longer than the tick period, late ticks, or clients getting fewer snapshots than the tick rate.
+//
+//The bots are real TCP clients on one non-blocking selector thread. Each sends its keys at the tick rate,
+//decodes every delta snapshot against the base it acknowledged and flies with a small closed loop on its
+//own decoded state (throttle up, then hold the height), so the server sees the same traffic as from players.
+public class MultiplayerLoadTest {
+
+    private static final String MISSION = "normal";
+    private static final double HELD_RATIO = 0.95; //snapshots received / ticks
+
+    //One client
+    private static final class Bot {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(MultiplayerServer.OUT_BUFFER);
+        final ByteBuffer out = ByteBuffer.allocate(256);
+        int slot = -1;
+        int lastTick = 0;
+        int[][] received;   //ring of decoded snapshots, the bases of the next deltas
+        int[] receivedTick;
+        boolean started = false;
+
+        Bot(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        int[] snapshot(int tick) {
+            int i = tick & (SharedSession.HISTORY - 1);
+            return receivedTick[i] == tick ? received[i] : null;
+        }
+    }
+
+    //All bots, driven by one thread
+    private static final class Bots implements Runnable {
+        private final InetSocketAddress address;
+        private final long periodNanos;
+        private final Selector selector;
+        private final List<Bot> bots = new ArrayList<>();
+        private final ConcurrentLinkedQueue<Integer> toAdd = new ConcurrentLinkedQueue<>();
+        private volatile boolean running = true;
+
+        //Written by the bot thread only
+        volatile int welcomed;
+        volatile long snapshots, bytes, missingBase, errors;
+
+        Bots(InetSocketAddress address, double rate) throws IOException {
+            this.address = address;
+            this.periodNanos = (long) (1e9 / rate);
+            this.selector = Selector.open();
+        }
+
+        void add(int count) {
+            toAdd.add(count);
+            selector.wakeup();
+        }
+
+        void stop() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            long nextSend = System.nanoTime();
+            try {
+                while (running) {
+                    Integer count;
+                    while ((count = toAdd.poll()) != null) {
+                        for (int i = 0; i < count; i++) connect();
+                    }
+                    long wait = nextSend - System.nanoTime();
+                    if (wait > 0) selector.select(Math.max(1, wait / 1_000_000));
+                    else selector.selectNow();
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        if (key.isValid() && key.isReadable()) read((Bot) key.attachment());
+                    }
+
+                    if (System.nanoTime() >= nextSend) {
+                        for (Bot bot : bots) sendInput(bot);
+                        nextSend += periodNanos;
+                        if (System.nanoTime() - nextSend > periodNanos) nextSend = System.nanoTime() + periodNanos;
+                    }
+                }
+                for (Bot bot : bots) bot.channel.close();
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Błąd klienta: " + e.getMessage());
+            }
+        }
+
+        private void connect() throws IOException {
+            SocketChannel channel = SocketChannel.open(address); //blocking connect on localhost, then non-blocking
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Bot bot = new Bot(channel);
+            channel.register(selector, SelectionKey.OP_READ, bot);
+            bots.add(bot);
+            int start = MultiplayerServer.beginFrame(bot.out, MultiplayerServer.JOIN);
+            MultiplayerServer.putString(bot.out, MISSION);
+            send(bot, start);
+        }
+
+        private void sendInput(Bot bot) throws IOException {
+            if (bot.slot < 0) return;
+            int start = MultiplayerServer.beginFrame(bot.out, MultiplayerServer.INPUT);
+            bot.out.putInt(bot.lastTick);
+            bot.out.put((byte) controls(bot));
+            send(bot, start);
+        }
+
+        //Take off and hold the height, from this bot's plane in the last snapshot
+        private int controls(Bot bot) {
+            if (!bot.started) {
+                bot.started = true;
+                return Controls.MISSION;
+            }
+            int[] s = bot.snapshot(bot.lastTick);
+            if (s == null || !SnapshotCodec.isPresent(s, bot.slot)) return Controls.NONE;
+            int controls = SnapshotCodec.throttle(s, bot.slot) < 0.8 ? Controls.RIGHT : Controls.NONE;
+            double y = SnapshotCodec.y(s, bot.slot), angle = SnapshotCodec.angle(s, bot.slot);
+            double targetAngle = SnapshotCodec.vx(s, bot.slot) < 120 ? 0 : y > 400 ? -8 : 4;
+            if (angle < targetAngle - 1) controls |= Controls.DOWN;
+            else if (angle > targetAngle + 1) controls |= Controls.UP;
+            return controls;
+        }
+
+        private void send(Bot bot, int start) throws IOException {
+            bot.out.putShort(start, (short) (bot.out.position() - start - 2));
+            bot.out.flip();
+            while (bot.out.hasRemaining()) {
+                if (bot.channel.write(bot.out) == 0) break; //socket buffer full: drop the rest of this input
+            }
+            bot.out.clear();
+        }
+
+        private void read(Bot bot) throws IOException {
+            if (bot.channel.read(bot.in) < 0) {
+                errors++;
+                bot.channel.close();
+                return;
+            }
+            bot.in.flip();
+            try {
+                while (bot.in.remaining() >= 2) {
+                    int length = bot.in.getShort(bot.in.position()) & 0xFFFF;
+                    if (bot.in.remaining() < 2 + length) break;
+                    int start = bot.in.position() + 2;
+                    handle(bot, bot.in.slice(start, length));
+                    bot.in.position(start + length);
+                }
+            } catch (BufferUnderflowException e) {
+                errors++;
+            }
+            bot.in.compact();
+        }
+
+        private void handle(Bot bot, ByteBuffer frame) {
+            byte type = frame.get();
+            if (type == MultiplayerServer.WELCOME) {
+                frame.getInt();
+                bot.slot = frame.get();
+                int pilots = frame.get();
+                bot.received = new int[SharedSession.HISTORY][pilots * SnapshotCodec.FIELDS];
+                bot.receivedTick = new int[SharedSession.HISTORY];
+                welcomed++;
+            } else if (type == MultiplayerServer.SNAPSHOT) {
+                int tick = frame.getInt();
+                int baseTick = frame.getInt();
+                int[] base = null;
+                if (baseTick != 0) {
+                    base = bot.snapshot(baseTick);
+                    if (base == null) {
+                        missingBase++;
+                        return;
+                    }
+                }
+                int i = tick & (SharedSession.HISTORY - 1);
+                //The base may live in the same ring slot only if it is HISTORY ticks old, the server never sends that
+                SnapshotCodec.decode(frame, base, bot.received[i]);
+                bot.receivedTick[i] = tick;
+                bot.lastTick = tick;
+                snapshots++;
+                bytes += frame.limit() + 2;
+            } else if (type == MultiplayerServer.ERROR) {
+                errors++;
+                System.err.println("Serwer: " + MultiplayerServer.getString(frame));
+            }
+        }
+    }
+
+    //Usage: MultiplayerLoadTest [pilotsPerSession] [secondsPerLevel] [maxSessions] [tickRate]
+    public static void main(String[] args) throws Exception {
+        int pilots = args.length > 0 ? Integer.parseInt(args[0]) : MultiplayerServer.DEFAULT_PILOTS_PER_SESSION;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 5;
+        int maxSessions = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+        double rate = args.length > 3 ? Double.parseDouble(args[3]) : MultiplayerServer.DEFAULT_TICK_RATE;
+
+        MultiplayerServer server = new MultiplayerServer(0, pilots, rate, ForkJoinPool.commonPool());
+        server.start();
+        Bots bots = new Bots(new InetSocketAddress("localhost", server.getPort()), rate);
+        Thread botThread = new Thread(bots, "multiplayer-bots");
+        botThread.start();
+
+        double periodMs = 1000 / rate;
+        System.out.printf("Serwer %.0f Hz (okres %.1f ms), %d pilotów na sesję, %d wątków puli, localhost%n",
+                rate, periodMs, pilots, ForkJoinPool.commonPool().getParallelism());
+        System.out.printf("%8s %8s %10s %10s %10s %10s %12s %12s%n", "sesje", "piloci", "tick p50", "tick p99",
+                "spóźnione", "snap/s", "B/snapshot", "kB/s klient");
+
+        int held = 0;
+        for (int sessions = 1; sessions <= maxSessions; sessions *= 2) {
+            int target = sessions * pilots;
+            bots.add(target - bots.welcomed);
+            long waitUntil = System.nanoTime() + 30_000_000_000L;
+            while (bots.welcomed < target && System.nanoTime() < waitUntil) Thread.sleep(10);
+            if (bots.welcomed < target) {
+                System.out.println("Serwer nie przyjął wszystkich klientów.");
+                break;
+            }
+            Thread.sleep(1000); //new sessions settle, the JIT catches up
+            server.takeStats();
+            long snapshots0 = bots.snapshots, bytes0 = bots.bytes;
+            long start = System.nanoTime();
+            Thread.sleep((long) (seconds * 1000));
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            MultiplayerServer.Stats s = server.takeStats();
+            long snapshots = bots.snapshots - snapshots0, bytes = bots.bytes - bytes0;
+
+            double perClient = snapshots / elapsed / target;
+            double late = s.ticks() == 0 ? 1 : (double) s.lateTicks() / s.ticks();
+            System.out.printf("%8d %8d %8.2f ms %8.2f ms %9.1f%% %10.1f %12.1f %12.2f%n", s.sessions(), s.players(),
+                    s.tickP50Nanos() / 1e6, s.tickP99Nanos() / 1e6, 100 * late, perClient,
+                    snapshots == 0 ? 0.0 : (double) bytes / snapshots, bytes / elapsed / target / 1024);
+
+            boolean ok = s.tickP99Nanos() / 1e6 < periodMs && late < 0.01 && perClient >= rate * HELD_RATIO;
+            if (!ok) break;
+            held = sessions;
+        }
+        if (bots.missingBase > 0 || bots.errors > 0) {
+            System.out.printf("Uwaga: %d snapshotów bez bazy, %d błędów%n", bots.missingBase, bots.errors);
+        }
+        System.out.printf("Jeden węzeł utrzymuje %d sesji (%d pilotów) przy %.0f Hz%n", held, held * pilots, rate);
+
+        bots.stop();
+        botThread.join();
+        server.stop();
+    }
+}
@@ -0,0 +1,410 @@
+package com.example.flightlab;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//Authoritative server for several pilots flying a mission together (SharedSession).
+//
+//One thread runs a non-blocking NIO selector loop: it accepts clients, reads their keys and writes snapshots,
+//and between the selects it runs the fixed-rate tick. A tick steps all sessions on the ForkJoin pool (they are
+//independent), then sends every client the new snapshot of its session as a delta to the last snapshot the
+//client acknowledged (SnapshotCodec). A snapshot that does not fit in the send buffer of a slow client is
+//skipped, not queued: the next one is a delta to the same acknowledged base, so nothing is lost.
+//
+//Frames (big endian): unsigned short length of the rest, message type, payload.
+public class MultiplayerServer {
+
+    public static final int DEFAULT_PORT = 47800;
+    public static final double DEFAULT_TICK_RATE = 30;
+    public static final int DEFAULT_PILOTS_PER_SESSION = 8;
+
+    static final byte JOIN = 1;     //client: mission id (string)
+    static final byte INPUT = 2;    //client: last snapshot tick received (int), Controls bits (byte)
+    static final byte WELCOME = 3;  //server: session id (int), slot (byte), pilots per session (byte), wind seed (long), tick rate (double)
+    static final byte SNAPSHOT = 4; //server: tick (int), base tick (int, 0 = none), SnapshotCodec delta
+    static final byte ERROR = 5;    //server: message (string)
+
+    static final int IN_BUFFER = 4096;
+    static final int OUT_BUFFER = 64 * 1024;
+    static final int MAX_MISSION_ID = 64; //characters of an unknown mission id repeated in the error
+    private static final int WELCOME_SIZE = 2 + 1 + 4 + 1 + 1 + 8 + 8;
+    private static final int SPLIT_THRESHOLD = 4; //sessions per ForkJoin task
+
+    private final int pilotsPerSession;
+    private final double tickRate;
+    private final long tickNanos;
+    private final ForkJoinPool pool;
+    private final SplittableRandom windSeeds = new SplittableRandom();
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private Thread thread;
+    private volatile boolean running = false;
+
+    //Only touched by the server thread
+    private final List<SharedSession> sessions = new ArrayList<>();
+    private final List<Connection> connections = new ArrayList<>();
+    private int nextSessionId = 1;
+
+    //Statistics since the last takeStats, guarded by statsLock
+    private final Object statsLock = new Object();
+    private final FrameHistogram tickTimes = new FrameHistogram();
+    private long ticks, lateTicks, snapshotsSent, snapshotsSkipped, snapshotBytes;
+    private int sessionCount, playerCount;
+
+    private static final class Connection {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer in = ByteBuffer.allocate(IN_BUFFER);
+        final ByteBuffer out = ByteBuffer.allocate(OUT_BUFFER); //always in write mode
+        SharedSession session;
+        int slot = -1;
+        int ack = 0; //last snapshot tick the client has
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    //What happened since the previous call
+    public record Stats(long ticks, long lateTicks, long tickP50Nanos, long tickP99Nanos, long tickMaxNanos,
+                        long snapshotsSent, long snapshotsSkipped, long snapshotBytes, int sessions, int players) {}
+
+    //port 0 picks a free port (see getPort)
+    public MultiplayerServer(int port, int pilotsPerSession, double tickRate, ForkJoinPool pool) throws IOException {
+        this.pilotsPerSession = pilotsPerSession;
+        this.tickRate = tickRate;
+        this.tickNanos = (long) (1e9 / tickRate);
+        this.pool = pool;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this::loop, "multiplayer-server");
+        thread.start();
+    }
+
+    public void stop() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+        if (thread != null) thread.join();
+    }
+
+    private void loop() {
+        long nextTick = System.nanoTime() + tickNanos;
+        try {
+            while (running) {
+                long wait = nextTick - System.nanoTime();
+                if (wait > 0) selector.select(Math.max(1, wait / 1_000_000));
+                else selector.selectNow();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else {
+                        Connection c = (Connection) key.attachment();
+                        if (key.isReadable()) read(c);
+                        if (key.isValid() && key.isWritable()) flush(c);
+                    }
+                }
+
+                long now = System.nanoTime();
+                if (now >= nextTick) {
+                    boolean late = now - nextTick > tickNanos / 2;
+                    tick(late);
+                    nextTick += tickNanos;
+                    //Too far behind: drop the missed ticks instead of running them in a burst
+                    if (System.nanoTime() - nextTick > tickNanos) nextTick = System.nanoTime() + tickNanos;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Błąd serwera: " + e.getMessage());
+        } finally {
+            for (Connection c : new ArrayList<>(connections)) close(c);
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException ignored) {
+                //shutting down anyway
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        Connection c = new Connection(channel, key);
+        key.attach(c);
+        connections.add(c);
+    }
+
+    private void read(Connection c) {
+        try {
+            if (c.channel.read(c.in) < 0) {
+                close(c);
+                return;
+            }
+            c.in.flip();
+            while (c.in.remaining() >= 2) {
+                int length = c.in.getShort(c.in.position()) & 0xFFFF;
+                if (length == 0 || length > IN_BUFFER - 2) throw new IOException("niepoprawna ramka");
+                if (c.in.remaining() < 2 + length) break;
+                int start = c.in.position() + 2;
+                handle(c, c.in.slice(start, length));
+                c.in.position(start + length);
+            }
+            c.in.compact();
+        } catch (IOException | RuntimeException e) {
+            //Whatever one client sent (or failed to read), only its own connection ends
+            close(c);
+        }
+    }
+
+    private void handle(Connection c, ByteBuffer frame) throws IOException {
+        byte type = frame.get();
+        if (type == INPUT) {
+            int ack = frame.getInt();
+            int controls = frame.get() & Controls.ALL;
+            if (c.session == null) return;
+            if (ack <= c.session.getTick()) c.ack = ack;
+            c.session.setControls(c.slot, controls);
+        } else if (type == JOIN) {
+            if (c.session != null) throw new IOException("ponowne dołączenie w trakcie sesji");
+            join(c, getString(frame));
+        } else {
+            throw new IOException("nieznany typ ramki " + type);
+        }
+    }
+
+    //Replies that do not fit in the send buffer end the connection (a client that does not read)
+    private void join(Connection c, String missionId) throws IOException {
+        MissionDefinition mission = MissionCatalog.getInstance().get(missionId);
+        String error = null;
+        if (mission == null) {
+            error = "Nieznana misja: " + (missionId.length() > MAX_MISSION_ID
+                    ? missionId.substring(0, MAX_MISSION_ID) + "..." : missionId);
+        } else if (mission.getTrafficAircraft() > 0) {
+            error = "Misja z ruchem lotniczym nie jest dostępna w grze wieloosobowej.";
+        }
+        if (error != null) {
+            byte[] message = error.getBytes(StandardCharsets.UTF_8);
+            if (c.out.remaining() < 2 + 1 + 2 + message.length) throw new IOException("bufor wysyłania pełny");
+            int start = beginFrame(c.out, ERROR);
+            c.out.putShort((short) message.length);
+            c.out.put(message);
+            endFrame(c, start);
+            return;
+        }
+        if (c.out.remaining() < WELCOME_SIZE) throw new IOException("bufor wysyłania pełny");
+
+        SharedSession session = null;
+        for (SharedSession s : sessions) {
+            if (s.getMission() == mission && !s.isFull()) {
+                session = s;
+                break;
+            }
+        }
+        if (session == null) {
+            session = new SharedSession(nextSessionId++, mission, windSeeds.nextLong(), pilotsPerSession);
+            sessions.add(session);
+        }
+        c.session = session;
+        c.slot = session.join();
+        c.ack = 0;
+
+        ByteBuffer out = c.out;
+        int start = beginFrame(out, WELCOME);
+        out.putInt(session.getId());
+        out.put((byte) c.slot);
+        out.put((byte) session.getMaxPilots());
+        out.putLong(session.getWindSeed());
+        out.putDouble(tickRate);
+        endFrame(c, start);
+    }
+
+    private void tick(boolean late) {
+        long start = System.nanoTime();
+        if (!sessions.isEmpty()) pool.invoke(new StepSessions(1 / tickRate, 0, sessions.size()));
+
+        long sent = 0, skipped = 0, bytes = 0;
+        int players = 0;
+        //Backwards: a client that fails on write is closed and removed from the list
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            Connection c = connections.get(i);
+            if (c.session == null) continue;
+            players++;
+            int written = sendSnapshot(c);
+            if (written > 0) {
+                sent++;
+                bytes += written;
+            } else {
+                skipped++;
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        synchronized (statsLock) {
+            tickTimes.record(elapsed);
+            ticks++;
+            if (late) lateTicks++;
+            snapshotsSent += sent;
+            snapshotsSkipped += skipped;
+            snapshotBytes += bytes;
+            sessionCount = sessions.size();
+            playerCount = players;
+        }
+    }
+
+    private class StepSessions extends RecursiveAction {
+        private final double dt;
+        private final int from, to;
+
+        StepSessions(double dt, int from, int to) {
+            this.dt = dt;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) sessions.get(i).step(dt);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new StepSessions(dt, from, mid), new StepSessions(dt, mid, to));
+        }
+    }
+
+    //Returns the frame size, 0 if it was skipped (send buffer full)
+    private int sendSnapshot(Connection c) {
+        SharedSession session = c.session;
+        int worstCase = 2 + 1 + 4 + 4 + 10 + session.getMaxPilots() * (5 + SnapshotCodec.FIELDS * 10);
+        if (c.out.remaining() < worstCase) return 0;
+
+        int[] base = session.snapshot(c.ack); //null when the client has none or it is too old: full snapshot
+        ByteBuffer out = c.out;
+        int start = beginFrame(out, SNAPSHOT);
+        out.putInt(session.getTick());
+        out.putInt(base != null ? c.ack : 0);
+        SnapshotCodec.encode(session.latest(), base, out);
+        int size = out.position() - start;
+        endFrame(c, start);
+        return size;
+    }
+
+    //Writes the frame header with a placeholder length and returns where the frame starts
+    static int beginFrame(ByteBuffer out, byte type) {
+        int start = out.position();
+        out.putShort((short) 0);
+        out.put(type);
+        return start;
+    }
+
+    private void endFrame(Connection c, int start) {
+        c.out.putShort(start, (short) (c.out.position() - start - 2));
+        flush(c);
+    }
+
+    private void flush(Connection c) {
+        ByteBuffer out = c.out;
+        out.flip();
+        try {
+            c.channel.write(out);
+        } catch (IOException e) {
+            out.compact();
+            close(c);
+            return;
+        }
+        out.compact();
+        if (c.key.isValid()) {
+            c.key.interestOps(out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+    }
+
+    private void close(Connection c) {
+        if (c.session != null) {
+            c.session.leave(c.slot);
+            if (c.session.getPlayerCount() == 0) sessions.remove(c.session);
+            c.session = null;
+        }
+        connections.remove(c);
+        c.key.cancel();
+        try {
+            c.channel.close();
+        } catch (IOException ignored) {
+            //already gone
+        }
+    }
+
+    public Stats takeStats() {
+        synchronized (statsLock) {
+            Stats s = new Stats(ticks, lateTicks, tickTimes.percentile(50), tickTimes.percentile(99), tickTimes.getMax(),
+                    snapshotsSent, snapshotsSkipped, snapshotBytes, sessionCount, playerCount);
+            tickTimes.reset();
+            ticks = lateTicks = snapshotsSent = snapshotsSkipped = snapshotBytes = 0;
+            return s;
+        }
+    }
+
+    public double getTickRate() { return tickRate; }
+
+    //Strings: unsigned short length + UTF-8
+    static void putString(ByteBuffer out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //Usage: MultiplayerServer [port] [pilotsPerSession] [tickRate]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int pilots = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PILOTS_PER_SESSION;
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TICK_RATE;
+
+        MultiplayerServer server = new MultiplayerServer(port, pilots, rate, ForkJoinPool.commonPool());
+        server.start();
+        System.out.printf("Serwer na porcie %d, %.0f Hz, %d pilotów na sesję%n", server.getPort(), rate, pilots);
+        while (true) {
+            Thread.sleep(5000);
+            Stats s = server.takeStats();
+            System.out.printf("sesje %d, piloci %d, tick p50 %.2f ms p99 %.2f ms, spóźnione %d/%d, snapshot %.0f B%n",
+                    s.sessions(), s.players(), s.tickP50Nanos() / 1e6, s.tickP99Nanos() / 1e6, s.lateTicks(), s.ticks(),
+                    s.snapshotsSent() == 0 ? 0.0 : (double) s.snapshotBytes() / s.snapshotsSent());
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.example.flightlab;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//Finds a near-optimal ScriptedPilot for every mission and writes its par values: flight time, fuel used,
+//points and the reference trajectory. Used to balance scoring and to catch missions that cannot be won.
+//
+//Search: an evolution strategy with a separate spread per parameter. The first generation is the hand-tuned
+//ScriptedPilot.random profile of the mission type; every later one samples POPULATION pilots around the mean,
+//flies each one headless on WIND_SEEDS different wind fields (all runs of a generation in parallel on the
+//ForkJoin pool), then moves the mean to the weighted best quarter and shrinks or widens each spread to match
+//them. A pilot counts only if it wins in every wind, so the par can be flown in the game.
+//Seeds come from the master seed and the generation, so the result does not depend on thread scheduling
+//(unless the time budget runs out inside a generation: the runs after the deadline are skipped).
+public class ParOptimizer {
+
+    static final int POPULATION = 64;
+    static final int ELITE = POPULATION / 4;
+    static final int WIND_SEEDS = 4;
+    static final int MAX_GENERATIONS = 60;
+    static final double DEFAULT_SECONDS_PER_MISSION = 50; //wall-clock budget, the search stops after it
+    private static final double MIN_SPREAD = 1e-3;        //converged
+    private static final double LOSS_PENALTY = 1e6;
+    private static final double POINTS_WEIGHT = 1000;     //one point is worth more than any time difference
+    private static final double FUEL_WEIGHT = 0.5;        //seconds per unit of fuel
+    private static final int TRAJECTORY_EVERY = 6;        //ticks between trajectory rows (10 Hz)
+
+    //Parameters of ScriptedPilot, searched in [0, 1] and mapped to the mission
+    static final int GENES = 5;
+    private static final String[] GENE_NAMES = {"cruiseThrottle", "cruiseY", "descentX", "glideAngle", "flapsX"};
+
+    private final ForkJoinPool pool;
+    private final double timeLimit;
+
+    public ParOptimizer(ForkJoinPool pool, double timeLimit) {
+        this.pool = pool;
+        this.timeLimit = timeLimit;
+    }
+
+    //Best pilot of a mission and how it flies
+    public record Result(MissionDefinition mission, double[] genes, boolean solved, double parTime, double fuelUsed,
+                         int points, int generations, long runs, double seconds) {}
+
+    public Result optimize(MissionDefinition mission, long seed, double maxSeconds) {
+        long start = System.nanoTime();
+        long deadline = start + (long) (maxSeconds * 1e9);
+        SplittableRandom rnd = new SplittableRandom(seed);
+        long[] winds = new long[WIND_SEEDS];
+        for (int w = 0; w < WIND_SEEDS; w++) winds[w] = rnd.nextLong();
+
+        double[] mean = new double[GENES];
+        double[] spread = new double[GENES];
+        Arrays.fill(mean, 0.5);
+        Arrays.fill(spread, 0.3);
+
+        double[][] genes = new double[POPULATION][GENES];
+        double[] cost = new double[POPULATION * WIND_SEEDS];
+        double[] time = new double[POPULATION * WIND_SEEDS];
+        double[] fuel = new double[POPULATION * WIND_SEEDS];
+        int[] points = new int[POPULATION * WIND_SEEDS];
+        double[] total = new double[POPULATION];
+        Integer[] order = new Integer[POPULATION];
+
+        double[] weights = new double[ELITE];
+        double weightSum = 0;
+        for (int i = 0; i < ELITE; i++) weightSum += weights[i] = Math.log(ELITE + 0.5) - Math.log(i + 1);
+        for (int i = 0; i < ELITE; i++) weights[i] /= weightSum;
+
+        double[] best = mean.clone();
+        double bestCost = Double.POSITIVE_INFINITY;
+        double bestTime = 0, bestFuel = 0;
+        int bestPoints = 0, bestWins = 0;
+        int generation = 0;
+        long runs = 0;
+        long generationNanos = 0;
+
+        //A generation is not started if it would end after the deadline, one that still runs over it is cut short
+        while (generation < MAX_GENERATIONS && System.nanoTime() + generationNanos < deadline) {
+            long generationStart = System.nanoTime();
+            SplittableRandom generationRnd = new SplittableRandom(seed ^ (generation + 1) * 0x9E3779B97F4A7C15L);
+            for (int p = 0; p < POPULATION; p++) {
+                if (generation == 0) {
+                    genes(mission, ScriptedPilot.random(mission.getType(), generationRnd), genes[p]);
+                    continue;
+                }
+                for (int g = 0; g < GENES; g++) {
+                    genes[p][g] = reflect(mean[g] + spread[g] * gaussian(generationRnd));
+                }
+            }
+            //The best pilot so far is always one of the candidates, so it is never lost to sampling
+            if (generation > 0) System.arraycopy(best, 0, genes[0], 0, GENES);
+
+            pool.invoke(new Evaluate(mission, genes, winds, cost, time, fuel, points, 0, POPULATION * WIND_SEEDS,
+                    deadline));
+
+            //A pilot with a skipped run has no total (NaN sorts last)
+            boolean complete = true;
+            for (int p = 0; p < POPULATION; p++) {
+                double sum = 0;
+                for (int w = 0; w < WIND_SEEDS; w++) {
+                    sum += cost[p * WIND_SEEDS + w];
+                    if (!Double.isNaN(cost[p * WIND_SEEDS + w])) runs++;
+                }
+                total[p] = sum / WIND_SEEDS;
+                order[p] = p;
+                complete &= !Double.isNaN(sum);
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(total[a], total[b]));
+
+            int top = order[0];
+            if (total[top] < bestCost) {
+                bestCost = total[top];
+                best = genes[top].clone();
+                double t = 0, f = 0;
+                int pts = Integer.MAX_VALUE, wins = 0;
+                for (int w = 0; w < WIND_SEEDS; w++) {
+                    t += time[top * WIND_SEEDS + w];
+                    f += fuel[top * WIND_SEEDS + w];
+                    pts = Math.min(pts, points[top * WIND_SEEDS + w]);
+                    if (cost[top * WIND_SEEDS + w] < LOSS_PENALTY) wins++;
+                }
+                bestTime = t / WIND_SEEDS;
+                bestFuel = f / WIND_SEEDS;
+                bestPoints = pts;
+                bestWins = wins;
+            }
+            if (!complete) {
+                //Out of time: the finished pilots may still have given a new best, the rest is not a fair sample
+                generation++;
+                break;
+            }
+
+            //New mean and spread from the best quarter (spread around the old mean, like CMA-ES)
+            double maxSpread = 0;
+            for (int g = 0; g < GENES; g++) {
+                double m = 0, v = 0;
+                for (int e = 0; e < ELITE; e++) m += weights[e] * genes[order[e]][g];
+                for (int e = 0; e < ELITE; e++) {
+                    double d = genes[order[e]][g] - mean[g];
+                    v += weights[e] * d * d;
+                }
+                mean[g] = m;
+                spread[g] = 0.3 * spread[g] + 0.7 * Math.sqrt(v);
+                maxSpread = Math.max(maxSpread, spread[g]);
+            }
+            generation++;
+            generationNanos = System.nanoTime() - generationStart;
+            if (maxSpread < MIN_SPREAD) break;
+        }
+
+        boolean solved = bestWins == WIND_SEEDS;
+        return new Result(mission, best, solved, bestTime, bestFuel, solved ? bestPoints : 0, generation, runs,
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    //One (pilot, wind) run per index, split like BatchSimulator.RunRange
+    private class Evaluate extends RecursiveAction {
+        private final MissionDefinition mission;
+        private final double[][] genes;
+        private final long[] winds;
+        private final double[] cost, time, fuel;
+        private final int[] points;
+        private final int from, to;
+        private final long deadline;
+
+        Evaluate(MissionDefinition mission, double[][] genes, long[] winds, double[] cost, double[] time,
+                 double[] fuel, int[] points, int from, int to, long deadline) {
+            this.mission = mission;
+            this.genes = genes;
+            this.winds = winds;
+            this.cost = cost;
+            this.time = time;
+            this.fuel = fuel;
+            this.points = points;
+            this.from = from;
+            this.to = to;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 2) {
+                for (int i = from; i < to; i++) {
+                    if (System.nanoTime() > deadline) {
+                        cost[i] = Double.NaN; //skipped
+                        continue;
+                    }
+                    MissionSimulation sim = fly(mission, genes[i / WIND_SEEDS], winds[i % WIND_SEEDS], null);
+                    time[i] = sim.getSimTime();
+                    fuel[i] = mission.getSpawnFuel() - sim.getPlane().fuel;
+                    points[i] = sim.getPoints();
+                    cost[i] = cost(mission, sim);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Evaluate(mission, genes, winds, cost, time, fuel, points, from, mid, deadline),
+                    new Evaluate(mission, genes, winds, cost, time, fuel, points, mid, to, deadline));
+        }
+    }
+
+    //Lower is better: any win beats any loss, more points beat less time, then less time and fuel.
+    //A loss still counts how far from the destination it ended, so the search has a direction to go.
+    static double cost(MissionDefinition mission, MissionSimulation sim) {
+        if (sim.getOutcome() == MissionSimulation.Outcome.WON) {
+            double fuelUsed = mission.getSpawnFuel() - sim.getPlane().fuel;
+            return -POINTS_WEIGHT * sim.getPoints() + sim.getSimTime() + FUEL_WEIGHT * fuelUsed;
+        }
+        double target = mission.getDestX() + mission.getRunwayLen() / 2;
+        return LOSS_PENALTY + Math.abs(sim.getPlane().x - target);
+    }
+
+    //Flies the mission like a player would (ENTER starts it), optionally writing the trajectory
+    MissionSimulation fly(MissionDefinition mission, double[] genes, long windSeed, PrintWriter trajectory) {
+        MissionSimulation sim = new MissionSimulation(mission, windSeed);
+        if (!sim.isMissionActive()) sim.toggleMissionActive();
+        ControlScript pilot = pilot(mission, genes);
+        if (trajectory == null) {
+            sim.run(pilot, BatchSimulator.DEFAULT_DT, timeLimit);
+            return sim;
+        }
+        trajectory.println("t,x,y,vx,vy,angle,throttle,fuel,flaps");
+        long maxTicks = (long) Math.ceil(timeLimit / BatchSimulator.DEFAULT_DT);
+        while (!sim.isFinished() && sim.getTicks() < maxTicks) {
+            if (sim.getTicks() % TRAJECTORY_EVERY == 0) row(trajectory, sim);
+            sim.step(BatchSimulator.DEFAULT_DT, pilot.controlsAt(sim.getTicks(), sim));
+        }
+        row(trajectory, sim);
+        return sim;
+    }
+
+    private static void row(PrintWriter out, MissionSimulation sim) {
+        FlightLab_Main.Plane p = sim.getPlane();
+        out.printf(Locale.ROOT, "%.3f,%.2f,%.2f,%.2f,%.2f,%.2f,%.3f,%.3f,%d%n", sim.getSimTime(), p.x, p.y, p.vx, p.vy,
+                p.angle, p.throttle, p.fuel, p.flapsExtended ? 1 : 0);
+    }
+
+    //Maps [0, 1] genes to the mission: throttle up to the engine limit, the whole height band, and
+    //descent and flaps anywhere from the spawn to past the destination (flaps past its end = never)
+    static ScriptedPilot pilot(MissionDefinition mission, double[] genes) {
+        double from = mission.getSpawnX();
+        double destEnd = mission.getDestX() + mission.getRunwayLen();
+        double flapsX = lerp(from, destEnd + 1000, genes[4]);
+        return new ScriptedPilot(
+                lerp(0, mission.getMaxThrottle(), genes[0]),
+                lerp(MissionSimulation.CEILING_Y + 20, MissionSimulation.GROUND_Y - 20, genes[1]),
+                lerp(from, destEnd + 2000, genes[2]),
+                lerp(0, 15, genes[3]),
+                flapsX > destEnd ? Double.NaN : flapsX);
+    }
+
+    //The inverse of pilot(), for starting from an existing profile
+    static void genes(MissionDefinition mission, ScriptedPilot pilot, double[] out) {
+        double from = mission.getSpawnX();
+        double destEnd = mission.getDestX() + mission.getRunwayLen();
+        out[0] = unlerp(0, mission.getMaxThrottle(), pilot.getCruiseThrottle());
+        out[1] = unlerp(MissionSimulation.CEILING_Y + 20, MissionSimulation.GROUND_Y - 20, pilot.getCruiseY());
+        out[2] = unlerp(from, destEnd + 2000, pilot.getDescentX());
+        out[3] = unlerp(0, 15, pilot.getGlideAngle());
+        out[4] = Double.isNaN(pilot.getFlapsX()) ? 1 : unlerp(from, destEnd + 1000, pilot.getFlapsX());
+    }
+
+    private static double lerp(double a, double b, double t) {
+        return a + (b - a) * t;
+    }
+
+    private static double unlerp(double a, double b, double v) {
+        return Math.max(0, Math.min(1, (v - a) / (b - a)));
+    }
+
+    //Keeps a sample inside [0, 1] without piling samples up on the edges
+    private static double reflect(double v) {
+        v = Math.abs(v) % 2;
+        return v > 1 ? 2 - v : v;
+    }
+
+    //Box-Muller, from the generation's own random numbers
+    private static double gaussian(SplittableRandom rnd) {
+        double u = 1 - rnd.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * rnd.nextDouble());
+    }
+
+    //Writes the reference trajectory (first wind seed) as dir/<id>.csv
+    public File writeTrajectory(Result result, long seed, File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Nie można utworzyć katalogu " + dir);
+        File file = new File(dir, result.mission().getId() + ".csv");
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            fly(result.mission(), result.genes(), new SplittableRandom(seed).nextLong(), out);
+        }
+        return file;
+    }
+
+    //Usage: ParOptimizer [missionId|all] [seed] [secondsPerMission] - writes par/summary.csv and par/<id>.csv
+    public static void main(String[] args) throws IOException {
+        String which = args.length > 0 ? args[0] : "all";
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+        double seconds = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_SECONDS_PER_MISSION;
+
+        List<MissionDefinition> missions = new ArrayList<>();
+        if (which.equals("all")) {
+            missions.addAll(MissionCatalog.getInstance().all());
+        } else {
+            MissionDefinition m = MissionCatalog.getInstance().get(which);
+            if (m == null) {
+                System.out.println("Nieznana misja: " + which);
+                return;
+            }
+            missions.add(m);
+        }
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        ParOptimizer optimizer = new ParOptimizer(pool, BatchSimulator.DEFAULT_TIME_LIMIT);
+        File dir = new File("par");
+        List<Result> results = new ArrayList<>();
+        for (MissionDefinition mission : missions) {
+            Result r = optimizer.optimize(mission, seed, seconds);
+            results.add(r);
+            File trajectory = optimizer.writeTrajectory(r, seed, dir);
+            if (r.solved()) {
+                System.out.printf("%-10s par %6.1f s, paliwo %5.2f, %3d pkt  (%d pokoleń, %d lotów, %.1f s na %d wątkach) -> %s%n",
+                        mission.getId(), r.parTime(), r.fuelUsed(), r.points(), r.generations(), r.runs(), r.seconds(),
+                        pool.getParallelism(), trajectory.getPath());
+            } else {
+                System.out.printf("%-10s NIEROZWIĄZANA: żaden pilot nie wygrał we wszystkich wiatrach (%d pokoleń, %d lotów, %.1f s)%n",
+                        mission.getId(), r.generations(), r.runs(), r.seconds());
+            }
+            StringBuilder params = new StringBuilder("           ");
+            ScriptedPilot best = pilot(mission, r.genes());
+            double[] values = {best.getCruiseThrottle(), best.getCruiseY(), best.getDescentX(), best.getGlideAngle(), best.getFlapsX()};
+            for (int g = 0; g < GENES; g++) params.append(String.format(Locale.ROOT, " %s=%.2f", GENE_NAMES[g], values[g]));
+            System.out.println(params);
+        }
+
+        try (PrintWriter out = new PrintWriter(new File(dir, "summary.csv"), "UTF-8")) {
+            out.println("mission,solved,par_time_s,fuel_used,points," + String.join(",", GENE_NAMES));
+            for (Result r : results) {
+                ScriptedPilot best = pilot(r.mission(), r.genes());
+                out.printf(Locale.ROOT, "%s,%b,%.2f,%.3f,%d,%.4f,%.2f,%.2f,%.3f,%.2f%n", r.mission().getId(), r.solved(),
+                        r.parTime(), r.fuelUsed(), r.points(), best.getCruiseThrottle(), best.getCruiseY(),
+                        best.getDescentX(), best.getGlideAngle(), best.getFlapsX());
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.flightlab;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Write-behind saving: the JavaFX thread only records what changed, a background thread does all file I/O.
+//Changes that arrive close together are merged per player and written as one batch.
+//The writer keeps its own copy of the scores, so snapshots never touch the live (FX) player list.
+public class PersistenceService implements Closeable {
+
+    public enum FsyncPolicy {
+        NEVER,       //leave it to the operating system
+        SNAPSHOT,    //fsync snapshots only (default)
+        EVERY_BATCH  //fsync after every journal batch
+    }
+
+    private static final long LINGER_MILLIS = 50;     //wait for more changes before writing
+    private static final long RETRY_MILLIS = 1000;
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+    private static final long FLUSH_TIMEOUT_MILLIS = 10_000;
+    private static final int FLUSH_MAX_FAILURES = 3;  //failed writes a flush() waits through
+
+    private final ScoreJournal journal;
+    private final FsyncPolicy fsyncPolicy;
+    private final int compactAfterRecords;
+    private final List<Player> shadow = new ArrayList<>(); //writer thread only
+
+    private final Object lock = new Object();
+    private LinkedHashMap<Integer, int[]> pendingScores = new LinkedHashMap<>(); //id -> delta per ScoreJournal field
+    private List<Player> pendingPlayers = new ArrayList<>();
+    private boolean snapshotRequested = false;
+    private boolean flushRequested = false;
+    private boolean closed = false;
+    private long submitted = 0;
+    private long written = 0;
+
+    //Metrics
+    private volatile int queueDepth = 0;
+    private volatile long batches = 0;
+    private volatile long eventsWritten = 0;
+    private volatile long snapshots = 0;
+    private volatile long failures = 0;
+    private volatile String lastError;
+    private volatile long lastWriteNanos = 0;
+    private volatile long maxWriteNanos = 0;
+    private volatile long totalWriteNanos = 0;
+    private volatile long writes = 0;
+
+    private final Thread writer;
+    private final Thread shutdownHook;
+
+    public PersistenceService(ScoreJournal journal, List<Player> loaded, FsyncPolicy fsyncPolicy, int compactAfterRecords) {
+        this.journal = journal;
+        this.fsyncPolicy = fsyncPolicy;
+        this.compactAfterRecords = compactAfterRecords;
+        for (Player p : loaded) shadow.add(copyOf(p));
+
+        writer = new Thread(this::writeLoop, "flightlab-persistence");
+        writer.setDaemon(true);
+        writer.start();
+
+        shutdownHook = new Thread(this::close, "flightlab-persistence-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    public void playerCreated(Player p) {
+        synchronized (lock) {
+            pendingPlayers.add(copyOf(p));
+            changed();
+        }
+    }
+
+    public void scoreChanged(int playerId, byte field, int delta) {
+        synchronized (lock) {
+            int[] deltas = pendingScores.computeIfAbsent(playerId, id -> new int[ScoreJournal.FIELDS]);
+            deltas[field - 1] += delta;
+            changed();
+        }
+    }
+
+    public void requestSnapshot() {
+        synchronized (lock) {
+            snapshotRequested = true;
+            changed();
+        }
+    }
+
+    //Blocks until everything submitted so far is on disk, returns false if it is not: the service is closed,
+    //the writes keep failing (the writer goes on retrying in the background) or it took too long
+    public boolean flush() {
+        synchronized (lock) {
+            long target = submitted;
+            long failuresBefore = failures;
+            long deadline = System.nanoTime() + FLUSH_TIMEOUT_MILLIS * 1_000_000;
+            flushRequested = true;
+            lock.notifyAll();
+            while (written < target && writer.isAlive()) {
+                if (failures - failuresBefore >= FLUSH_MAX_FAILURES || System.nanoTime() >= deadline) return false;
+                try {
+                    lock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return written >= target;
+        }
+    }
+
+    //Writes what is pending and stops the writer thread
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ignored) {
+                //JVM is already shutting down
+            }
+        }
+    }
+
+    private void changed() {
+        submitted++;
+        queueDepth++;
+        lock.notifyAll();
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Map<Integer, int[]> scores;
+            List<Player> newPlayers;
+            boolean snapshot;
+            long batchEnd;
+            int events;
+            boolean stop;
+
+            synchronized (lock) {
+                while (submitted == written && !snapshotRequested && !closed) {
+                    waitQuietly(0);
+                }
+                //Let a burst of changes collect into one batch, unless someone is waiting for it
+                long deadline = System.nanoTime() + LINGER_MILLIS * 1_000_000;
+                long left;
+                while (!closed && !flushRequested && (left = deadline - System.nanoTime()) > 0) {
+                    waitQuietly(Math.max(1, left / 1_000_000));
+                }
+
+                stop = closed;
+                scores = pendingScores;
+                newPlayers = pendingPlayers;
+                snapshot = snapshotRequested;
+                batchEnd = submitted;
+                events = queueDepth;
+                pendingScores = new LinkedHashMap<>();
+                pendingPlayers = new ArrayList<>();
+                snapshotRequested = false;
+                flushRequested = false;
+                queueDepth = 0;
+            }
+
+            boolean ok = writeJournal(scores, newPlayers);
+            if (ok && (snapshot || journal.getRecordsSinceSnapshot() >= compactAfterRecords)) {
+                snapshot = !writeSnapshot(); //keep the request if it failed
+            } else if (ok) {
+                snapshot = false;
+            }
+
+            synchronized (lock) {
+                if (ok) {
+                    written = batchEnd;
+                    eventsWritten += events;
+                } else {
+                    //Put the batch back in front of newer changes and try again later
+                    requeue(scores, newPlayers, events);
+                    if (!stop) waitQuietly(RETRY_MILLIS);
+                }
+                snapshotRequested |= snapshot;
+                lock.notifyAll();
+                if (stop) break;
+                if (ok && snapshot) waitQuietly(RETRY_MILLIS);
+            }
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Błąd zamykania zapisu: " + e.getMessage());
+        }
+    }
+
+    private boolean writeJournal(Map<Integer, int[]> scores, List<Player> newPlayers) {
+        if (scores.isEmpty() && newPlayers.isEmpty()) return true;
+        FlightEvents.Save event = new FlightEvents.Save();
+        event.begin();
+        long bytesBefore = journal.getBytesWritten();
+        int recordsBefore = journal.getRecordsSinceSnapshot();
+        boolean success = false;
+        long start = System.nanoTime();
+        try {
+            for (Player p : newPlayers) {
+                journal.appendNewPlayer(p.getId(), p.getName());
+            }
+            for (Map.Entry<Integer, int[]> e : scores.entrySet()) {
+                int[] d = e.getValue();
+                for (int f = 0; f < d.length; f++) {
+                    if (d[f] != 0) journal.appendScore(e.getKey(), (byte) (f + 1), d[f]);
+                }
+            }
+            journal.flush(fsyncPolicy == FsyncPolicy.EVERY_BATCH);
+            success = true;
+        } catch (IOException e) {
+            journal.rollback(); //the whole batch is retried, none of it may stay in the file
+            failures++;
+            lastError = e.getMessage();
+            System.err.println("Błąd zapisu danych: " + e.getMessage());
+            return false;
+        } finally {
+            recordWriteTime(System.nanoTime() - start);
+            commitSaveEvent(event, "journal", journal.getRecordsSinceSnapshot() - recordsBefore,
+                    journal.getBytesWritten() - bytesBefore, fsyncPolicy == FsyncPolicy.EVERY_BATCH, success);
+        }
+
+        //Only after a successful write, so a retried batch is not counted twice
+        for (Player p : newPlayers) {
+            if (p.getId() == shadow.size() + 1) shadow.add(p);
+        }
+        for (Map.Entry<Integer, int[]> e : scores.entrySet()) {
+            int id = e.getKey();
+            if (id < 1 || id > shadow.size()) continue;
+            Player p = shadow.get(id - 1);
+            int[] d = e.getValue();
+            for (int f = 0; f < d.length; f++) ScoreJournal.apply(p, (byte) (f + 1), d[f]);
+        }
+        batches++;
+        return true;
+    }
+
+    private boolean writeSnapshot() {
+        FlightEvents.Save event = new FlightEvents.Save();
+        event.begin();
+        long bytesBefore = journal.getBytesWritten();
+        boolean success = false;
+        long start = System.nanoTime();
+        try {
+            journal.compact(shadow, fsyncPolicy != FsyncPolicy.NEVER);
+            snapshots++;
+            success = true;
+            return true;
+        } catch (IOException e) {
+            failures++;
+            lastError = e.getMessage();
+            System.err.println("Błąd zapisu danych: " + e.getMessage());
+            return false;
+        } finally {
+            recordWriteTime(System.nanoTime() - start);
+            commitSaveEvent(event, "snapshot", shadow.size(), journal.getBytesWritten() - bytesBefore,
+                    fsyncPolicy != FsyncPolicy.NEVER, success);
+        }
+    }
+
+    private static void commitSaveEvent(FlightEvents.Save event, String kind, int records, long bytes,
+                                        boolean fsync, boolean success) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.kind = kind;
+        event.records = records;
+        event.bytes = bytes;
+        event.fsync = fsync;
+        event.success = success;
+        event.commit();
+    }
+
+    private void recordWriteTime(long nanos) {
+        lastWriteNanos = nanos;
+        totalWriteNanos += nanos;
+        writes++;
+        if (nanos > maxWriteNanos) maxWriteNanos = nanos;
+    }
+
+    private void requeue(Map<Integer, int[]> scores, List<Player> newPlayers, int events) {
+        LinkedHashMap<Integer, int[]> merged = new LinkedHashMap<>(scores);
+        pendingScores.forEach((id, d) -> {
+            int[] m = merged.computeIfAbsent(id, k -> new int[ScoreJournal.FIELDS]);
+            for (int f = 0; f < d.length; f++) m[f] += d[f];
+        });
+        pendingScores = merged;
+        List<Player> players = new ArrayList<>(newPlayers);
+        players.addAll(pendingPlayers);
+        pendingPlayers = players;
+        queueDepth += events;
+    }
+
+    private void waitQuietly(long millis) {
+        try {
+            lock.wait(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Player copyOf(Player p) {
+        Player copy = new Player(p.getId(), p.getName());
+        copy.setQuizPoints(p.getQuizPoints());
+        copy.setMissionPoints(p.getMissionPoints());
+        copy.setVerifiedMissions(p.getVerifiedMissions());
+        copy.setRejectedMissions(p.getRejectedMissions());
+        return copy;
+    }
+
+    public int getQueueDepth() { return queueDepth; }
+    public long getBatches() { return batches; }
+    public long getEventsWritten() { return eventsWritten; }
+    public long getSnapshots() { return snapshots; }
+    public long getFailures() { return failures; }
+    public String getLastError() { return lastError; }
+    public double getLastWriteMillis() { return lastWriteNanos / 1e6; }
+    public double getMaxWriteMillis() { return maxWriteNanos / 1e6; }
+    public double getMeanWriteMillis() { return writes == 0 ? 0 : totalWriteNanos / 1e6 / writes; }
+    public FsyncPolicy getFsyncPolicy() { return fsyncPolicy; }
+}
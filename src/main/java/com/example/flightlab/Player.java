@@ -6,30 +6,60 @@ public class Player implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    //Notified after quiz or mission points change (e.g. by the leaderboard)
+    public interface ScoreListener {
+        void scoreChanged(Player p);
+    }
+
+    private transient ScoreListener scoreListener;
+
+    private int id; //0 = not saved yet
     private String name;
     private int quizPoints;
     private int missionPoints;
+    private int verifiedMissions; //wins confirmed by re-simulating the replay
+    private int rejectedMissions; //wins whose replay did not give the claimed points
 
     public Player(String name) {
+        this(0, name);
+    }
+
+    public Player(int id, String name) {
+        this.id = id;
         this.name = name;
         this.quizPoints = 0;
         this.missionPoints = 0;
 }
 
+    public int getId() { return id; }
+    void setId(int id) { this.id = id; }
+
+    void setScoreListener(ScoreListener listener) { this.scoreListener = listener; }
+
 //Data for table of player's points
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
     public int getQuizPoints() { return quizPoints; }
-    public void setQuizPoints(int quizPoints) { this.quizPoints = quizPoints; }
-    public void addQuizPoint() { this.quizPoints++; }
+    public void setQuizPoints(int quizPoints) { this.quizPoints = quizPoints; notifyScore(); }
+    public void addQuizPoint() { this.quizPoints++; notifyScore(); }
 
     public int getMissionPoints() { return missionPoints; }
-    public void setMissionPoints(int missionPoints) { this.missionPoints = missionPoints; }
-    public void addMissionPoints(int points) { this.missionPoints += points; }
+    public void setMissionPoints(int missionPoints) { this.missionPoints = missionPoints; notifyScore(); }
+    public void addMissionPoints(int points) { this.missionPoints += points; notifyScore(); }
+
+    public int getVerifiedMissions() { return verifiedMissions; }
+    public void setVerifiedMissions(int verifiedMissions) { this.verifiedMissions = verifiedMissions; }
+
+    public int getRejectedMissions() { return rejectedMissions; }
+    public void setRejectedMissions(int rejectedMissions) { this.rejectedMissions = rejectedMissions; }
 
     public int getTotalScore() { return quizPoints + missionPoints; }
 
+    private void notifyScore() {
+        if (scoreListener != null) scoreListener.scoreChanged(this);
+    }
+
     @Override
     public String toString() {
         return name;
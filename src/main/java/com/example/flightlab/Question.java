@@ -6,6 +6,9 @@ public class Question {
     int correct;
     String imageUrl;
     String audioUrl;
+    int category;       //index into QuestionBank.getCategories()
+    int difficulty = 1; //1 (easy) .. QuestionBank.getDifficultyLevels()
+    int ordinal = -1;   //position in the question bank, -1 if not from a bank
 
     public Question(String text, String a, String b, String c, String d, int correct, String imageUrl, String audioUrl)
     {
@@ -18,4 +21,16 @@ public class Question {
         this.imageUrl = imageUrl;
         this.audioUrl = audioUrl;
     }
+
+    public Question(String text, String a, String b, String c, String d, int correct, String imageUrl, String audioUrl,
+                    int category, int difficulty)
+    {
+        this(text, a, b, c, d, correct, imageUrl, audioUrl);
+        this.category = category;
+        this.difficulty = difficulty;
+    }
+
+    public int getCategory() { return category; }
+    public int getDifficulty() { return difficulty; }
+    public int getOrdinal() { return ordinal; }
 }
@@ -0,0 +1,228 @@
+package com.example.flightlab;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+//Read-only question store backed by a memory-mapped questions.bin (written by QuestionBankWriter).
+//Opening only reads the header. A Question object is created when a question is drawn,
+//and every distinct string in the file is decoded at most once and then shared.
+//
+//Layout (big endian, all sections 4-byte aligned):
+//  header       magic, version, reserved, questions, strings, categories, difficulty levels
+//  categories   string id of each category name
+//  groups       start of each (category, difficulty) group in the index, + total
+//  index        question ordinals sorted by (category, difficulty)
+//  records      per question: text, a, b, c, d, image, audio string ids (-1 = none), correct, category, difficulty, pad
+//  strings      offsets (count + 1) into the UTF-8 data that follows
+public class QuestionBank {
+
+    static final int MAGIC = 0x464C5142; //"FLQB"
+    static final short VERSION = 1;
+    static final int HEADER = 4 + 2 + 2 + 4 * 4;
+    static final int RECORD = 7 * 4 + 4;
+
+    public static final int ANY = -1;
+
+    private static final String RESOURCE = "/questions.bin";
+    private static final String FILE_PROPERTY = "flightlab.questions";
+
+    private final ByteBuffer data;
+    private final int questionCount;
+    private final int stringCount;
+    private final int categoryCount;
+    private final int difficultyLevels;
+    private final int categoriesPos, groupsPos, indexPos, recordsPos, stringOffsetsPos, stringDataPos;
+    private final String[] strings; //decoded on first use
+    private volatile long fingerprint = 0;
+
+    private static final class Holder {
+        static final QuestionBank INSTANCE = loadDefault();
+    }
+
+    public static QuestionBank getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public static QuestionBank open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            //The mapping stays valid after the channel is closed
+            return new QuestionBank(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    QuestionBank(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.capacity() < HEADER || data.getInt(0) != MAGIC) throw new IOException("To nie jest plik z pytaniami.");
+        if (data.getShort(4) != VERSION) throw new IOException("Nieobsługiwana wersja pliku z pytaniami: " + data.getShort(4));
+        questionCount = data.getInt(8);
+        stringCount = data.getInt(12);
+        categoryCount = data.getInt(16);
+        difficultyLevels = data.getInt(20);
+
+        categoriesPos = HEADER;
+        groupsPos = categoriesPos + 4 * categoryCount;
+        indexPos = groupsPos + 4 * (categoryCount * difficultyLevels + 1);
+        recordsPos = indexPos + 4 * questionCount;
+        stringOffsetsPos = recordsPos + RECORD * questionCount;
+        stringDataPos = stringOffsetsPos + 4 * (stringCount + 1);
+        if (stringDataPos > data.capacity() || stringDataPos + data.getInt(stringOffsetsPos + 4 * stringCount) > data.capacity()) {
+            throw new IOException("Uszkodzony plik z pytaniami.");
+        }
+        strings = new String[stringCount];
+    }
+
+    //questions.bin next to the game (or -Dflightlab.questions=path) wins over the one in the jar
+    private static QuestionBank loadDefault() {
+        try {
+            File external = new File(System.getProperty(FILE_PROPERTY, "questions.bin"));
+            if (external.isFile()) return open(external);
+            return open(resourceFile());
+        } catch (IOException e) {
+            throw new IllegalStateException("Nie można wczytać pytań: " + e.getMessage(), e);
+        }
+    }
+
+    //A file:// resource is mapped in place, one inside the jar is copied to a temp file first
+    private static File resourceFile() throws IOException {
+        URL url = QuestionBank.class.getResource(RESOURCE);
+        if (url == null) throw new IOException("Brak zasobu " + RESOURCE);
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return Path.of(url.toURI()).toFile();
+            } catch (URISyntaxException ignored) {
+                //fall through to the copy
+            }
+        }
+        Path tmp = Files.createTempFile("flightlab-questions", ".bin");
+        tmp.toFile().deleteOnExit();
+        try (InputStream in = url.openStream()) {
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return tmp.toFile();
+    }
+
+    public int size() { return questionCount; }
+    public int getDifficultyLevels() { return difficultyLevels; }
+
+    //Difficulty of a question (1 .. levels) without building it
+    public int difficultyOf(int ordinal) {
+        return data.get(recordsPos + RECORD * ordinal + 30);
+    }
+
+    //Question count and a CRC of the records and strings: data keyed by ordinal is only valid for the same fingerprint
+    public long fingerprint() {
+        long f = fingerprint;
+        if (f == 0) {
+            CRC32 crc = new CRC32();
+            crc.update(data.slice(recordsPos, stringDataPos - recordsPos));
+            f = (long) questionCount << 32 | crc.getValue();
+            fingerprint = f;
+        }
+        return f;
+    }
+
+    public List<String> getCategories() {
+        List<String> names = new ArrayList<>(categoryCount);
+        for (int c = 0; c < categoryCount; c++) names.add(string(data.getInt(categoriesPos + 4 * c)));
+        return names;
+    }
+
+    //Number of questions in a category and difficulty (ANY for either)
+    public int count(int category, int difficulty) {
+        int total = 0;
+        for (int c = firstCategory(category); c <= lastCategory(category); c++) {
+            if (difficulty == ANY) {
+                total += groupStart(c, difficultyLevels + 1) - groupStart(c, 1);
+            } else {
+                total += groupStart(c, difficulty + 1) - groupStart(c, difficulty);
+            }
+        }
+        return total;
+    }
+
+    //Builds the question at the given ordinal (0 .. size-1)
+    public Question get(int ordinal) {
+        if (ordinal < 0 || ordinal >= questionCount) throw new IndexOutOfBoundsException("question " + ordinal);
+        int r = recordsPos + RECORD * ordinal;
+        Question q = new Question(string(data.getInt(r)), string(data.getInt(r + 4)), string(data.getInt(r + 8)),
+                string(data.getInt(r + 12)), string(data.getInt(r + 16)), data.get(r + 28),
+                string(data.getInt(r + 20)), string(data.getInt(r + 24)), data.get(r + 29), data.get(r + 30));
+        q.ordinal = ordinal;
+        return q;
+    }
+
+    public List<Question> sample(int k, Random random) {
+        return sample(k, ANY, ANY, random);
+    }
+
+    //k distinct random questions from a category and difficulty (ANY for either), in random order.
+    //Floyd's algorithm: O(k) time and memory no matter how large the bank is.
+    public List<Question> sample(int k, int category, int difficulty, Random random) {
+        int n = count(category, difficulty);
+        k = Math.min(k, n);
+        Set<Integer> chosen = new HashSet<>(k * 2);
+        List<Integer> order = new ArrayList<>(k);
+        for (int j = n - k; j < n; j++) {
+            int t = random.nextInt(j + 1);
+            int pick = chosen.add(t) ? t : j;
+            if (pick == j) chosen.add(j);
+            order.add(pick);
+        }
+        //Floyd's picks are uniform as a set, but later positions favour high indexes
+        Collections.shuffle(order, random);
+
+        List<Question> out = new ArrayList<>(k);
+        for (int i : order) out.add(get(ordinalAt(i, category, difficulty)));
+        return out;
+    }
+
+    //i-th question (0-based) among those matching category and difficulty
+    private int ordinalAt(int i, int category, int difficulty) {
+        for (int c = firstCategory(category); c <= lastCategory(category); c++) {
+            int from = groupStart(c, difficulty == ANY ? 1 : difficulty);
+            int to = groupStart(c, difficulty == ANY ? difficultyLevels + 1 : difficulty + 1);
+            if (i < to - from) return data.getInt(indexPos + 4 * (from + i));
+            i -= to - from;
+        }
+        throw new IndexOutOfBoundsException("question " + i);
+    }
+
+    //Index position of the first question of (category, difficulty); difficulty levels+1 = end of the category
+    private int groupStart(int category, int difficulty) {
+        return data.getInt(groupsPos + 4 * (category * difficultyLevels + difficulty - 1));
+    }
+
+    private int firstCategory(int category) { return category == ANY ? 0 : category; }
+    private int lastCategory(int category) { return category == ANY ? categoryCount - 1 : category; }
+
+    private String string(int id) {
+        if (id < 0) return null;
+        String s = strings[id];
+        if (s == null) {
+            int from = data.getInt(stringOffsetsPos + 4 * id);
+            int to = data.getInt(stringOffsetsPos + 4 * (id + 1));
+            byte[] bytes = new byte[to - from];
+            data.get(stringDataPos + from, bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+            strings[id] = s;
+        }
+        return s;
+    }
+}
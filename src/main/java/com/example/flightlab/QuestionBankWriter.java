@@ -0,0 +1,130 @@
+package com.example.flightlab;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+//Compiles questions into the questions.bin format read by QuestionBank.
+//Repeated strings (answers like "7500", category names) are stored once.
+//Usage: QuestionBankWriter [output] [synthetic question count]
+//Without a count it writes the built-in QuestionDataBase questions.
+public class QuestionBankWriter {
+
+    private final List<String> categories;
+    private final int difficultyLevels;
+    private final List<Question> questions = new ArrayList<>();
+
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<byte[]> stringBytes = new ArrayList<>();
+
+    public QuestionBankWriter(List<String> categories, int difficultyLevels) {
+        this.categories = categories;
+        this.difficultyLevels = difficultyLevels;
+    }
+
+    public void add(Question q) {
+        if (q.category < 0 || q.category >= categories.size()) throw new IllegalArgumentException("Zła kategoria: " + q.category);
+        if (q.difficulty < 1 || q.difficulty > difficultyLevels) throw new IllegalArgumentException("Zły poziom: " + q.difficulty);
+        questions.add(q);
+    }
+
+    public void write(File file) throws IOException {
+        int n = questions.size();
+        int groups = categories.size() * difficultyLevels;
+
+        //Counting sort of the ordinals by (category, difficulty)
+        int[] groupStart = new int[groups + 1];
+        for (Question q : questions) groupStart[group(q) + 1]++;
+        for (int g = 0; g < groups; g++) groupStart[g + 1] += groupStart[g];
+        int[] index = new int[n];
+        int[] next = groupStart.clone();
+        for (int i = 0; i < n; i++) index[next[group(questions.get(i))]++] = i;
+
+        int[] categoryIds = new int[categories.size()];
+        for (int c = 0; c < categories.size(); c++) categoryIds[c] = stringId(categories.get(c));
+        int[][] records = new int[n][];
+        for (int i = 0; i < n; i++) {
+            Question q = questions.get(i);
+            records[i] = new int[]{stringId(q.text), stringId(q.a), stringId(q.b), stringId(q.c), stringId(q.d),
+                    stringId(q.imageUrl), stringId(q.audioUrl)};
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            out.writeInt(QuestionBank.MAGIC);
+            out.writeShort(QuestionBank.VERSION);
+            out.writeShort(0);
+            out.writeInt(n);
+            out.writeInt(stringBytes.size());
+            out.writeInt(categories.size());
+            out.writeInt(difficultyLevels);
+
+            for (int id : categoryIds) out.writeInt(id);
+            for (int start : groupStart) out.writeInt(start);
+            for (int ordinal : index) out.writeInt(ordinal);
+
+            for (int i = 0; i < n; i++) {
+                for (int id : records[i]) out.writeInt(id);
+                Question q = questions.get(i);
+                out.writeByte(q.correct);
+                out.writeByte(q.category);
+                out.writeByte(q.difficulty);
+                out.writeByte(0);
+            }
+
+            int offset = 0;
+            out.writeInt(0);
+            for (byte[] s : stringBytes) {
+                offset += s.length;
+                out.writeInt(offset);
+            }
+            for (byte[] s : stringBytes) out.write(s);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private int group(Question q) {
+        return q.category * difficultyLevels + q.difficulty - 1;
+    }
+
+    private int stringId(String s) {
+        if (s == null) return -1;
+        return stringIds.computeIfAbsent(s, key -> {
+            stringBytes.add(key.getBytes(StandardCharsets.UTF_8));
+            return stringBytes.size() - 1;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        File out = new File(args.length > 0 ? args[0] : "src/main/resources/questions.bin");
+        QuestionBankWriter writer = new QuestionBankWriter(QuestionDataBase.CATEGORIES, QuestionDataBase.DIFFICULTY_LEVELS);
+
+        List<Question> base = QuestionDataBase.getQuestions();
+        if (args.length > 1) {
+            //Large bank for load tests: variations of the built-in questions with shuffled metadata
+            int count = Integer.parseInt(args[1]);
+            SplittableRandom random = new SplittableRandom(7);
+            for (int i = 0; i < count; i++) {
+                Question b = base.get(i % base.size());
+                writer.add(new Question(b.text + " (#" + (i + 1) + ")", b.a, b.b, b.c, b.d, b.correct, b.imageUrl, b.audioUrl,
+                        random.nextInt(QuestionDataBase.CATEGORIES.size()), 1 + random.nextInt(QuestionDataBase.DIFFICULTY_LEVELS)));
+            }
+        } else {
+            for (Question q : base) writer.add(q);
+        }
+
+        writer.write(out);
+        System.out.println("Zapisano " + writer.questions.size() + " pytań (" + writer.stringBytes.size()
+                + " różnych tekstów) do " + out.getPath() + ", " + out.length() + " B");
+    }
+}
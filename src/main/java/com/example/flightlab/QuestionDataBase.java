@@ -1,41 +1,66 @@
 package com.example.flightlab;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
+//Source of the built-in questions. The game reads them from the compiled questions.bin
+//(QuestionBank), QuestionBankWriter regenerates that file from this list.
 public class QuestionDataBase {
 
+    static final int AERODYNAMICS = 0;
+    static final int AIRCRAFT = 1;
+    static final int RULES = 2;
+    static final int OTHER = 3;
+    static final List<String> CATEGORIES = List.of("Aerodynamika i fizyka", "Budowa i przyrządy", "Przepisy i procedury", "Multimedia i inne");
+    static final int DIFFICULTY_LEVELS = 3;
+
     public static List<Question> getQuestions() {
         List<Question> list = new ArrayList<>();
 
         //AERODYNAMIKA I FIZYKA
-        list.add(new Question("Co powoduje wzrost siły nośnej skrzydeł?", "Zwiększenie prędkości lotu", "Zmniejszenie kąta natarcia", "Zwiększenie masy samolotu", "Wyłączenie silnika", 1, null, null));
-        list.add(new Question("Która siła przeciwdziała sile ciągu?", "Grawitacja", "Siła nośna", "Opór aerodynamiczny", "Bezwładność", 3, null, null));
-        list.add(new Question("Czym jest przeciągnięcie (Stall)?", "Nagłym zgaśnięciem silnika", "Utratą siły nośnej przez zbyt duży kąt natarcia", "Lotem z prędkością naddźwiękową", "Awarią podwozia", 2, null, null));
-        list.add(new Question("Co się dzieje z ciśnieniem powietrza wraz ze wzrostem wysokości?", "Rośnie", "Maleje", "Pozostaje bez zmian", "Waha się losowo", 2, null, null));
-        list.add(new Question("Jak nazywa się obrót samolotu wokół osi podłużnej?", "Pochylenie (Pitch)", "Odchylenie (Yaw)", "Przechylenie (Roll)", "Wznoszenie", 3, null, null));
+        list.add(new Question("Co powoduje wzrost siły nośnej skrzydeł?", "Zwiększenie prędkości lotu", "Zmniejszenie kąta natarcia", "Zwiększenie masy samolotu", "Wyłączenie silnika", 1, null, null, AERODYNAMICS, 1));
+        list.add(new Question("Która siła przeciwdziała sile ciągu?", "Grawitacja", "Siła nośna", "Opór aerodynamiczny", "Bezwładność", 3, null, null, AERODYNAMICS, 1));
+        list.add(new Question("Czym jest przeciągnięcie (Stall)?", "Nagłym zgaśnięciem silnika", "Utratą siły nośnej przez zbyt duży kąt natarcia", "Lotem z prędkością naddźwiękową", "Awarią podwozia", 2, null, null, AERODYNAMICS, 2));
+        list.add(new Question("Co się dzieje z ciśnieniem powietrza wraz ze wzrostem wysokości?", "Rośnie", "Maleje", "Pozostaje bez zmian", "Waha się losowo", 2, null, null, AERODYNAMICS, 1));
+        list.add(new Question("Jak nazywa się obrót samolotu wokół osi podłużnej?", "Pochylenie (Pitch)", "Odchylenie (Yaw)", "Przechylenie (Roll)", "Wznoszenie", 3, null, null, AERODYNAMICS, 2));
 
         //BUDOWA I PRZYRZĄDY
-        list.add(new Question("Jaką część samolotu pokazano na ilustracji?", "Lotki", "Klapy", "Ster wysokości", "Podwozie", 2, "images/flaps.jpg", null));
-        list.add(new Question("Do czego służy ster kierunku?", "Do zmiany wysokości", "Do przechylania samolotu na bok", "Do odchylania nosa w lewo/prawo", "Do hamowania", 3, null, null));
-        list.add(new Question("Jaki przyrząd pokazuje wysokość lotu?","Wysokościomierz" , "Prędkościomierz", "Sztuczny horyzont", "Wariometr", 1, null, null));
-        list.add(new Question("Który element skrzydła zwiększa siłę nośną przy lądowaniu?", "Spoiler", "Klapy (Flaps)", "Winglet", "Silnik", 2, null, null));
+        list.add(new Question("Jaką część samolotu pokazano na ilustracji?", "Lotki", "Klapy", "Ster wysokości", "Podwozie", 2, "images/flaps.jpg", null, AIRCRAFT, 2));
+        list.add(new Question("Do czego służy ster kierunku?", "Do zmiany wysokości", "Do przechylania samolotu na bok", "Do odchylania nosa w lewo/prawo", "Do hamowania", 3, null, null, AIRCRAFT, 1));
+        list.add(new Question("Jaki przyrząd pokazuje wysokość lotu?","Wysokościomierz" , "Prędkościomierz", "Sztuczny horyzont", "Wariometr", 1, null, null, AIRCRAFT, 1));
+        list.add(new Question("Który element skrzydła zwiększa siłę nośną przy lądowaniu?", "Spoiler", "Klapy (Flaps)", "Winglet", "Silnik", 2, null, null, AIRCRAFT, 1));
 
         //PRZEPISY I PROCEDURY
-        list.add(new Question("Jaki kolor ma światło nawigacyjne na LEWYM skrzydle?", "Zielony", "Czerwony", "Biały", "Żółty", 2, null, null));
-        list.add(new Question("Jaki kolor ma światło nawigacyjne na PRAWYM skrzydle?", "Zielony", "Czerwony", "Biały", "Niebieski", 1, null, null));
-        list.add(new Question("Jaki kod transpondera oznacza awarię łączności?", "7500", "7600", "7700", "1200", 2, null, null));
-        list.add(new Question("Jaki kod transpondera oznacza sytuację awaryjną (Emergency)?", "7500", "7600", "7700", "2000", 3, null, null));
-        list.add(new Question("Co oznacza prędkość V1?", "Prędkość oderwania", "Prędkość decyzji (startu nie można przerwać)", "Prędkość przelotowa", "Prędkość lądowania", 2, null, null));
-        list.add(new Question("Z której strony należy mijać inny statek powietrzny lecący na wprost?", "Z lewej", "Z prawej", "Z dołu", "Z góry", 2, null, null));
+        list.add(new Question("Jaki kolor ma światło nawigacyjne na LEWYM skrzydle?", "Zielony", "Czerwony", "Biały", "Żółty", 2, null, null, RULES, 2));
+        list.add(new Question("Jaki kolor ma światło nawigacyjne na PRAWYM skrzydle?", "Zielony", "Czerwony", "Biały", "Niebieski", 1, null, null, RULES, 2));
+        list.add(new Question("Jaki kod transpondera oznacza awarię łączności?", "7500", "7600", "7700", "1200", 2, null, null, RULES, 3));
+        list.add(new Question("Jaki kod transpondera oznacza sytuację awaryjną (Emergency)?", "7500", "7600", "7700", "2000", 3, null, null, RULES, 3));
+        list.add(new Question("Co oznacza prędkość V1?", "Prędkość oderwania", "Prędkość decyzji (startu nie można przerwać)", "Prędkość przelotowa", "Prędkość lądowania", 2, null, null, RULES, 3));
+        list.add(new Question("Z której strony należy mijać inny statek powietrzny lecący na wprost?", "Z lewej", "Z prawej", "Z dołu", "Z góry", 2, null, null, RULES, 3));
 
         //MULTIMEDIA I INNE
-        list.add(new Question("Co oznacza usłyszany komunikat?", "Gwałtowne przeciągnięcie", "Dużą prędkość", "Silny boczny wiatr", "Awarię silnika", 2, null, "audio/overspeed.mp3"));
-        list.add(new Question("Co oznacza skrót ATC?", "Automatic Turbo Control", "Air Traffic Control (Kontrola Ruchu)", "Aircraft Taxi Chart", "All Terrain Craft", 2, null, null));
-        list.add(new Question("Co oznaczają liczby na początku pasa startowego (np. 27)?", "Długość pasa w metrach", "Maksymalną wagę samolotu", "Numer lotniska", "Azymut magnetyczny pasa (kierunek)", 4, null, null));
-        list.add(new Question("W alfabecie fonetycznym litera 'A' to:", "Adam", "Alpha", "Apple", "Anton", 2, null, null));
-        list.add(new Question("W alfabecie fonetycznym litera 'B' to:", "Beta", "Bravo", "Baker", "Blue", 2, null, null));
+        list.add(new Question("Co oznacza usłyszany komunikat?", "Gwałtowne przeciągnięcie", "Dużą prędkość", "Silny boczny wiatr", "Awarię silnika", 2, null, "audio/overspeed.mp3", OTHER, 2));
+        list.add(new Question("Co oznacza skrót ATC?", "Automatic Turbo Control", "Air Traffic Control (Kontrola Ruchu)", "Aircraft Taxi Chart", "All Terrain Craft", 2, null, null, OTHER, 1));
+        list.add(new Question("Co oznaczają liczby na początku pasa startowego (np. 27)?", "Długość pasa w metrach", "Maksymalną wagę samolotu", "Numer lotniska", "Azymut magnetyczny pasa (kierunek)", 4, null, null, OTHER, 3));
+        list.add(new Question("W alfabecie fonetycznym litera 'A' to:", "Adam", "Alpha", "Apple", "Anton", 2, null, null, OTHER, 1));
+        list.add(new Question("W alfabecie fonetycznym litera 'B' to:", "Beta", "Bravo", "Baker", "Blue", 2, null, null, OTHER, 1));
 
         return list;
     }
+
+    //Random set of questions for one quiz, drawn from the question bank without copying it
+    public static List<Question> drawRandom(int count) {
+        return QuestionBank.getInstance().sample(count, ThreadLocalRandom.current());
+    }
+
+    //Questions for one quiz chosen for a player: due reviews and new questions of their level, in random order
+    public static List<Question> drawFor(QuizMastery mastery, int count) {
+        QuestionBank bank = QuestionBank.getInstance();
+        List<Question> out = new ArrayList<>(count);
+        for (int ordinal : mastery.select(count, QuizMastery.now(), ThreadLocalRandom.current())) out.add(bank.get(ordinal));
+        Collections.shuffle(out, ThreadLocalRandom.current());
+        return out;
+    }
 }
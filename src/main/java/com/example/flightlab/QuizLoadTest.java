@@ -0,0 +1,174 @@
+package com.example.flightlab;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Answer latency of one QuizServer with many players taking a quiz at the same time, over localhost HTTP.
+//Opens all sessions first, so they are all alive together, then plays them to the end: the pending steps
+//(answer, next) of all sessions wait in one queue and a fixed number of client loops take them in turn,
+//so the sessions advance interleaved and the server always has inFlight requests to serve.
+//
+//Also checks the scoring under contention: the sessions share a few registered players (in a temporary
+//save file), and the quiz points the server credited to them must add up to the right answers the clients
+//were told about.
+public class QuizLoadTest {
+
+    private record Step(int session, boolean answer) {}
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final String base;
+    private final int questions, players;
+    private final String[] tokens;
+    private final String[] ids;
+    private final int[] correct;
+    private final Queue<Step> steps = new ConcurrentLinkedQueue<>();
+    private final FrameHistogram answerLatency = new FrameHistogram(); //guarded by itself
+    private final FrameHistogram otherLatency = new FrameHistogram();  //guarded by itself
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final AtomicInteger finished = new AtomicInteger();
+    private final AtomicInteger wrongScores = new AtomicInteger();
+
+    private QuizLoadTest(int port, int sessions, int questions, QuizService service, int players) {
+        this.base = "http://localhost:" + port;
+        this.questions = questions;
+        this.players = players;
+        this.tokens = new String[players];
+        for (int i = 0; i < players; i++) tokens[i] = service.token("gracz" + i);
+        this.ids = new String[sessions];
+        this.correct = new int[sessions];
+    }
+
+    //Runs loops client loops until the queue is empty
+    private void run(int loops) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(loops);
+        for (int i = 0; i < loops; i++) loop(done);
+        done.await();
+    }
+
+    private void loop(CountDownLatch done) {
+        Step step = steps.poll();
+        if (step == null) {
+            done.countDown();
+            return;
+        }
+        String path;
+        if (ids[step.session()] == null) {
+            int player = step.session() % players;
+            path = "/quiz?count=" + questions + "&player=gracz" + player + "&token=" + tokens[player];
+        } else if (step.answer()) {
+            path = "/quiz/" + ids[step.session()] + "/answer?choice=" + ThreadLocalRandom.current().nextInt(1, 5);
+        } else {
+            path = "/quiz/" + ids[step.session()] + "/next";
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + path)).POST(HttpRequest.BodyPublishers.noBody()).build();
+        long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            long nanos = System.nanoTime() - start;
+            FrameHistogram h = step.answer() ? answerLatency : otherLatency;
+            synchronized (h) {
+                h.record(nanos);
+            }
+            requests.incrementAndGet();
+            if (error != null || response.statusCode() != 200) errors.incrementAndGet();
+            else handle(step, response.body());
+            loop(done);
+        });
+    }
+
+    private void handle(Step step, String body) {
+        int s = step.session();
+        if (ids[s] == null) {
+            ids[s] = field(body, "session").replace("\"", "");
+            return; //the play phase queues its steps
+        }
+        if (step.answer()) {
+            if (field(body, "correct").equals("true")) correct[s]++;
+            steps.add(new Step(s, false));
+        } else if (field(body, "state").equals("\"FINISHED\"")) {
+            if (Integer.parseInt(field(body, "score")) != correct[s]) wrongScores.incrementAndGet();
+            finished.incrementAndGet();
+        } else {
+            steps.add(new Step(s, true));
+        }
+    }
+
+    //Raw value of a top-level field of a flat JSON object (enough for QuizServer's responses)
+    private static String field(String json, String name) {
+        String key = "\"" + name + "\":";
+        int from = json.indexOf(key);
+        if (from < 0) return "";
+        from += key.length();
+        int to = from;
+        if (json.charAt(from) == '"') to = json.indexOf('"', from + 1) + 1;
+        else while (to < json.length() && json.charAt(to) != ',' && json.charAt(to) != '}') to++;
+        return json.substring(from, to);
+    }
+
+    //Usage: QuizLoadTest [sessions] [questionsPerSession] [inFlight] [playerNames]
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int questions = args.length > 1 ? Integer.parseInt(args[1]) : QuizService.DEFAULT_QUESTIONS;
+        int inFlight = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        int players = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+        File saveFile = File.createTempFile("flightlab-quiz-load", ".dat");
+        GameData gameData = new GameData(saveFile);
+        for (int i = 0; i < players; i++) gameData.login("gracz" + i);
+        byte[] secret = new byte[32];
+        ThreadLocalRandom.current().nextBytes(secret);
+        QuizService service = new QuizService(ForkJoinPool.commonPool(), gameData, secret, sessions, QuizService.DEFAULT_IDLE_NANOS);
+        QuizServer server = new QuizServer(0, service, null);
+        server.start();
+        QuizLoadTest test = new QuizLoadTest(server.getPort(), sessions, questions, service, players);
+        System.out.printf("Serwer quizu na localhost, %d sesji po %d pytań, %d zapytań naraz, %d graczy, %d wątków puli%n",
+                sessions, questions, inFlight, players, ForkJoinPool.commonPool().getParallelism());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < sessions; i++) test.steps.add(new Step(i, false));
+        test.run(inFlight);
+        System.out.printf("Otwarte sesje: %d w %.1f s%n", service.getSessionCount(), (System.nanoTime() - start) / 1e9);
+
+        List<Step> first = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) if (test.ids[i] != null) first.add(new Step(i, true));
+        Collections.shuffle(first);
+        test.steps.addAll(first);
+        test.requests.set(0);
+        start = System.nanoTime();
+        test.run(inFlight);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        FrameHistogram a = test.answerLatency;
+        System.out.printf("Odpowiedzi: %d, p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", a.getCount(),
+                a.percentile(50) / 1e6, a.percentile(99) / 1e6, a.getMax() / 1e6);
+        System.out.printf("Wszystkie zapytania: %.0f/s, błędy %d%n", test.requests.get() / elapsed, test.errors.get());
+
+        long clientCorrect = 0;
+        for (int c : test.correct) clientCorrect += c;
+        service.syncScores().join(); //GameData is the service's now, read it after its last task
+        long serverPoints = 0;
+        for (Player p : gameData.getPlayers()) serverPoints += p.getQuizPoints();
+        System.out.printf("Ukończone sesje: %d/%d, złe wyniki sesji: %d%n", test.finished.get(), sessions, test.wrongScores.get());
+        System.out.printf("Punkty: klienci %d, serwer %d%s%n", clientCorrect, serverPoints,
+                clientCorrect == serverPoints ? "" : "  NIEZGODNE");
+
+        server.stop();
+        gameData.shutdown();
+        new File(saveFile.getPath() + ".journal").delete();
+        new File(saveFile.getPath() + ".lock").delete();
+        saveFile.delete();
+    }
+}
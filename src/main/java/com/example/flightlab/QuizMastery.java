@@ -0,0 +1,279 @@
+package com.example.flightlab;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+//What one player knows of the question bank, and the choice of their next quiz.
+//
+//Everything is kept in primitive arrays indexed by question ordinal (about 22 bytes per question in memory):
+//attempts, right answers, when the question was last seen and its Leitner box. A right answer moves the
+//question one box up and its next review further away (INTERVAL_MINUTES), a wrong one back to box 0, due at once.
+//
+//Seen questions sit in a binary min-heap ordered by due time, unseen ones in a pool per difficulty level
+//(swap-remove, so a question leaves its pool in O(1)). A quiz of k questions takes up to half of them from
+//the most overdue reviews (walking the top of the heap without changing it, O(k log k)), fills the rest with
+//unseen questions of the level that suits the player (Floyd's sampling, O(k)), and answering updates one
+//heap entry (O(log n)). So the bank size only matters when the arrays are built.
+//
+//The player's ability is an Elo-like rating on the difficulty scale; the new questions come from the
+//hardest level they answer right about TARGET_SUCCESS of the time.
+//Not thread-safe: used by the JavaFX thread only.
+public class QuizMastery {
+
+    static final int[] INTERVAL_MINUTES = {0, 24 * 60, 3 * 24 * 60, 7 * 24 * 60, 21 * 24 * 60, 60 * 24 * 60};
+    static final int MAX_BOX = INTERVAL_MINUTES.length - 1;
+    static final int MASTERED_BOX = 3; //answered right three times in a row, spaced out
+    private static final double TARGET_SUCCESS = 0.7;
+    private static final double SLOPE = 2;   //of the success probability per difficulty level
+    private static final double K = 0.15;    //rating change per answer
+    private static final double START_ABILITY = 1;
+
+    private final long bankFingerprint;
+    private final int levels;
+    private final int size;
+
+    private final char[] attempts;  //saturates at 65535
+    private final char[] correct;
+    private final int[] lastSeen;   //minutes since the epoch
+    private final byte[] box;
+    private final byte[] level;     //difficulty level - 1, copied from the bank
+    private final int[] position;   //index in the due heap if seen, in its unseen pool if not
+
+    private final int[] heap;       //seen ordinals, earliest due first
+    private int heapSize = 0;
+    private final int[][] unseen;   //per difficulty level
+    private final int[] unseenCount;
+
+    private double ability = START_ABILITY;
+    private int mastered = 0;
+
+    public QuizMastery(QuestionBank bank) {
+        this.bankFingerprint = bank.fingerprint();
+        this.levels = bank.getDifficultyLevels();
+        this.size = bank.size();
+        attempts = new char[size];
+        correct = new char[size];
+        lastSeen = new int[size];
+        box = new byte[size];
+        level = new byte[size];
+        position = new int[size];
+        heap = new int[size];
+
+        unseenCount = new int[levels];
+        for (int o = 0; o < size; o++) {
+            level[o] = (byte) (Math.min(Math.max(bank.difficultyOf(o), 1), levels) - 1);
+            unseenCount[level[o]]++;
+        }
+        unseen = new int[levels][];
+        for (int l = 0; l < levels; l++) unseen[l] = new int[unseenCount[l]];
+        Arrays.fill(unseenCount, 0);
+        for (int o = 0; o < size; o++) {
+            int l = level[o];
+            position[o] = unseenCount[l];
+            unseen[l][unseenCount[l]++] = o;
+        }
+    }
+
+    //Counts an answer given at the time now (minutes since the epoch)
+    public void record(int ordinal, boolean right, int now) {
+        boolean first = attempts[ordinal] == 0;
+        if (first) takeUnseen(ordinal);
+        if (attempts[ordinal] < Character.MAX_VALUE) attempts[ordinal]++;
+        if (right && correct[ordinal] < Character.MAX_VALUE) correct[ordinal]++;
+        lastSeen[ordinal] = now;
+
+        int oldBox = box[ordinal];
+        int newBox = right ? Math.min(oldBox + 1, MAX_BOX) : 0;
+        box[ordinal] = (byte) newBox;
+        if (oldBox < MASTERED_BOX && newBox >= MASTERED_BOX) mastered++;
+        if (oldBox >= MASTERED_BOX && newBox < MASTERED_BOX) mastered--;
+
+        if (first) {
+            heap[heapSize] = ordinal;
+            position[ordinal] = heapSize++;
+            siftUp(position[ordinal]);
+        } else {
+            siftDown(siftUp(position[ordinal]));
+        }
+
+        double expected = expectedSuccess(level[ordinal] + 1);
+        ability += K * ((right ? 1 : 0) - expected);
+    }
+
+    //Ordinals of the next quiz (up to k, fewer only if the bank is smaller), not in any particular order
+    public int[] select(int k, int now, Random random) {
+        k = Math.min(k, size);
+        int[] out = new int[k];
+        int n = 0;
+        DueWalker due = new DueWalker(k);
+
+        int reviewShare = (k + 1) / 2;
+        while (n < reviewShare && due.hasNext() && dueAt(due.peek()) <= now) out[n++] = due.next();
+
+        //New questions: the suitable level first, then the nearest ones
+        int target = targetLevel();
+        for (int d = 0; n < k && d < levels; d++) {
+            if (target - d >= 0) n = sampleUnseen(target - d, out, n, k, random);
+            if (d > 0 && target + d < levels && n < k) n = sampleUnseen(target + d, out, n, k, random);
+        }
+
+        //Not enough new ones: more reviews, the overdue first, then those due soonest
+        while (n < k && due.hasNext()) out[n++] = due.next();
+        return n == k ? out : Arrays.copyOf(out, n);
+    }
+
+    //Floyd's algorithm over the unseen pool of a level, appends up to k - n ordinals to out
+    private int sampleUnseen(int level, int[] out, int n, int k, Random random) {
+        int pool = unseenCount[level];
+        int m = Math.min(k - n, pool);
+        Set<Integer> chosen = new HashSet<>(m * 2);
+        for (int j = pool - m; j < pool; j++) {
+            int t = random.nextInt(j + 1);
+            int pick = chosen.add(t) ? t : j;
+            if (pick == j) chosen.add(j);
+            out[n++] = unseen[level][pick];
+        }
+        return n;
+    }
+
+    //Yields the seen ordinals in due order, looking at no more than the top of the heap
+    private final class DueWalker {
+        private final int[] frontier; //heap indexes, a small min-heap of its own
+        private int count = 0;
+
+        DueWalker(int k) {
+            frontier = new int[k + 2]; //every next() removes one index and adds at most two
+            if (heapSize > 0) frontier[count++] = 0;
+        }
+
+        boolean hasNext() { return count > 0; }
+        int peek() { return heap[frontier[0]]; }
+
+        int next() {
+            int top = frontier[0];
+            frontier[0] = frontier[--count];
+            down(0);
+            for (int child = 2 * top + 1; child <= 2 * top + 2; child++) {
+                if (child < heapSize && count < frontier.length) {
+                    frontier[count] = child;
+                    up(count++);
+                }
+            }
+            return heap[top];
+        }
+
+        private boolean less(int a, int b) { return dueAt(heap[frontier[a]]) < dueAt(heap[frontier[b]]); }
+
+        private void up(int i) {
+            while (i > 0 && less(i, (i - 1) / 2)) {
+                swap(i, (i - 1) / 2);
+                i = (i - 1) / 2;
+            }
+        }
+
+        private void down(int i) {
+            while (true) {
+                int smallest = i;
+                for (int c = 2 * i + 1; c <= 2 * i + 2; c++) if (c < count && less(c, smallest)) smallest = c;
+                if (smallest == i) return;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int t = frontier[a];
+            frontier[a] = frontier[b];
+            frontier[b] = t;
+        }
+    }
+
+    private void takeUnseen(int ordinal) {
+        int l = level[ordinal];
+        int i = position[ordinal];
+        int last = unseen[l][--unseenCount[l]];
+        unseen[l][i] = last;
+        position[last] = i;
+    }
+
+    private int siftUp(int i) {
+        int o = heap[i];
+        long due = dueAt(o);
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (dueAt(heap[parent]) <= due) break;
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = o;
+        position[o] = i;
+        return i;
+    }
+
+    private void siftDown(int i) {
+        int o = heap[i];
+        long due = dueAt(o);
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && dueAt(heap[child + 1]) < dueAt(heap[child])) child++;
+            if (dueAt(heap[child]) >= due) break;
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = o;
+        position[o] = i;
+    }
+
+    //When a seen question is due for review (minutes since the epoch)
+    long dueAt(int ordinal) {
+        return (long) lastSeen[ordinal] + INTERVAL_MINUTES[box[ordinal]];
+    }
+
+    double expectedSuccess(int difficulty) {
+        return 1 / (1 + Math.exp(-SLOPE * (ability - difficulty + 0.5)));
+    }
+
+    //Hardest level (0-based) still answered right with TARGET_SUCCESS
+    int targetLevel() {
+        double reach = ability + 0.5 - Math.log(TARGET_SUCCESS / (1 - TARGET_SUCCESS)) / SLOPE;
+        return Math.min(Math.max((int) Math.floor(reach), 1), levels) - 1;
+    }
+
+    //Restores a saved question (MasteryStore), call finishRestore() after the last one
+    void restore(int ordinal, int attempts, int correct, int lastSeen, int box) {
+        if (ordinal < 0 || ordinal >= size || this.attempts[ordinal] != 0 || attempts <= 0) return;
+        takeUnseen(ordinal);
+        this.attempts[ordinal] = (char) Math.min(attempts, Character.MAX_VALUE);
+        this.correct[ordinal] = (char) Math.min(correct, attempts);
+        this.lastSeen[ordinal] = lastSeen;
+        this.box[ordinal] = (byte) Math.min(Math.max(box, 0), MAX_BOX);
+        if (this.box[ordinal] >= MASTERED_BOX) mastered++;
+        heap[heapSize] = ordinal;
+        position[ordinal] = heapSize++;
+    }
+
+    void finishRestore(double ability) {
+        this.ability = ability;
+        for (int i = heapSize / 2 - 1; i >= 0; i--) siftDown(i);
+    }
+
+    public static int now() {
+        return (int) (System.currentTimeMillis() / 60_000);
+    }
+
+    public int getAttempts(int ordinal) { return attempts[ordinal]; }
+    public int getCorrect(int ordinal) { return correct[ordinal]; }
+    public int getLastSeen(int ordinal) { return lastSeen[ordinal]; }
+    public int getBox(int ordinal) { return box[ordinal]; }
+    public boolean isSeen(int ordinal) { return attempts[ordinal] != 0; }
+    public int getSeenCount() { return heapSize; }
+    public int getMasteredCount() { return mastered; }
+    public double getAbility() { return ability; }
+    public int size() { return size; }
+    public long getBankFingerprint() { return bankFingerprint; }
+}
@@ -0,0 +1,270 @@
+package com.example.flightlab;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+//HTTP API of QuizService for classrooms and kiosks (JSON, parameters in the query string):
+//  POST /quiz?player=Ala&token=..&count=10  new session, its first question (no player: anonymous)
+//  GET  /quiz/{id}                      current state
+//  POST /quiz/{id}/answer?choice=1..4   answers, tells whether it was right and which answer was
+//  POST /quiz/{id}/next                 next question, or the FINISHED state with the score
+//  DELETE /quiz/{id}                    closes the session
+//  GET  /scores?player=Ala              quiz points of a registered player
+//
+//The handlers do not wait for a session: they parse the request and hand it to the session's executor. The
+//response is written back on the HTTP executor once the session has answered, so the session pool only ever
+//runs quiz logic and a slow client holds one HTTP thread (of HTTP_THREADS by default), never a session worker.
+//
+//Players' tokens come from a secret kept in flightlab_quiz.key (or -Dflightlab.quizKey), created on the first
+//start; "QuizServer token Ala" prints Ala's token to hand out.
+public class QuizServer {
+
+    public static final int DEFAULT_PORT = 47801;
+    private static final int BACKLOG = 1024;
+    private static final long EXPIRE_PERIOD_SECONDS = 30;
+    private static final String KEY_FILE = "flightlab_quiz.key";
+    private static final int KEY_BYTES = 32;
+    static final int HTTP_THREADS = Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+
+    private final QuizService service;
+    private final HttpServer http;
+    private final Executor httpExecutor;
+    private final ExecutorService ownHttpExecutor; //null if the caller gave one
+    private final ScheduledExecutorService janitor = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "quiz-janitor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    //httpExecutor: reads requests and writes responses, null for a fixed pool of HTTP_THREADS
+    public QuizServer(int port, QuizService service, Executor httpExecutor) throws IOException {
+        this.service = service;
+        this.ownHttpExecutor = httpExecutor == null ? Executors.newFixedThreadPool(HTTP_THREADS, r -> {
+            Thread t = new Thread(r, "quiz-http");
+            t.setDaemon(true);
+            return t;
+        }) : null;
+        this.httpExecutor = httpExecutor != null ? httpExecutor : ownHttpExecutor;
+        this.http = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        http.setExecutor(this.httpExecutor);
+        http.createContext("/quiz", this::handleQuiz);
+        http.createContext("/scores", this::handleScores);
+    }
+
+    public void start() {
+        http.start();
+        janitor.scheduleAtFixedRate(service::expireIdle, EXPIRE_PERIOD_SECONDS, EXPIRE_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        janitor.shutdownNow();
+        http.stop(0);
+        if (ownHttpExecutor != null) ownHttpExecutor.shutdownNow();
+    }
+
+    public int getPort() { return http.getAddress().getPort(); }
+    public QuizService getService() { return service; }
+
+    private void handleQuiz(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().split("/"); //"", "quiz", id, action
+        Map<String, String> query = query(exchange);
+        try {
+            if (path.length == 2 && method.equals("POST")) {
+                int count = query.containsKey("count") ? Integer.parseInt(query.get("count")) : QuizService.DEFAULT_QUESTIONS;
+                respond(exchange, service.start(query.get("player"), query.get("token"), count));
+            } else if (path.length == 3 && method.equals("GET")) {
+                respond(exchange, service.get(path[2]));
+            } else if (path.length == 3 && method.equals("DELETE")) {
+                if (service.close(path[2])) send(exchange, 200, "{\"closed\":true}");
+                else send(exchange, 404, error("Nie ma sesji quizu " + path[2]));
+            } else if (path.length == 4 && method.equals("POST") && path[3].equals("answer")) {
+                respond(exchange, service.answer(path[2], Integer.parseInt(query.getOrDefault("choice", "0"))));
+            } else if (path.length == 4 && method.equals("POST") && path[3].equals("next")) {
+                respond(exchange, service.next(path[2]));
+            } else {
+                send(exchange, 404, error("Nieznane zapytanie: " + method + " " + exchange.getRequestURI().getPath()));
+            }
+        } catch (NumberFormatException e) {
+            send(exchange, 400, error("Niepoprawna liczba: " + e.getMessage()));
+        }
+    }
+
+    private void handleScores(HttpExchange exchange) throws IOException {
+        String player = query(exchange).get("player");
+        if (player == null) {
+            send(exchange, 400, error("Brak parametru player"));
+            return;
+        }
+        respond(exchange, service.getPoints(player),
+                points -> "{\"player\":" + json(player) + ",\"points\":" + points + "}");
+    }
+
+    //Sends the view, on the HTTP executor, when the session's task completes it
+    private void respond(HttpExchange exchange, CompletableFuture<QuizService.View> result) {
+        respond(exchange, result, QuizServer::json);
+    }
+
+    private <T> void respond(HttpExchange exchange, CompletableFuture<T> result, Function<T, String> toJson) {
+        result.whenCompleteAsync((value, error) -> {
+            try {
+                if (error == null) {
+                    send(exchange, 200, toJson.apply(value));
+                } else {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    int status = cause instanceof NoSuchElementException ? 404
+                            : cause instanceof SecurityException ? 403
+                            : cause instanceof IllegalArgumentException ? 400
+                            : cause instanceof IllegalStateException ? 409 : 500;
+                    send(exchange, status, error(cause.getMessage()));
+                }
+            } catch (IOException e) {
+                exchange.close(); //the client went away
+            }
+        }, httpExecutor);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    static String json(QuizService.View v) {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"session\":").append(json(v.id()))
+                .append(",\"player\":").append(json(v.player()))
+                .append(",\"state\":\"").append(v.state()).append('"')
+                .append(",\"number\":").append(v.number())
+                .append(",\"total\":").append(v.total())
+                .append(",\"score\":").append(v.score());
+        if (v.state() == QuizSession.State.FEEDBACK) {
+            sb.append(",\"correct\":").append(v.correct()).append(",\"correctAnswer\":").append(v.correctAnswer());
+        }
+        Question q = v.question();
+        if (q != null) {
+            sb.append(",\"question\":{\"text\":").append(json(q.text))
+                    .append(",\"answers\":[").append(json(q.a)).append(',').append(json(q.b)).append(',')
+                    .append(json(q.c)).append(',').append(json(q.d)).append(']')
+                    .append(",\"image\":").append(json(q.imageUrl))
+                    .append(",\"audio\":").append(json(q.audioUrl))
+                    .append(",\"category\":").append(q.category)
+                    .append(",\"difficulty\":").append(q.difficulty).append('}');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + json(message) + "}";
+    }
+
+    static String json(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    //Secret behind the players' tokens, made once and kept: a new one would void every token handed out
+    static byte[] loadSecret(File file) throws IOException {
+        if (file.exists()) {
+            byte[] secret = Files.readAllBytes(file.toPath());
+            if (secret.length < KEY_BYTES) throw new IOException("Za krótki klucz w " + file);
+            return secret;
+        }
+        byte[] secret = new byte[KEY_BYTES];
+        new SecureRandom().nextBytes(secret);
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), secret);
+        ScoreJournal.moveAtomically(tmp, file);
+        System.out.println("Utworzono nowy klucz tokenów: " + file);
+        return secret;
+    }
+
+    //Usage: QuizServer [port] [maxSessions]
+    //       QuizServer token <player>
+    public static void main(String[] args) throws IOException, InterruptedException {
+        byte[] secret = loadSecret(new File(System.getProperty("flightlab.quizKey", KEY_FILE)));
+        if (args.length == 2 && args[0].equals("token")) {
+            System.out.println(new QuizService(Runnable::run, null, secret, 0, 0).token(args[1]));
+            return;
+        }
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int maxSessions = args.length > 1 ? Integer.parseInt(args[1]) : QuizService.DEFAULT_MAX_SESSIONS;
+
+        //Points go to the game's save file (or -Dflightlab.save), only registered players can take part.
+        //The file is locked while it is open: a game already running on it keeps the server from starting.
+        GameData gameData;
+        try {
+            gameData = GameData.getInstance();
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        QuizService service = new QuizService(ForkJoinPool.commonPool(), gameData, secret, maxSessions, QuizService.DEFAULT_IDLE_NANOS);
+        QuizServer server = new QuizServer(port, service, null);
+        server.start();
+        System.out.printf("Serwer quizu na porcie %d, do %d sesji, %d pytań w banku, %d graczy%n", server.getPort(),
+                maxSessions, QuestionBank.getInstance().size(), gameData.getPlayers().size());
+        long lastAnswers = 0;
+        while (true) {
+            Thread.sleep(5000);
+            long answers = service.getAnswerCount();
+            System.out.printf("sesje %d, odpowiedzi %.1f/s, poprawne %d/%d%n", service.getSessionCount(),
+                    (answers - lastAnswers) / 5.0, service.getCorrectCount(), answers);
+            lastAnswers = answers;
+        }
+    }
+}
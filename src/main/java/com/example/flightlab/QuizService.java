@@ -0,0 +1,236 @@
+package com.example.flightlab;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+//Many quiz sessions at once, for QuizServer. Every session is confined to its own serial executor:
+//a queue of its requests drained by at most one task at a time on the shared executor, so a session
+//needs no locks and a slow session never holds a pool thread while it waits. Thousands of idle sessions
+//cost only their objects, not threads.
+//
+//The shared executor is pluggable (the common pool by default). Sessions belong to registered players
+//(or are anonymous and earn nothing). A player's session needs the player's token, an HMAC of the name under
+//the server's secret, so nobody can collect points in someone else's name. Right answers are credited through
+//GameData, so they reach the journal and the leaderboard like points from the game. GameData is not thread-safe:
+//every access to it goes through one more serial executor, the way the game keeps it on the FX thread, and
+//a class playing under one name queues its points there instead of racing on the player.
+public class QuizService {
+
+    public static final int DEFAULT_QUESTIONS = 10;
+    public static final int DEFAULT_MAX_SESSIONS = 20_000;
+    public static final long DEFAULT_IDLE_NANOS = 10 * 60 * 1_000_000_000L;
+    private static final int TOKEN_BYTES = 12;
+
+    //What a request sees of a session, taken on the session's own executor
+    public record View(String id, String player, QuizSession.State state, int number, int total, int score,
+                       Question question, boolean correct, int correctAnswer) {}
+
+    private static final class Entry {
+        final String id;
+        final Player player; //null for an anonymous session
+        final String playerName;
+        final QuizSession session;
+        final SerialExecutor executor;
+        volatile long lastActive = System.nanoTime();
+
+        Entry(String id, Player player, String playerName, QuizSession session, SerialExecutor executor) {
+            this.id = id;
+            this.player = player;
+            this.playerName = playerName;
+            this.session = session;
+            this.executor = executor;
+        }
+
+        View view() {
+            QuizSession s = session;
+            Question q = s.getQuestion();
+            boolean feedback = s.getState() == QuizSession.State.FEEDBACK;
+            return new View(id, playerName, s.getState(), s.getNumber(), s.size(), s.getScore(), q,
+                    feedback && s.isLastCorrect(), feedback ? q.correct : 0);
+        }
+    }
+
+    //Runs tasks one after another, in order, on the shared executor
+    private static final class SerialExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Executor pool;
+
+        SerialExecutor(Executor pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+            if (scheduled.compareAndSet(false, true)) pool.execute(this::drain);
+        }
+
+        private void drain() {
+            try {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        //One failed task must not stop the queue behind it
+                        System.err.println("Błąd zadania quizu: " + e);
+                    }
+                }
+            } finally {
+                //Also after an Error: a queue left scheduled would never run again.
+                //A task added between the last poll and the reset would otherwise wait for the next one.
+                scheduled.set(false);
+                if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) pool.execute(this::drain);
+            }
+        }
+    }
+
+    private final Executor executor;
+    private final GameData gameData;
+    private final byte[] secret;
+    private final SerialExecutor scores; //the only way to GameData
+    private final int maxSessions;
+    private final long idleNanos;
+    private final ConcurrentHashMap<String, Entry> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger sessionCount = new AtomicInteger();
+    private final LongAdder answers = new LongAdder();
+    private final LongAdder correctAnswers = new LongAdder();
+
+    public QuizService(Executor executor, GameData gameData, byte[] secret, int maxSessions, long idleNanos) {
+        this.executor = executor;
+        this.gameData = gameData;
+        this.secret = secret.clone();
+        this.scores = new SerialExecutor(executor);
+        this.maxSessions = maxSessions;
+        this.idleNanos = idleNanos;
+    }
+
+    //New session of count random questions for a registered player with the player's token
+    //(null or empty player: anonymous, no points kept)
+    public CompletableFuture<View> start(String player, String token, int count) {
+        if (count < 1) return CompletableFuture.failedFuture(new IllegalArgumentException("Liczba pytań musi być dodatnia"));
+        String name = player == null || player.isBlank() ? null : player.strip();
+        if (name != null && (token == null || !MessageDigest.isEqual(token(name).getBytes(StandardCharsets.UTF_8),
+                token.strip().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8)))) {
+            return CompletableFuture.failedFuture(new SecurityException("Niepoprawny token gracza " + name));
+        }
+        if (sessionCount.incrementAndGet() > maxSessions) {
+            sessionCount.decrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException("Za dużo otwartych sesji quizu"));
+        }
+        SerialExecutor serial = new SerialExecutor(executor);
+        CompletableFuture<Player> registered = name == null ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.supplyAsync(() -> {
+                    Player p = gameData.findPlayer(name);
+                    if (p == null) throw new IllegalArgumentException("Nie ma gracza " + name);
+                    return p;
+                }, scores);
+        return registered.thenApplyAsync(p -> {
+            QuizSession session = new QuizSession(QuestionDataBase.drawRandom(count));
+            while (true) {
+                String id = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+                Entry entry = new Entry(id, p, p != null ? p.getName() : null, session, serial);
+                if (sessions.putIfAbsent(id, entry) == null) return entry.view();
+            }
+        }, serial).whenComplete((view, error) -> {
+            if (error != null) sessionCount.decrementAndGet();
+        });
+    }
+
+    public CompletableFuture<View> get(String id) {
+        return submit(id, Entry::view);
+    }
+
+    public CompletableFuture<View> answer(String id, int chosen) {
+        return submit(id, entry -> {
+            boolean correct = entry.session.answer(chosen);
+            answers.increment();
+            if (correct) {
+                correctAnswers.increment();
+                Player p = entry.player;
+                if (p != null) scores.execute(() -> gameData.addQuizPoint(p));
+            }
+            return entry.view();
+        });
+    }
+
+    public CompletableFuture<View> next(String id) {
+        return submit(id, entry -> {
+            entry.session.next();
+            return entry.view();
+        });
+    }
+
+    //Closes a session, returns false if there was none
+    public boolean close(String id) {
+        if (sessions.remove(id) == null) return false;
+        sessionCount.decrementAndGet();
+        return true;
+    }
+
+    private CompletableFuture<View> submit(String id, Function<Entry, View> action) {
+        Entry entry = id != null ? sessions.get(id) : null;
+        if (entry == null) return CompletableFuture.failedFuture(new NoSuchElementException("Nie ma sesji quizu " + id));
+        entry.lastActive = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> action.apply(entry), entry.executor);
+    }
+
+    //Token of a player for start(), handed out by whoever runs the server
+    public String token(String player) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            byte[] digest = mac.doFinal(player.strip().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, TOKEN_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Brak HmacSHA256: " + e.getMessage(), e); //part of every JDK
+        }
+    }
+
+    //Drops sessions nobody asked about for longer than the idle time, returns how many
+    public int expireIdle() {
+        long now = System.nanoTime();
+        int removed = 0;
+        for (Entry entry : sessions.values()) {
+            if (now - entry.lastActive > idleNanos && sessions.remove(entry.id, entry)) {
+                sessionCount.decrementAndGet();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    //Quiz points of a registered player, from the game and from every session so far
+    public CompletableFuture<Integer> getPoints(String player) {
+        return CompletableFuture.supplyAsync(() -> {
+            Player p = player != null ? gameData.findPlayer(player.strip()) : null;
+            if (p == null) throw new NoSuchElementException("Nie ma gracza " + player);
+            return p.getQuizPoints();
+        }, scores);
+    }
+
+    //Completes when every point credited so far has been added to its player
+    public CompletableFuture<Void> syncScores() {
+        return CompletableFuture.runAsync(() -> {}, scores);
+    }
+    public int getSessionCount() { return sessionCount.get(); }
+    public long getAnswerCount() { return answers.sum(); }
+    public long getCorrectCount() { return correctAnswers.sum(); }
+}
@@ -0,0 +1,79 @@
+package com.example.flightlab;
+
+import java.util.List;
+
+//One run through a set of quiz questions, without any UI: the menu drives it for the local player,
+//QuizService drives thousands of them for players over HTTP.
+//
+//QUESTION --answer--> FEEDBACK --next--> QUESTION ... --next--> FINISHED
+//Not thread-safe: a session is only ever touched by one thread at a time (the FX thread, or its task in QuizService).
+public class QuizSession {
+
+    public enum State { QUESTION, FEEDBACK, FINISHED }
+
+    private final List<Question> questions;
+    private State state;
+    private int index = 0;
+    private int score = 0;
+    private int lastChosen = 0;
+    private long shownAt;       //System.nanoTime() when the current question appeared
+    private long responseNanos; //time to the last answer
+
+    public QuizSession(List<Question> questions) {
+        this.questions = List.copyOf(questions);
+        this.state = this.questions.isEmpty() ? State.FINISHED : State.QUESTION;
+        this.shownAt = System.nanoTime();
+    }
+
+    //Answers the current question (1..4), returns whether it was right
+    public boolean answer(int chosen) {
+        if (state != State.QUESTION) throw new IllegalStateException("Pytanie " + getNumber() + " ma już odpowiedź");
+        if (chosen < 1 || chosen > 4) throw new IllegalArgumentException("Odpowiedź musi być od 1 do 4: " + chosen);
+        responseNanos = System.nanoTime() - shownAt;
+        lastChosen = chosen;
+        state = State.FEEDBACK;
+        boolean correct = chosen == questions.get(index).correct;
+        if (correct) score++;
+        return correct;
+    }
+
+    //Moves on after the feedback, to the next question or the end
+    public State next() {
+        if (state != State.FEEDBACK) throw new IllegalStateException("Najpierw trzeba odpowiedzieć na pytanie " + getNumber());
+        index++;
+        state = index < questions.size() ? State.QUESTION : State.FINISHED;
+        shownAt = System.nanoTime();
+        return state;
+    }
+
+    //Current question, null when finished
+    public Question getQuestion() {
+        return state == State.FINISHED ? null : questions.get(index);
+    }
+
+    //Question after the current one (to prefetch its media), null if there is none
+    public Question peekNext() {
+        return index + 1 < questions.size() ? questions.get(index + 1) : null;
+    }
+
+    public boolean isLastCorrect() {
+        return state == State.FEEDBACK && lastChosen == questions.get(index).correct;
+    }
+
+    public State getState() { return state; }
+    public int getNumber() { return Math.min(index + 1, questions.size()); } //1-based
+    public int size() { return questions.size(); }
+    public int getScore() { return score; }
+    public int getLastChosen() { return lastChosen; }
+    public long getResponseNanos() { return responseNanos; }
+
+    public static String answerText(Question q, int index) {
+        return switch (index) {
+            case 1 -> "A: " + q.a;
+            case 2 -> "B: " + q.b;
+            case 3 -> "C: " + q.c;
+            case 4 -> "D: " + q.d;
+            default -> "Nieznana";
+        };
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.flightlab;
+
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+import java.util.function.IntConsumer;
+
+//The quiz screen, built once: a question page and a feedback page in one Scene.
+//Showing the next question or the feedback only changes texts, the image and which page is visible,
+//no nodes are created and no CSS is parsed. Styles are prebuilt Background/Font/Color objects.
+//Transition time (button click to the first layout of the new content) is kept in a histogram.
+public class QuizView {
+
+    private static final Background BUTTON = new Background(new BackgroundFill(Color.web("#0056bf"), new CornerRadii(5), Insets.EMPTY));
+    private static final Background BUTTON_HOVER = new Background(new BackgroundFill(Color.web("#0069d9"), new CornerRadii(5), Insets.EMPTY));
+    private static final Background QUESTION_FALLBACK = new Background(new BackgroundFill(Color.web("#73808c"), CornerRadii.EMPTY, Insets.EMPTY));
+    private static final Background CORRECT_FALLBACK = new Background(new BackgroundFill(Color.web("#27A65B"), CornerRadii.EMPTY, Insets.EMPTY));
+    private static final Background WRONG_FALLBACK = new Background(new BackgroundFill(Color.web("#C0392B"), CornerRadii.EMPTY, Insets.EMPTY));
+    private static final Background LABEL_SHADE = new Background(new BackgroundFill(Color.rgb(0, 0, 0, 0.5), CornerRadii.EMPTY, Insets.EMPTY));
+    private static final Background TEXT_SHADE = new Background(new BackgroundFill(Color.rgb(0, 0, 0, 0.5), new CornerRadii(5), Insets.EMPTY));
+    private static final Font BUTTON_FONT = Font.font(14);
+
+    static final String QUIZ_BACKGROUND = "images/quiz_bg.png";
+    static final String CORRECT_BACKGROUND = "images/correct.png";
+    static final String WRONG_BACKGROUND = "images/wrong.png";
+    static final double IMAGE_WIDTH = 300.0;
+
+    private final Scene scene;
+    private final VBox questionPage = new VBox(20.0);
+    private final VBox feedbackPage = new VBox(20.0);
+
+    private final Label counter = new Label();
+    private final Label questionText = new Label();
+    private final ImageView image = new ImageView();
+    private final Button[] answers = new Button[4];
+    private final Label explanation = new Label();
+    private final Label status = new Label();
+
+    private IntConsumer onAnswer = chosen -> {};
+    private Runnable onNext = () -> {};
+    private Runnable onBack = () -> {};
+
+    //Transition latency
+    private final FrameHistogram transitions = new FrameHistogram();
+    private long transitionStart = 0;
+
+    public QuizView(double width, double height) {
+        //Question page
+        questionPage.setAlignment(Pos.CENTER);
+
+        counter.setTextFill(Color.LIGHTGRAY);
+        counter.setFont(Font.font(16));
+        counter.setBackground(LABEL_SHADE);
+        counter.setPadding(new Insets(5));
+
+        questionText.setFont(Font.font(22.0));
+        questionText.setTextFill(Color.WHITE);
+        questionText.setWrapText(true);
+        questionText.setBackground(TEXT_SHADE);
+        questionText.setPadding(new Insets(10));
+
+        image.setFitWidth(IMAGE_WIDTH);
+        image.setPreserveRatio(true);
+        showNode(image, false);
+
+        VBox answerBox = new VBox(10.0);
+        answerBox.setAlignment(Pos.CENTER);
+        for (int i = 0; i < 4; i++) {
+            int chosen = i + 1;
+            answers[i] = button(400);
+            answers[i].setOnAction(e -> {
+                markTransition();
+                onAnswer.accept(chosen);
+            });
+            answerBox.getChildren().add(answers[i]);
+        }
+
+        Button back = button(200);
+        back.setText("Przerwij i wróć do menu");
+        back.setOnAction(e -> onBack.run());
+
+        questionPage.getChildren().addAll(counter, questionText, image, answerBox, back);
+
+        //Feedback page
+        feedbackPage.setAlignment(Pos.CENTER);
+
+        explanation.setFont(Font.font(20.0));
+        explanation.setTextFill(Color.WHITE);
+        explanation.setStyle("-fx-effect: dropshadow(three-pass-box, black, 5, 0, 0, 0);");
+
+        status.setFont(Font.font(48.0));
+        status.setStyle("-fx-effect: dropshadow(three-pass-box, black, 10, 0, 0, 0);");
+
+        Button next = button(-1);
+        next.setText("Następne Pytanie");
+        next.setOnAction(e -> {
+            markTransition();
+            onNext.run();
+        });
+
+        feedbackPage.getChildren().addAll(explanation, status, next);
+        showNode(feedbackPage, false);
+
+        scene = new Scene(new StackPane(questionPage, feedbackPage), width, height);
+        scene.addPostLayoutPulseListener(this::afterLayout);
+    }
+
+    public Scene getScene() { return scene; }
+
+    public void setOnAnswer(IntConsumer onAnswer) { this.onAnswer = onAnswer; }
+    public void setOnNext(Runnable onNext) { this.onNext = onNext; }
+    public void setOnBack(Runnable onBack) { this.onBack = onBack; }
+
+    public void showQuestion(Question q, int number, int total) {
+        AssetCache assets = AssetCache.getInstance();
+        Background background = assets.background(QUIZ_BACKGROUND);
+        questionPage.setBackground(background != null ? background : QUESTION_FALLBACK);
+
+        counter.setText("Pytanie " + number + " z " + total);
+        questionText.setText(q.text);
+
+        //Usually already decoded by the prefetch while the previous question was shown
+        Image img = q.imageUrl != null ? assets.image(q.imageUrl, IMAGE_WIDTH, 0) : null;
+        image.setImage(img);
+        showNode(image, img != null);
+
+        answers[0].setText("A: " + q.a);
+        answers[1].setText("B: " + q.b);
+        answers[2].setText("C: " + q.c);
+        answers[3].setText("D: " + q.d);
+
+        showNode(feedbackPage, false);
+        showNode(questionPage, true);
+    }
+
+    //correctAnswer = null when the answer was right
+    public void showFeedback(boolean correct, String correctAnswer) {
+        Background background = AssetCache.getInstance().background(correct ? CORRECT_BACKGROUND : WRONG_BACKGROUND);
+        feedbackPage.setBackground(background != null ? background : (correct ? CORRECT_FALLBACK : WRONG_FALLBACK));
+
+        status.setText(correct ? "DOBRZE!" : "ŹLE!");
+        status.setTextFill(correct ? Color.LIME : Color.RED);
+        if (correctAnswer != null) explanation.setText("Poprawna odpowiedź: " + correctAnswer + ".");
+        showNode(explanation, correctAnswer != null);
+
+        showNode(questionPage, false);
+        showNode(feedbackPage, true);
+    }
+
+    //Prefetches what the next question will show
+    public static void prefetch(Question q) {
+        AssetCache.getInstance().prefetch(q.imageUrl, IMAGE_WIDTH, 0);
+    }
+
+    public static void prefetchBackgrounds() {
+        AssetCache assets = AssetCache.getInstance();
+        assets.prefetch(QUIZ_BACKGROUND);
+        assets.prefetch(CORRECT_BACKGROUND);
+        assets.prefetch(WRONG_BACKGROUND);
+    }
+
+    public FrameHistogram getTransitionHistogram() { return transitions; }
+
+    //p50 / p99 / max of the transitions so far, in milliseconds
+    public String transitionSummary() {
+        return String.format("Przejścia quizu: %d, p50 %.2f ms, p99 %.2f ms, max %.2f ms", transitions.getCount(),
+                transitions.percentile(50) / 1e6, transitions.percentile(99) / 1e6, transitions.getMax() / 1e6);
+    }
+
+    private void markTransition() {
+        transitionStart = System.nanoTime();
+    }
+
+    //Runs after the layout pass of every pulse: the first one after a click has the new content laid out
+    private void afterLayout() {
+        if (transitionStart != 0) {
+            transitions.record(System.nanoTime() - transitionStart);
+            transitionStart = 0;
+        }
+    }
+
+    private static Button button(double width) {
+        Button b = new Button();
+        if (width > 0) b.setPrefWidth(width);
+        b.setBackground(BUTTON);
+        b.setTextFill(Color.WHITE);
+        b.setFont(BUTTON_FONT);
+        b.setOnMouseEntered(e -> b.setBackground(BUTTON_HOVER));
+        b.setOnMouseExited(e -> b.setBackground(BUTTON));
+        b.setOnMousePressed(e -> {
+            b.setScaleX(0.95);
+            b.setScaleY(0.95);
+        });
+        b.setOnMouseReleased(e -> {
+            b.setScaleX(1.0);
+            b.setScaleY(1.0);
+        });
+        return b;
+    }
+
+    private static void showNode(javafx.scene.Node node, boolean visible) {
+        node.setVisible(visible);
+        node.setManaged(visible);
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.flightlab;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.zip.CRC32;
+
+//One recorded mission: the starting state of the plane and the controls of every physics tick.
+//The physics is deterministic (fixed dt, StrictMath), so feeding the same controls to a
+//MissionSimulation built from the same start gives the same flight, bit for bit.
+//
+//Controls are stored as runs of equal ticks: varint((runLength - 1) << 7 | mask XOR previousMask).
+//Keys change a few times per second, so a minute of flight takes a few hundred bytes.
+//
+//File layout (big endian):
+//  header   magic, version, mission, dt, wind seed, player, recorded at
+//  start    x, y, vx, vy, angle, pitch, throttle, fuel, flags (on ground, flaps, mission active)
+//  inputs   ticks, byte count, runs
+//  result   outcome, points, hash of the final state
+//  CRC32 of everything above
+public class Replay {
+
+    static final int MAGIC = 0x464C5250; //"FLRP"
+    static final short VERSION = 5; //2: terrain, 3: wind field from the seed (older flights had other wind), 4: mission file id,
+                                    //5: the tick of a mid-air collision counts
+    static final int MASK_BITS = 7; //Controls.ALL fits in 7 bits
+
+    public static final String EXTENSION = ".flr";
+
+    private static final int ON_GROUND = 1, FLAPS = 2, MISSION_ACTIVE = 4;
+
+    private final MissionDefinition mission;
+    private final double dt;
+    private final long windSeed;
+    private final String player;
+    private final long recordedAt;
+
+    private final double x, y, vx, vy, angle, pitch, throttle, fuel;
+    private final int flags;
+
+    private final long ticks;
+    private final byte[] runs;
+    private final int runsLength;
+
+    private final MissionSimulation.Outcome outcome;
+    private final int points;
+    private final long finalHash;
+
+    Replay(MissionDefinition mission, double dt, long windSeed, String player, long recordedAt,
+           double x, double y, double vx, double vy, double angle, double pitch, double throttle, double fuel, int flags,
+           long ticks, byte[] runs, int runsLength, MissionSimulation.Outcome outcome, int points, long finalHash) {
+        this.mission = mission;
+        this.dt = dt;
+        this.windSeed = windSeed;
+        this.player = player;
+        this.recordedAt = recordedAt;
+        this.x = x;
+        this.y = y;
+        this.vx = vx;
+        this.vy = vy;
+        this.angle = angle;
+        this.pitch = pitch;
+        this.throttle = throttle;
+        this.fuel = fuel;
+        this.flags = flags;
+        this.ticks = ticks;
+        this.runs = runs;
+        this.runsLength = runsLength;
+        this.outcome = outcome;
+        this.points = points;
+        this.finalHash = finalHash;
+    }
+
+    static int flags(MissionSimulation sim) {
+        FlightLab_Main.Plane p = sim.getPlane();
+        return (p.onGround ? ON_GROUND : 0) | (p.flapsExtended ? FLAPS : 0) | (sim.isMissionActive() ? MISSION_ACTIVE : 0);
+    }
+
+    //Fingerprint of the plane state, equal only if the flight was reproduced exactly
+    public static long stateHash(MissionSimulation sim) {
+        FlightLab_Main.Plane p = sim.getPlane();
+        long h = sim.getTicks();
+        for (double v : new double[]{p.x, p.y, p.vx, p.vy, p.angle, p.pitch, p.throttle, p.fuel, sim.getWindX(), sim.getWindY()}) {
+            h = h * 0x100000001B3L ^ Double.doubleToLongBits(v);
+        }
+        return h * 31 + sim.getPoints();
+    }
+
+    //Fresh simulation in the recorded start state
+    public MissionSimulation newSimulation() {
+        MissionSimulation sim = new MissionSimulation(mission, windSeed);
+        FlightLab_Main.Plane p = sim.getPlane();
+        p.x = x;
+        p.y = y;
+        p.vx = vx;
+        p.vy = vy;
+        p.angle = angle;
+        p.pitch = pitch;
+        p.throttle = throttle;
+        p.fuel = fuel;
+        p.onGround = (flags & ON_GROUND) != 0;
+        p.flapsExtended = (flags & FLAPS) != 0;
+        p.storePreviousState();
+        sim.setMissionActive((flags & MISSION_ACTIVE) != 0);
+        return sim;
+    }
+
+    //True if the recording starts exactly where the mission puts the plane (not moved closer, no extra fuel)
+    public boolean hasStandardStart() {
+        MissionSimulation fresh = new MissionSimulation(mission, windSeed);
+        FlightLab_Main.Plane p = fresh.getPlane();
+        return same(p.x, x) && same(p.y, y) && same(p.vx, vx) && same(p.vy, vy) && same(p.angle, angle)
+                && same(p.pitch, pitch) && same(p.throttle, throttle) && same(p.fuel, fuel) && flags(fresh) == flags;
+    }
+
+    private static boolean same(double a, double b) {
+        return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+    }
+
+    //Plays the recorded controls back, one call per tick in order; NONE after the end
+    public ControlScript player() {
+        return new ControlScript() {
+            private int pos = 0;
+            private long remaining = 0;
+            private int mask = Controls.NONE;
+
+            @Override
+            public int controlsAt(long tick, MissionSimulation sim) {
+                if (remaining == 0) {
+                    if (pos >= runsLength) return Controls.NONE;
+                    long run = 0;
+                    int shift = 0;
+                    byte b;
+                    do {
+                        b = runs[pos++];
+                        run |= (long) (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                    mask ^= (int) (run & ((1 << MASK_BITS) - 1));
+                    remaining = (run >>> MASK_BITS) + 1;
+                }
+                remaining--;
+                return mask;
+            }
+        };
+    }
+
+    //Replays the whole flight without a window, as fast as the CPU allows
+    public MissionSimulation simulate() {
+        MissionSimulation sim = newSimulation();
+        ControlScript script = player();
+        for (long t = 0; t < ticks; t++) {
+            sim.step(dt, script.controlsAt(t, sim));
+        }
+        return sim;
+    }
+
+    //True if the simulation ended exactly like the recorded flight
+    public boolean matches(MissionSimulation sim) {
+        return sim.getTicks() == ticks && sim.getOutcome() == outcome && sim.getPoints() == points
+                && stateHash(sim) == finalHash;
+    }
+
+    public boolean verify() {
+        return matches(simulate());
+    }
+
+    public void write(File file) throws IOException {
+        write(file, encode());
+    }
+
+    //The whole file, CRC included
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 + runsLength);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeUTF(mission.getId());
+        out.writeDouble(dt);
+        out.writeLong(windSeed);
+        out.writeUTF(player != null ? player : "");
+        out.writeLong(recordedAt);
+
+        for (double v : new double[]{x, y, vx, vy, angle, pitch, throttle, fuel}) out.writeDouble(v);
+        out.writeByte(flags);
+
+        out.writeLong(ticks);
+        out.writeInt(runsLength);
+        out.write(runs, 0, runsLength);
+
+        out.writeByte(outcome.ordinal());
+        out.writeInt(points);
+        out.writeLong(finalHash);
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    private static void write(File file, byte[] data) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), data);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    //Writes to dir as mission_date.flr and returns the file
+    public File save(File dir) throws IOException {
+        return save(dir, getFileName(), encode());
+    }
+
+    //The file part of save(), for encoded bytes handed to another thread
+    static File save(File dir, String name, byte[] data) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Nie można utworzyć katalogu " + dir);
+        File file = new File(dir, name + EXTENSION);
+        for (int i = 2; file.exists(); i++) file = new File(dir, name + "_" + i + EXTENSION);
+        write(file, data);
+        return file;
+    }
+
+    //mission_date, without the extension
+    public String getFileName() {
+        return mission.getId() + "_" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(recordedAt));
+    }
+
+    public static Replay read(File file) throws IOException {
+        byte[] data = Files.readAllBytes(file.toPath());
+        if (data.length < 8) throw new IOException("Plik powtórki jest pusty: " + file.getName());
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        in.skipBytes(data.length - 4);
+        if (in.readInt() != (int) crc.getValue()) throw new IOException("Uszkodzony plik powtórki: " + file.getName());
+
+        in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 4));
+        if (in.readInt() != MAGIC) throw new IOException("To nie jest plik powtórki: " + file.getName());
+        short version = in.readShort();
+        if (version != VERSION) throw new IOException("Nieobsługiwana wersja powtórki: " + version);
+
+        MissionDefinition mission = MissionCatalog.getInstance().get(in.readUTF());
+        if (mission == null) throw new IOException("Nieznana misja w powtórce: " + file.getName());
+        double dt = in.readDouble();
+        long windSeed = in.readLong();
+        String player = in.readUTF();
+        long recordedAt = in.readLong();
+
+        double[] s = new double[8];
+        for (int i = 0; i < s.length; i++) s[i] = in.readDouble();
+        int flags = in.readUnsignedByte();
+
+        long ticks = in.readLong();
+        int runsLength = in.readInt();
+        if (runsLength < 0 || runsLength > in.available()) throw new IOException("Uszkodzony plik powtórki: " + file.getName());
+        byte[] runs = new byte[runsLength];
+        in.readFully(runs);
+
+        MissionSimulation.Outcome[] outcomes = MissionSimulation.Outcome.values();
+        int outcome = in.readUnsignedByte();
+        if (outcome >= outcomes.length) throw new IOException("Uszkodzony plik powtórki: " + file.getName());
+        int points = in.readInt();
+        long finalHash = in.readLong();
+
+        return new Replay(mission, dt, windSeed, player.isEmpty() ? null : player, recordedAt,
+                s[0], s[1], s[2], s[3], s[4], s[5], s[6], s[7], flags,
+                ticks, runs, runsLength, outcomes[outcome], points, finalHash);
+    }
+
+    //Most recent replay in dir, null if there is none
+    public static File latest(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(EXTENSION));
+        if (files == null) return null;
+        File newest = null;
+        for (File f : files) {
+            if (newest == null || f.lastModified() > newest.lastModified()) newest = f;
+        }
+        return newest;
+    }
+
+    public MissionDefinition getMission() { return mission; }
+    public MissionType getType() { return mission.getType(); }
+    public double getDt() { return dt; }
+    public long getWindSeed() { return windSeed; }
+    public String getPlayer() { return player; }
+    public long getRecordedAt() { return recordedAt; }
+    public long getTicks() { return ticks; }
+    public double getSeconds() { return ticks * dt; }
+    public int getInputBytes() { return runsLength; }
+    public MissionSimulation.Outcome getOutcome() { return outcome; }
+    public int getPoints() { return points; }
+
+    //Usage: Replay [file.flr] - replays headless (the latest one in replays/ by default) and checks the result
+    public static void main(String[] args) throws IOException {
+        File file = args.length > 0 ? new File(args[0]) : latest(new File("replays"));
+        if (file == null || !file.isFile()) {
+            System.out.println("Brak powtórki. Użycie: Replay [plik" + EXTENSION + "]");
+            return;
+        }
+        Replay replay = read(file);
+        System.out.printf("%s: %s, gracz %s, %.1f s lotu, %d tików, wejście %d B (plik %d B)%n", file.getName(),
+                replay.mission.getId(), replay.player != null ? replay.player : "-", replay.getSeconds(), replay.ticks,
+                replay.runsLength, file.length());
+
+        long start = System.nanoTime();
+        MissionSimulation sim = replay.simulate();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Wynik: %s, %d pkt (zapisano: %s, %d pkt)%n", sim.getOutcome(), sim.getPoints(),
+                replay.outcome, replay.points);
+        System.out.printf("Odtworzono w %.1f ms (%.0fx szybciej niż w czasie rzeczywistym)%n", seconds * 1000,
+                replay.getSeconds() / Math.max(seconds, 1e-9));
+        System.out.println(replay.matches(sim) ? "Zgodne co do bitu." : "NIEZGODNE z nagraniem!");
+    }
+}
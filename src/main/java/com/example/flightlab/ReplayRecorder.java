@@ -0,0 +1,85 @@
+package com.example.flightlab;
+
+import java.util.Arrays;
+
+//Records the controls of a mission tick by tick into the run-length format of Replay.
+//Only a run boundary writes anything, so recording costs almost nothing per tick.
+public class ReplayRecorder {
+
+    private MissionSimulation sim;
+    private String player;
+    private long recordedAt;
+    private double dt;
+
+    //Start state, captured before the first tick
+    private double x, y, vx, vy, angle, pitch, throttle, fuel;
+    private int flags;
+
+    private byte[] runs = new byte[256];
+    private int runsLength = 0;
+    private long ticks = 0;
+    private int previousMask = Controls.NONE; //mask of the last finished run
+    private int mask = Controls.NONE;         //mask of the current run
+    private long runLength = 0;
+
+    //Call before the first step of sim
+    public void begin(MissionSimulation sim, double dt, String player) {
+        this.sim = sim;
+        this.dt = dt;
+        this.player = player;
+        this.recordedAt = System.currentTimeMillis();
+
+        FlightLab_Main.Plane p = sim.getPlane();
+        x = p.x;
+        y = p.y;
+        vx = p.vx;
+        vy = p.vy;
+        angle = p.angle;
+        pitch = p.pitch;
+        throttle = p.throttle;
+        fuel = p.fuel;
+        flags = Replay.flags(sim);
+
+        runsLength = 0;
+        ticks = 0;
+        previousMask = Controls.NONE;
+        mask = Controls.NONE;
+        runLength = 0;
+    }
+
+    //Controls passed to sim.step for the next tick
+    public void record(int controls) {
+        controls &= Controls.ALL;
+        if (controls != mask && runLength > 0) flushRun();
+        mask = controls;
+        runLength++;
+        ticks++;
+    }
+
+    public boolean isRecording() { return sim != null; }
+    public long getTicks() { return ticks; }
+
+    //Ends the recording with the current result of the simulation
+    public Replay finish() {
+        if (sim == null) throw new IllegalStateException("Nagrywanie nie zostało rozpoczęte.");
+        if (runLength > 0) flushRun();
+        Replay replay = new Replay(sim.getDefinition(), dt, sim.getWindSeed(), player, recordedAt,
+                x, y, vx, vy, angle, pitch, throttle, fuel, flags,
+                ticks, Arrays.copyOf(runs, runsLength), runsLength,
+                sim.getOutcome(), sim.getPoints(), Replay.stateHash(sim));
+        sim = null;
+        return replay;
+    }
+
+    private void flushRun() {
+        long value = (runLength - 1) << Replay.MASK_BITS | (mask ^ previousMask);
+        if (runsLength + 10 > runs.length) runs = Arrays.copyOf(runs, runs.length * 2);
+        while ((value & ~0x7FL) != 0) {
+            runs[runsLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        runs[runsLength++] = (byte) value;
+        previousMask = mask;
+        runLength = 0;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.flightlab;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Checks claimed mission points by re-simulating the recorded flight (Replay) headless:
+//same start, same dt, same controls through Plane.updatePhysics and MissionLogic.checkVictory.
+//Runs on a fixed pool of worker threads with a bounded queue; when the queue is full a submission
+//is answered at once with BUSY (try again later), so a flood of submissions cannot grow memory and
+//the submitting thread (the JavaFX thread in the game) never re-simulates a flight itself.
+public class ReplayVerifier implements AutoCloseable {
+
+    public static final double MAX_SECONDS = 3600; //longer flights are not re-simulated
+    private static final int DEFAULT_QUEUE = 1024;
+
+    public enum Status { VERIFIED, REJECTED, BUSY }
+
+    //points = what the re-simulation gave, 0 if the mission was not won
+    public record Result(Status status, int claimedPoints, int points, String reason, long nanos) {
+        public boolean isVerified() { return status == Status.VERIFIED; }
+        public boolean isBusy() { return status == Status.BUSY; }
+    }
+
+    private final ThreadPoolExecutor pool;
+
+    public ReplayVerifier() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE);
+    }
+
+    public ReplayVerifier(int threads, int queueCapacity) {
+        AtomicInteger count = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "flightlab-verifier-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public CompletableFuture<Result> submit(Replay replay, int claimedPoints) {
+        try {
+            return CompletableFuture.supplyAsync(() -> verify(replay, claimedPoints), pool);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(new Result(Status.BUSY, claimedPoints, 0,
+                    "Weryfikator jest zajęty, spróbuj później.", 0));
+        }
+    }
+
+    //Same check on the calling thread
+    public static Result verify(Replay replay, int claimedPoints) {
+        long start = System.nanoTime();
+        if (replay.getDt() != BatchSimulator.DEFAULT_DT) {
+            return reject(claimedPoints, 0, "Niestandardowy krok symulacji: " + replay.getDt(), start);
+        }
+        if (replay.getTicks() < 0 || replay.getSeconds() > MAX_SECONDS) {
+            return reject(claimedPoints, 0, "Nieprawidłowa długość lotu: " + replay.getTicks() + " tików", start);
+        }
+        if (!replay.hasStandardStart()) {
+            return reject(claimedPoints, 0, "Lot nie zaczyna się od stanu początkowego misji.", start);
+        }
+
+        MissionSimulation sim = replay.simulate();
+        int points = sim.getOutcome() == MissionSimulation.Outcome.WON ? sim.getPoints() : 0;
+        if (points == 0) {
+            return reject(claimedPoints, 0, "Misja nie została wykonana (" + sim.getOutcome() + ").", start);
+        }
+        if (points != claimedPoints) {
+            return reject(claimedPoints, points, "Zgłoszono " + claimedPoints + " pkt, lot daje " + points + " pkt.", start);
+        }
+        if (!replay.matches(sim)) {
+            return reject(claimedPoints, points, "Wynik lotu różni się od zapisanego w powtórce.", start);
+        }
+        return new Result(Status.VERIFIED, claimedPoints, points, "", System.nanoTime() - start);
+    }
+
+    private static Result reject(int claimedPoints, int points, String reason, long start) {
+        return new Result(Status.REJECTED, claimedPoints, points, reason, System.nanoTime() - start);
+    }
+
+    public int getQueueDepth() { return pool.getQueue().size(); }
+    public int getActiveCount() { return pool.getActiveCount(); }
+    public long getCompletedCount() { return pool.getCompletedTaskCount(); }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    //Usage: ReplayVerifier [directory with .flr files | number of generated runs]
+    //Generated runs are flown by ScriptedPilot and recorded, then all of them are verified at once.
+    public static void main(String[] args) throws Exception {
+        List<Replay> replays = new ArrayList<>();
+        File dir = new File(args.length > 0 ? args[0] : "replays");
+        if (dir.isDirectory()) {
+            File[] files = dir.listFiles((d, name) -> name.endsWith(Replay.EXTENSION));
+            if (files != null) {
+                for (File f : files) {
+                    try {
+                        replays.add(Replay.read(f));
+                    } catch (IOException e) {
+                        System.out.println(f.getName() + ": " + e.getMessage());
+                    }
+                }
+            }
+        } else {
+            int runs = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+            SplittableRandom rnd = new SplittableRandom(42);
+            MissionType[] types = MissionType.values();
+            for (int i = 0; i < runs; i++) replays.add(record(types[i % types.length], rnd.split()));
+        }
+        if (replays.isEmpty()) {
+            System.out.println("Brak lotów do sprawdzenia.");
+            return;
+        }
+
+        //Everything is submitted at once, so the queue takes all of it
+        try (ReplayVerifier verifier = new ReplayVerifier(Runtime.getRuntime().availableProcessors(), replays.size())) {
+            long start = System.nanoTime();
+            List<CompletableFuture<Result>> results = new ArrayList<>(replays.size());
+            for (Replay r : replays) results.add(verifier.submit(r, r.getPoints()));
+
+            int verified = 0, rejected = 0;
+            FrameHistogram times = new FrameHistogram();
+            for (CompletableFuture<Result> f : results) {
+                Result r = f.join();
+                if (r.isVerified()) verified++;
+                else rejected++;
+                times.record(r.nanos());
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            //Recorded losses have no points to confirm, so they show up as rejected
+            System.out.printf("Sprawdzono %d lotów w %.2f s (%.0f lotów/s, %d wątków)%n", replays.size(), seconds,
+                    replays.size() / seconds, verifier.pool.getMaximumPoolSize());
+            System.out.printf("Potwierdzone: %d, odrzucone: %d%n", verified, rejected);
+            System.out.printf("Czas jednego lotu: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    times.percentile(50) / 1e6, times.percentile(99) / 1e6, times.getMax() / 1e6);
+        }
+    }
+
+    //A random ScriptedPilot flight, recorded (also used by the tests)
+    static Replay record(MissionType type, SplittableRandom rnd) {
+        MissionSimulation sim = new MissionSimulation(type);
+        ReplayRecorder recorder = new ReplayRecorder();
+        recorder.begin(sim, BatchSimulator.DEFAULT_DT, null);
+        ControlScript pilot = ScriptedPilot.random(type, rnd);
+        long maxTicks = (long) (BatchSimulator.DEFAULT_TIME_LIMIT / BatchSimulator.DEFAULT_DT);
+        while (!sim.isFinished() && sim.getTicks() < maxTicks) {
+            int controls = pilot.controlsAt(sim.getTicks(), sim);
+            recorder.record(controls);
+            sim.step(BatchSimulator.DEFAULT_DT, controls);
+        }
+        return recorder.finish();
+    }
+}
@@ -0,0 +1,423 @@
+package com.example.flightlab;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+//Player scores on disk: a binary snapshot plus an append-only journal of score changes.
+//Each point costs one small record instead of rewriting every player.
+//
+//Snapshot: magic, version, generation, count, then (id, name, quizPoints, missionPoints,
+//          verifiedMissions, rejectedMissions) per player; version 1 has no verification counters.
+//Journal:  magic, version, generation, then records [kind u8][length u16][body][crc32].
+//A journal whose generation is older than the snapshot is already contained in it (crash during compaction).
+//Appends are collected in a buffer and written by flush(), so a batch of records is a single write.
+//A batch is all or nothing: the buffer grows instead of being written early, and a failed flush (or
+//rollback()) cuts the file back to where the batch began, so a retried batch is never counted twice
+//and no torn record is left in front of later ones.
+//One process at a time: load() takes an exclusive lock on <save>.lock and keeps it until close(), so the game
+//and a QuizServer on the same save file cannot overwrite each other's records or compact them away.
+public class ScoreJournal implements Closeable {
+
+    public static final byte FIELD_QUIZ = 1;
+    public static final byte FIELD_MISSION = 2;
+    public static final byte FIELD_VERIFIED = 3;
+    public static final byte FIELD_REJECTED = 4;
+    public static final int FIELDS = 4;
+
+    private static final int SNAPSHOT_MAGIC = 0x464C5353; //"FLSS"
+    private static final int JOURNAL_MAGIC = 0x464C534A;  //"FLSJ"
+    private static final int LEGACY_MAGIC = 0xACED0005;   //Java serialization (old flightlab_save.dat)
+    private static final short VERSION = 1;
+    private static final short SNAPSHOT_VERSION = 2;
+    private static final int JOURNAL_HEADER = 4 + 2 + 8;
+
+    private static final byte KIND_PLAYER = 1;
+    private static final byte KIND_SCORE = 2;
+    private static final int SCORE_BODY = 4 + 1 + 4 + 8;
+    private static final int MAX_NAME_BYTES = 1024;
+    private static final int MAX_RECORD = 1 + 2 + 4 + 8 + MAX_NAME_BYTES + 4;
+
+    //Lock files held by this JVM. Checked before opening one: closing any channel of a locked file
+    //drops the lock on some systems, so a second journal must not even try.
+    private static final Set<String> LOCKED = ConcurrentHashMap.newKeySet();
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private final File lockFile;
+
+    private FileChannel lockChannel;
+    private String lockKey;
+    private FileChannel channel;
+    private long committedLength;     //end of the last complete batch in the journal file
+    private int committedRecords;
+    private long reopenAt = -1;       //after a failed rollback the channel is reopened here
+    private long generation = 0;
+    private int recordsSinceSnapshot = 0;
+    private int tornRecordsDropped = 0;
+    private long bytesWritten = 0;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private final CRC32 crc = new CRC32();
+
+    public ScoreJournal(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = new File(snapshotFile.getPath() + ".journal");
+        this.lockFile = new File(snapshotFile.getPath() + ".lock");
+    }
+
+    //Reads the snapshot, migrates the old serialized format and replays the journal. Players are in id order.
+    //Throws IllegalStateException if another process has the save file open.
+    public List<Player> load() throws IOException {
+        closeJournal();
+        lock();
+        buffer.clear();
+        generation = 0;
+        recordsSinceSnapshot = 0;
+        List<Player> players = new ArrayList<>();
+
+        if (snapshotFile.exists() && snapshotFile.length() >= 4) {
+            if (readMagic(snapshotFile) == LEGACY_MAGIC) {
+                players = migrateLegacy();
+            } else {
+                readSnapshot(players);
+            }
+        }
+
+        long validLength = replayJournal(players);
+        openJournal(validLength);
+        committedRecords = recordsSinceSnapshot;
+        return players;
+    }
+
+    public void appendNewPlayer(int id, String playerName) throws IOException {
+        byte[] name = playerName.getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_BYTES) throw new IOException("Nazwa gracza jest za długa.");
+
+        int start = beginRecord();
+        buffer.put(KIND_PLAYER).putShort((short) (4 + 8 + name.length));
+        buffer.putInt(id).putLong(System.currentTimeMillis()).put(name);
+        endRecord(start);
+    }
+
+    public void appendScore(int id, byte field, int delta) throws IOException {
+        int start = beginRecord();
+        buffer.put(KIND_SCORE).putShort((short) SCORE_BODY);
+        buffer.putInt(id).put(field).putInt(delta).putLong(System.currentTimeMillis());
+        endRecord(start);
+    }
+
+    //Writes the buffered records in one go, fsync = also force them to the disk.
+    //On failure the batch is rolled back: nothing of it stays in the file or the buffer.
+    public void flush(boolean fsync) throws IOException {
+        if (channel == null && reopenAt >= 0) {
+            openJournal(reopenAt);
+            reopenAt = -1;
+        }
+        if (channel == null) throw new IOException("Dziennik wyników nie jest otwarty.");
+        buffer.flip();
+        int length = buffer.remaining();
+        try {
+            while (buffer.hasRemaining()) channel.write(buffer);
+            if (fsync) channel.force(false);
+        } catch (IOException e) {
+            rollback();
+            throw e;
+        }
+        buffer.clear();
+        bytesWritten += length;
+        committedLength = channel.position();
+        committedRecords = recordsSinceSnapshot;
+    }
+
+    //Drops the records since the last successful flush, also the part of them already written
+    public void rollback() {
+        buffer.clear();
+        recordsSinceSnapshot = committedRecords;
+        if (channel == null) return;
+        try {
+            channel.truncate(committedLength);
+            channel.position(committedLength);
+        } catch (IOException e) {
+            //The next flush reopens the file and cuts it there
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                //already broken
+            }
+            channel = null;
+            reopenAt = committedLength;
+        }
+    }
+
+    //Writes a fresh snapshot of all players and starts an empty journal
+    public void compact(Collection<Player> players, boolean fsync) throws IOException {
+        if (channel != null) flush(fsync);
+        long nextGeneration = generation + 1;
+
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeShort(SNAPSHOT_VERSION);
+            out.writeLong(nextGeneration);
+            out.writeInt(players.size());
+            for (Player p : players) {
+                out.writeInt(p.getId());
+                out.writeUTF(p.getName());
+                out.writeInt(p.getQuizPoints());
+                out.writeInt(p.getMissionPoints());
+                out.writeInt(p.getVerifiedMissions());
+                out.writeInt(p.getRejectedMissions());
+            }
+            out.flush();
+            if (fsync) fos.getFD().sync();
+        }
+        bytesWritten += tmp.length() + JOURNAL_HEADER;
+        moveAtomically(tmp, snapshotFile);
+
+        //From here on the old journal is ignored on load because its generation is older
+        if (channel != null) channel.close();
+        generation = nextGeneration;
+        File tmpJournal = new File(journalFile.getPath() + ".tmp");
+        try (FileChannel fc = FileChannel.open(tmpJournal.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            fc.write(journalHeader(generation));
+            if (fsync) fc.force(true);
+        }
+        moveAtomically(tmpJournal, journalFile);
+        openJournal(JOURNAL_HEADER);
+        recordsSinceSnapshot = 0;
+        committedRecords = 0;
+    }
+
+    //Writes what is buffered and gives the save file up to other processes
+    @Override
+    public void close() throws IOException {
+        try {
+            closeJournal();
+        } finally {
+            unlock();
+        }
+    }
+
+    public int getRecordsSinceSnapshot() { return recordsSinceSnapshot; }
+    public int getTornRecordsDropped() { return tornRecordsDropped; }
+    public long getBytesWritten() { return bytesWritten; }
+    public long getBytesOnDisk() { return snapshotFile.length() + journalFile.length(); }
+    public File getSnapshotFile() { return snapshotFile; }
+    public File getJournalFile() { return journalFile; }
+
+    //Adds a journaled change to a player, unknown fields are ignored
+    static void apply(Player p, byte field, int delta) {
+        switch (field) {
+            case FIELD_QUIZ -> p.setQuizPoints(p.getQuizPoints() + delta);
+            case FIELD_MISSION -> p.setMissionPoints(p.getMissionPoints() + delta);
+            case FIELD_VERIFIED -> p.setVerifiedMissions(p.getVerifiedMissions() + delta);
+            case FIELD_REJECTED -> p.setRejectedMissions(p.getRejectedMissions() + delta);
+            default -> {}
+        }
+    }
+
+    private void closeJournal() throws IOException {
+        if (channel != null) {
+            if (buffer.position() > 0) flush(false);
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void lock() throws IOException {
+        if (lockChannel != null) return;
+        String key = lockFile.getCanonicalPath();
+        if (!LOCKED.add(key)) throw inUse();
+        FileLock taken = null;
+        FileChannel fc = null;
+        try {
+            fc = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            taken = fc.tryLock();
+        } finally {
+            if (taken == null) {
+                if (fc != null) fc.close();
+                LOCKED.remove(key);
+            }
+        }
+        if (taken == null) throw inUse();
+        lockChannel = fc;
+        lockKey = key;
+    }
+
+    private void unlock() throws IOException {
+        if (lockChannel == null) return;
+        try {
+            lockChannel.close(); //also releases the lock
+        } finally {
+            lockChannel = null;
+            LOCKED.remove(lockKey);
+        }
+    }
+
+    private IllegalStateException inUse() {
+        return new IllegalStateException("Plik zapisu " + snapshotFile + " jest już używany przez inny proces (gra albo serwer quizu).");
+    }
+
+    //Never writes: a batch reaches the file only as a whole, in flush()
+    private int beginRecord() {
+        if (buffer.remaining() < MAX_RECORD) {
+            ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+        return buffer.position();
+    }
+
+    private void endRecord(int start) {
+        crc.reset();
+        crc.update(buffer.array(), start, buffer.position() - start);
+        buffer.putInt((int) crc.getValue());
+        recordsSinceSnapshot++;
+    }
+
+    private void readSnapshot(List<Player> players) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) throw new IOException("Nieznany format pliku " + snapshotFile);
+            short version = in.readShort();
+            generation = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                if (id != i + 1) throw new IOException("Uszkodzony plik " + snapshotFile); //ids are dense, in order
+                Player p = new Player(id, in.readUTF());
+                p.setQuizPoints(in.readInt());
+                p.setMissionPoints(in.readInt());
+                if (version >= 2) {
+                    p.setVerifiedMissions(in.readInt());
+                    p.setRejectedMissions(in.readInt());
+                }
+                players.add(p);
+            }
+        }
+    }
+
+    //Returns the length of the valid part of the journal, a torn or corrupted tail is cut off
+    private long replayJournal(List<Player> players) throws IOException {
+        if (!journalFile.exists() || journalFile.length() < JOURNAL_HEADER) return -1;
+
+        //The journal is kept short by compaction, so reading it whole is cheap
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(journalFile.toPath()));
+        if (data.getInt() != JOURNAL_MAGIC) return -1;
+        data.getShort(); //version
+        long journalGeneration = data.getLong();
+        if (journalGeneration < generation) return -1; //already in the snapshot
+        generation = journalGeneration;
+
+        long valid = data.position();
+        while (data.remaining() >= 3 + 4) {
+            int start = data.position();
+            byte kind = data.get();
+            int length = data.getShort() & 0xFFFF;
+            if (data.remaining() < length + 4) break;
+
+            crc.reset();
+            crc.update(data.array(), start, 3 + length);
+            if (data.getInt(start + 3 + length) != (int) crc.getValue()) break;
+
+            int id = data.getInt();
+            if (kind == KIND_PLAYER) {
+                data.getLong(); //timestamp
+                byte[] name = new byte[length - 12];
+                data.get(name);
+                if (id == players.size() + 1) players.add(new Player(id, new String(name, StandardCharsets.UTF_8)));
+            } else if (kind == KIND_SCORE) {
+                byte field = data.get();
+                int delta = data.getInt();
+                data.getLong(); //timestamp
+                if (id >= 1 && id <= players.size()) apply(players.get(id - 1), field, delta);
+            } else {
+                break;
+            }
+            data.position(start + 3 + length + 4);
+            valid = data.position();
+            recordsSinceSnapshot++;
+        }
+        if (valid < data.capacity()) {
+            tornRecordsDropped++;
+            System.err.println("Dziennik wyników: pominięto uszkodzony koniec pliku (" + (data.capacity() - valid) + " B).");
+        }
+        return valid;
+    }
+
+    private void openJournal(long validLength) throws IOException {
+        if (validLength < 0) {
+            //No usable journal for this snapshot: start a new one
+            try (FileChannel fc = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                fc.write(journalHeader(generation));
+            }
+            validLength = JOURNAL_HEADER;
+        }
+        channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE);
+        channel.truncate(validLength);
+        channel.position(validLength);
+        committedLength = validLength;
+        reopenAt = -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Player> migrateLegacy() throws IOException {
+        List<Player> legacy;
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(snapshotFile))) {
+            legacy = (List<Player>) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Nie można odczytać starego zapisu: " + e.getMessage(), e);
+        }
+
+        Files.copy(snapshotFile.toPath(), new File(snapshotFile.getPath() + ".legacy.bak").toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+
+        List<Player> players = new ArrayList<>(legacy.size());
+        for (Player old : legacy) {
+            Player p = new Player(players.size() + 1, old.getName());
+            p.setQuizPoints(old.getQuizPoints());
+            p.setMissionPoints(old.getMissionPoints());
+            players.add(p);
+        }
+        generation = 0;
+        compact(players, true); //also replaces a journal left over from before the migration
+        closeJournal();
+        System.out.println("Przeniesiono stary zapis do nowego formatu: " + players.size() + " graczy.");
+        return players;
+    }
+
+    private static ByteBuffer journalHeader(long generation) {
+        ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER);
+        header.putInt(JOURNAL_MAGIC).putShort(VERSION).putLong(generation).flip();
+        return header;
+    }
+
+    private static int readMagic(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt();
+        }
+    }
+
+    static void moveAtomically(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (java.nio.file.AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.flightlab;
+
+import java.util.SplittableRandom;
+
+//Simple autopilot used as scripted input for headless runs.
+//It only "presses keys" (Controls bits), exactly like a player would.
+public class ScriptedPilot implements ControlScript {
+
+    private final double cruiseThrottle; //0..1
+    private final double cruiseY;        //screen y to hold while cruising
+    private final double descentX;       //where throttle is cut and the approach begins
+    private final double glideAngle;     //nose-down angle during the approach
+    private final double flapsX;         //where flaps are extended, NaN = never
+
+    private boolean flapsRequested = false;
+
+    public ScriptedPilot(double cruiseThrottle, double cruiseY, double descentX, double glideAngle, double flapsX) {
+        this.cruiseThrottle = cruiseThrottle;
+        this.cruiseY = cruiseY;
+        this.descentX = descentX;
+        this.glideAngle = glideAngle;
+        this.flapsX = flapsX;
+    }
+
+    //Pilot with randomized parameters around a working profile for the given mission
+    public static ScriptedPilot random(MissionType type, SplittableRandom rnd) {
+        double flapsX = rnd.nextBoolean() ? 4000 + rnd.nextDouble(800) : Double.NaN;
+        return switch (type) {
+            case EMERGENCY -> new ScriptedPilot(0.4, 120 + rnd.nextDouble(200), 4900 + rnd.nextDouble(800),
+                    2 + rnd.nextDouble(6), flapsX);
+            case LOW_PASS -> new ScriptedPilot(0.5 + rnd.nextDouble(0.5), 540 + rnd.nextDouble(80), 9000,
+                    0, Double.NaN);
+            case PRECISION -> new ScriptedPilot(0.5 + rnd.nextDouble(0.5), 300 + rnd.nextDouble(250), 4300 + rnd.nextDouble(800),
+                    3 + rnd.nextDouble(8), flapsX);
+            default -> new ScriptedPilot(0.5 + rnd.nextDouble(0.5), 300 + rnd.nextDouble(250), 3800 + rnd.nextDouble(1400),
+                    3 + rnd.nextDouble(8), flapsX);
+        };
+    }
+
+    @Override
+    public int controlsAt(long tick, MissionSimulation sim) {
+        FlightLab_Main.Plane plane = sim.getPlane();
+        int controls = Controls.NONE;
+
+        boolean approach = plane.x >= descentX;
+        double targetThrottle = approach ? 0 : cruiseThrottle;
+        if (plane.throttle < targetThrottle - 0.01) controls |= Controls.RIGHT;
+        else if (plane.throttle > targetThrottle + 0.01) controls |= Controls.LEFT;
+
+        double targetAngle;
+        if (plane.onGround && !approach) {
+            targetAngle = plane.getSpeed() > 120 ? -8 : 0; //Rotate once fast enough
+        } else if (approach) {
+            double height = MissionSimulation.GROUND_Y - plane.y;
+            targetAngle = height > 40 ? glideAngle : -2; //Flare just above the ground
+        } else {
+            double error = plane.y - cruiseY; //positive = too low
+            targetAngle = clamp(-error * 0.1, -15, 10);
+        }
+
+        double angle = plane.angle;
+        if (angle < targetAngle - 1) controls |= Controls.DOWN;
+        else if (angle > targetAngle + 1) controls |= Controls.UP;
+
+        if (!Double.isNaN(flapsX) && plane.x >= flapsX && !flapsRequested) {
+            flapsRequested = true;
+            if (!plane.flapsExtended) controls |= Controls.FLAPS;
+        }
+        return controls;
+    }
+
+    public double getCruiseThrottle() { return cruiseThrottle; }
+    public double getCruiseY() { return cruiseY; }
+    public double getDescentX() { return descentX; }
+    public double getGlideAngle() { return glideAngle; }
+    public double getFlapsX() { return flapsX; }
+
+    private static double clamp(double v, double a, double b) {
+        return Math.max(a, Math.min(b, v));
+    }
+}
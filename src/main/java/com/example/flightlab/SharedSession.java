@@ -0,0 +1,102 @@
+package com.example.flightlab;
+
+import java.util.Arrays;
+
+//Several pilots flying one mission together on the server. Every pilot has a MissionSimulation with the
+//session's wind seed, so they fly through the same wind over the same terrain and are scored by the same
+//mission rules. The server is authoritative: clients only send their keys, the session steps the physics.
+//
+//After every tick the state of all slots is quantized (SnapshotCodec) into a ring of the last HISTORY
+//snapshots, which are the bases the deltas for each client are encoded against.
+public class SharedSession {
+
+    public static final int HISTORY = 64; //power of two, about 2 s at 30 Hz
+    private static final int EDGES = Controls.FLAPS | Controls.MISSION;
+
+    private final int id;
+    private final MissionDefinition mission;
+    private final long windSeed;
+    private final MissionSimulation[] pilots;
+    private final int[] held;  //keys held by each pilot, the latest input wins
+    private final int[] edges; //toggles since the last tick, applied once
+    private int playerCount = 0;
+
+    private int tick = 0;
+    private final int[][] history;
+    private final int[] historyTick;
+
+    public SharedSession(int id, MissionDefinition mission, long windSeed, int maxPilots) {
+        if (maxPilots < 1 || maxPilots > 64) throw new IllegalArgumentException("maxPilots must be 1..64");
+        this.id = id;
+        this.mission = mission;
+        this.windSeed = windSeed;
+        this.pilots = new MissionSimulation[maxPilots];
+        this.held = new int[maxPilots];
+        this.edges = new int[maxPilots];
+        this.history = new int[HISTORY][maxPilots * SnapshotCodec.FIELDS];
+        this.historyTick = new int[HISTORY];
+        Arrays.fill(historyTick, -1);
+    }
+
+    //Free slot for a new pilot, -1 when the session is full
+    public int join() {
+        for (int slot = 0; slot < pilots.length; slot++) {
+            if (pilots[slot] == null) {
+                MissionSimulation sim = new MissionSimulation(mission, windSeed);
+                //60 Hz physics like the game, whatever the server tick rate
+                sim.setIntegration(Integrator.SEMI_IMPLICIT_EULER, BatchSimulator.DEFAULT_DT);
+                pilots[slot] = sim;
+                held[slot] = Controls.NONE;
+                edges[slot] = Controls.NONE;
+                playerCount++;
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public void leave(int slot) {
+        if (pilots[slot] != null) {
+            pilots[slot] = null;
+            playerCount--;
+        }
+    }
+
+    public void setControls(int slot, int controls) {
+        held[slot] = controls & ~EDGES;
+        edges[slot] |= controls & EDGES;
+    }
+
+    //Steps every pilot by dt and stores the new snapshot
+    public void step(double dt) {
+        tick++;
+        int[] snapshot = history[tick & (HISTORY - 1)];
+        for (int slot = 0; slot < pilots.length; slot++) {
+            MissionSimulation sim = pilots[slot];
+            if (sim == null) {
+                SnapshotCodec.clear(snapshot, slot);
+                continue;
+            }
+            sim.step(dt, held[slot] | edges[slot]);
+            edges[slot] = Controls.NONE;
+            SnapshotCodec.quantize(sim, snapshot, slot);
+        }
+        historyTick[tick & (HISTORY - 1)] = tick;
+    }
+
+    //Snapshot of the given tick if it is still in the ring, otherwise null
+    public int[] snapshot(int tick) {
+        int i = tick & (HISTORY - 1);
+        return tick > 0 && historyTick[i] == tick ? history[i] : null;
+    }
+
+    public int[] latest() { return history[tick & (HISTORY - 1)]; }
+    public int getId() { return id; }
+    public MissionDefinition getMission() { return mission; }
+    public long getWindSeed() { return windSeed; }
+    public int getTick() { return tick; }
+    public int getMaxPilots() { return pilots.length; }
+    public int getPlayerCount() { return playerCount; }
+    public boolean isFull() { return playerCount == pilots.length; }
+    public MissionSimulation getPilot(int slot) { return pilots[slot]; }
+}
@@ -0,0 +1,59 @@
+package com.example.flightlab;
+
+//Fixed-timestep accumulator: the physics always advances in equal steps,
+//independent of the frame rate, and the renderer interpolates between the last two steps
+public class SimulationClock {
+
+    public static final double DEFAULT_TICK_RATE = 60.0;
+    public static final int DEFAULT_MAX_STEPS_PER_FRAME = 8;
+
+    private final double step;
+    private final int maxStepsPerFrame;
+
+    private double accumulator = 0;
+    private double alpha = 0;
+    private long ticks = 0;
+    private long droppedSteps = 0;
+
+    public SimulationClock() {
+        this(DEFAULT_TICK_RATE, DEFAULT_MAX_STEPS_PER_FRAME);
+    }
+
+    public SimulationClock(double tickRate, int maxStepsPerFrame) {
+        if (tickRate <= 0) throw new IllegalArgumentException("tickRate must be > 0");
+        if (maxStepsPerFrame < 1) throw new IllegalArgumentException("maxStepsPerFrame must be >= 1");
+        this.step = 1.0 / tickRate;
+        this.maxStepsPerFrame = maxStepsPerFrame;
+    }
+
+    //Adds the real frame time and returns how many physics steps should be run now
+    public int advance(double frameSeconds) {
+        if (frameSeconds > 0) accumulator += frameSeconds;
+
+        int steps = (int) (accumulator / step);
+        if (steps > maxStepsPerFrame) {
+            //Catch-up limit: after a long stall the simulation slows down instead of spiralling
+            droppedSteps += steps - maxStepsPerFrame;
+            steps = maxStepsPerFrame;
+            accumulator = steps * step + (accumulator % step);
+        }
+
+        accumulator -= steps * step;
+        ticks += steps;
+        alpha = accumulator / step;
+        return steps;
+    }
+
+    public void reset() {
+        accumulator = 0;
+        alpha = 0;
+        ticks = 0;
+        droppedSteps = 0;
+    }
+
+    public double getStep() { return step; }
+    public double getAlpha() { return alpha; }
+    public long getTicks() { return ticks; }
+    public double getSimTime() { return ticks * step; }
+    public long getDroppedSteps() { return droppedSteps; }
+}
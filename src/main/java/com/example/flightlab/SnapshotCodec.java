@@ -0,0 +1,127 @@
+package com.example.flightlab;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+//State of all pilots of a SharedSession quantized to ints, and its delta encoding for the network.
+//
+//A snapshot is FIELDS ints per pilot slot. It is sent as the difference to a base snapshot the client
+//already has (the last one it acknowledged, or all zeros): a varint mask of the slots that changed,
+//then per slot a mask of the changed fields and each change as a zigzag varint. A plane cruising
+//straight changes a few fields by a few units, so it costs a handful of bytes; an empty slot costs nothing.
+public final class SnapshotCodec {
+
+    //Fields of one pilot
+    public static final int FLAGS = 0, X = 1, Y = 2, VX = 3, VY = 4, ANGLE = 5, THROTTLE = 6, FUEL = 7, POINTS = 8;
+    public static final int FIELDS = 9;
+
+    //FLAGS bits, the outcome ordinal is stored above them
+    public static final int PRESENT = 1, ON_GROUND = 1 << 1, FLAPS = 1 << 2, MISSION_ACTIVE = 1 << 3;
+    private static final int OUTCOME_SHIFT = 4;
+
+    //Units per int step: 1/16 px for positions, 1/64 px/s for speed, 1/16 degree, 0.1% throttle, 0.01 fuel
+    private static final double POSITION = 16, SPEED = 64, ANGLE_SCALE = 16, THROTTLE_SCALE = 1000, FUEL_SCALE = 100;
+
+    private SnapshotCodec() {}
+
+    public static void quantize(MissionSimulation sim, int[] out, int slot) {
+        FlightLab_Main.Plane p = sim.getPlane();
+        int o = slot * FIELDS;
+        out[o + FLAGS] = PRESENT | (p.onGround ? ON_GROUND : 0) | (p.flapsExtended ? FLAPS : 0)
+                | (sim.isMissionActive() ? MISSION_ACTIVE : 0) | sim.getOutcome().ordinal() << OUTCOME_SHIFT;
+        out[o + X] = (int) Math.round(p.x * POSITION);
+        out[o + Y] = (int) Math.round(p.y * POSITION);
+        out[o + VX] = (int) Math.round(p.vx * SPEED);
+        out[o + VY] = (int) Math.round(p.vy * SPEED);
+        out[o + ANGLE] = (int) Math.round(p.angle * ANGLE_SCALE);
+        out[o + THROTTLE] = (int) Math.round(p.throttle * THROTTLE_SCALE);
+        out[o + FUEL] = (int) Math.round(p.fuel * FUEL_SCALE);
+        out[o + POINTS] = sim.getPoints();
+    }
+
+    public static void clear(int[] out, int slot) {
+        Arrays.fill(out, slot * FIELDS, (slot + 1) * FIELDS, 0);
+    }
+
+    //Writes current as a delta to base (null = all zeros, a full snapshot)
+    public static void encode(int[] current, int[] base, ByteBuffer out) {
+        int slots = current.length / FIELDS;
+        long slotMask = 0;
+        for (int s = 0; s < slots; s++) {
+            if (fieldMask(current, base, s) != 0) slotMask |= 1L << s;
+        }
+        putVarint(out, slotMask);
+        for (int s = 0; s < slots; s++) {
+            if ((slotMask & (1L << s)) == 0) continue;
+            int mask = fieldMask(current, base, s);
+            putVarint(out, mask);
+            int o = s * FIELDS;
+            for (int f = 0; f < FIELDS; f++) {
+                if ((mask & (1 << f)) != 0) putVarint(out, zigzag(current[o + f] - (base != null ? base[o + f] : 0)));
+            }
+        }
+    }
+
+    //Reads a delta written by encode and applies it to base (null = zeros) into out
+    public static void decode(ByteBuffer in, int[] base, int[] out) {
+        if (base != null) System.arraycopy(base, 0, out, 0, out.length);
+        else Arrays.fill(out, 0);
+        long slotMask = getVarint(in);
+        for (int s = 0; slotMask != 0; s++, slotMask >>>= 1) {
+            if ((slotMask & 1) == 0) continue;
+            int mask = (int) getVarint(in);
+            int o = s * FIELDS;
+            for (int f = 0; f < FIELDS; f++) {
+                if ((mask & (1 << f)) != 0) out[o + f] += unzigzag(getVarint(in));
+            }
+        }
+    }
+
+    private static int fieldMask(int[] current, int[] base, int slot) {
+        int o = slot * FIELDS, mask = 0;
+        for (int f = 0; f < FIELDS; f++) {
+            if (current[o + f] != (base != null ? base[o + f] : 0)) mask |= 1 << f;
+        }
+        return mask;
+    }
+
+    //Back to game units
+    public static boolean isPresent(int[] s, int slot) { return (s[slot * FIELDS + FLAGS] & PRESENT) != 0; }
+    public static double x(int[] s, int slot) { return s[slot * FIELDS + X] / POSITION; }
+    public static double y(int[] s, int slot) { return s[slot * FIELDS + Y] / POSITION; }
+    public static double vx(int[] s, int slot) { return s[slot * FIELDS + VX] / SPEED; }
+    public static double vy(int[] s, int slot) { return s[slot * FIELDS + VY] / SPEED; }
+    public static double angle(int[] s, int slot) { return s[slot * FIELDS + ANGLE] / ANGLE_SCALE; }
+    public static double throttle(int[] s, int slot) { return s[slot * FIELDS + THROTTLE] / THROTTLE_SCALE; }
+    public static double fuel(int[] s, int slot) { return s[slot * FIELDS + FUEL] / FUEL_SCALE; }
+    public static int points(int[] s, int slot) { return s[slot * FIELDS + POINTS]; }
+
+    public static MissionSimulation.Outcome outcome(int[] s, int slot) {
+        return MissionSimulation.Outcome.values()[s[slot * FIELDS + FLAGS] >>> OUTCOME_SHIFT];
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static int unzigzag(long v) {
+        return (int) ((v >>> 1) ^ -(v & 1));
+    }
+
+    static void putVarint(ByteBuffer out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    static long getVarint(ByteBuffer in) {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.flightlab;
+
+import java.util.Arrays;
+
+//Uniform grid over the (unbounded) world for neighbour queries between many aircraft.
+//Cells are hashed into a table of buckets, and rebuild() sorts the aircraft by bucket with a
+//counting sort: two passes over the positions, no objects, O(n) per tick.
+//Different cells can share a bucket, so every candidate is checked against its real cell or distance.
+public class SpatialGrid {
+
+    private final double cellSize;
+    private int[] cellX = new int[0], cellY = new int[0]; //cell of every aircraft
+    private int[] bucketOf = new int[0];
+    private int[] start = new int[1];   //bucket -> first index in order, + end
+    private int[] order = new int[0];   //aircraft sorted by bucket
+    private int mask = 0;
+    private int count = 0;
+
+    public SpatialGrid(double cellSize) {
+        if (cellSize <= 0) throw new IllegalArgumentException("cellSize must be > 0");
+        this.cellSize = cellSize;
+    }
+
+    //Sorts aircraft 0..n-1 into their cells
+    public void rebuild(double[] x, double[] y, int n) {
+        if (cellX.length < n) {
+            int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, n - 1)) << 1);
+            cellX = new int[capacity];
+            cellY = new int[capacity];
+            bucketOf = new int[capacity];
+            order = new int[capacity];
+        }
+        //About two buckets per aircraft keeps collisions between cells rare
+        int buckets = Math.max(16, Integer.highestOneBit(Math.max(1, n)) << 1);
+        if (start.length != buckets + 1) start = new int[buckets + 1];
+        else Arrays.fill(start, 0);
+        mask = buckets - 1;
+        count = n;
+
+        for (int i = 0; i < n; i++) {
+            int cx = cell(x[i]), cy = cell(y[i]);
+            cellX[i] = cx;
+            cellY[i] = cy;
+            int b = bucket(cx, cy);
+            bucketOf[i] = b;
+            start[b]++;
+        }
+        //start[b] = end of bucket b, filling from the back moves it to the beginning
+        for (int b = 1; b < buckets; b++) start[b] += start[b - 1];
+        start[buckets] = n;
+        for (int i = n - 1; i >= 0; i--) order[--start[bucketOf[i]]] = i;
+    }
+
+    //Writes the aircraft within radius of (px, py) to out (up to out.length), returns how many there are
+    public int query(double px, double py, double radius, double[] x, double[] y, int[] out) {
+        int found = 0;
+        double r2 = radius * radius;
+        int minX = cell(px - radius), maxX = cell(px + radius);
+        int minY = cell(py - radius), maxY = cell(py + radius);
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                int b = bucket(cx, cy);
+                for (int k = start[b], end = start[b + 1]; k < end; k++) {
+                    int j = order[k];
+                    if (cellX[j] != cx || cellY[j] != cy) continue; //other cell in the same bucket
+                    double dx = x[j] - px, dy = y[j] - py;
+                    if (dx * dx + dy * dy <= r2) {
+                        if (found < out.length) out[found] = j;
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    //Distance to the nearest aircraft within radius of (px, py), or Double.POSITIVE_INFINITY
+    public double nearest(double px, double py, double radius, double[] x, double[] y) {
+        double best = radius * radius;
+        boolean any = false;
+        int minX = cell(px - radius), maxX = cell(px + radius);
+        int minY = cell(py - radius), maxY = cell(py + radius);
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                int b = bucket(cx, cy);
+                for (int k = start[b], end = start[b + 1]; k < end; k++) {
+                    int j = order[k];
+                    if (cellX[j] != cx || cellY[j] != cy) continue;
+                    double dx = x[j] - px, dy = y[j] - py;
+                    double d2 = dx * dx + dy * dy;
+                    if (d2 <= best) {
+                        best = d2;
+                        any = true;
+                    }
+                }
+            }
+        }
+        return any ? Math.sqrt(best) : Double.POSITIVE_INFINITY;
+    }
+
+    //Number of pairs closer than radius (radius <= cell size), each pair counted once.
+    //Every cell is compared with itself and four of its neighbours, so each neighbouring pair of cells is visited once.
+    public int countPairs(double radius, double[] x, double[] y) {
+        if (radius > cellSize) throw new IllegalArgumentException("radius must be <= cell size");
+        double r2 = radius * radius;
+        int pairs = 0;
+        for (int i = 0; i < count; i++) {
+            int cx = cellX[i], cy = cellY[i];
+            pairs += pairsInCell(i, cx, cy, true, r2, x, y);
+            pairs += pairsInCell(i, cx + 1, cy - 1, false, r2, x, y);
+            pairs += pairsInCell(i, cx + 1, cy, false, r2, x, y);
+            pairs += pairsInCell(i, cx + 1, cy + 1, false, r2, x, y);
+            pairs += pairsInCell(i, cx, cy + 1, false, r2, x, y);
+        }
+        return pairs;
+    }
+
+    private int pairsInCell(int i, int cx, int cy, boolean sameCell, double r2, double[] x, double[] y) {
+        int pairs = 0;
+        int b = bucket(cx, cy);
+        for (int k = start[b], end = start[b + 1]; k < end; k++) {
+            int j = order[k];
+            if (cellX[j] != cx || cellY[j] != cy) continue;
+            if (sameCell && j <= i) continue;
+            double dx = x[j] - x[i], dy = y[j] - y[i];
+            if (dx * dx + dy * dy <= r2) pairs++;
+        }
+        return pairs;
+    }
+
+    //Reference for SpatialGridTest and TrafficBenchmark: every pair, O(n^2)
+    public static int countPairsNaive(double radius, double[] x, double[] y, int n) {
+        double r2 = radius * radius;
+        int pairs = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double dx = x[j] - x[i], dy = y[j] - y[i];
+                if (dx * dx + dy * dy <= r2) pairs++;
+            }
+        }
+        return pairs;
+    }
+
+    private int cell(double v) {
+        return (int) Math.floor(v / cellSize);
+    }
+
+    private int bucket(int cx, int cy) {
+        int h = cx * 0x9E3779B9 + cy * 0x85EBCA6B;
+        return (h ^ (h >>> 15)) & mask;
+    }
+
+    public double getCellSize() { return cellSize; }
+    public int size() { return count; }
+}
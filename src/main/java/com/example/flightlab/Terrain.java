@@ -0,0 +1,239 @@
+package com.example.flightlab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+//Procedural heightmap split into fixed-width chunks that are generated when first needed
+//and dropped again (least recently used first) once the chunk budget is full.
+//Generation depends only on the seed and the chunk index, so an evicted chunk comes back identical
+//and replays stay deterministic. Heights are plain arithmetic (no Math.sin), the same on every machine.
+//
+//Everything is stored in primitive arrays: the heights of all resident chunks in one float[],
+//an open-addressing table chunk index -> slot, and the LRU order as a linked list of slot numbers.
+//A lookup is O(1) and allocation-free; the arrays grow only up to the budget.
+public class Terrain {
+
+    public static final int CHUNK_WIDTH = 1024;
+    public static final int SAMPLE_SPACING = 8;
+    static final int SAMPLES = CHUNK_WIDTH / SAMPLE_SPACING + 1; //last sample = first of the next chunk
+
+    public static final double MAX_ELEVATION = 80; //pixels above the airfields
+    public static final long DEFAULT_SEED = 0x5EED_7E22A1L;
+    private static final int DEFAULT_BUDGET_KB = 256;
+
+    private static final double FLAT_MARGIN = 150; //flat ground before and after each airfield
+    private static final double RAMP = 400;        //from flat to full hills
+    private static final double LARGE_WAVE = 1200, SMALL_WAVE = 300;
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private static final int NONE = -1;
+
+    private final long seed;
+    private final double[] flatFrom, flatTo; //airfields, sorted
+
+    private final int maxSlots;
+    private float[] heights = new float[0];  //SAMPLES per slot
+    private int[] slotChunk = new int[0];    //chunk index stored in a slot
+    private int[] newer = new int[0], older = new int[0]; //LRU list of slots
+    private int newest = NONE, oldest = NONE;
+    private int usedSlots = 0;
+
+    private int[] table = new int[0];        //chunk index hash -> slot + 1, 0 = free
+    private int tableMask;
+
+    //Last chunk looked up, most queries in a row hit the same one
+    private int lastChunk = EMPTY, lastSlot = NONE;
+
+    private long generated = 0, evicted = 0;
+
+    public Terrain(long seed, double[] flatFrom, double[] flatTo, long budgetBytes) {
+        if (flatFrom.length != flatTo.length) throw new IllegalArgumentException("flatFrom/flatTo");
+        this.seed = seed;
+        this.flatFrom = flatFrom.clone();
+        this.flatTo = flatTo.clone();
+        this.maxSlots = (int) Math.max(4, Math.min(1 << 20, budgetBytes / chunkBytes()));
+        grow(Math.min(8, maxSlots));
+    }
+
+    //Hills everywhere except the runways of the mission
+    public static Terrain forMission(MissionLogic logic) {
+        List<MissionDefinition.Zone> runways = new ArrayList<>(logic.getDefinition().getRunways());
+        runways.sort(Comparator.comparingDouble(MissionDefinition.Zone::from));
+        double[] from = new double[runways.size()], to = new double[runways.size()];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = runways.get(i).from() - FLAT_MARGIN;
+            to[i] = runways.get(i).to() + FLAT_MARGIN;
+        }
+        return new Terrain(DEFAULT_SEED, from, to, Long.getLong("flightlab.terrainKb", DEFAULT_BUDGET_KB) * 1024);
+    }
+
+    //Bytes held per resident chunk (heights, slot and LRU entries, two table entries)
+    public static long chunkBytes() {
+        return SAMPLES * 4L + 3 * 4L + 2 * 4L;
+    }
+
+    //Height of the ground above the airfield level at world x, linear between samples
+    public double elevation(double x) {
+        int chunk = (int) Math.floor(x / CHUNK_WIDTH);
+        double pos = (x - chunk * (double) CHUNK_WIDTH) / SAMPLE_SPACING;
+        int i = (int) pos;
+        if (i >= SAMPLES - 1) i = SAMPLES - 2;
+        double t = pos - i;
+        int base = slot(chunk) * SAMPLES;
+        return heights[base + i] + (heights[base + i + 1] - heights[base + i]) * t;
+    }
+
+    //Screen y of the ground surface at world x (MissionSimulation.GROUND_Y on the airfields)
+    public double groundY(double x) {
+        return MissionSimulation.GROUND_Y - elevation(x);
+    }
+
+    private int slot(int chunk) {
+        if (chunk == lastChunk) return lastSlot;
+
+        int slot = find(chunk);
+        if (slot == NONE) {
+            slot = usedSlots < maxSlots ? newSlot() : evictOldest();
+            slotChunk[slot] = chunk;
+            insert(chunk, slot);
+            generate(chunk, slot);
+        } else {
+            unlink(slot);
+        }
+        linkNewest(slot);
+
+        lastChunk = chunk;
+        lastSlot = slot;
+        return slot;
+    }
+
+    private int newSlot() {
+        if (usedSlots == slotChunk.length) grow(Math.min(maxSlots, slotChunk.length * 2));
+        return usedSlots++;
+    }
+
+    private int evictOldest() {
+        int slot = oldest;
+        unlink(slot);
+        remove(slotChunk[slot]);
+        evicted++;
+        return slot;
+    }
+
+    private void grow(int slots) {
+        heights = Arrays.copyOf(heights, slots * SAMPLES);
+        slotChunk = Arrays.copyOf(slotChunk, slots);
+        newer = Arrays.copyOf(newer, slots);
+        older = Arrays.copyOf(older, slots);
+
+        //Rehash into a table at least twice the slot count
+        int size = Integer.highestOneBit(Math.max(4, slots * 2 - 1)) << 1;
+        table = new int[size];
+        tableMask = size - 1;
+        for (int s = 0; s < usedSlots; s++) insert(slotChunk[s], s);
+    }
+
+    //Open addressing with linear probing
+    private int find(int chunk) {
+        for (int i = hash(chunk); ; i = (i + 1) & tableMask) {
+            int entry = table[i];
+            if (entry == 0) return NONE;
+            if (slotChunk[entry - 1] == chunk) return entry - 1;
+        }
+    }
+
+    private void insert(int chunk, int slot) {
+        int i = hash(chunk);
+        while (table[i] != 0) i = (i + 1) & tableMask;
+        table[i] = slot + 1;
+    }
+
+    //Backward-shift deletion keeps probe chains intact without tombstones
+    private void remove(int chunk) {
+        int i = hash(chunk);
+        while (slotChunk[table[i] - 1] != chunk) i = (i + 1) & tableMask;
+        int hole = i;
+        for (int j = (hole + 1) & tableMask; table[j] != 0; j = (j + 1) & tableMask) {
+            int home = hash(slotChunk[table[j] - 1]);
+            //Move the entry into the hole if its home is not between the hole and j (cyclically)
+            if (((j - home) & tableMask) >= ((j - hole) & tableMask)) {
+                table[hole] = table[j];
+                hole = j;
+            }
+        }
+        table[hole] = 0;
+        if (chunk == lastChunk) lastChunk = EMPTY;
+    }
+
+    private int hash(int chunk) {
+        int h = chunk * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & tableMask;
+    }
+
+    private void unlink(int slot) {
+        int n = newer[slot], o = older[slot];
+        if (n != NONE) older[n] = o; else newest = o;
+        if (o != NONE) newer[o] = n; else oldest = n;
+    }
+
+    private void linkNewest(int slot) {
+        newer[slot] = NONE;
+        older[slot] = newest;
+        if (newest != NONE) newer[newest] = slot;
+        newest = slot;
+        if (oldest == NONE) oldest = slot;
+    }
+
+    private void generate(int chunk, int slot) {
+        int base = slot * SAMPLES;
+        double x0 = chunk * (double) CHUNK_WIDTH;
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = x0 + i * SAMPLE_SPACING;
+            heights[base + i] = (float) (height(x) * flatness(x));
+        }
+        generated++;
+    }
+
+    //Two octaves of smoothed value noise, 0 .. MAX_ELEVATION
+    private double height(double x) {
+        return MAX_ELEVATION * (0.7 * noise(x / LARGE_WAVE, seed) + 0.3 * noise(x / SMALL_WAVE, seed ^ 0x51ED27L));
+    }
+
+    private static double noise(double x, long seed) {
+        long cell = (long) Math.floor(x);
+        double t = x - cell;
+        t = t * t * (3 - 2 * t); //smoothstep
+        double a = lattice(cell, seed), b = lattice(cell + 1, seed);
+        return a + (b - a) * t;
+    }
+
+    //Random value in [0, 1) for a lattice point (SplitMix64 finalizer)
+    private static double lattice(long cell, long seed) {
+        long z = cell * 0x9E3779B97F4A7C15L + seed;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    //0 on an airfield, rising to 1 over RAMP units away from it
+    private double flatness(double x) {
+        double distance = Double.MAX_VALUE;
+        for (int i = 0; i < flatFrom.length; i++) {
+            if (x >= flatFrom[i] && x <= flatTo[i]) return 0;
+            distance = Math.min(distance, x < flatFrom[i] ? flatFrom[i] - x : x - flatTo[i]);
+        }
+        if (distance >= RAMP) return 1;
+        double t = distance / RAMP;
+        return t * t * (3 - 2 * t);
+    }
+
+    public long getSeed() { return seed; }
+    public int getResidentChunks() { return usedSlots; }
+    public int getMaxChunks() { return maxSlots; }
+    public long getResidentBytes() { return (long) slotChunk.length * chunkBytes(); }
+    public long getGenerated() { return generated; }
+    public long getEvicted() { return evicted; }
+}
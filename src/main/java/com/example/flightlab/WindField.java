@@ -0,0 +1,168 @@
+package com.example.flightlab;
+
+//2D wind over the whole world: large slow gusts plus small fast turbulence.
+//Each layer is gradient noise precomputed into square tiles of GRID x GRID samples (both wind components)
+//that are generated the first time they are needed. A sample is a bilinear interpolation in one tile.
+//The noise of a layer repeats after a fixed number of tiles, so a layer has a fixed set of tiles
+//(about 0.5 MB when all are built) and nothing is ever evicted, however far or long the aircraft fly.
+//
+//Time: the air moves with the mean wind (frozen turbulence), so the wind at (x, y, t) is the tile value
+//at (x - drift * t, y). Every layer drifts at its own speed, so the wind at a fixed point keeps changing.
+//
+//Tiles depend only on the seed and their position, and the noise uses no trigonometry, so the same seed
+//gives the same wind on every machine (replays store the seed). A tile is immutable once built:
+//threads that race on the same slot just build identical tiles, so sampling needs no locks.
+public class WindField {
+
+    static final int GRID_BITS = 6;
+    static final int GRID = 1 << GRID_BITS;        //samples per tile side (+1 shared with the next tile)
+    private static final int STRIDE = GRID + 1;
+
+    //Unit gradients, 16 directions (no sin/cos at run time)
+    private static final double[] GRAD_X = new double[16], GRAD_Y = new double[16];
+    static {
+        double[] c = {1, 0.9239, 0.7071, 0.3827, 0, -0.3827, -0.7071, -0.9239, -1, -0.9239, -0.7071, -0.3827, 0, 0.3827, 0.7071, 0.9239};
+        for (int i = 0; i < 16; i++) {
+            GRAD_X[i] = c[i];
+            GRAD_Y[i] = c[(i + 12) % 16];
+        }
+    }
+
+    private final long seed;
+    private final Layer gusts;
+    private final Layer turbulence;
+
+    public WindField(long seed) {
+        this.seed = seed;
+        //spacing, noise cell, tiles before it repeats (x, y), horizontal and vertical strength, drift
+        this.gusts = new Layer(seed, 32, 512, 16, 1, 40, 15, 25);            //repeats every 32768 x 2048
+        this.turbulence = new Layer(seed ^ 0x7B1E5C0DEL, 8, 64, 8, 2, 8, 6, 60); //every 4096 x 1024
+    }
+
+    //Horizontal and vertical wind at (x, y) and time t, written to out[0] and out[1]
+    public void sample(double x, double y, double t, double[] out) {
+        out[0] = 0;
+        out[1] = 0;
+        gusts.add(x - gusts.drift * t, y, out);
+        turbulence.add(x - turbulence.drift * t, y, out);
+    }
+
+    public long getSeed() { return seed; }
+    public int getResidentTiles() { return gusts.resident() + turbulence.resident(); }
+    public long getResidentBytes() { return getResidentTiles() * (long) STRIDE * STRIDE * 2 * 4; }
+
+    //The final field makes a tile safe to read from any thread as soon as its reference is visible
+    private static final class Tile {
+        final float[] wind; //x and y component per sample, row by row
+
+        Tile(float[] wind) {
+            this.wind = wind;
+        }
+    }
+
+    private static final class Layer {
+        final long seed;
+        final double spacing, inverseSpacing, noiseCell, strengthX, strengthY, drift;
+        final double tileSize;
+        final int tilesX, tilesY; //powers of two
+        final long periodX, periodY; //in noise cells
+        final Tile[] tiles;
+
+        Layer(long seed, double spacing, double noiseCell, int tilesX, int tilesY,
+              double strengthX, double strengthY, double drift) {
+            if (Integer.bitCount(tilesX) != 1 || Integer.bitCount(tilesY) != 1) throw new IllegalArgumentException("tiles must be powers of two");
+            this.seed = seed;
+            this.spacing = spacing;
+            this.inverseSpacing = 1 / spacing;
+            this.noiseCell = noiseCell;
+            this.strengthX = strengthX;
+            this.strengthY = strengthY;
+            this.drift = drift;
+            this.tileSize = spacing * GRID;
+            this.tilesX = tilesX;
+            this.tilesY = tilesY;
+            this.periodX = Math.round(tilesX * tileSize / noiseCell);
+            this.periodY = Math.round(tilesY * tileSize / noiseCell);
+            this.tiles = new Tile[tilesX * tilesY];
+        }
+
+        void add(double x, double y, double[] out) {
+            double gx = x * inverseSpacing, gy = y * inverseSpacing;
+            int cx = (int) gx, cy = (int) gy;
+            if (gx < cx) cx--;
+            if (gy < cy) cy--;
+            double fx = gx - cx, fy = gy - cy;
+
+            //Shifts and masks instead of floorDiv/floorMod, this is the hot path
+            float[] w = tile((cx >> GRID_BITS) & (tilesX - 1), (cy >> GRID_BITS) & (tilesY - 1)).wind;
+            int i = ((cy & (GRID - 1)) * STRIDE + (cx & (GRID - 1))) * 2;
+            int j = i + STRIDE * 2;
+
+            double x0 = w[i] + (w[i + 2] - w[i]) * fx;
+            double x1 = w[j] + (w[j + 2] - w[j]) * fx;
+            double y0 = w[i + 1] + (w[i + 3] - w[i + 1]) * fx;
+            double y1 = w[j + 1] + (w[j + 3] - w[j + 1]) * fx;
+            out[0] += x0 + (x1 - x0) * fy;
+            out[1] += y0 + (y1 - y0) * fy;
+        }
+
+        Tile tile(int tx, int ty) {
+            int slot = ty * tilesX + tx;
+            Tile t = tiles[slot];
+            if (t == null) {
+                t = new Tile(generate(tx, ty));
+                tiles[slot] = t;
+            }
+            return t;
+        }
+
+        float[] generate(int tx, int ty) {
+            float[] w = new float[STRIDE * STRIDE * 2];
+            double x0 = tx * tileSize, y0 = ty * tileSize;
+            for (int row = 0; row < STRIDE; row++) {
+                double y = (y0 + row * spacing) / noiseCell;
+                for (int col = 0; col < STRIDE; col++) {
+                    double x = (x0 + col * spacing) / noiseCell;
+                    int k = (row * STRIDE + col) * 2;
+                    w[k] = (float) (strengthX * noise(x, y, periodX, periodY, seed));
+                    w[k + 1] = (float) (strengthY * noise(x, y, periodX, periodY, seed ^ 0x3C6EF372FE94F82BL));
+                }
+            }
+            return w;
+        }
+
+        int resident() {
+            int n = 0;
+            for (Tile t : tiles) if (t != null) n++;
+            return n;
+        }
+    }
+
+    //2D gradient noise, about -1 .. 1, repeating after periodX x periodY cells
+    static double noise(double x, double y, long periodX, long periodY, long seed) {
+        long cx = (long) Math.floor(x), cy = (long) Math.floor(y);
+        double fx = x - cx, fy = y - cy;
+        double u = fade(fx), v = fade(fy);
+        long x0 = Math.floorMod(cx, periodX), x1 = Math.floorMod(cx + 1, periodX);
+        long y0 = Math.floorMod(cy, periodY), y1 = Math.floorMod(cy + 1, periodY);
+        double a = dot(x0, y0, fx, fy, seed);
+        double b = dot(x1, y0, fx - 1, fy, seed);
+        double c = dot(x0, y1, fx, fy - 1, seed);
+        double d = dot(x1, y1, fx - 1, fy - 1, seed);
+        double ab = a + (b - a) * u;
+        double cd = c + (d - c) * u;
+        return 1.4 * (ab + (cd - ab) * v);
+    }
+
+    private static double fade(double t) {
+        return t * t * t * (t * (t * 6 - 15) + 10);
+    }
+
+    private static double dot(long cx, long cy, double dx, double dy, long seed) {
+        long z = cx * 0x9E3779B97F4A7C15L + cy * 0xC2B2AE3D27D4EB4FL + seed;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        int g = (int) (z >>> 60);
+        return GRAD_X[g] * dx + GRAD_Y[g] * dy;
+    }
+}
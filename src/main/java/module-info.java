@@ -9,6 +9,10 @@ module com.example.flightlab {
     requires com.almasb.fxgl.all;
     requires java.sql;
     requires javafx.media;
+    requires jdk.management;
+    requires jdk.jfr;
+    requires jdk.httpserver;
+    requires java.net.http;
 
     opens com.example.flightlab to javafx.fxml;
     exports com.example.flightlab;
@@ -0,0 +1,24 @@
+package com.example.flightlab;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//The fleet must fly exactly like MissionSimulation flies the same aircraft as single Planes, over the hills of
+//every mission, at the game's step and at a longer one
+class AircraftFleetTest {
+
+    private static final double TOLERANCE = 1e-9; //metres, after 600 ticks
+
+    @Test
+    void fleetMatchesSinglePlanesAt60Hz() {
+        double deviation = AircraftFleet.maxDeviationFromPlanes(500, 600, 7);
+        assertTrue(deviation < TOLERANCE, "deviation " + deviation + " m");
+    }
+
+    @Test
+    void fleetMatchesSinglePlanesWithLongerSteps() {
+        double deviation = AircraftFleet.maxDeviationFromPlanes(500, 600, 11, 1.0 / 20);
+        assertTrue(deviation < TOLERANCE, "deviation " + deviation + " m");
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.flightlab;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//A recorded flight must replay bit for bit, also after a trip through the file
+class ReplayTest {
+
+    @Test
+    void everyMissionTypeReplaysBitForBit() {
+        SplittableRandom rnd = new SplittableRandom(3);
+        for (MissionType type : MissionType.values()) {
+            for (int i = 0; i < 5; i++) {
+                Replay replay = ReplayVerifier.record(type, rnd.split());
+                MissionSimulation first = replay.simulate();
+                MissionSimulation second = replay.simulate();
+                assertTrue(replay.matches(first), type + " run " + i + " differs from the recording");
+                assertEquals(Replay.stateHash(first), Replay.stateHash(second));
+            }
+        }
+    }
+
+    @Test
+    void fileRoundTripKeepsEveryByte() throws IOException {
+        Replay replay = ReplayVerifier.record(MissionType.values()[0], new SplittableRandom(5));
+        File file = File.createTempFile("replay-test", Replay.EXTENSION);
+        try {
+            replay.write(file);
+            Replay read = Replay.read(file);
+            assertArrayEquals(replay.encode(), read.encode());
+            assertEquals(replay.getTicks(), read.getTicks());
+            assertEquals(replay.getOutcome(), read.getOutcome());
+            assertTrue(read.verify());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.flightlab;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+//Honest claims are confirmed, tampered ones are not, and a full queue never verifies on the caller
+class ReplayVerifierTest {
+
+    private static final int TRAILER = 1 + 4 + 8 + 4; //outcome, points, final hash, CRC32
+
+    @Test
+    void honestClaimIsVerified() {
+        Replay won = wonFlight();
+        ReplayVerifier.Result result = ReplayVerifier.verify(won, won.getPoints());
+        assertTrue(result.isVerified(), result.reason());
+        assertEquals(won.getPoints(), result.points());
+    }
+
+    @Test
+    void inflatedPointsAreRejected() {
+        Replay won = wonFlight();
+        ReplayVerifier.Result result = ReplayVerifier.verify(won, won.getPoints() + 100);
+        assertEquals(ReplayVerifier.Status.REJECTED, result.status());
+        assertEquals(won.getPoints(), result.points());
+    }
+
+    @Test
+    void changedControlsAreRejected() throws IOException {
+        Replay won = wonFlight();
+        byte[] data = won.encode();
+        //First run of the inputs: toggle the first control of the mask, then make the CRC valid again
+        data[data.length - TRAILER - won.getInputBytes()] ^= 1;
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        int value = (int) crc.getValue();
+        for (int i = 0; i < 4; i++) data[data.length - 4 + i] = (byte) (value >>> (24 - 8 * i));
+
+        File file = File.createTempFile("tampered", Replay.EXTENSION);
+        try {
+            Files.write(file.toPath(), data);
+            Replay tampered = Replay.read(file);
+            ReplayVerifier.Result result = ReplayVerifier.verify(tampered, won.getPoints());
+            assertFalse(result.isVerified(), "a flight with other controls was confirmed");
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void fullQueueAnswersBusy() {
+        Replay won = wonFlight();
+        List<CompletableFuture<ReplayVerifier.Result>> results = new ArrayList<>();
+        try (ReplayVerifier verifier = new ReplayVerifier(1, 1)) {
+            for (int i = 0; i < 20; i++) results.add(verifier.submit(won, won.getPoints()));
+            int busy = 0;
+            for (CompletableFuture<ReplayVerifier.Result> f : results) {
+                ReplayVerifier.Result result = f.join();
+                if (result.isBusy()) busy++;
+                else assertTrue(result.isVerified(), result.reason());
+            }
+            assertTrue(busy > 0, "a full queue must answer BUSY");
+        }
+    }
+
+    private static Replay wonFlight() {
+        SplittableRandom rnd = new SplittableRandom(42);
+        for (int i = 0; i < 500; i++) {
+            Replay replay = ReplayVerifier.record(MissionType.values()[i % MissionType.values().length], rnd.split());
+            if (replay.getOutcome() == MissionSimulation.Outcome.WON) return replay;
+        }
+        return fail("no scripted flight won a mission");
+    }
+}
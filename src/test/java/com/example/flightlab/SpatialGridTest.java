@@ -0,0 +1,88 @@
+package com.example.flightlab;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//The grid must find exactly what checking every aircraft finds: around the origin (negative cells),
+//with many aircraft per cell and cells sharing buckets, and after rebuilds of other sizes
+class SpatialGridTest {
+
+    private static final double CELL = 50;
+
+    @Test
+    void countPairsMatchesEveryPair() {
+        SplittableRandom rnd = new SplittableRandom(3);
+        SpatialGrid grid = new SpatialGrid(CELL);
+        for (int n : new int[]{0, 1, 2, 37, 1000, 300, 4000}) {
+            double[] x = new double[n], y = new double[n];
+            fill(rnd, x, y, n);
+            grid.rebuild(x, y, n);
+            for (double radius : new double[]{CELL, CELL / 2, 1}) {
+                assertEquals(SpatialGrid.countPairsNaive(radius, x, y, n), grid.countPairs(radius, x, y),
+                        n + " aircraft, radius " + radius);
+            }
+        }
+    }
+
+    @Test
+    void queryAndNearestMatchEveryAircraft() {
+        SplittableRandom rnd = new SplittableRandom(5);
+        SpatialGrid grid = new SpatialGrid(CELL);
+        for (int n : new int[]{1, 500, 3000}) {
+            double[] x = new double[n], y = new double[n];
+            fill(rnd, x, y, n);
+            grid.rebuild(x, y, n);
+            int[] out = new int[n];
+            for (int q = 0; q < 200; q++) {
+                double px = rnd.nextDouble(-600, 600), py = rnd.nextDouble(-600, 600);
+                double radius = rnd.nextDouble(1, 3 * CELL); //queries may span several cells
+
+                int found = grid.query(px, py, radius, x, y, out);
+                int[] got = Arrays.copyOf(out, found);
+                Arrays.sort(got);
+                assertArrayEquals(within(px, py, radius, x, y, n), got, "query at " + px + ", " + py + " r " + radius);
+                assertEquals(nearest(px, py, radius, x, y, n), grid.nearest(px, py, radius, x, y),
+                        "nearest at " + px + ", " + py + " r " + radius);
+            }
+            //A short output array still gets the full count
+            int found = grid.query(0, 0, 4 * CELL, x, y, new int[1]);
+            assertEquals(within(0, 0, 4 * CELL, x, y, n).length, found, "count with a short array");
+        }
+    }
+
+    //Dense around the origin, about half the coordinates negative; some points exactly on cell borders
+    private static void fill(SplittableRandom rnd, double[] x, double[] y, int n) {
+        for (int i = 0; i < n; i++) {
+            if (rnd.nextInt(8) == 0) {
+                x[i] = rnd.nextInt(-10, 10) * CELL;
+                y[i] = rnd.nextInt(-10, 10) * CELL;
+            } else {
+                x[i] = rnd.nextDouble(-500, 500);
+                y[i] = rnd.nextDouble(-500, 500);
+            }
+        }
+    }
+
+    private static int[] within(double px, double py, double radius, double[] x, double[] y, int n) {
+        return IntStream.range(0, n).filter(j -> {
+            double dx = x[j] - px, dy = y[j] - py;
+            return dx * dx + dy * dy <= radius * radius;
+        }).toArray();
+    }
+
+    private static double nearest(double px, double py, double radius, double[] x, double[] y, int n) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < n; j++) {
+            double dx = x[j] - px, dy = y[j] - py;
+            double d2 = dx * dx + dy * dy;
+            if (d2 <= radius * radius && d2 < best) best = d2;
+        }
+        return Math.sqrt(best);
+    }
+}